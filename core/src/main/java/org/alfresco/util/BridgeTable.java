@@ -420,6 +420,49 @@ public class BridgeTable<T>
         return ancestors.size();
     }
 
+    /**
+     * Create an independent copy of this table, so that changes can be made to the copy while the original is still being read.
+     * 
+     * @return the copy
+     */
+    public BridgeTable<T> copy()
+    {
+        BridgeTable<T> copy = new BridgeTable<T>();
+        readWriteLock.readLock().lock();
+        try
+        {
+            copy(descendants, copy.descendants);
+            copy(ancestors, copy.ancestors);
+        }
+        finally
+        {
+            readWriteLock.readLock().unlock();
+        }
+        return copy;
+    }
+
+    private void copy(HashMap<T, HashMap<Integer, HashMap<T, Counter>>> source, HashMap<T, HashMap<Integer, HashMap<T, Counter>>> target)
+    {
+        for (T node : source.keySet())
+        {
+            HashMap<Integer, HashMap<T, Counter>> byPosition = source.get(node);
+            HashMap<Integer, HashMap<T, Counter>> byPositionCopy = new HashMap<Integer, HashMap<T, Counter>>(byPosition.size() * 2);
+            for (Integer position : byPosition.keySet())
+            {
+                HashMap<T, Counter> counters = byPosition.get(position);
+                HashMap<T, Counter> countersCopy = new HashMap<T, Counter>(counters.size() * 2);
+                for (T key : counters.keySet())
+                {
+                    Counter counter = new Counter();
+                    counter.add(counters.get(key));
+                    countersCopy.put(key, counter);
+                }
+                byPositionCopy.put(position, countersCopy);
+            }
+            target.put(node, byPositionCopy);
+        }
+    }
+
     private static class Counter
     {
         int count = 0;
@@ -18,12 +18,18 @@
  */
 package org.alfresco.util.cache;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.logging.Log;
@@ -40,6 +46,10 @@ import org.alfresco.util.transaction.TransactionSupportUtil;
  * The base implementation for an asynchronously refreshed cache.
  * 
  * Currently supports one value or a cache per key (such as tenant.) Implementors just need to provide buildCache(String key/tennnantId)
+ * <p>
+ * Implementors that can apply incremental changes to an existing entry may also override {@link #applyChanges(String, Object, List)}. Changes are published with {@link #refresh(String, Serializable)}, collected until the transaction commits and applied to the live entry by the refresh job. The live entry must never be modified in place: an implementation copies it, applies the changes to the copy and returns the copy, so readers holding the previous entry are unaffected. The entry is rebuilt in full when there is no live entry, a plain refresh was requested, too many changes are pending or the changes cannot be applied.
+ * <p>
+ * Transactions are not notified in the order they commit. The changes of a transaction that started before the last full build, or that conflict with changes recorded since the transaction started, may be out of order, so they rebuild the entry instead; see {@link #changesConflict(Serializable, Serializable)}.
  * 
  * @author Andy
  * @since 4.1.3
@@ -77,6 +87,17 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
     private String cacheId;
     private RefreshState refreshState = RefreshState.IDLE;
     private String resourceKeyTxnData;
+    // Changes waiting to be applied, by key; a null list means the entry must be rebuilt (guarded by refreshLock)
+    private final HashMap<String, List<Serializable>> pendingChanges = new HashMap<String, List<Serializable>>();
+    // The number of full builds running, by key (guarded by refreshLock)
+    private final HashMap<String, Integer> fullBuilds = new HashMap<String, Integer>();
+    // Counts the changes recorded and the full builds started, so that transactions can tell what happened after they started
+    private final AtomicLong generation = new AtomicLong();
+    // The generation of the last full build, by key; older changes may already be in the entry (guarded by refreshLock)
+    private final HashMap<String, Long> builtGenerations = new HashMap<String, Long>();
+    // The changes recorded since the last full build, by key (guarded by refreshLock)
+    private final HashMap<String, List<RecordedChange>> recordedChanges = new HashMap<String, List<RecordedChange>>();
+    private int maxPendingChanges = 1000;
 
     @Override
     public void register(RefreshableCacheListener listener)
@@ -102,6 +123,15 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
         this.registry = registry;
     }
 
+    /**
+     * @param maxPendingChanges
+     *            the number of incremental changes that may be queued for a key before the entry is rebuilt in full instead
+     */
+    public void setMaxPendingChanges(int maxPendingChanges)
+    {
+        this.maxPendingChanges = maxPendingChanges;
+    }
+
     public void init()
     {
         registry.register(this);
@@ -189,7 +219,9 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
         {
             logger.debug("Building cache for tenant " + key + " on " + this);
         }
-        T cache = buildCache(key);
+        // The entry built here already includes every change made so far, so none of them may be applied again;
+        // the changes made by the transaction from now on are still applied once it commits
+        T cache = fullBuild(key, (TransactionSupportUtil.getTransactionId() != null) ? getTransactionData() : null);
         if (logger.isDebugEnabled())
         {
             logger.debug("Cache built for tenant " + key + " on " + this);
@@ -235,6 +267,23 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
         registry.broadcastEvent(new RefreshableCacheRefreshEvent(cacheId, key), true);
     }
 
+    /**
+     * Request a refresh that can be satisfied by applying the given change to the current entry rather than rebuilding it. As with {@link #refresh(String)} the change takes effect after the current transaction commits.
+     * 
+     * @param key
+     *            the cache key
+     * @param change
+     *            the change, understood by {@link #applyChanges(String, Object, List)}
+     */
+    public void refresh(String key, Serializable change)
+    {
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Async cache incremental refresh request for tenant " + key + " on " + this + ": " + change);
+        }
+        registry.broadcastEvent(new RefreshableCacheRefreshEvent(cacheId, key, change), true);
+    }
+
     @Override
     public void onRefreshableCacheEvent(RefreshableCacheEvent refreshableCacheEvent)
     {
@@ -248,6 +297,13 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
             logger.debug("Async cache onRefreshableCacheEvent " + refreshableCacheEvent + " on " + this);
         }
 
+        // Only refresh events can carry a change; anything else rebuilds the entry
+        Serializable change = null;
+        if (refreshableCacheEvent instanceof RefreshableCacheRefreshEvent)
+        {
+            change = ((RefreshableCacheRefreshEvent) refreshableCacheEvent).getChange();
+        }
+
         // If in a transaction delay the refresh until after it commits
 
         if (TransactionSupportUtil.getTransactionId() != null)
@@ -258,9 +314,11 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
             }
             TransactionData txData = getTransactionData();
             txData.keys.add(refreshableCacheEvent.getKey());
+            addChange(txData.changes, refreshableCacheEvent.getKey(), change);
         }
         else
         {
+            recordChanges(refreshableCacheEvent.getKey(), (change == null) ? null : Collections.singletonList(change), generation.get());
             LinkedHashSet<String> keys = new LinkedHashSet<String>();
             keys.add(refreshableCacheEvent.getKey());
             queueRefreshAndSubmit(keys);
@@ -278,6 +336,9 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
             data = new TransactionData();
             // create and initialize caches
             data.keys = new LinkedHashSet<String>();
+            data.changes = new LinkedHashMap<String, List<Serializable>>();
+            data.generation = generation.get();
+            data.builtGenerations = new HashMap<String, Long>();
 
             // ensure that we get the transaction callbacks as we have bound the unique
             // transactional caches to a common manager
@@ -292,6 +353,118 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
         return data;
     }
 
+    private static void addChange(Map<String, List<Serializable>> changes, String key, Serializable change)
+    {
+        if (change == null)
+        {
+            changes.put(key, null);
+        }
+        else if (!changes.containsKey(key))
+        {
+            List<Serializable> list = new ArrayList<Serializable>();
+            list.add(change);
+            changes.put(key, list);
+        }
+        else if (changes.get(key) != null)
+        {
+            changes.get(key).add(change);
+        }
+    }
+
+    /**
+     * Record committed changes for the next refresh of a key.
+     * 
+     * @param changes
+     *            the changes or <tt>null</tt> if the entry must be rebuilt
+     * @param changesGeneration
+     *            the generation when the transaction making the changes started
+     */
+    private void recordChanges(String key, List<Serializable> changes, long changesGeneration)
+    {
+        refreshLock.writeLock().lock();
+        try
+        {
+            long recordedGeneration = generation.incrementAndGet();
+            if ((changes == null) || fullBuilds.containsKey(key))
+            {
+                // A build that is already running may or may not see these changes, so it can't be patched afterwards
+                pendingChanges.put(key, null);
+            }
+            else if (isOutOfOrder(key, changes, changesGeneration))
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Changes for tenant " + key + " may have committed before changes already recorded; rebuilding: " + this);
+                }
+                pendingChanges.put(key, null);
+            }
+            else if (!pendingChanges.containsKey(key) || (pendingChanges.get(key) != null))
+            {
+                List<Serializable> pending = pendingChanges.computeIfAbsent(key, k -> new ArrayList<Serializable>());
+                pending.addAll(changes);
+                if (pending.size() > maxPendingChanges)
+                {
+                    pendingChanges.put(key, null);
+                }
+            }
+            if (changes != null)
+            {
+                List<RecordedChange> recorded = recordedChanges.computeIfAbsent(key, k -> new ArrayList<RecordedChange>());
+                for (Serializable change : changes)
+                {
+                    recorded.add(new RecordedChange(recordedGeneration, change));
+                }
+                if (recorded.size() > maxPendingChanges)
+                {
+                    // Forget the changes, and treat the transactions that could conflict with them like those overlapping a full build
+                    recordedChanges.remove(key);
+                    builtGenerations.put(key, recordedGeneration);
+                    pendingChanges.put(key, null);
+                }
+            }
+        }
+        finally
+        {
+            refreshLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Must be run with refreshLock.writeLock
+     * 
+     * @return <tt>true</tt> if the changes may have committed before a full build or before conflicting changes that are already recorded
+     */
+    private boolean isOutOfOrder(String key, List<Serializable> changes, long changesGeneration)
+    {
+        Long builtGeneration = builtGenerations.get(key);
+        if ((builtGeneration != null) && (changesGeneration < builtGeneration))
+        {
+            // The build may or may not have seen the changes
+            return true;
+        }
+        List<RecordedChange> recorded = recordedChanges.get(key);
+        if (recorded == null)
+        {
+            return false;
+        }
+        for (RecordedChange other : recorded)
+        {
+            // Changes recorded before the transaction started were committed before it
+            if (other.generation <= changesGeneration)
+            {
+                continue;
+            }
+            for (Serializable change : changes)
+            {
+                if (changesConflict(change, other.change))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private void queueRefreshAndSubmit(LinkedHashSet<String> tenantIds)
     {
         if ((tenantIds == null) || (tenantIds.size() == 0))
@@ -481,7 +654,11 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
         {
             logger.debug("Building cache for tenant" + refresh.getKey() + ": " + this);
         }
-        T cache = buildCache(refresh.getKey());
+        T cache = applyPendingChanges(refresh.getKey());
+        if (cache == null)
+        {
+            cache = fullBuild(refresh.getKey());
+        }
         if (logger.isDebugEnabled())
         {
             logger.debug(".... cache built for tenant" + refresh.getKey());
@@ -541,6 +718,109 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
         }
     }
 
+    /**
+     * @return a new entry with the pending changes applied or <tt>null</tt> if the entry must be rebuilt
+     */
+    private T applyPendingChanges(String key)
+    {
+        List<Serializable> changes;
+        refreshLock.writeLock().lock();
+        try
+        {
+            changes = pendingChanges.remove(key);
+        }
+        finally
+        {
+            refreshLock.writeLock().unlock();
+        }
+        if (changes == null)
+        {
+            return null;
+        }
+
+        T current;
+        liveLock.readLock().lock();
+        try
+        {
+            current = live.get(key);
+        }
+        finally
+        {
+            liveLock.readLock().unlock();
+        }
+        if (current == null)
+        {
+            return null;
+        }
+        if (changes.isEmpty())
+        {
+            return current;
+        }
+
+        try
+        {
+            T cache = applyChanges(key, current, changes);
+            if ((cache != null) && logger.isDebugEnabled())
+            {
+                logger.debug("Applied " + changes.size() + " changes for tenant " + key + " on " + this);
+            }
+            return cache;
+        }
+        catch (RuntimeException e)
+        {
+            logger.warn("Failed to apply changes for tenant " + key + "; rebuilding: " + this, e);
+            return null;
+        }
+    }
+
+    private T fullBuild(String key)
+    {
+        return fullBuild(key, null);
+    }
+
+    /**
+     * @param txnData
+     *            the data of the transaction building the entry, whose changes so far are in the entry, or <tt>null</tt>
+     */
+    private T fullBuild(String key, TransactionData txnData)
+    {
+        refreshLock.writeLock().lock();
+        try
+        {
+            // The build will see everything committed so far
+            pendingChanges.remove(key);
+            fullBuilds.merge(key, 1, Integer::sum);
+            long builtGeneration = generation.incrementAndGet();
+            builtGenerations.put(key, builtGeneration);
+            recordedChanges.remove(key);
+            if (txnData != null)
+            {
+                txnData.changes.put(key, new ArrayList<Serializable>());
+                txnData.builtGenerations.put(key, builtGeneration);
+            }
+        }
+        finally
+        {
+            refreshLock.writeLock().unlock();
+        }
+        try
+        {
+            return buildCache(key);
+        }
+        finally
+        {
+            refreshLock.writeLock().lock();
+            try
+            {
+                fullBuilds.computeIfPresent(key, (k, count) -> (count == 1) ? null : count - 1);
+            }
+            finally
+            {
+                refreshLock.writeLock().unlock();
+            }
+        }
+    }
+
     private Refresh setUpRefresh() throws Exception
     {
         Refresh refresh = null;
@@ -611,6 +891,40 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
      */
     protected abstract T buildCache(String key);
 
+    /**
+     * Apply incremental changes to the current cache entry. Like {@link #buildCache(String)} this is only ever called by a single thread. The current entry is visible to readers and must not be modified; return a modified copy instead.
+     * <p>
+     * The default implementation returns <tt>null</tt>, so every refresh rebuilds the entry.
+     * 
+     * @param key
+     *            the cache key
+     * @param current
+     *            the live entry
+     * @param changes
+     *            the changes in the order they were committed
+     * @return the new entry or <tt>null</tt> to rebuild the entry with {@link #buildCache(String)}
+     */
+    protected T applyChanges(String key, T current, List<Serializable> changes)
+    {
+        return null;
+    }
+
+    /**
+     * Check whether two changes to the same entry must be applied in the order they were committed. Changes of transactions that overlapped are recorded in the order the transactions were notified of their commit, which may not be the order they committed in, so when they conflict the entry is rebuilt instead.
+     * <p>
+     * The default implementation returns <tt>true</tt>, so overlapping transactions always rebuild the entry.
+     * 
+     * @param change
+     *            a change being recorded
+     * @param other
+     *            a change already recorded for the same entry
+     * @return <tt>true</tt> if applying the changes in a different order may give a different entry
+     */
+    protected boolean changesConflict(Serializable change, Serializable other)
+    {
+        return true;
+    }
+
     private static class Refresh
     {
         private String key;
@@ -728,6 +1042,11 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
     public void afterCommit()
     {
         TransactionData txnData = getTransactionData();
+        for (Map.Entry<String, List<Serializable>> entry : txnData.changes.entrySet())
+        {
+            Long builtGeneration = txnData.builtGenerations.get(entry.getKey());
+            recordChanges(entry.getKey(), entry.getValue(), (builtGeneration == null) ? txnData.generation : builtGeneration);
+        }
         queueRefreshAndSubmit(txnData.keys);
     }
 
@@ -740,5 +1059,22 @@ public abstract class AbstractAsynchronouslyRefreshedCache<T>
     private static class TransactionData
     {
         LinkedHashSet<String> keys;
+        LinkedHashMap<String, List<Serializable>> changes;
+        // The generation when the transaction started making changes
+        long generation;
+        // The generation of the entries built by the transaction itself, by key
+        HashMap<String, Long> builtGenerations;
+    }
+
+    private static class RecordedChange
+    {
+        private final long generation;
+        private final Serializable change;
+
+        RecordedChange(long generation, Serializable change)
+        {
+            this.generation = generation;
+            this.change = change;
+        }
     }
 }
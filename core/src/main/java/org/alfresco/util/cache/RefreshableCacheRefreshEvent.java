@@ -18,6 +18,8 @@
  */
 package org.alfresco.util.cache;
 
+import java.io.Serializable;
+
 /**
  * Describes an entry that is stale in the cache
  * 
@@ -26,12 +28,55 @@ package org.alfresco.util.cache;
  */
 public class RefreshableCacheRefreshEvent extends AbstractRefreshableCacheEvent
 {
+    private Serializable change;
+
     /**
      * @param cacheId
      */
     RefreshableCacheRefreshEvent(String cacheId, String key)
+    {
+        this(cacheId, key, null);
+    }
+
+    /**
+     * @param cacheId
+     * @param key
+     * @param change
+     *            an incremental change that can be applied to the current cache entry, or <tt>null</tt> if the entry must be rebuilt
+     */
+    RefreshableCacheRefreshEvent(String cacheId, String key, Serializable change)
     {
         super(cacheId, key);
+        this.change = change;
+    }
+
+    /**
+     * @return the incremental change carried by this event or <tt>null</tt> if the entry must be rebuilt
+     */
+    public Serializable getChange()
+    {
+        return change;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * super.hashCode() + ((change == null) ? 0 : change.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (!super.equals(obj))
+            return false;
+        RefreshableCacheRefreshEvent other = (RefreshableCacheRefreshEvent) obj;
+        return (change == null) ? (other.change == null) : change.equals(other.change);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RefreshableCacheRefreshEvent [cacheId=" + getCacheId() + ", key=" + getKey() + ", change=" + change + "]";
     }
 
     /**
@@ -31,6 +31,30 @@ import org.junit.Test;
 public class BridgeTableTest extends TestCase
 {
 
+    @Test
+    public void testCopyIsIndependent()
+    {
+        BridgeTable<String> bridgeTable = new BridgeTable<String>();
+        bridgeTable.addLink("A", "B");
+        bridgeTable.addLink("B", "C");
+
+        BridgeTable<String> copy = bridgeTable.copy();
+        copy.addLink("C", "D");
+        copy.removeLink("A", "B");
+
+        assertEquals(2, bridgeTable.getDescendants("A").size());
+        assertEquals(0, bridgeTable.getDescendants("C").size());
+        assertEquals(0, copy.getDescendants("A").size());
+        assertEquals(2, copy.getDescendants("B").size());
+        assertEquals(2, copy.getAncestors("D").size());
+
+        // Reference counts are copied too
+        bridgeTable.addLink("A", "C");
+        copy = bridgeTable.copy();
+        copy.removeLink("A", "C");
+        assertTrue(copy.getDescendants("A").contains("C"));
+    }
+
     @Test
     public void testBasic()
     {
@@ -0,0 +1,496 @@
+/*
+ * #%L
+ * Alfresco Core
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.util.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests the incremental refresh of {@link AbstractAsynchronouslyRefreshedCache}, with a cache whose entry is the list of the values committed to a simulated store.
+ */
+public class AbstractAsynchronouslyRefreshedCacheTest
+{
+    private static final String KEY = "tenant";
+    private static final String REJECTED = "rejected";
+    private static final String REMOVE = "-";
+
+    private ThreadPoolExecutor threadPoolExecutor;
+    private ListCache cache;
+    private List<String> store;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        threadPoolExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        store = new CopyOnWriteArrayList<String>();
+        cache = new ListCache();
+        cache.setBeanName("listCache");
+        cache.setThreadPoolExecutor(threadPoolExecutor);
+        cache.setRegistry(new DefaultAsynchronouslyRefreshedCacheRegistry());
+        cache.afterPropertiesSet();
+
+        store.add("initial");
+        assertEquals(List.of("initial"), cache.get(KEY));
+        assertEquals(1, cache.builds.get());
+    }
+
+    @After
+    public void tearDown()
+    {
+        threadPoolExecutor.shutdownNow();
+    }
+
+    @Test
+    public void changesAreApplied()
+    {
+        commit("a");
+        commit("b");
+
+        assertEquals(List.of("initial", "a", "b"), cache.get(KEY));
+        assertEquals(1, cache.builds.get());
+    }
+
+    @Test
+    public void changeDuringFullBuildRebuildsTheEntry() throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        cache.buildReleased = released;
+        cache.buildStarted = started;
+        cache.refresh(KEY);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // The running build may or may not have seen the change
+        publish("a");
+        released.countDown();
+        waitUntilUpToDate();
+
+        assertEquals(List.of("initial", "a"), cache.get(KEY));
+        assertEquals(3, cache.builds.get());
+        assertEquals(0, cache.applied.get());
+    }
+
+    @Test
+    public void tooManyPendingChangesRebuildTheEntry() throws Exception
+    {
+        cache.setMaxPendingChanges(2);
+        CountDownLatch released = blockRefreshes();
+        publish("a");
+        publish("b");
+        publish("c");
+        released.countDown();
+        waitUntilUpToDate();
+
+        assertEquals(List.of("initial", "a", "b", "c"), cache.get(KEY));
+        assertEquals(2, cache.builds.get());
+        assertEquals(0, cache.applied.get());
+    }
+
+    @Test
+    public void pendingChangesWithinTheLimitAreAppliedTogether() throws Exception
+    {
+        cache.setMaxPendingChanges(2);
+        CountDownLatch released = blockRefreshes();
+        publish("a");
+        publish("b");
+        released.countDown();
+        waitUntilUpToDate();
+
+        assertEquals(List.of("initial", "a", "b"), cache.get(KEY));
+        assertEquals(1, cache.builds.get());
+        assertEquals(2, cache.applied.get());
+    }
+
+    @Test
+    public void rejectedChangeFallsBackToBuild()
+    {
+        commit(REJECTED);
+
+        assertEquals(List.of("initial", REJECTED), cache.get(KEY));
+        assertEquals(2, cache.builds.get());
+    }
+
+    @Test
+    public void transactionsCommittingOutOfOrder() throws Exception
+    {
+        Transaction first = new Transaction();
+        Transaction second = new Transaction();
+        try
+        {
+            first.change("a");
+            second.change("b");
+            second.commit();
+            first.commit();
+        }
+        finally
+        {
+            first.close();
+            second.close();
+        }
+        waitUntilUpToDate();
+
+        // The changes are applied in the order the transactions committed
+        assertEquals(List.of("initial", "b", "a"), cache.get(KEY));
+        assertEquals(1, cache.builds.get());
+        assertEquals(2, cache.applied.get());
+    }
+
+    @Test
+    public void rolledBackTransactionChangesNothing() throws Exception
+    {
+        Transaction transaction = new Transaction();
+        try
+        {
+            transaction.change("a");
+        }
+        finally
+        {
+            transaction.close();
+        }
+        commit("b");
+
+        assertEquals(List.of("initial", "b"), cache.get(KEY));
+        assertEquals(1, cache.builds.get());
+    }
+
+    @Test
+    public void synchronousBuildKeepsLaterChangesIncremental() throws Exception
+    {
+        Transaction transaction = new Transaction();
+        try
+        {
+            transaction.change("a");
+            transaction.run(() -> {
+                // The build sees the uncommitted change of its own transaction
+                store.add("a");
+                cache.forceInChangesForThisUncommittedTransaction(KEY);
+                store.remove("a");
+                return null;
+            });
+            transaction.change("b");
+            transaction.commit();
+        }
+        finally
+        {
+            transaction.close();
+        }
+        waitUntilUpToDate();
+        assertEquals(List.of("initial", "a", "b"), cache.get(KEY));
+        assertEquals(2, cache.builds.get());
+        assertEquals(1, cache.applied.get());
+
+        commit("c");
+        assertEquals(List.of("initial", "a", "b", "c"), cache.get(KEY));
+        assertEquals(2, cache.builds.get());
+        assertEquals(2, cache.applied.get());
+    }
+
+    @Test
+    public void lateChangeConflictingWithAnAppliedChangeRebuildsTheEntry() throws Exception
+    {
+        Transaction adding = new Transaction();
+        Transaction removing = new Transaction();
+        try
+        {
+            // The add commits first, but is only recorded after the remove has been applied
+            adding.change("a");
+            adding.commitToStore();
+            removing.change(REMOVE + "a");
+            removing.commit();
+            waitUntilUpToDate();
+            assertEquals(List.of("initial"), cache.get(KEY));
+
+            adding.afterCommit();
+        }
+        finally
+        {
+            adding.close();
+            removing.close();
+        }
+        waitUntilUpToDate();
+
+        assertEquals(List.of("initial"), cache.get(KEY));
+        assertEquals(2, cache.builds.get());
+        assertEquals(1, cache.applied.get());
+    }
+
+    @Test
+    public void lateChangeOlderThanAFullBuildRebuildsTheEntry() throws Exception
+    {
+        Transaction transaction = new Transaction();
+        try
+        {
+            // The change commits before the build, but is only recorded after it
+            transaction.change("a");
+            transaction.commitToStore();
+            cache.refresh(KEY);
+            waitUntilUpToDate();
+            assertEquals(List.of("initial", "a"), cache.get(KEY));
+
+            transaction.afterCommit();
+        }
+        finally
+        {
+            transaction.close();
+        }
+        waitUntilUpToDate();
+
+        assertEquals(List.of("initial", "a"), cache.get(KEY));
+        assertEquals(3, cache.builds.get());
+        assertEquals(0, cache.applied.get());
+    }
+
+    @Test
+    public void transactionStartedAfterAChangeIsApplied() throws Exception
+    {
+        commit("a");
+        Transaction transaction = new Transaction();
+        try
+        {
+            transaction.change(REMOVE + "a");
+            transaction.commit();
+        }
+        finally
+        {
+            transaction.close();
+        }
+        waitUntilUpToDate();
+
+        assertEquals(List.of("initial"), cache.get(KEY));
+        assertEquals(1, cache.builds.get());
+        assertEquals(2, cache.applied.get());
+    }
+
+    /**
+     * Commit a value to the store outside of any transaction and wait for the cache to be refreshed
+     */
+    private void commit(String value)
+    {
+        publish(value);
+        waitUntilUpToDate();
+    }
+
+    /**
+     * Commit a value to the store outside of any transaction
+     */
+    private void publish(String value)
+    {
+        store.add(value);
+        cache.refresh(KEY, value);
+    }
+
+    /**
+     * Keep the refresh thread busy until the returned latch is released
+     */
+    private CountDownLatch blockRefreshes() throws InterruptedException
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        threadPoolExecutor.submit(() -> {
+            started.countDown();
+            released.await();
+            return null;
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return released;
+    }
+
+    private void waitUntilUpToDate()
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!cache.isUpToDate(KEY))
+        {
+            if (System.currentTimeMillis() > deadline)
+            {
+                fail("The cache was not refreshed");
+            }
+            try
+            {
+                Thread.sleep(10);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+
+    /**
+     * A transaction bound to a thread of its own, so that several can be open at once
+     */
+    private class Transaction
+    {
+        private final ExecutorService thread = Executors.newSingleThreadExecutor();
+        private final List<String> values = new ArrayList<String>();
+
+        private Transaction() throws Exception
+        {
+            run(() -> {
+                TransactionSynchronizationManager.initSynchronization();
+                return null;
+            });
+        }
+
+        private void change(String value) throws Exception
+        {
+            values.add(value);
+            run(() -> {
+                cache.refresh(KEY, value);
+                return null;
+            });
+        }
+
+        private void commit() throws Exception
+        {
+            commitToStore();
+            afterCommit();
+        }
+
+        private void commitToStore()
+        {
+            for (String value : values)
+            {
+                if (value.startsWith(REMOVE))
+                {
+                    store.remove(value.substring(REMOVE.length()));
+                }
+                else
+                {
+                    store.add(value);
+                }
+            }
+            values.clear();
+        }
+
+        private void afterCommit() throws Exception
+        {
+            run(() -> {
+                cache.afterCommit();
+                return null;
+            });
+        }
+
+        private <R> R run(Callable<R> callable) throws Exception
+        {
+            return thread.submit(callable).get(10, TimeUnit.SECONDS);
+        }
+
+        private void close() throws Exception
+        {
+            run(() -> {
+                TransactionSynchronizationManager.clearSynchronization();
+                return null;
+            });
+            thread.shutdown();
+        }
+    }
+
+    private class ListCache extends AbstractAsynchronouslyRefreshedCache<List<String>>
+    {
+        private final AtomicInteger builds = new AtomicInteger();
+        private final AtomicInteger applied = new AtomicInteger();
+        private volatile CountDownLatch buildStarted;
+        private volatile CountDownLatch buildReleased;
+
+        @Override
+        protected List<String> buildCache(String key)
+        {
+            builds.incrementAndGet();
+            List<String> entry = new ArrayList<String>(store);
+            CountDownLatch started = buildStarted;
+            if (started != null)
+            {
+                buildStarted = null;
+                started.countDown();
+                try
+                {
+                    buildReleased.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return entry;
+        }
+
+        @Override
+        protected List<String> applyChanges(String key, List<String> current, List<Serializable> changes)
+        {
+            List<String> entry = new ArrayList<String>(current);
+            for (Serializable change : changes)
+            {
+                if (REJECTED.equals(change))
+                {
+                    throw new IllegalArgumentException("Change cannot be applied: " + change);
+                }
+                String value = (String) change;
+                if (value.startsWith(REMOVE))
+                {
+                    entry.remove(value.substring(REMOVE.length()));
+                }
+                else
+                {
+                    entry.add(value);
+                }
+                applied.incrementAndGet();
+            }
+            return entry;
+        }
+
+        @Override
+        protected boolean changesConflict(Serializable change, Serializable other)
+        {
+            return valueOf(change).equals(valueOf(other));
+        }
+
+        private String valueOf(Serializable change)
+        {
+            String value = (String) change;
+            return value.startsWith(REMOVE) ? value.substring(REMOVE.length()) : value;
+        }
+    }
+}
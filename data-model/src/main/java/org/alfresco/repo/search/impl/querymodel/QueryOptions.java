@@ -39,6 +39,7 @@ import org.alfresco.service.cmr.search.LimitBy;
 import org.alfresco.service.cmr.search.QueryConsistency;
 import org.alfresco.service.cmr.search.QueryParameterDefinition;
 import org.alfresco.service.cmr.search.SearchParameters;
+import org.alfresco.service.cmr.search.SearchParameters.FieldFacet;
 import org.alfresco.service.cmr.search.SearchService;
 
 /**
@@ -95,6 +96,8 @@ public class QueryOptions
 
     private Map<String, String> queryTemplates = new HashMap<String, String>();
 
+    private List<FieldFacet> fieldFacets = new ArrayList<FieldFacet>(0);
+
     public static QueryOptions create(SearchParameters searchParameters)
     {
         QueryOptions options = new QueryOptions(searchParameters.getQuery(), null);
@@ -129,6 +132,7 @@ public class QueryOptions
             String template = searchParameters.getQueryTemplates().get(name);
             options.addQueryTemplate(name, template);
         }
+        options.setFieldFacets(searchParameters.getFieldFacets());
         return options;
     }
 
@@ -523,6 +527,27 @@ public class QueryOptions
         this.sinceTxId = sinceTxId;
     }
 
+    /**
+     * Get the field facets to compute over the permitted results
+     * 
+     * @return - the field facets, never null
+     */
+    public List<FieldFacet> getFieldFacets()
+    {
+        return fieldFacets;
+    }
+
+    /**
+     * Set the field facets to compute over the permitted results
+     * 
+     * @param fieldFacets
+     *            the field facets, may be null
+     */
+    public void setFieldFacets(List<FieldFacet> fieldFacets)
+    {
+        this.fieldFacets = fieldFacets == null ? new ArrayList<FieldFacet>(0) : new ArrayList<FieldFacet>(fieldFacets);
+    }
+
     /**
      * Get the query templates
      * 
@@ -594,6 +619,10 @@ public class QueryOptions
             String template = getQueryTemplates().get(name);
             searchParameters.addQueryTemplate(name, template);
         }
+        for (FieldFacet fieldFacet : getFieldFacets())
+        {
+            searchParameters.addFieldFacet(fieldFacet);
+        }
 
         return searchParameters;
     }
@@ -613,7 +613,7 @@ public class RepositoryContainer extends AbstractRuntimeContainer
                     }
 
                     return null;
-                }, readonly, requiresNew);
+                }, readonly, requiresNew, "webscript:" + description.getId(), false);
             }
             catch (TooBusyException e)
             {
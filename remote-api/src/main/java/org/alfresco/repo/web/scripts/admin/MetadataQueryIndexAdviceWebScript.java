@@ -0,0 +1,71 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.web.scripts.admin;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.extensions.webscripts.Cache;
+import org.springframework.extensions.webscripts.DeclarativeWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+
+import org.alfresco.repo.search.impl.querymodel.impl.db.DBQueryIndexAdvisor;
+
+/**
+ * Lists the transactional metadata query predicates that the metadata query indexes can't serve, as recorded by the {@link DBQueryIndexAdvisor}. DELETE forgets the recorded predicates first.
+ * 
+ * @since 26.1
+ */
+public class MetadataQueryIndexAdviceWebScript extends DeclarativeWebScript
+{
+    private static final String METHOD_DELETE = "DELETE";
+
+    private DBQueryIndexAdvisor indexAdvisor;
+
+    /**
+     * @param indexAdvisor
+     *            the advisor fed by the transactional metadata query engine
+     */
+    public void setIndexAdvisor(DBQueryIndexAdvisor indexAdvisor)
+    {
+        this.indexAdvisor = indexAdvisor;
+    }
+
+    @Override
+    protected Map<String, Object> executeImpl(WebScriptRequest req, Status status, Cache cache)
+    {
+        if (METHOD_DELETE.equals(getDescription().getMethod()))
+        {
+            indexAdvisor.reset();
+        }
+
+        Map<String, Object> model = new HashMap<>(3);
+        model.put("enabled", indexAdvisor.isEnabled());
+        model.put("advice", indexAdvisor.getAdvice());
+        return model;
+    }
+}
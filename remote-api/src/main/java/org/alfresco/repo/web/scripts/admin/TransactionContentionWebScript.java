@@ -0,0 +1,96 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.web.scripts.admin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.extensions.webscripts.Cache;
+import org.springframework.extensions.webscripts.DeclarativeWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+
+import org.alfresco.repo.transaction.ContentionType;
+import org.alfresco.repo.transaction.TransactionContentionMonitor;
+import org.alfresco.repo.transaction.TransactionContentionMonitor.CallSiteStatistics;
+
+/**
+ * Lists the retry statistics recorded per call site by the {@link TransactionContentionMonitor}, most retries first. DELETE forgets the statistics first.
+ * 
+ * @since 26.1
+ */
+public class TransactionContentionWebScript extends DeclarativeWebScript
+{
+    private static final String METHOD_DELETE = "DELETE";
+
+    private TransactionContentionMonitor contentionMonitor;
+
+    /**
+     * @param contentionMonitor
+     *            the monitor shared by the retrying transaction helpers
+     */
+    public void setContentionMonitor(TransactionContentionMonitor contentionMonitor)
+    {
+        this.contentionMonitor = contentionMonitor;
+    }
+
+    @Override
+    protected Map<String, Object> executeImpl(WebScriptRequest req, Status status, Cache cache)
+    {
+        if (METHOD_DELETE.equals(getDescription().getMethod()))
+        {
+            contentionMonitor.reset();
+        }
+
+        List<Map<String, Object>> callSites = new ArrayList<>();
+        for (CallSiteStatistics statistics : contentionMonitor.getAllStatistics())
+        {
+            Map<String, Object> callSite = new HashMap<>(11);
+            callSite.put("callSite", statistics.getCallSite());
+            callSite.put("transactions", statistics.getTransactions());
+            callSite.put("failures", statistics.getFailures());
+            callSite.put("retries", statistics.getRetries());
+            Map<String, Long> retriesByType = new LinkedHashMap<>();
+            for (ContentionType type : ContentionType.values())
+            {
+                retriesByType.put(type.name(), statistics.getRetries(type));
+            }
+            callSite.put("retriesByType", retriesByType);
+            callSite.put("averageTimeMs", statistics.getAverageTimeMs());
+            callSite.put("maxTimeMs", statistics.getMaxTimeMs());
+            callSite.put("hot", statistics.isHot());
+            callSites.add(callSite);
+        }
+
+        Map<String, Object> model = new HashMap<>(3);
+        model.put("maxConcurrentHotTransactions", contentionMonitor.getMaxConcurrentHotTransactions());
+        model.put("callSites", callSites);
+        return model;
+    }
+}
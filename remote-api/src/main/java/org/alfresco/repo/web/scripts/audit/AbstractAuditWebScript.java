@@ -25,6 +25,8 @@
  */
 package org.alfresco.repo.web.scripts.audit;
 
+import java.io.Serializable;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
@@ -36,6 +38,9 @@ import org.springframework.extensions.webscripts.WebScriptException;
 import org.springframework.extensions.webscripts.WebScriptRequest;
 
 import org.alfresco.service.cmr.audit.AuditService;
+import org.alfresco.service.cmr.repository.MLText;
+import org.alfresco.service.cmr.repository.datatype.DefaultTypeConverter;
+import org.alfresco.service.cmr.repository.datatype.TypeConversionException;
 
 /**
  * Abstract implementation for scripts that access the {@link AuditService}.
@@ -111,6 +116,46 @@ public abstract class AbstractAuditWebScript extends DeclarativeWebScript
         return I18NUtil.getMessage(key, args);
     }
 
+    /**
+     * Convert audited values to their <tt>String</tt> representations for output.
+     * 
+     * @param values
+     *            the audited values
+     * @return Returns the values keyed by path, converted to Strings
+     */
+    protected Map<String, String> convertValuesToStrings(Map<String, Serializable> values)
+    {
+        Map<String, String> valueStrings = new HashMap<String, String>(values.size() * 2);
+        for (Map.Entry<String, Serializable> mapEntry : values.entrySet())
+        {
+            String key = mapEntry.getKey();
+            Serializable value = mapEntry.getValue();
+            try
+            {
+                String valueString = DefaultTypeConverter.INSTANCE.convert(String.class, value);
+                valueStrings.put(key, valueString);
+            }
+            catch (ClassCastException e)
+            {
+                // Fix for symptoms of MNT-20992. It is possible to have MLText values whose underlying
+                // map's keys are not Locale, as MLText map keys should be. In this case we can expect
+                // a ClassCastException.
+                if (!(value instanceof MLText))
+                {
+                    // Rethrow if the exception was not caused by the expected MLText conversion.
+                    throw e;
+                }
+                valueStrings.put(key, value.toString());
+            }
+            catch (TypeConversionException e)
+            {
+                // Use the toString()
+                valueStrings.put(key, value.toString());
+            }
+        }
+        return valueStrings;
+    }
+
     /**
      * Get the application name from the request.
      * 
@@ -273,7 +318,7 @@ public abstract class AbstractAuditWebScript extends DeclarativeWebScript
         }
     }
 
-    private boolean getBooleanParam(String paramStr, boolean defaultVal)
+    protected boolean getBooleanParam(String paramStr, boolean defaultVal)
     {
         if (paramStr == null)
         {
@@ -284,7 +329,7 @@ public abstract class AbstractAuditWebScript extends DeclarativeWebScript
         return Boolean.parseBoolean(paramStr);
     }
 
-    private int getIntParam(String paramStr, int defaultVal)
+    protected int getIntParam(String paramStr, int defaultVal)
     {
         if (paramStr == null)
         {
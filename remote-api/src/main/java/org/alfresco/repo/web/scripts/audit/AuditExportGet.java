@@ -0,0 +1,243 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.web.scripts.audit;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.audit.AuditQueryParameters;
+import org.alfresco.service.cmr.audit.AuditService.AuditQueryCallback;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.ISO8601DateFormat;
+
+/**
+ * Streams all audit entries of an application as newline-delimited JSON (one entry per line).
+ * <p>
+ * The entries are walked in ascending ID order using the last ID written as the lower bound of the next page, i.e. a keyset cursor rather than an offset. Every page is read in its own read-only transaction and is written out before the next page is fetched, so memory use and the cost of each query stay constant regardless of how many entries have already been exported. Audited values are resolved in batches by the audit DAO.
+ * <p>
+ * An export that is interrupted can be resumed by passing the ID of the last line received, plus one, as <tt>fromId</tt>.
+ * 
+ * @since 26.1
+ */
+public class AuditExportGet extends AbstractAuditWebScript
+{
+    public static final String PARAM_PAGE_SIZE = "pageSize";
+
+    public static final String MIMETYPE_NDJSON = "application/x-ndjson";
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+    public static final boolean DEFAULT_EXPORT_VERBOSE = true;
+
+    private TransactionService transactionService;
+    private int maxPageSize = 5000;
+
+    /**
+     * @param transactionService
+     *            used to read each page in a separate read-only transaction
+     */
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * @param maxPageSize
+     *            the upper limit for the <tt>pageSize</tt> parameter (default: 5000)
+     */
+    public void setMaxPageSize(int maxPageSize)
+    {
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Override
+    public void execute(WebScriptRequest req, WebScriptResponse res) throws IOException
+    {
+        final String appName = getParamAppName(req);
+        if (appName == null)
+        {
+            throw new WebScriptException(Status.STATUS_BAD_REQUEST, "audit.err.app.notProvided");
+        }
+        if (!auditService.getAuditApplications().containsKey(appName))
+        {
+            throw new WebScriptException(Status.STATUS_NOT_FOUND, "audit.err.app.notFound", appName);
+        }
+        String path = getParamPath(req);
+        Serializable value = getParamValue(req);
+        Long fromId = getParamFromId(req);
+        Long toId = getParamToId(req);
+        Long fromTime = getParamFromTime(req);
+        Long toTime = getParamToTime(req);
+        String user = getParamUser(req);
+        final boolean verbose = getBooleanParam(req.getParameter(PARAM_VERBOSE), DEFAULT_EXPORT_VERBOSE);
+        final int pageSize = getIntParam(req.getParameter(PARAM_PAGE_SIZE), DEFAULT_PAGE_SIZE);
+        if (pageSize < 1 || pageSize > maxPageSize)
+        {
+            throw new WebScriptException(Status.STATUS_BAD_REQUEST, "audit.err.export.pageSize", pageSize, maxPageSize);
+        }
+
+        final AuditQueryParameters params = new AuditQueryParameters();
+        params.setApplicationName(appName);
+        params.setFromTime(fromTime);
+        params.setToTime(toTime);
+        params.setToId(toId);
+        params.setUser(user);
+        params.setForward(true);
+        if (path != null || value != null)
+        {
+            params.addSearchKey(path, value);
+        }
+
+        res.setContentType(MIMETYPE_NDJSON);
+        res.setContentEncoding("UTF-8");
+        res.setStatus(Status.STATUS_OK);
+        Writer writer = res.getWriter();
+
+        RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        final ExportCallback callback = new ExportCallback(pageSize, verbose);
+        long count = 0L;
+        Long nextFromId = fromId;
+        while (true)
+        {
+            params.setFromId(nextFromId);
+            // Collect the page in the transaction but only write it afterwards; a retry must not duplicate output
+            txnHelper.doInTransaction(new RetryingTransactionCallback<Void>() {
+                @Override
+                public Void execute() throws Throwable
+                {
+                    callback.reset();
+                    auditService.auditQuery(callback, params, pageSize);
+                    return null;
+                }
+            }, true, false);
+
+            for (JSONObject entry : callback.page)
+            {
+                writer.write(entry.toString());
+                writer.write('\n');
+            }
+            writer.flush();
+            count += callback.page.size();
+
+            // Entries that could not be read still count towards the page and move the cursor on
+            if (callback.rowCount < pageSize || callback.lastEntryId == null)
+            {
+                break;
+            }
+            nextFromId = callback.lastEntryId + 1L;
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Exported " + count + " audit entries for application " + appName + ": \n\tRequest: " + req);
+        }
+    }
+
+    /**
+     * Turns each audit entry of a page into its JSON line.
+     */
+    private class ExportCallback implements AuditQueryCallback
+    {
+        private final List<JSONObject> page;
+        private final boolean verbose;
+        private int rowCount;
+        private Long lastEntryId;
+
+        private ExportCallback(int pageSize, boolean verbose)
+        {
+            this.page = new ArrayList<JSONObject>(pageSize);
+            this.verbose = verbose;
+        }
+
+        private void reset()
+        {
+            page.clear();
+            rowCount = 0;
+            lastEntryId = null;
+        }
+
+        @Override
+        public boolean valuesRequired()
+        {
+            return verbose;
+        }
+
+        @Override
+        public boolean handleAuditEntryError(Long entryId, String errorMsg, Throwable error)
+        {
+            logger.warn("Skipping audit entry " + entryId + " during export: " + errorMsg);
+            rowCount++;
+            if (entryId != null)
+            {
+                lastEntryId = entryId;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean handleAuditEntry(
+                Long entryId,
+                String applicationName,
+                String user,
+                long time,
+                Map<String, Serializable> values)
+        {
+            rowCount++;
+            lastEntryId = entryId;
+            try
+            {
+                JSONObject entry = new JSONObject();
+                entry.put(JSON_KEY_ENTRY_ID, entryId.longValue());
+                entry.put(JSON_KEY_ENTRY_APPLICATION, applicationName);
+                entry.put(JSON_KEY_ENTRY_USER, user == null ? JSONObject.NULL : user);
+                entry.put(JSON_KEY_ENTRY_TIME, ISO8601DateFormat.format(new Date(time)));
+                if (values != null)
+                {
+                    entry.put(JSON_KEY_ENTRY_VALUES, new JSONObject(convertValuesToStrings(values)));
+                }
+                page.add(entry);
+            }
+            catch (JSONException e)
+            {
+                throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, e.getMessage());
+            }
+            return true;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.extensions.webscripts.DeclarativeWebScript;
 import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
 import org.springframework.extensions.webscripts.WebScriptRequest;
 
 import org.alfresco.repo.index.shard.ShardMethodEnum;
@@ -40,10 +41,15 @@ import org.alfresco.repo.index.shard.ShardState;
 import org.alfresco.repo.index.shard.ShardStateBuilder;
 import org.alfresco.repo.search.SearchTrackingComponent;
 import org.alfresco.repo.solr.Transaction;
+import org.alfresco.repo.solr.TransactionCommitNotifier;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.transaction.TransactionService;
 
 /**
  * Support for SOLR: Get a list of transactions with a commit time greater than or equal to the given parameter.
+ * <p>
+ * With a <tt>waitMs</tt> parameter, a request that finds no transactions waits up to that long (capped by {@link #setMaxWaitMs(long) maxWaitMs}) for a transaction to commit and then looks again, so that an idle tracker is not polling the database. No database connection is held while waiting.
  *
  * @since 4.0
  */
@@ -53,19 +59,110 @@ public class TransactionsGet extends DeclarativeWebScript
 
     private SearchTrackingComponent searchTrackingComponent;
 
+    private TransactionService transactionService;
+
+    private TransactionCommitNotifier transactionCommitNotifier;
+
+    private long maxWaitMs = 30000;
+
     public void setSearchTrackingComponent(SearchTrackingComponent searchTrackingComponent)
     {
         this.searchTrackingComponent = searchTrackingComponent;
     }
 
-    protected Map<String, Object> executeImpl(WebScriptRequest req, Status status)
+    public void setTransactionService(TransactionService transactionService)
     {
-        String minTxnIdParam = req.getParameter("minTxnId");
-        String fromCommitTimeParam = req.getParameter("fromCommitTime");
-        String maxTxnIdParam = req.getParameter("maxTxnId");
-        String toCommitTimeParam = req.getParameter("toCommitTime");
-        String maxResultsParam = req.getParameter("maxResults");
+        this.transactionService = transactionService;
+    }
+
+    public void setTransactionCommitNotifier(TransactionCommitNotifier transactionCommitNotifier)
+    {
+        this.transactionCommitNotifier = transactionCommitNotifier;
+    }
 
+    /**
+     * @param maxWaitMs
+     *            the longest a request may wait for new transactions, 0 to never wait
+     */
+    public void setMaxWaitMs(long maxWaitMs)
+    {
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    protected Map<String, Object> executeImpl(final WebScriptRequest req, Status status)
+    {
+        long waitMs = transactionCommitNotifier == null ? 0 : Math.min(getWaitMs(req), maxWaitMs);
+
+        // Read before looking so that a commit in between is not missed
+        long commitCount = transactionCommitNotifier == null ? 0 : transactionCommitNotifier.getCommitCount();
+
+        Map<String, Object> model = transactionService.getRetryingTransactionHelper().doInTransaction(
+                new RetryingTransactionCallback<Map<String, Object>>() {
+                    @Override
+                    public Map<String, Object> execute() throws Throwable
+                    {
+                        registerShardState(req);
+                        return getTransactions(req);
+                    }
+                }, true);
+
+        if (waitMs > 0 && ((List<?>) model.get("transactions")).isEmpty())
+        {
+            boolean committed = false;
+            try
+            {
+                committed = transactionCommitNotifier.awaitCommit(commitCount, waitMs);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            if (committed)
+            {
+                model = transactionService.getRetryingTransactionHelper().doInTransaction(
+                        new RetryingTransactionCallback<Map<String, Object>>() {
+                            @Override
+                            public Map<String, Object> execute() throws Throwable
+                            {
+                                return getTransactions(req);
+                            }
+                        }, true);
+            }
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Result: \n\tRequest: " + req + "\n\tModel: " + model);
+        }
+
+        return model;
+    }
+
+    private long getWaitMs(WebScriptRequest req)
+    {
+        String waitMsParam = req.getParameter("waitMs");
+        if (waitMsParam == null)
+        {
+            return 0;
+        }
+        long waitMs;
+        try
+        {
+            waitMs = Long.parseLong(waitMsParam);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new WebScriptException(Status.STATUS_BAD_REQUEST, "Parameter 'waitMs' must be a number of milliseconds: " + waitMsParam);
+        }
+        if (waitMs < 0)
+        {
+            throw new WebScriptException(Status.STATUS_BAD_REQUEST, "Parameter 'waitMs' must not be negative: " + waitMsParam);
+        }
+        return waitMs;
+    }
+
+    private void registerShardState(WebScriptRequest req)
+    {
         String baseUrl = req.getParameter("baseUrl");
         String hostName = req.getParameter("hostName");
         String template = req.getParameter("template");
@@ -132,6 +229,15 @@ public class TransactionsGet extends DeclarativeWebScript
             searchTrackingComponent.registerShardState(shardState);
 
         }
+    }
+
+    private Map<String, Object> getTransactions(WebScriptRequest req)
+    {
+        String minTxnIdParam = req.getParameter("minTxnId");
+        String fromCommitTimeParam = req.getParameter("fromCommitTime");
+        String maxTxnIdParam = req.getParameter("maxTxnId");
+        String toCommitTimeParam = req.getParameter("toCommitTime");
+        String maxResultsParam = req.getParameter("maxResults");
 
         Long minTxnId = (minTxnIdParam == null ? null : Long.valueOf(minTxnIdParam));
         Long fromCommitTime = (fromCommitTimeParam == null ? null : Long.valueOf(fromCommitTimeParam));
@@ -156,11 +262,6 @@ public class TransactionsGet extends DeclarativeWebScript
             model.put("maxTxnId", maxTxnIdOnServer);
         }
 
-        if (logger.isDebugEnabled())
-        {
-            logger.debug("Result: \n\tRequest: " + req + "\n\tModel: " + model);
-        }
-
         return model;
     }
 }
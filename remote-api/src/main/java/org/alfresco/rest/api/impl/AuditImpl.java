@@ -601,7 +601,7 @@ public class AuditImpl implements Audit
         AuditService.AuditApplication auditApplication = findAuditAppByIdOr404(auditAppId);
 
         Query q = parameters.getQuery();
-        if ((q == null) || (q.getTree() == null))
+        if (QueryHelper.isEmpty(q))
         {
             throw new InvalidArgumentException("where clause is required to delete audit entries (" + auditAppId + ")");
         }
@@ -155,6 +155,26 @@ public abstract class QueryHelper
     public static class WalkerCallbackAdapter implements WalkerCallback
     {}
 
+    /**
+     * Checks whether a query has no WHERE clause. The tree of a clause compiled by {@link WhereParser} is not built.
+     * 
+     * @param query
+     *            the query, may be <tt>null</tt>
+     * @return <tt>true</tt> if there is nothing to walk
+     */
+    public static boolean isEmpty(Query query)
+    {
+        if (query == null)
+        {
+            return true;
+        }
+        if (query instanceof QueryImpl && ((QueryImpl) query).getWhereExpression() != null)
+        {
+            return false;
+        }
+        return query.getTree() == null;
+    }
+
     /**
      * Walks a query with a callback for each operation
      * 
@@ -165,6 +185,13 @@ public abstract class QueryHelper
      */
     public static void walk(Query query, WalkerCallback callback)
     {
+        if (query instanceof QueryImpl && ((QueryImpl) query).getWhereExpression() != null)
+        {
+            // Compiled by WhereParser, no need to build the tree
+            ((QueryImpl) query).getWhereExpression().walk(callback);
+            return;
+        }
+
         CommonTree tree = query.getTree();
         if (tree != null)
         {
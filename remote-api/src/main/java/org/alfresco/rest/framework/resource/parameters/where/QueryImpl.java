@@ -25,6 +25,7 @@
  */
 package org.alfresco.rest.framework.resource.parameters.where;
 
+import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.tree.CommonTree;
 
 /**
@@ -35,30 +36,71 @@ import org.antlr.runtime.tree.CommonTree;
 public class QueryImpl implements Query
 {
     public static final Query EMPTY = new QueryImpl();
-    private final CommonTree tree;
+    private volatile CommonTree tree;
+    private final String whereClause;
+    private final WhereExpression whereExpression;
 
     private QueryImpl()
     {
         super();
         this.tree = null;
+        this.whereClause = null;
+        this.whereExpression = null;
     }
 
     public QueryImpl(CommonTree tree)
     {
         super();
         this.tree = tree;
+        this.whereClause = null;
+        this.whereExpression = null;
+    }
+
+    /**
+     * Creates a query from a clause compiled by {@link WhereParser}. The ANTLR tree is only built if {@link #getTree()} is called.
+     *
+     * @param whereClause
+     *            the original WHERE clause
+     * @param whereExpression
+     *            the compiled form of the clause
+     */
+    public QueryImpl(String whereClause, WhereExpression whereExpression)
+    {
+        super();
+        this.whereClause = whereClause;
+        this.whereExpression = whereExpression;
     }
 
     @Override
     public CommonTree getTree()
     {
+        if (tree == null && whereClause != null)
+        {
+            try
+            {
+                tree = WhereCompiler.compileWhereClause(whereClause);
+            }
+            catch (RecognitionException e)
+            {
+                // Not expected as WhereParser only accepts clauses that the grammar accepts
+                throw new InvalidQueryException(whereClause + ", " + WhereCompiler.resolveMessage(e));
+            }
+        }
         return tree;
     }
 
+    /**
+     * @return the compiled clause or <tt>null</tt> if this query was created from a tree
+     */
+    public WhereExpression getWhereExpression()
+    {
+        return whereExpression;
+    }
+
     @Override
     public String toString()
     {
-        return "QueryImpl [tree=" + tree + "]";
+        return whereExpression != null ? "QueryImpl [where=" + whereExpression + "]" : "QueryImpl [tree=" + tree + "]";
     }
 
 }
@@ -0,0 +1,284 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.rest.framework.resource.parameters.where;
+
+import static org.alfresco.rest.antlr.WhereClauseParser.AND;
+import static org.alfresco.rest.antlr.WhereClauseParser.OR;
+
+import org.alfresco.rest.framework.resource.parameters.where.QueryHelper.WalkerCallback;
+
+/**
+ * Immutable, pre-compiled form of a WHERE clause produced by {@link WhereParser}.
+ * <p>
+ * Unlike the ANTLR {@code CommonTree} it holds the property names and the (already unquoted) values directly, so walking it is a straight replay of the {@link WalkerCallback} calls that {@link QueryHelper#walk(Query, WalkerCallback)} makes for the equivalent tree. Instances are shared between requests through the {@link WhereParser} cache and must therefore never be modified.
+ */
+public abstract class WhereExpression
+{
+    private WhereExpression()
+    {}
+
+    /**
+     * Replays this expression against the callback.
+     *
+     * @param callback
+     *            the callback to notify
+     */
+    public void walk(WalkerCallback callback)
+    {
+        walk(callback, false);
+    }
+
+    abstract void walk(WalkerCallback callback, boolean negated);
+
+    static WhereExpression exists(String propertyName)
+    {
+        return new Exists(propertyName);
+    }
+
+    static WhereExpression matches(String propertyName, String value)
+    {
+        return new Matches(propertyName, value);
+    }
+
+    static WhereExpression in(String propertyName, String[] values)
+    {
+        return new In(propertyName, values);
+    }
+
+    static WhereExpression between(String propertyName, String firstValue, String secondValue)
+    {
+        return new Between(propertyName, firstValue, secondValue);
+    }
+
+    static WhereExpression comparison(int type, String propertyName, String value)
+    {
+        return new Comparison(type, propertyName, value);
+    }
+
+    static WhereExpression not(WhereExpression expression)
+    {
+        return new Not(expression);
+    }
+
+    /**
+     * @param type
+     *            either {@code WhereClauseParser.AND} or {@code WhereClauseParser.OR}
+     */
+    static WhereExpression junction(int type, WhereExpression[] expressions)
+    {
+        return new Junction(type, expressions);
+    }
+
+    private static final class Exists extends WhereExpression
+    {
+        private final String propertyName;
+
+        Exists(String propertyName)
+        {
+            this.propertyName = propertyName;
+        }
+
+        @Override
+        void walk(WalkerCallback callback, boolean negated)
+        {
+            callback.exists(propertyName, negated);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "EXISTS(" + propertyName + ")";
+        }
+    }
+
+    private static final class Matches extends WhereExpression
+    {
+        private final String propertyName;
+        private final String value;
+
+        Matches(String propertyName, String value)
+        {
+            this.propertyName = propertyName;
+            this.value = value;
+        }
+
+        @Override
+        void walk(WalkerCallback callback, boolean negated)
+        {
+            callback.matches(propertyName, value, negated);
+        }
+
+        @Override
+        public String toString()
+        {
+            return propertyName + " MATCHES(" + value + ")";
+        }
+    }
+
+    private static final class In extends WhereExpression
+    {
+        private final String propertyName;
+        private final String[] values;
+
+        In(String propertyName, String[] values)
+        {
+            this.propertyName = propertyName;
+            this.values = values;
+        }
+
+        @Override
+        void walk(WalkerCallback callback, boolean negated)
+        {
+            // callbacks receive their own copy as the varargs array is shared between requests
+            callback.in(propertyName, negated, values.clone());
+        }
+
+        @Override
+        public String toString()
+        {
+            return propertyName + " IN(" + String.join(",", values) + ")";
+        }
+    }
+
+    private static final class Between extends WhereExpression
+    {
+        private final String propertyName;
+        private final String firstValue;
+        private final String secondValue;
+
+        Between(String propertyName, String firstValue, String secondValue)
+        {
+            this.propertyName = propertyName;
+            this.firstValue = firstValue;
+            this.secondValue = secondValue;
+        }
+
+        @Override
+        void walk(WalkerCallback callback, boolean negated)
+        {
+            callback.between(propertyName, firstValue, secondValue, negated);
+        }
+
+        @Override
+        public String toString()
+        {
+            return propertyName + " BETWEEN(" + firstValue + "," + secondValue + ")";
+        }
+    }
+
+    private static final class Comparison extends WhereExpression
+    {
+        private final int type;
+        private final String propertyName;
+        private final String value;
+
+        Comparison(int type, String propertyName, String value)
+        {
+            this.type = type;
+            this.propertyName = propertyName;
+            this.value = value;
+        }
+
+        @Override
+        void walk(WalkerCallback callback, boolean negated)
+        {
+            callback.comparison(type, propertyName, value, negated);
+        }
+
+        @Override
+        public String toString()
+        {
+            return propertyName + " " + type + " " + value;
+        }
+    }
+
+    private static final class Not extends WhereExpression
+    {
+        private final WhereExpression expression;
+
+        Not(WhereExpression expression)
+        {
+            this.expression = expression;
+        }
+
+        @Override
+        void walk(WalkerCallback callback, boolean negated)
+        {
+            // Same as the tree walker: NOT only ever sets the flag, it never toggles it
+            expression.walk(callback, true);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "NOT " + expression;
+        }
+    }
+
+    private static final class Junction extends WhereExpression
+    {
+        private final int type;
+        private final WhereExpression[] expressions;
+
+        Junction(int type, WhereExpression[] expressions)
+        {
+            this.type = type;
+            this.expressions = expressions;
+        }
+
+        @Override
+        void walk(WalkerCallback callback, boolean negated)
+        {
+            if (type == OR)
+            {
+                callback.or();
+            }
+            else
+            {
+                callback.and();
+            }
+            for (WhereExpression expression : expressions)
+            {
+                expression.walk(callback, negated);
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < expressions.length; i++)
+            {
+                if (i > 0)
+                {
+                    sb.append(type == AND ? " AND " : " OR ");
+                }
+                sb.append(expressions[i]);
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,533 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.rest.framework.resource.parameters.where;
+
+import static org.alfresco.rest.antlr.WhereClauseParser.AND;
+import static org.alfresco.rest.antlr.WhereClauseParser.EQUALS;
+import static org.alfresco.rest.antlr.WhereClauseParser.GREATERTHAN;
+import static org.alfresco.rest.antlr.WhereClauseParser.GREATERTHANOREQUALS;
+import static org.alfresco.rest.antlr.WhereClauseParser.LESSTHAN;
+import static org.alfresco.rest.antlr.WhereClauseParser.LESSTHANOREQUALS;
+import static org.alfresco.rest.antlr.WhereClauseParser.OR;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.util.MaxSizeMap;
+
+/**
+ * Hand-written recursive descent parser for the WHERE clause of the public api.
+ * <p>
+ * It accepts a strict subset of the {@code WhereClause.g} grammar and compiles it straight into a {@link WhereExpression}, without the ANTLR lexer, token stream and tree allocations. Anything it does not recognise is reported as <tt>null</tt> so that the caller can fall back to {@link WhereCompiler}, which stays the reference implementation and produces the usual error messages. Compiled expressions are immutable and are cached by their source text, as clients tend to send the same few clauses over and over again.
+ */
+public final class WhereParser
+{
+    private static final int CACHE_SIZE = 500;
+    private static final int MAX_CACHEABLE_LENGTH = 1024;
+    private static final Map<String, WhereExpression> CACHE = Collections.synchronizedMap(new MaxSizeMap<String, WhereExpression>(CACHE_SIZE, true));
+
+    /** Signals that the input is not recognised; shared and stackless so that rejecting input is cheap. */
+    private static final RuntimeException NO_MATCH = new RuntimeException("Unrecognised where clause", null, false, false) {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private static final char END_OF_INPUT = '\uffff';
+
+    private final String input;
+    private final int length;
+    private int pos;
+
+    private WhereParser(String input)
+    {
+        this.input = input;
+        this.length = input.length();
+    }
+
+    /**
+     * Compiles a WHERE clause, using the cache when possible.
+     *
+     * @param whereClause
+     *            the WHERE clause, e.g. <tt>(EXISTS(target/file) AND name='fred')</tt>
+     * @return the compiled expression or <tt>null</tt> if the clause is not recognised
+     */
+    public static WhereExpression compile(String whereClause)
+    {
+        WhereExpression expression = CACHE.get(whereClause);
+        if (expression == null)
+        {
+            expression = parse(whereClause);
+            if (expression != null && whereClause.length() <= MAX_CACHEABLE_LENGTH)
+            {
+                CACHE.put(whereClause, expression);
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Compiles a WHERE clause without consulting the cache.
+     *
+     * @param whereClause
+     *            the WHERE clause
+     * @return the compiled expression or <tt>null</tt> if the clause is not recognised
+     */
+    public static WhereExpression parse(String whereClause)
+    {
+        try
+        {
+            return new WhereParser(whereClause).whereClause();
+        }
+        catch (RuntimeException e)
+        {
+            if (e == NO_MATCH)
+            {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    // whereclause : WS? LEFTPAREN! WS? predicate RIGHTPAREN! WS?;
+    private WhereExpression whereClause()
+    {
+        skipWhitespace();
+        expect('(');
+        WhereExpression predicate = predicate();
+        skipWhitespace();
+        expect(')');
+        skipWhitespace();
+        if (pos != length)
+        {
+            throw NO_MATCH;
+        }
+        return predicate;
+    }
+
+    // predicate : simplepredicate | simplepredicate (AND simplepredicate)+ | simplepredicate (OR simplepredicate)+;
+    private WhereExpression predicate()
+    {
+        WhereExpression first = simplePredicate();
+        int type = junction();
+        if (type == 0)
+        {
+            return first;
+        }
+
+        List<WhereExpression> expressions = new ArrayList<>(4);
+        expressions.add(first);
+        expressions.add(simplePredicate());
+        int next;
+        while ((next = junction()) != 0)
+        {
+            if (next != type)
+            {
+                // AND and OR can't be mixed
+                throw NO_MATCH;
+            }
+            expressions.add(simplePredicate());
+        }
+        return WhereExpression.junction(type, expressions.toArray(new WhereExpression[expressions.size()]));
+    }
+
+    /**
+     * Consumes <tt>WS ('and'|'AND') WS</tt> or <tt>WS ('or'|'OR') WS</tt>.
+     *
+     * @return AND, OR or 0 if there is no junction at the current position, in which case nothing is consumed
+     */
+    private int junction()
+    {
+        int mark = pos;
+        if (skipWhitespace())
+        {
+            int type = 0;
+            if (keyword("and", "AND"))
+            {
+                type = AND;
+            }
+            else if (keyword("or", "OR"))
+            {
+                type = OR;
+            }
+            if (type != 0 && skipWhitespace())
+            {
+                return type;
+            }
+        }
+        pos = mark;
+        return 0;
+    }
+
+    // simplepredicate : allowedpredicates | NEGATION allowedpredicates;
+    private WhereExpression simplePredicate()
+    {
+        skipHiddenWhitespace();
+        int mark = pos;
+        if (keyword("not", "NOT"))
+        {
+            if (skipWhitespace())
+            {
+                return WhereExpression.not(allowedPredicate());
+            }
+            // e.g. (not=1) where "not" is a property name
+            pos = mark;
+        }
+        return allowedPredicate();
+    }
+
+    // allowedpredicates : comparisonpredicate | existspredicate | betweenpredicate | inpredicate | matchespredicate;
+    private WhereExpression allowedPredicate()
+    {
+        if (matchesKeyword("exists", "EXISTS"))
+        {
+            pos += 6;
+            skipWhitespace();
+            expect('(');
+            skipHiddenWhitespace();
+            String propertyName = propertyName();
+            skipWhitespace();
+            expect(')');
+            return WhereExpression.exists(propertyName);
+        }
+
+        String propertyName = propertyName();
+        boolean whitespace = skipWhitespace();
+        int type = comparisonOperator();
+        if (type != 0)
+        {
+            skipWhitespace();
+            return WhereExpression.comparison(type, propertyName, value());
+        }
+        if (!whitespace)
+        {
+            // IN, MATCHES and BETWEEN must be preceded by whitespace
+            throw NO_MATCH;
+        }
+
+        if (matchesKeyword("in", "IN"))
+        {
+            pos += 2;
+            openList();
+            List<String> values = new ArrayList<>(8);
+            values.add(value());
+            skipWhitespace();
+            while (peek() == ',')
+            {
+                pos++;
+                skipHiddenWhitespace();
+                values.add(value());
+                skipWhitespace();
+            }
+            expect(')');
+            return WhereExpression.in(propertyName, values.toArray(new String[values.size()]));
+        }
+        if (matchesKeyword("matches", "MATCHES"))
+        {
+            pos += 7;
+            openList();
+            String value = value();
+            skipWhitespace();
+            expect(')');
+            return WhereExpression.matches(propertyName, value);
+        }
+        if (matchesKeyword("between", "BETWEEN"))
+        {
+            pos += 7;
+            openList();
+            String firstValue = value();
+            skipWhitespace();
+            expect(',');
+            skipHiddenWhitespace();
+            String secondValue = value();
+            skipWhitespace();
+            expect(')');
+            return WhereExpression.between(propertyName, firstValue, secondValue);
+        }
+        throw NO_MATCH;
+    }
+
+    private void openList()
+    {
+        skipWhitespace();
+        expect('(');
+        skipHiddenWhitespace();
+    }
+
+    // comparisonoperator: EQUALS|LESSTHAN|GREATERTHAN|LESSTHANOREQUALS|GREATERTHANOREQUALS;
+    private int comparisonOperator()
+    {
+        switch (peek())
+        {
+        case '=':
+            pos++;
+            return EQUALS;
+        case '<':
+            pos++;
+            if (peek() == '=')
+            {
+                pos++;
+                return LESSTHANOREQUALS;
+            }
+            return LESSTHAN;
+        case '>':
+            pos++;
+            if (peek() == '=')
+            {
+                pos++;
+                return GREATERTHANOREQUALS;
+            }
+            return GREATERTHAN;
+        default:
+            return 0;
+        }
+    }
+
+    // value: PROPERTYVALUE | PROPERTYNAME;
+    private String value()
+    {
+        char c = peek();
+        if (c == '\'')
+        {
+            return quotedValue();
+        }
+        if (isIdentifierDigit(c))
+        {
+            int start = pos;
+            do
+            {
+                pos++;
+            }
+            while (isIdentifierDigit(peek()));
+            if (isPropertyNameChar(peek()))
+            {
+                // e.g. 5abc is lexed as two separate tokens
+                throw NO_MATCH;
+            }
+            return input.substring(start, pos);
+        }
+        return propertyName();
+    }
+
+    /**
+     * PROPERTYVALUE: SINGLEQUOTE (~SINGLEQUOTE|'\\'SINGLEQUOTE)* SINGLEQUOTE
+     * <p>
+     * The escape sequence is kept as it is, the same as {@link QueryHelper#stripQuotes(String)} does for the tree.
+     */
+    private String quotedValue()
+    {
+        int start = ++pos;
+        while (pos < length)
+        {
+            char c = input.charAt(pos);
+            if (c == '\\' && pos + 2 < length && input.charAt(pos + 1) == '\'')
+            {
+                pos += 2;
+            }
+            else if (c == '\'')
+            {
+                return input.substring(start, pos++);
+            }
+            else
+            {
+                pos++;
+            }
+        }
+        // Not terminated
+        throw NO_MATCH;
+    }
+
+    // PROPERTYNAME: '/'? IDENTIFIER ('/'IDENTIFIER)*;
+    private String propertyName()
+    {
+        int start = pos;
+        if (peek() == '/')
+        {
+            pos++;
+        }
+        identifier();
+        while (peek() == '/')
+        {
+            pos++;
+            identifier();
+        }
+        String propertyName = input.substring(start, pos);
+        if ("exists".equals(propertyName) || "EXISTS".equals(propertyName)
+                || (("not".equals(propertyName) || "NOT".equals(propertyName)) && isWhitespace(peek())))
+        {
+            // lexed as keywords by the grammar
+            throw NO_MATCH;
+        }
+        return propertyName;
+    }
+
+    // IDENTIFIER : (IDENTIFIERLETTER (IDENTIFIERLETTERORDIGIT* | (IDENTIFIERLETTERORDIGIT* COLON IDENTIFIERLETTERORDIGIT*)));
+    private void identifier()
+    {
+        if (!isIdentifierLetter(peek()))
+        {
+            throw NO_MATCH;
+        }
+        pos++;
+        skipLettersOrDigits();
+        if (peek() == ':')
+        {
+            pos++;
+            skipLettersOrDigits();
+        }
+    }
+
+    private void skipLettersOrDigits()
+    {
+        while (pos < length && (isIdentifierLetter(input.charAt(pos)) || isIdentifierDigit(input.charAt(pos))))
+        {
+            pos++;
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if either spelling of the keyword is at the current position and is not just the start of a longer property name. Nothing is consumed.
+     */
+    private boolean matchesKeyword(String lower, String upper)
+    {
+        int end = pos + lower.length();
+        return (input.startsWith(lower, pos) || input.startsWith(upper, pos)) && (end >= length || !isPropertyNameChar(input.charAt(end)));
+    }
+
+    /**
+     * Consumes either spelling of the keyword if it is at the current position.
+     */
+    private boolean keyword(String lower, String upper)
+    {
+        if (input.startsWith(lower, pos) || input.startsWith(upper, pos))
+        {
+            pos += lower.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c)
+    {
+        if (peek() != c)
+        {
+            throw NO_MATCH;
+        }
+        pos++;
+    }
+
+    private char peek()
+    {
+        return pos < length ? input.charAt(pos) : END_OF_INPUT;
+    }
+
+    /**
+     * WS : ( ' ' | '\t' | '\r' | '\n' )+
+     *
+     * @return <tt>true</tt> if any whitespace was consumed
+     */
+    private boolean skipWhitespace()
+    {
+        int start = pos;
+        while (pos < length && isWhitespace(input.charAt(pos)))
+        {
+            pos++;
+        }
+        return pos > start;
+    }
+
+    /**
+     * Skips whitespace that the lexer would emit as a WS token of its own, i.e. not as part of an operator or keyword. The generated lexer commits to one of the WS-prefixed tokens (IN, MATCHES, BETWEEN, OR, AND) as soon as it sees whitespace followed by their first letter, so for instance <tt>( bob=1)</tt> is rejected by the grammar. The same is done here so that nothing is accepted that the grammar would not.
+     */
+    private void skipHiddenWhitespace()
+    {
+        if (skipWhitespace())
+        {
+            switch (peek())
+            {
+            case 'a':
+            case 'A':
+            case 'o':
+            case 'O':
+            case 'i':
+            case 'I':
+            case 'm':
+            case 'M':
+            case 'b':
+            case 'B':
+                throw NO_MATCH;
+            default:
+            }
+        }
+    }
+
+    private static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean isPropertyNameChar(char c)
+    {
+        return isIdentifierLetter(c) || isIdentifierDigit(c) || c == ':' || c == '/';
+    }
+
+    // IDENTIFIERLETTER
+    static boolean isIdentifierLetter(char c)
+    {
+        return (c >= 'A' && c <= 'Z')
+                || c == '_'
+                || (c >= 'a' && c <= 'z')
+                || (c >= '\u00c0' && c <= '\u00d6')
+                || (c >= '\u00d8' && c <= '\u00f6')
+                || (c >= '\u00f8' && c <= '\u00ff')
+                || (c >= '\u0100' && c <= '\u1fff')
+                || (c >= '\u3040' && c <= '\u318f')
+                || (c >= '\u3300' && c <= '\u337f')
+                || (c >= '\u3400' && c <= '\u3d2d')
+                || (c >= '\u4e00' && c <= '\u9fff')
+                || (c >= '\uf900' && c <= '\ufaff');
+    }
+
+    // IDENTIFIERDIGIT
+    static boolean isIdentifierDigit(char c)
+    {
+        return (c >= '0' && c <= '9')
+                || (c >= '\u0660' && c <= '\u0669')
+                || (c >= '\u06f0' && c <= '\u06f9')
+                || (c >= '\u0966' && c <= '\u096f')
+                || (c >= '\u09e6' && c <= '\u09ef')
+                || (c >= '\u0a66' && c <= '\u0a6f')
+                || (c >= '\u0ae6' && c <= '\u0aef')
+                || (c >= '\u0b66' && c <= '\u0b6f')
+                || (c >= '\u0be7' && c <= '\u0bef')
+                || (c >= '\u0c66' && c <= '\u0c6f')
+                || (c >= '\u0ce6' && c <= '\u0cef')
+                || (c >= '\u0d66' && c <= '\u0d6f')
+                || (c >= '\u0e50' && c <= '\u0e59')
+                || (c >= '\u0ed0' && c <= '\u0ed9')
+                || (c >= '\u1040' && c <= '\u1049');
+    }
+}
@@ -55,6 +55,8 @@ import org.alfresco.rest.framework.resource.parameters.where.InvalidQueryExcepti
 import org.alfresco.rest.framework.resource.parameters.where.Query;
 import org.alfresco.rest.framework.resource.parameters.where.QueryImpl;
 import org.alfresco.rest.framework.resource.parameters.where.WhereCompiler;
+import org.alfresco.rest.framework.resource.parameters.where.WhereExpression;
+import org.alfresco.rest.framework.resource.parameters.where.WhereParser;
 
 /*
  * Extracts recognized parameters from the HTTP request.
@@ -248,6 +250,13 @@ public interface RecognizedParamsExtractor
         if (whereParam == null)
             return QueryImpl.EMPTY;
 
+        // Try the lightweight parser first, anything it does not recognise is left to the grammar (including the error reporting)
+        WhereExpression whereExpression = WhereParser.compile(whereParam);
+        if (whereExpression != null)
+        {
+            return new QueryImpl(whereParam, whereExpression);
+        }
+
         try
         {
             CommonTree whereTree = WhereCompiler.compileWhereClause(whereParam);
@@ -0,0 +1,18 @@
+<#escape x as jsonUtils.encodeJSONString(x)>
+{
+   "enabled" : ${enabled?string("true","false")},
+   "advice" :
+   [
+   <#list advice as a>
+      {
+         "property" : "${a.propertyQName}",
+         "column" : "${a.column}",
+         "reason" : "${a.reason}",
+         "queryCount" : ${a.queryCount?c},
+         "totalTimeMs" : ${a.totalTimeMs?c},
+         "suggestedIndex" : <#if a.suggestedIndex??>"${a.suggestedIndex}"<#else>null</#if>
+      }<#if a_has_next>,</#if>
+   </#list>
+   ]
+}
+</#escape>
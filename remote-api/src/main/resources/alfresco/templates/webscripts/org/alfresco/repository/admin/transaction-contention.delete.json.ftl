@@ -0,0 +1,25 @@
+<#escape x as jsonUtils.encodeJSONString(x)>
+{
+   "maxConcurrentHotTransactions" : ${maxConcurrentHotTransactions?c},
+   "callSites" :
+   [
+   <#list callSites as s>
+      {
+         "callSite" : "${s.callSite}",
+         "transactions" : ${s.transactions?c},
+         "failures" : ${s.failures?c},
+         "retries" : ${s.retries?c},
+         "retriesByType" :
+         {
+         <#list s.retriesByType?keys as type>
+            "${type}" : ${s.retriesByType[type]?c}<#if type_has_next>,</#if>
+         </#list>
+         },
+         "averageTimeMs" : ${s.averageTimeMs?c},
+         "maxTimeMs" : ${s.maxTimeMs?c},
+         "hot" : ${s.hot?string("true","false")}
+      }<#if s_has_next>,</#if>
+   </#list>
+   ]
+}
+</#escape>
@@ -37,6 +37,7 @@ import java.util.Locale;
 import java.util.Map;
 
 import org.apache.commons.lang3.RandomStringUtils;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -205,6 +206,55 @@ public class AdminWebScriptTest extends BaseWebScriptTest
         assertEquals("Mismatched updated", true, updated);
     }
 
+    public void testMetadataQueryIndexAdvice() throws Exception
+    {
+        String url = "/api/admin/metadata-query/index-advice";
+
+        // Only admins can see the advice
+        sendRequest(new TestWebScriptServer.GetRequest(url), Status.STATUS_UNAUTHORIZED, user2);
+
+        Response response = sendRequest(new TestWebScriptServer.GetRequest(url), Status.STATUS_OK, admin);
+        JSONObject json = new JSONObject(response.getContentAsString());
+        json.getBoolean("enabled");
+        json.getJSONArray("advice");
+
+        response = sendRequest(new TestWebScriptServer.DeleteRequest(url), Status.STATUS_OK, admin);
+        json = new JSONObject(response.getContentAsString());
+        assertEquals("The advice should have been reset", 0, json.getJSONArray("advice").length());
+    }
+
+    @Test
+    public void testTransactionContention() throws Exception
+    {
+        String url = "/api/admin/transaction-contention";
+
+        // Only admins can see the statistics
+        sendRequest(new TestWebScriptServer.GetRequest(url), Status.STATUS_UNAUTHORIZED, user2);
+
+        // Web scripts are recorded against their own call site
+        sendRequest(new TestWebScriptServer.GetRequest("/api/admin/usage"), Status.STATUS_OK, admin);
+        Response response = sendRequest(new TestWebScriptServer.GetRequest(url), Status.STATUS_OK, admin);
+        JSONObject json = new JSONObject(response.getContentAsString());
+        json.getInt("maxConcurrentHotTransactions");
+        JSONArray callSites = json.getJSONArray("callSites");
+        boolean found = false;
+        for (int i = 0; i < callSites.length(); i++)
+        {
+            JSONObject callSite = callSites.getJSONObject(i);
+            if (callSite.getString("callSite").startsWith("webscript:org/alfresco/repository/admin/usage.get"))
+            {
+                found = true;
+                assertTrue(callSite.getLong("transactions") > 0);
+                callSite.getJSONObject("retriesByType").getLong("DEADLOCK");
+            }
+        }
+        assertTrue("The usage web script should have been recorded", found);
+
+        response = sendRequest(new TestWebScriptServer.DeleteRequest(url), Status.STATUS_OK, admin);
+        json = new JSONObject(response.getContentAsString());
+        assertEquals("The statistics should have been reset", 0, json.getJSONArray("callSites").length());
+    }
+
     @Test
     // ALF-21950 We check now if the property belongs to the type of the node
     public void testResidualProperties() throws Exception
@@ -552,4 +552,58 @@ public class AuditWebScriptTest extends BaseWebScriptTest
         entryUsername = jsonValues.getString("/repositorytest/login/error/user");
         assertEquals("Didn't find the login-failure-user", oddUser, entryUsername);
     }
+
+    public void testExportAuditRepo() throws Exception
+    {
+        long now = System.currentTimeMillis();
+
+        auditService.setAuditEnabled(true);
+        auditService.enableAudit(APP_REPOTEST_NAME, APP_REPOTEST_PATH);
+
+        for (int i = 0; i < 3; i++)
+        {
+            loginWithFailure(getName() + "-" + i);
+        }
+
+        // ALF-3055 : auditing of failures is asynchronous, so wait for all of the entries
+        String url = "/api/audit/query/" + APP_REPOTEST_NAME + "?fromTime=" + now;
+        JSONArray jsonEntries = null;
+        for (int i = 0; i < 60; i++)
+        {
+            Response response = sendRequest(new TestWebScriptServer.GetRequest(url), Status.STATUS_OK, admin);
+            jsonEntries = new JSONObject(response.getContentAsString()).getJSONArray(AbstractAuditWebScript.JSON_KEY_ENTRIES);
+            if (jsonEntries.length() >= 3)
+            {
+                break;
+            }
+            Thread.sleep(1000);
+        }
+        assertEquals("Expected three entries", 3, jsonEntries.length());
+
+        // Export with pages smaller than the result so that the cursor has to move on
+        url = "/api/audit/export/" + APP_REPOTEST_NAME + "?pageSize=2&fromTime=" + now;
+        Response response = sendRequest(new TestWebScriptServer.GetRequest(url), Status.STATUS_OK, admin);
+        assertEquals(AuditExportGet.MIMETYPE_NDJSON, response.getContentType().split(";")[0]);
+        String[] lines = response.getContentAsString().split("\n");
+        assertEquals("Incorrect number of exported entries", 3, lines.length);
+        long lastEntryId = -1L;
+        for (int i = 0; i < lines.length; i++)
+        {
+            JSONObject jsonEntry = new JSONObject(lines[i]);
+            long entryId = jsonEntry.getLong(AbstractAuditWebScript.JSON_KEY_ENTRY_ID);
+            assertTrue("Entries must be exported in ascending ID order", entryId > lastEntryId);
+            lastEntryId = entryId;
+            JSONObject jsonValues = jsonEntry.getJSONObject(AbstractAuditWebScript.JSON_KEY_ENTRY_VALUES);
+            assertEquals(getName() + "-" + i, jsonValues.getString("/repositorytest/login/error/user"));
+        }
+
+        // Resume after the last entry
+        url = "/api/audit/export/" + APP_REPOTEST_NAME + "?fromId=" + (lastEntryId + 1L) + "&fromTime=" + now;
+        response = sendRequest(new TestWebScriptServer.GetRequest(url), Status.STATUS_OK, admin);
+        assertEquals("Nothing should follow the last entry", "", response.getContentAsString());
+
+        // Page size out of range
+        url = "/api/audit/export/" + APP_REPOTEST_NAME + "?pageSize=0";
+        sendRequest(new TestWebScriptServer.GetRequest(url), Status.STATUS_BAD_REQUEST, admin);
+    }
 }
@@ -145,6 +145,13 @@ public class SOLRWebScriptTest extends BaseWebScriptTest
         return transactions;
     }
 
+    public void testTransactionsGetInvalidWaitMs() throws Exception
+    {
+        String url = "/api/solr/transactions?fromCommitTime=" + System.currentTimeMillis() + "&waitMs=";
+        sendRequest(new TestWebScriptServer.GetRequest(url + "soon"), Status.STATUS_BAD_REQUEST, admin);
+        sendRequest(new TestWebScriptServer.GetRequest(url + "-1"), Status.STATUS_BAD_REQUEST, admin);
+    }
+
     public void testAclChangeSetsGet() throws Exception
     {
         String url = "/api/solr/aclchangesets?fromTime=" + 0L + "&fromId=" + 0L;
@@ -0,0 +1,208 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.rest.framework.resource.parameters.where;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.antlr.runtime.tree.CommonErrorNode;
+import org.antlr.runtime.tree.CommonTree;
+import org.junit.Test;
+
+import org.alfresco.rest.framework.tools.RecognizedParamsExtractor;
+
+/**
+ * Checks that {@link WhereParser} produces the same walker callbacks as the ANTLR grammar and only ever accepts clauses that the grammar accepts.
+ */
+public class WhereParserTest
+{
+    private static final List<String> VALID = List.of(
+            "(EXISTS(b))",
+            "  ( EXISTS ( whitespace ) )  ",
+            "(exists(/target/file))",
+            "(NOT EXISTS(b))",
+            "(EXISTS(/target/folder) AND NOT EXISTS(/target/site))",
+            "(NOT EXISTS(/target/folder) OR EXISTS(/target/site))",
+            "(EXISTS   (  /target/folder  )   OR   EXISTS(  /target/site  )  )",
+            "(EXISTS(target/file) AND EXISTS(target/folder) AND EXISTS(target/site))",
+            "( dueAt in (5,8) )",
+            "( fred/bloggs in (head,elbow) )",
+            "( nextOne in (5,56,'fred&') )",
+            "( nextOne in ('me , you',56,egg) )",
+            "( NOT nextOne in (5,56,fred, king, kong, 'fred\\'^') )",
+            "( dueAt between (5,8) )",
+            "(NOT dueAt between (5,8) AND nextOne between (green,blue))",
+            "(fred matches(bob))",
+            "( king/kong/hair/shoulders/knees/toes matches ('fred%') )",
+            "( dueAt > '12.04.345' )",
+            "( dueAt >= '12.04.345' )",
+            "( dueAt < '12.04.345' )",
+            "( dueAt <= '12.04.345' )",
+            "( DogHouse = 'Cat\\'s House' )",
+            "( KING_KONG >= 'Mighty Mouse' )",
+            "(cm:name='')",
+            "(not=1)",
+            "(isFile=true AND nodeType='cm:content INCLUDESUBTYPES')",
+            "(propA=x OR propB=y OR propC=z)",
+            "(a IN ('x y' , 'b'))");
+
+    private static final List<String> INVALID = List.of(
+            "fred",
+            "(noClosingBracket",
+            "noOpeningBracket)",
+            "(EXISTS(target.file))",
+            "(exists  folder)",
+            "(EXISTS(/target/folder)OR EXISTS(/target/site))",
+            "( nextOne between (5,8,4) )",
+            "( nextOne between 5,8 )",
+            "( fred matches bob )",
+            "( Fred/Bloggs = %$NICE&* )",
+            "( Ken = (456) )",
+            "(a=1 AND b=2 OR c=3)",
+            "(a='unterminated)",
+            "(a=5abc)",
+            // rejected by the generated lexer, which commits to AND, OR, IN, MATCHES or BETWEEN too early
+            "( bob=1)",
+            "(a IN (x, bob))",
+            "(EXISTS( a))",
+            // keywords can't be used as property names
+            "(a=exists)",
+            "(EXISTS(not ))",
+            // accepted by the grammar but left to it, trailing input is ignored there
+            "(a=1) trailing");
+
+    @Test
+    public void testValidClausesMatchGrammar() throws Exception
+    {
+        for (String whereClause : VALID)
+        {
+            CommonTree tree = WhereCompiler.compileWhereClause(whereClause);
+            assertThat(tree).as(whereClause).isNotInstanceOf(CommonErrorNode.class);
+            RecordingWalker expected = new RecordingWalker();
+            QueryHelper.walk(new QueryImpl(tree), expected);
+
+            WhereExpression expression = WhereParser.parse(whereClause);
+            assertThat(expression).as(whereClause).isNotNull();
+            RecordingWalker actual = new RecordingWalker();
+            expression.walk(actual);
+
+            assertThat(actual.toString()).as(whereClause).isEqualTo(expected.toString());
+        }
+    }
+
+    @Test
+    public void testInvalidClausesAreLeftToGrammar()
+    {
+        for (String whereClause : INVALID)
+        {
+            assertThat(WhereParser.parse(whereClause)).as(whereClause).isNull();
+        }
+    }
+
+    @Test
+    public void testCompiledClausesAreCached()
+    {
+        String whereClause = "(EXISTS(target/file) AND name='cached')";
+        assertThat(WhereParser.compile(whereClause)).isSameAs(WhereParser.compile(whereClause));
+    }
+
+    @Test
+    public void testQueryBuildsTreeOnDemand()
+    {
+        Query query = new RecognizedParamsExtractor() {}.getWhereClause("( fred   > g )");
+
+        assertThat(query).isInstanceOf(QueryImpl.class);
+        assertThat(((QueryImpl) query).getWhereExpression()).isNotNull();
+        assertThat(query.getTree()).isNotNull();
+        assertThat(query.getTree().getChildCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEmptyCheckDoesNotBuildTree() throws Exception
+    {
+        // The tree of this query can't be built, so the check must not try
+        Query query = new QueryImpl("not a clause", WhereParser.parse("(a=1)"));
+
+        assertThat(QueryHelper.isEmpty(query)).isFalse();
+        assertThat(QueryHelper.isEmpty(QueryImpl.EMPTY)).isTrue();
+        assertThat(QueryHelper.isEmpty(null)).isTrue();
+        assertThat(QueryHelper.isEmpty(new QueryImpl(WhereCompiler.compileWhereClause("(a=1)")))).isFalse();
+    }
+
+        private static class RecordingWalker implements QueryHelper.WalkerCallback
+    {
+        private final StringBuilder calls = new StringBuilder();
+
+        @Override
+        public void exists(String propertyName, boolean negated)
+        {
+            calls.append("exists ").append(propertyName).append(' ').append(negated).append(';');
+        }
+
+        @Override
+        public void between(String propertyName, String firstValue, String secondValue, boolean negated)
+        {
+            calls.append("between ").append(propertyName).append(' ').append(firstValue).append(' ').append(secondValue).append(' ').append(negated).append(';');
+        }
+
+        @Override
+        public void comparison(int type, String propertyName, String propertyValue, boolean negated)
+        {
+            calls.append("comparison ").append(type).append(' ').append(propertyName).append(' ').append(propertyValue).append(' ').append(negated).append(';');
+        }
+
+        @Override
+        public void in(String property, boolean negated, String... propertyValues)
+        {
+            calls.append("in ").append(property).append(' ').append(negated).append(' ').append(String.join("|", propertyValues)).append(';');
+        }
+
+        @Override
+        public void matches(String property, String propertyValue, boolean negated)
+        {
+            calls.append("matches ").append(property).append(' ').append(propertyValue).append(' ').append(negated).append(';');
+        }
+
+        @Override
+        public void and()
+        {
+            calls.append("and;");
+        }
+
+        @Override
+        public void or()
+        {
+            calls.append("or;");
+        }
+
+        @Override
+        public String toString()
+        {
+            return calls.toString();
+        }
+    }
+}
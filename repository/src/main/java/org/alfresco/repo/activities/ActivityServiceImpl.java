@@ -28,6 +28,7 @@ package org.alfresco.repo.activities;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,11 +45,16 @@ import org.alfresco.model.ContentModel;
 import org.alfresco.query.PagingRequest;
 import org.alfresco.query.PagingResults;
 import org.alfresco.repo.activities.feed.cleanup.FeedCleaner;
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.repo.domain.activities.ActivitiesDAO;
 import org.alfresco.repo.domain.activities.ActivityFeedDAO;
 import org.alfresco.repo.domain.activities.ActivityFeedEntity;
 import org.alfresco.repo.domain.activities.FeedControlDAO;
 import org.alfresco.repo.domain.activities.FeedControlEntity;
+import org.alfresco.repo.policy.JavaBehaviour;
+import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.security.authority.AuthorityServicePolicies;
 import org.alfresco.repo.security.permissions.AccessDeniedException;
 import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.service.cmr.activities.ActivityPostService;
@@ -59,6 +65,7 @@ import org.alfresco.service.cmr.repository.AssociationRef;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.NodeService;
 import org.alfresco.service.cmr.security.AuthorityService;
+import org.alfresco.service.cmr.security.AuthorityType;
 import org.alfresco.service.cmr.security.NoSuchPersonException;
 import org.alfresco.service.cmr.security.PersonService;
 import org.alfresco.service.cmr.site.SiteInfo;
@@ -71,7 +78,8 @@ import org.alfresco.sync.repo.Client;
  * 
  * @author janv
  */
-public class ActivityServiceImpl implements ActivityService, InitializingBean
+public class ActivityServiceImpl implements ActivityService, InitializingBean,
+        AuthorityServicePolicies.OnAuthorityAddedToGroup, AuthorityServicePolicies.OnAuthorityRemovedFromGroup, AuthorityServicePolicies.OnGroupDeleted
 {
     private static final Log logger = LogFactory.getLog(ActivityServiceImpl.class);
 
@@ -84,8 +92,12 @@ public class ActivityServiceImpl implements ActivityService, InitializingBean
     private ActivityPostService activityPostService;
     private PersonService personService;
     private NodeService nodeService;
+    private PolicyComponent policyComponent;
+
+    private SimpleCache<String, ArrayList<String>> memberSitesCache;
 
     private int maxFeedItems = 100;
+    private int fanOutOnReadThreshold = 0;
 
     private boolean userNamesAreCaseSensitive = false;
 
@@ -94,6 +106,33 @@ public class ActivityServiceImpl implements ActivityService, InitializingBean
         this.maxFeedItems = maxFeedItems;
     }
 
+    /**
+     * @param fanOutOnReadThreshold
+     *            the site size from which feed entries are shared by the site members (see the feed task processor), or zero if they are never shared
+     */
+    public void setFanOutOnReadThreshold(int fanOutOnReadThreshold)
+    {
+        this.fanOutOnReadThreshold = fanOutOnReadThreshold;
+    }
+
+    /**
+     * @param memberSitesCache
+     *            optional cache of the sites of each user, used to read the feed entries that are shared by site members
+     */
+    public void setMemberSitesCache(SimpleCache<String, ArrayList<String>> memberSitesCache)
+    {
+        this.memberSitesCache = memberSitesCache;
+    }
+
+    /**
+     * @param policyComponent
+     *            used to remove the cached sites of users whose group memberships change
+     */
+    public void setPolicyComponent(PolicyComponent policyComponent)
+    {
+        this.policyComponent = policyComponent;
+    }
+
     public void setUserNamesAreCaseSensitive(boolean userNamesAreCaseSensitive)
     {
         this.userNamesAreCaseSensitive = userNamesAreCaseSensitive;
@@ -155,6 +194,64 @@ public class ActivityServiceImpl implements ActivityService, InitializingBean
             logger.warn("Cannot retrieve more items than feed cleaner max items (overriding " + maxFeedItems + " to " + feedCleanerMaxFeedItems + ")");
             maxFeedItems = feedCleanerMaxFeedItems;
         }
+
+        if (memberSitesCache != null && policyComponent != null)
+        {
+            // site memberships are group memberships
+            policyComponent.bindClassBehaviour(
+                    AuthorityServicePolicies.OnAuthorityAddedToGroup.QNAME,
+                    ContentModel.TYPE_AUTHORITY,
+                    new JavaBehaviour(this, "onAuthorityAddedToGroup"));
+            policyComponent.bindClassBehaviour(
+                    AuthorityServicePolicies.OnAuthorityRemovedFromGroup.QNAME,
+                    ContentModel.TYPE_AUTHORITY,
+                    new JavaBehaviour(this, "onAuthorityRemovedFromGroup"));
+            policyComponent.bindClassBehaviour(
+                    AuthorityServicePolicies.OnGroupDeleted.QNAME,
+                    ContentModel.TYPE_AUTHORITY,
+                    new JavaBehaviour(this, "onGroupDeleted"));
+        }
+    }
+
+    @Override
+    public void onAuthorityAddedToGroup(String parentGroup, String childAuthority)
+    {
+        removeMemberSiteIds(childAuthority);
+    }
+
+    @Override
+    public void onAuthorityRemovedFromGroup(String parentGroup, String childAuthority)
+    {
+        removeMemberSiteIds(childAuthority);
+    }
+
+    @Override
+    public void onGroupDeleted(String groupName, boolean cascade)
+    {
+        if (memberSitesCache != null)
+        {
+            // the sites of any of the group's members may have changed
+            memberSitesCache.clear();
+        }
+    }
+
+    /**
+     * Remove the cached sites of a user, or of every user if a group's memberships changed
+     */
+    private void removeMemberSiteIds(String authorityName)
+    {
+        if (memberSitesCache == null)
+        {
+            return;
+        }
+        if (AuthorityType.getAuthorityType(authorityName) == AuthorityType.USER)
+        {
+            memberSitesCache.remove(userNamesAreCaseSensitive ? authorityName : authorityName.toLowerCase());
+        }
+        else
+        {
+            memberSitesCache.clear();
+        }
     }
 
     /* (non-Javadoc)
@@ -292,7 +389,14 @@ public class ActivityServiceImpl implements ActivityService, InitializingBean
 
             String networkId = tenantService.getCurrentUserDomain();
 
-            PagingResults<ActivityFeedEntity> activityFeedEntries = feedDAO.selectPagedUserFeedEntries(feedUserId, networkId, siteId, excludeThisUser, excludeOtherUsers, minFeedId, pagingRequest);
+            List<String> memberSiteIds = getMemberSiteIds(feedUserId);
+            List<FeedControlEntity> excludedAppTools = getExcludedAppTools(feedUserId, memberSiteIds);
+            PagingResults<ActivityFeedEntity> activityFeedEntries = feedDAO.selectPagedUserFeedEntries(feedUserId, memberSiteIds, excludedAppTools, networkId, siteId, excludeThisUser, excludeOtherUsers, minFeedId, pagingRequest);
+            for (ActivityFeedEntity activityFeed : activityFeedEntries.getPage())
+            {
+                // shared entries are presented as entries of the user's own feed
+                activityFeed.setFeedUserId(feedUserId);
+            }
             return activityFeedEntries;
         }
         catch (SQLException se)
@@ -414,7 +518,9 @@ public class ActivityServiceImpl implements ActivityService, InitializingBean
                 siteId = tenantService.getName(siteId);
             }
 
-            List<ActivityFeedEntity> activityFeeds = feedDAO.selectUserFeedEntries(feedUserId, siteId, excludeThisUser, excludeOtherUsers, minFeedId, maxFeedItems);
+            List<String> memberSiteIds = getMemberSiteIds(feedUserId);
+            List<FeedControlEntity> excludedAppTools = getExcludedAppTools(feedUserId, memberSiteIds);
+            List<ActivityFeedEntity> activityFeeds = feedDAO.selectUserFeedEntries(feedUserId, memberSiteIds, excludedAppTools, siteId, excludeThisUser, excludeOtherUsers, minFeedId, maxFeedItems);
 
             // Create a local cache just for this method to map IDs of users to their avatar NodeRef. This
             // is local to the method because we only want to cache per request - there is not point in keeping
@@ -449,6 +555,8 @@ public class ActivityServiceImpl implements ActivityService, InitializingBean
                     }
                     continue;
                 }
+                // shared entries are presented as entries of the user's own feed
+                activityFeed.setFeedUserId(feedUserId);
                 String siteNetwork = activityFeed.getSiteNetwork();
                 if (siteId == null)
                 {
@@ -648,6 +756,10 @@ public class ActivityServiceImpl implements ActivityService, InitializingBean
                     userId = userId.toLowerCase();
                 }
                 feedControlDAO.insertFeedControl(new FeedControlEntity(userId, feedControl));
+                if (memberSitesCache != null)
+                {
+                    memberSitesCache.remove(userId);
+                }
             }
         }
         catch (SQLException e)
@@ -756,6 +868,10 @@ public class ActivityServiceImpl implements ActivityService, InitializingBean
             }
 
             feedControlDAO.deleteFeedControl(new FeedControlEntity(userId, feedControl));
+            if (memberSitesCache != null)
+            {
+                memberSitesCache.remove(userId);
+            }
         }
         catch (SQLException e)
         {
@@ -809,6 +925,77 @@ public class ActivityServiceImpl implements ActivityService, InitializingBean
         }
     }
 
+    /**
+     * Get the (tenant-specific) sites whose shared member feed entries belong in the user's feed, ie. the user's sites that the user has not opted out of.
+     * 
+     * @return the site IDs or <tt>null</tt> if feed entries are never shared by site members
+     */
+    private List<String> getMemberSiteIds(String feedUserId) throws SQLException
+    {
+        if (fanOutOnReadThreshold <= 0 || siteService == null)
+        {
+            return null;
+        }
+
+        ArrayList<String> memberSiteIds = (memberSitesCache != null) ? memberSitesCache.get(feedUserId) : null;
+        if (memberSiteIds == null)
+        {
+            Set<String> excludedSiteIds = new HashSet<String>();
+            for (FeedControlEntity feedControl : feedControlDAO.selectFeedControls(feedUserId))
+            {
+                if ((feedControl.getAppTool() == null || feedControl.getAppTool().length() == 0) && !ActivitiesDAO.KEY_ACTIVITY_NULL_VALUE.equals(feedControl.getSiteNetwork()))
+                {
+                    excludedSiteIds.add(tenantService.getBaseName(feedControl.getSiteNetwork()));
+                }
+            }
+
+            List<SiteInfo> sites = siteService.listSites(feedUserId);
+            memberSiteIds = new ArrayList<String>(sites.size());
+            for (SiteInfo site : sites)
+            {
+                if (!excludedSiteIds.contains(site.getShortName()))
+                {
+                    memberSiteIds.add(tenantService.getName(site.getShortName()));
+                }
+            }
+
+            if (memberSitesCache != null)
+            {
+                memberSitesCache.put(feedUserId, memberSiteIds);
+            }
+        }
+        return memberSiteIds;
+    }
+
+    /**
+     * Get the user's app tool feed controls, which the feed query applies to the feed entries shared by site members - note: entries of the user's own feed were filtered when generated
+     * 
+     * @return the app tools with the (tenant-specific) site they are excluded for, if any, or <tt>null</tt> if no shared entries are read
+     */
+    private List<FeedControlEntity> getExcludedAppTools(String feedUserId, List<String> memberSiteIds) throws SQLException
+    {
+        if (memberSiteIds == null || memberSiteIds.isEmpty())
+        {
+            return null;
+        }
+
+        List<FeedControlEntity> excludedAppTools = new ArrayList<FeedControlEntity>();
+        for (FeedControlEntity feedControl : feedControlDAO.selectFeedControls(feedUserId))
+        {
+            if (feedControl.getAppTool() != null && feedControl.getAppTool().length() > 0)
+            {
+                FeedControlEntity excludedAppTool = new FeedControlEntity(feedUserId);
+                excludedAppTool.setAppTool(feedControl.getAppTool());
+                if (!ActivitiesDAO.KEY_ACTIVITY_NULL_VALUE.equals(feedControl.getSiteNetwork()))
+                {
+                    excludedAppTool.setSiteNetwork(tenantService.getName(tenantService.getBaseName(feedControl.getSiteNetwork())));
+                }
+                excludedAppTools.add(excludedAppTool);
+            }
+        }
+        return excludedAppTools;
+    }
+
     private String getCurrentUser()
     {
         String userId = AuthenticationUtil.getFullyAuthenticatedUser();
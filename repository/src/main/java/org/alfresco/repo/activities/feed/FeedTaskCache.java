@@ -0,0 +1,69 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.activities.feed;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.alfresco.repo.domain.activities.FeedControlEntity;
+import org.alfresco.util.Pair;
+
+/**
+ * Site members, followers, site read permissions and feed controls looked up while generating feed entries.
+ * <p>
+ * One instance is shared by all the feed tasks of a feed generation cycle, which may run concurrently, so that each of these is looked up at most once per cycle rather than once per task.
+ * 
+ * @since 26.1
+ */
+public class FeedTaskCache
+{
+    private final Map<String, Set<String>> siteConnectedUsers = new ConcurrentHashMap<String, Set<String>>(); // site -> site members
+    private final Map<Pair<String, String>, Set<String>> followerConnectedUsers = new ConcurrentHashMap<Pair<String, String>, Set<String>>(); // user -> followers
+    private final Map<Pair<String, String>, Boolean> canUserReadSite = new ConcurrentHashMap<Pair<String, String>, Boolean>(); // <user, site> -> true/false
+    private final Map<String, List<FeedControlEntity>> userFeedControls = new ConcurrentHashMap<String, List<FeedControlEntity>>(); // user -> feed controls
+
+    Map<String, Set<String>> getSiteConnectedUsers()
+    {
+        return siteConnectedUsers;
+    }
+
+    Map<Pair<String, String>, Set<String>> getFollowerConnectedUsers()
+    {
+        return followerConnectedUsers;
+    }
+
+    Map<Pair<String, String>, Boolean> getCanUserReadSite()
+    {
+        return canUserReadSite;
+    }
+
+    Map<String, List<FeedControlEntity>> getUserFeedControls()
+    {
+        return userFeedControls;
+    }
+}
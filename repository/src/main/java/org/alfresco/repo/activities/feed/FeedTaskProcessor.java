@@ -92,13 +92,36 @@ public abstract class FeedTaskProcessor
     private static final String URL_SERVICE_TEMPLATE = "/api/activities/template";
 
     private boolean userNamesAreCaseSensitive = false;
+    private int fanOutOnReadThreshold = 0;
 
     public void setUserNamesAreCaseSensitive(boolean userNamesAreCaseSensitive)
     {
         this.userNamesAreCaseSensitive = userNamesAreCaseSensitive;
     }
 
+    /**
+     * Sites with at least this number of members get a single feed entry per activity that is shared by all of their members, rather than one entry per member. The shared entry is only used when the activity is readable by everyone.
+     * 
+     * @param fanOutOnReadThreshold
+     *            the number of site members, or zero to always generate one entry per member
+     */
+    public void setFanOutOnReadThreshold(int fanOutOnReadThreshold)
+    {
+        this.fanOutOnReadThreshold = fanOutOnReadThreshold;
+    }
+
     public void process(int jobTaskNode, long minSeq, long maxSeq, RepoCtx ctx) throws Exception
+    {
+        process(jobTaskNode, minSeq, maxSeq, ctx, new FeedTaskCache());
+    }
+
+    /**
+     * Process the activity posts of a task, sharing looked up site members, followers and feed controls with the other tasks of the same feed generation cycle.
+     * 
+     * @param cache
+     *            the lookups of the current cycle
+     */
+    public void process(int jobTaskNode, long minSeq, long maxSeq, RepoCtx ctx, FeedTaskCache cache) throws Exception
     {
         long startTime = System.currentTimeMillis();
 
@@ -125,11 +148,11 @@ public abstract class FeedTaskProcessor
                 logger.debug("Process: " + activityPosts.size() + " activity posts");
             }
 
-            // local caches for this run of activity posts
-            Map<String, Set<String>> siteConnectedUsers = new HashMap<String, Set<String>>(); // site -> site members
-            Map<Pair<String, String>, Set<String>> followerConnectedUsers = new HashMap<Pair<String, String>, Set<String>>(); // user -> followers
-            Map<Pair<String, String>, Boolean> canUserReadSite = new HashMap<Pair<String, String>, Boolean>(); // <user, site> -> true/false (note: used when following, implied as true for site members)
-            Map<String, List<FeedControlEntity>> userFeedControls = new HashMap<String, List<FeedControlEntity>>();
+            // caches for this cycle of activity posts
+            Map<String, Set<String>> siteConnectedUsers = cache.getSiteConnectedUsers(); // site -> site members
+            Map<Pair<String, String>, Set<String>> followerConnectedUsers = cache.getFollowerConnectedUsers(); // user -> followers
+            Map<Pair<String, String>, Boolean> canUserReadSite = cache.getCanUserReadSite(); // <user, site> -> true/false (note: used when following, implied as true for site members)
+            Map<String, List<FeedControlEntity>> userFeedControls = cache.getUserFeedControls();
 
             List<String> fmTemplates = Arrays.asList(new String[]{"activities/org/alfresco/generic.json.ftl"});
 
@@ -219,6 +242,13 @@ public abstract class FeedTaskProcessor
                     continue;
                 }
 
+                // large sites share a single entry between their members (if everyone can read it)
+                Set<String> siteMembers = (thisSite != null) ? siteConnectedUsers.get(thisSite) : null;
+                if (fanOutOnReadThreshold > 0 && siteMembers != null && (siteMembers.size() - 1) >= fanOutOnReadThreshold && canRead(ctx, "", model))
+                {
+                    recipients = getSharedRecipients(recipients, siteMembers);
+                }
+
                 try
                 {
                     startTransaction();
@@ -229,11 +259,13 @@ public abstract class FeedTaskProcessor
                     }
 
                     int excludedConnections = 0;
+                    List<ActivityFeedEntity> feedEntries = new ArrayList<ActivityFeedEntity>(recipients.size());
 
                     for (String recipient : recipients)
                     {
+                        boolean sharedRecipient = recipient.equals(ActivitiesDAO.KEY_ACTIVITY_SITE_MEMBERS_VALUE);
                         List<FeedControlEntity> feedControls = null;
-                        if (!recipient.equals(""))
+                        if (!recipient.equals("") && !sharedRecipient)
                         {
                             // Get user's feed controls
                             feedControls = userFeedControls.get(recipient);
@@ -251,8 +283,8 @@ public abstract class FeedTaskProcessor
                         }
                         else
                         {
-                            // node read permission check (if nodeRef is present)
-                            if (!canRead(ctx, recipient, model))
+                            // node read permission check (if nodeRef is present) - note: already checked for the site members' shared entry
+                            if (!sharedRecipient && !canRead(ctx, recipient, model))
                             {
                                 excludedConnections++;
                                 continue;
@@ -266,7 +298,7 @@ public abstract class FeedTaskProcessor
 
                                 // Generate activity feed summary
                                 // MNT-9104 If username contains uppercase letters the action of joining a site will not be displayed in "My activities"
-                                if (!userNamesAreCaseSensitive)
+                                if (!userNamesAreCaseSensitive && !sharedRecipient)
                                 {
                                     recipient = recipient.toLowerCase();
                                     postingUserId = postingUserId.toLowerCase();
@@ -294,10 +326,8 @@ public abstract class FeedTaskProcessor
                                         feed.setPostId(activityPost.getId());
                                         feed.setFeedDate(new Date());
 
-                                        // Insert activity feed
-                                        insertFeedEntry(feed); // ignore returned feedId
-
-                                        totalGenerated++;
+                                        // Insert activity feed (with the others for this post)
+                                        feedEntries.add(feed);
                                     }
                                 }
                                 else
@@ -311,6 +341,11 @@ public abstract class FeedTaskProcessor
                         }
                     }
 
+                    if (feedEntries.size() > 0)
+                    {
+                        totalGenerated += insertFeedEntries(feedEntries);
+                    }
+
                     updatePostStatus(activityPost.getId(), ActivityPostEntity.STATUS.PROCESSED);
 
                     commitTransaction();
@@ -433,6 +468,34 @@ public abstract class FeedTaskProcessor
         return recipients;
     }
 
+    /**
+     * Replace the site members (and the site itself) among the recipients of a post by the entry that is shared by all site members
+     */
+    private Set<String> getSharedRecipients(Set<String> recipients, Set<String> siteMembers)
+    {
+        Set<String> members = siteMembers;
+        if (!userNamesAreCaseSensitive)
+        {
+            members = new HashSet<String>(siteMembers.size());
+            for (String siteMember : siteMembers)
+            {
+                members.add(siteMember.toLowerCase());
+            }
+        }
+
+        Set<String> sharedRecipients = new HashSet<String>();
+        sharedRecipients.add(ActivitiesDAO.KEY_ACTIVITY_SITE_MEMBERS_VALUE);
+        for (String recipient : recipients)
+        {
+            if (!members.contains(userNamesAreCaseSensitive ? recipient : recipient.toLowerCase()))
+            {
+                // eg. a follower that is not a site member
+                sharedRecipients.add(recipient);
+            }
+        }
+        return sharedRecipients;
+    }
+
     public abstract void startTransaction() throws SQLException;
 
     public abstract void commitTransaction() throws SQLException;
@@ -447,6 +510,20 @@ public abstract class FeedTaskProcessor
 
     public abstract long insertFeedEntry(ActivityFeedEntity feed) throws SQLException;
 
+    /**
+     * Insert the feed entries of an activity post. Override to insert them with fewer statements.
+     * 
+     * @return the number of entries inserted
+     */
+    public int insertFeedEntries(List<ActivityFeedEntity> feeds) throws SQLException
+    {
+        for (ActivityFeedEntity feed : feeds)
+        {
+            insertFeedEntry(feed); // ignore returned feedId
+        }
+        return feeds.size();
+    }
+
     public abstract int updatePostStatus(long id, ActivityPostEntity.STATUS status) throws SQLException;
 
     protected String callWebScript(String urlString, String ticket) throws MalformedURLException, URISyntaxException, IOException
@@ -302,7 +302,7 @@ public class FeedCleaner implements NodeServicePolicies.BeforeDeleteNodePolicy
                     String feedUserId = userFeedTooMany.getFeedUserId();
                     // Rather than filter out the two usernames that indicate site-specific
                     // feed entries, we can just filter them out now.
-                    if (ActivitiesDAO.KEY_ACTIVITY_NULL_VALUE.equals(feedUserId))
+                    if (ActivitiesDAO.KEY_ACTIVITY_NULL_VALUE.equals(feedUserId) || ActivitiesDAO.KEY_ACTIVITY_SITE_MEMBERS_VALUE.equals(feedUserId))
                     {
                         if (logger.isTraceEnabled())
                         {
@@ -34,6 +34,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.alfresco.repo.activities.feed.AbstractFeedGenerator;
+import org.alfresco.repo.activities.feed.FeedTaskCache;
 import org.alfresco.repo.activities.feed.FeedTaskProcessor;
 import org.alfresco.repo.activities.feed.JobSettings;
 import org.alfresco.repo.activities.feed.RepoCtx;
@@ -102,6 +103,9 @@ public class LocalFeedGenerator extends AbstractFeedGenerator
             }
         }, AuthenticationUtil.getSystemUserName()); // need web scripts to support System-level authentication ... see RepositoryContainer !
 
+        // site members, followers and feed controls are looked up once per cycle and shared by the worker threads
+        final FeedTaskCache feedTaskCache = new FeedTaskCache();
+
         // process the activity posts using the batch processor {@link BatchProcessor}
         BatchProcessor.BatchProcessWorker<JobSettings> worker = new BatchProcessor.BatchProcessWorker<JobSettings>() {
             @Override
@@ -136,7 +140,7 @@ public class LocalFeedGenerator extends AbstractFeedGenerator
                         RepoCtx webScriptsCtx = js.getWebScriptsCtx();
 
                         // FeedTaskProcessor takes JobSettings parameters instead collection of ActivityPost. FeedTaskProcessor can be refactored.
-                        feedTaskProcessor.process(jobTaskNode, minSeq, maxSeq, webScriptsCtx);
+                        feedTaskProcessor.process(jobTaskNode, minSeq, maxSeq, webScriptsCtx, feedTaskCache);
                         return null;
                     }
                 }, false, true);
@@ -29,8 +29,10 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.logging.Log;
@@ -47,6 +49,7 @@ import org.alfresco.repo.domain.activities.ActivityPostEntity;
 import org.alfresco.repo.lock.JobLockService;
 import org.alfresco.repo.lock.JobLockService.JobLockRefreshCallback;
 import org.alfresco.repo.lock.LockAcquisitionException;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.repo.tenant.TenantUtil;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
@@ -90,6 +93,7 @@ public class PostLookup
     private TenantService tenantService;
     private SiteService siteService;
     private JobLockService jobLockService;
+    private NodeBulkLoader nodeBulkLoader;
 
     public static final String JSON_NODEREF_LOOKUP = "nodeRefL"; // requires additional lookup
 
@@ -162,6 +166,15 @@ public class PostLookup
         this.jobLockService = jobLockService;
     }
 
+    /**
+     * @param nodeBulkLoader
+     *            optional loader used to pre-fetch the nodes of a cycle's posts before they are looked up
+     */
+    public void setNodeBulkLoader(NodeBulkLoader nodeBulkLoader)
+    {
+        this.nodeBulkLoader = nodeBulkLoader;
+    }
+
     public void setMaxItemsPerCycle(int maxItemsPerCycle)
     {
         this.maxItemsPerCycle = maxItemsPerCycle;
@@ -229,12 +242,15 @@ public class PostLookup
                     logger.debug("Update: " + activityPosts.size() + " activity post" + (activityPosts.size() == 1 ? "s" : ""));
                 }
 
+                // person, parent and site lookups are shared by the posts of this cycle
+                final LookupCache lookupCache = new LookupCache();
+
                 // execute in READ txn
                 transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Object>() {
                     public Object execute() throws Throwable
                     {
                         // lookup any additional data
-                        lookupPosts(activityPosts);
+                        lookupPosts(activityPosts, lookupCache);
                         return null;
                     }
                 }, true);
@@ -244,7 +260,7 @@ public class PostLookup
                     public List<ActivityPostEntity> execute() throws Throwable
                     {
                         // collapse (ie. rollup) and relevant posts
-                        return rollupPosts(activityPosts);
+                        return rollupPosts(activityPosts, lookupCache);
                     }
                 }, false);
 
@@ -325,8 +341,10 @@ public class PostLookup
         }
     }
 
-    private List<ActivityPostEntity> lookupPosts(final List<ActivityPostEntity> activityPosts)
+    private List<ActivityPostEntity> lookupPosts(final List<ActivityPostEntity> activityPosts, final LookupCache lookupCache)
     {
+        prefetchNodes(activityPosts);
+
         for (final ActivityPostEntity activityPost : activityPosts)
         {
             if (logger.isDebugEnabled())
@@ -365,7 +383,7 @@ public class PostLookup
                             // lookup poster's firstname/lastname (if needed)
                             if ((jo.isNull(JSON_FIRSTNAME)) || (jo.isNull(JSON_LASTNAME)))
                             {
-                                Pair<String, String> firstLastName = lookupPerson(postUserId);
+                                Pair<String, String> firstLastName = lookupCache.lookupPerson(postUserId);
                                 if (firstLastName != null)
                                 {
                                     jo.put(JSON_FIRSTNAME, firstLastName.getFirst());
@@ -384,7 +402,7 @@ public class PostLookup
                                 {
                                     if (!jo.isNull(JSON_NODEREF))
                                     {
-                                        parentNodeRef = lookupParentNodeRef(new NodeRef(jo.getString(JSON_NODEREF)));
+                                        parentNodeRef = lookupCache.lookupParentNodeRef(new NodeRef(jo.getString(JSON_NODEREF)));
                                         if (parentNodeRef != null)
                                         {
                                             parentNodeRefStr = parentNodeRef.toString();
@@ -415,7 +433,7 @@ public class PostLookup
                                     String nodeRefStr = jo.getString(JSON_NODEREF);
                                     if (nodeRefStr != null)
                                     {
-                                        siteId = lookupSite(new NodeRef(nodeRefStr));
+                                        siteId = lookupCache.lookupSite(new NodeRef(nodeRefStr));
                                         activityPost.setSiteNetwork(siteId);
                                     }
                                 }
@@ -457,7 +475,7 @@ public class PostLookup
         return activityPosts;
     }
 
-    private List<ActivityPostEntity> rollupPosts(List<ActivityPostEntity> activityPosts) throws SQLException
+    private List<ActivityPostEntity> rollupPosts(List<ActivityPostEntity> activityPosts, final LookupCache lookupCache) throws SQLException
     {
         Map<UserRollupActivity, List<ActivityPostEntity>> rollupPosts = new HashMap<UserRollupActivity, List<ActivityPostEntity>>();
 
@@ -514,7 +532,7 @@ public class PostLookup
                             jo.put(JSON_TENANT_DOMAIN, tenantDomain);
                             jo.put(JSON_TITLE, "" + count);
 
-                            Pair<String, String> firstLastName = lookupPerson(postUserId);
+                            Pair<String, String> firstLastName = lookupCache.lookupPerson(postUserId);
                             if (firstLastName != null)
                             {
                                 jo.put(JSON_FIRSTNAME, firstLastName.getFirst());
@@ -568,9 +586,74 @@ public class PostLookup
         return result;
     }
 
-    private void updatePosts(List<ActivityPostEntity> activityPosts) throws SQLException
+    private void updatePosts(List<ActivityPostEntity> activityPosts) throws SQLException, JobExecutionException
     {
-        for (final ActivityPostEntity activityPost : activityPosts)
+        // Posts that only change status are updated together, per tenant
+        Map<String, Map<ActivityPostEntity.STATUS, List<Long>>> idsByTenantAndStatus = new HashMap<String, Map<ActivityPostEntity.STATUS, List<Long>>>(3);
+        List<ActivityPostEntity> otherPosts = new ArrayList<ActivityPostEntity>(activityPosts.size());
+        for (ActivityPostEntity activityPost : activityPosts)
+        {
+            String status = activityPost.getStatus();
+            if (activityPost.getId() != null
+                    && (ActivityPostEntity.STATUS.ERROR.toString().equals(status) || ActivityPostEntity.STATUS.PROCESSED.toString().equals(status)))
+            {
+                // The tenant is unknown if the activity data could not be read
+                String tenantDomain = activityPost.getTenantDomain() != null ? activityPost.getTenantDomain() : TenantService.DEFAULT_DOMAIN;
+                Map<ActivityPostEntity.STATUS, List<Long>> idsByStatus = idsByTenantAndStatus.get(tenantDomain);
+                if (idsByStatus == null)
+                {
+                    idsByStatus = new HashMap<ActivityPostEntity.STATUS, List<Long>>(3);
+                    idsByTenantAndStatus.put(tenantDomain, idsByStatus);
+                }
+                ActivityPostEntity.STATUS statusEnum = ActivityPostEntity.STATUS.valueOf(status);
+                List<Long> ids = idsByStatus.get(statusEnum);
+                if (ids == null)
+                {
+                    ids = new ArrayList<Long>(activityPosts.size());
+                    idsByStatus.put(statusEnum, ids);
+                }
+                ids.add(activityPost.getId());
+            }
+            else
+            {
+                otherPosts.add(activityPost);
+            }
+        }
+        for (final Map.Entry<String, Map<ActivityPostEntity.STATUS, List<Long>>> tenantEntry : idsByTenantAndStatus.entrySet())
+        {
+            // MT share
+            TenantUtil.runAsSystemTenant(new TenantUtil.TenantRunAsWork<Object>() {
+                public Object doWork() throws Exception
+                {
+                    for (Map.Entry<ActivityPostEntity.STATUS, List<Long>> entry : tenantEntry.getValue().entrySet())
+                    {
+                        try
+                        {
+                            postDAO.startTransaction();
+                            postDAO.updatePostsStatus(entry.getValue(), entry.getKey());
+                            postDAO.commitTransaction();
+
+                            if (logger.isDebugEnabled())
+                            {
+                                logger.debug("Updated " + entry.getValue().size() + " activity posts of tenant " + tenantEntry.getKey() + " to status " + entry.getKey());
+                            }
+                        }
+                        catch (SQLException e)
+                        {
+                            logger.error("Exception during update of posts: ", e);
+                            throw new JobExecutionException(e);
+                        }
+                        finally
+                        {
+                            postDAO.endTransaction();
+                        }
+                    }
+                    return null;
+                }
+            }, tenantEntry.getKey());
+        }
+
+        for (final ActivityPostEntity activityPost : otherPosts)
         {
             // MT share
             final String tenantDomain = activityPost.getTenantDomain();
@@ -635,6 +718,65 @@ public class PostLookup
         }
     }
 
+    /**
+     * Pre-fetch the nodes that the posts will need to look up, so that they are not loaded one post at a time
+     */
+    private void prefetchNodes(List<ActivityPostEntity> activityPosts)
+    {
+        if (nodeBulkLoader == null)
+        {
+            return;
+        }
+        Map<String, Set<NodeRef>> nodeRefsByTenant = new HashMap<String, Set<NodeRef>>(3);
+        for (ActivityPostEntity activityPost : activityPosts)
+        {
+            try
+            {
+                JSONObject jo = new JSONObject(new JSONTokener(activityPost.getActivityData()));
+                String nodeRefStr = null;
+                if (!jo.isNull(JSON_NODEREF_LOOKUP))
+                {
+                    nodeRefStr = jo.getString(JSON_NODEREF_LOOKUP);
+                }
+                else if (!jo.isNull(JSON_NODEREF) && (jo.isNull(JSON_PARENT_NODEREF) || activityPost.getSiteNetwork() == null))
+                {
+                    nodeRefStr = jo.getString(JSON_NODEREF);
+                }
+                if (nodeRefStr == null || !NodeRef.isNodeRef(nodeRefStr))
+                {
+                    continue;
+                }
+                String tenantDomain = jo.isNull(JSON_TENANT_DOMAIN) ? TenantService.DEFAULT_DOMAIN : jo.getString(JSON_TENANT_DOMAIN);
+                Set<NodeRef> nodeRefs = nodeRefsByTenant.get(tenantDomain);
+                if (nodeRefs == null)
+                {
+                    nodeRefs = new LinkedHashSet<NodeRef>(activityPosts.size() * 2);
+                    nodeRefsByTenant.put(tenantDomain, nodeRefs);
+                }
+                nodeRefs.add(new NodeRef(nodeRefStr));
+            }
+            catch (JSONException e)
+            {
+                // The post will be skipped by the lookup
+            }
+        }
+        for (final Map.Entry<String, Set<NodeRef>> entry : nodeRefsByTenant.entrySet())
+        {
+            TenantUtil.runAsSystemTenant(new TenantUtil.TenantRunAsWork<Void>() {
+                public Void doWork() throws Exception
+                {
+                    List<NodeRef> nodeRefs = new ArrayList<NodeRef>(entry.getValue().size());
+                    for (NodeRef nodeRef : entry.getValue())
+                    {
+                        nodeRefs.add(tenantService.getName(nodeRef));
+                    }
+                    nodeBulkLoader.cacheNodes(nodeRefs);
+                    return null;
+                }
+            }, entry.getKey());
+        }
+    }
+
     private Path lookupPath(final NodeRef nodeRef)
     {
         Path path = null;
@@ -765,6 +907,46 @@ public class PostLookup
         return jo;
     }
 
+    /**
+     * Results of person, parent and site lookups for one run, by tenant
+     */
+    private class LookupCache
+    {
+        private final Map<Pair<String, String>, Pair<String, String>> persons = new HashMap<Pair<String, String>, Pair<String, String>>();
+        private final Map<Pair<String, NodeRef>, NodeRef> parentNodeRefs = new HashMap<Pair<String, NodeRef>, NodeRef>();
+        private final Map<Pair<String, NodeRef>, String> siteIds = new HashMap<Pair<String, NodeRef>, String>();
+
+        private Pair<String, String> lookupPerson(String postUserId) throws JSONException
+        {
+            Pair<String, String> key = new Pair<String, String>(TenantUtil.getCurrentDomain(), postUserId);
+            if (!persons.containsKey(key))
+            {
+                persons.put(key, PostLookup.this.lookupPerson(postUserId));
+            }
+            return persons.get(key);
+        }
+
+        private NodeRef lookupParentNodeRef(NodeRef nodeRef) throws JSONException
+        {
+            Pair<String, NodeRef> key = new Pair<String, NodeRef>(TenantUtil.getCurrentDomain(), nodeRef);
+            if (!parentNodeRefs.containsKey(key))
+            {
+                parentNodeRefs.put(key, PostLookup.this.lookupParentNodeRef(nodeRef));
+            }
+            return parentNodeRefs.get(key);
+        }
+
+        private String lookupSite(NodeRef nodeRef) throws JSONException
+        {
+            Pair<String, NodeRef> key = new Pair<String, NodeRef>(TenantUtil.getCurrentDomain(), nodeRef);
+            if (!siteIds.containsKey(key))
+            {
+                siteIds.put(key, PostLookup.this.lookupSite(nodeRef));
+            }
+            return siteIds.get(key);
+        }
+    }
+
     private class LockCallback implements JobLockRefreshCallback
     {
         final AtomicBoolean running = new AtomicBoolean(true);
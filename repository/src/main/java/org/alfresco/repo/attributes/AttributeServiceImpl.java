@@ -26,7 +26,10 @@
 package org.alfresco.repo.attributes;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -49,6 +52,11 @@ public class AttributeServiceImpl implements AttributeService
 {
     private static final Log logger = LogFactory.getLog(AttributeServiceImpl.class);
 
+    /**
+     * The number of attributes whose values are fetched together when listing attributes
+     */
+    private static final int ATTRIBUTE_BATCH_SIZE = 100;
+
     private PropertyValueDAO propertyValueDAO;
 
     public AttributeServiceImpl()
@@ -130,34 +138,93 @@ public class AttributeServiceImpl implements AttributeService
      */
     public void getAttributes(final AttributeQueryCallback callback, Serializable... keys)
     {
-        PropertyUniqueContextCallback propertyUniqueContextCallback = new PropertyUniqueContextCallback() {
-            private boolean more = true;
+        BatchingPropertyUniqueContextCallback propertyUniqueContextCallback = new BatchingPropertyUniqueContextCallback(callback);
+        propertyValueDAO.getPropertyUniqueContext(propertyUniqueContextCallback, keys);
+        propertyUniqueContextCallback.flush();
+        // Done
+    }
+
+    /**
+     * Gathers the unique contexts found and passes them on to the client callback in batches, fetching the values of each batch together.
+     */
+    private class BatchingPropertyUniqueContextCallback implements PropertyUniqueContextCallback
+    {
+        private final AttributeQueryCallback callback;
+        private final List<Long> ids;
+        private final List<Long> valueIds;
+        private final List<Serializable[]> resultKeyIdsList;
+        private boolean more = true;
+
+        private BatchingPropertyUniqueContextCallback(AttributeQueryCallback callback)
+        {
+            this.callback = callback;
+            this.ids = new ArrayList<Long>(ATTRIBUTE_BATCH_SIZE);
+            this.valueIds = new ArrayList<Long>(ATTRIBUTE_BATCH_SIZE);
+            this.resultKeyIdsList = new ArrayList<Serializable[]>(ATTRIBUTE_BATCH_SIZE);
+        }
 
-            public void handle(Long id, Long valueId, Serializable[] resultKeyIds)
+        public void handle(Long id, Long valueId, Serializable[] resultKeyIds)
+        {
+            if (!more)
+            {
+                // The callback has terminated fetching
+                return;
+            }
+            ids.add(id);
+            valueIds.add(valueId);
+            resultKeyIdsList.add(resultKeyIds);
+            if (ids.size() >= ATTRIBUTE_BATCH_SIZE)
             {
-                if (!more)
+                flush();
+            }
+        }
+
+        /**
+         * Pass the gathered results to the client callback
+         */
+        private void flush()
+        {
+            if (!more || ids.isEmpty())
+            {
+                ids.clear();
+                valueIds.clear();
+                resultKeyIdsList.clear();
+                return;
+            }
+
+            List<Long> nonNullValueIds = new ArrayList<Long>(valueIds.size());
+            for (Long valueId : valueIds)
+            {
+                if (valueId != null)
                 {
-                    // The callback has terminated fetching
-                    return;
+                    nonNullValueIds.add(valueId);
                 }
+            }
+            Map<Long, Serializable> valuesById = propertyValueDAO.getPropertiesByIds(nonNullValueIds);
 
+            for (int i = 0; i < ids.size() && more; i++)
+            {
+                Long valueId = valueIds.get(i);
                 Serializable value = null;
                 if (valueId != null)
                 {
-                    value = propertyValueDAO.getPropertyById(valueId);
+                    value = valuesById.containsKey(valueId)
+                            ? valuesById.get(valueId)
+                            : propertyValueDAO.getPropertyById(valueId); // Reports the missing property
                 }
 
+                Serializable[] resultKeyIds = resultKeyIdsList.get(i);
                 Serializable[] resultsKeyValues = new Serializable[resultKeyIds.length];
-                for (int i = 0; i < resultKeyIds.length; i++)
+                for (int j = 0; j < resultKeyIds.length; j++)
                 {
-                    if (resultKeyIds[i] != null)
+                    if (resultKeyIds[j] != null)
                     {
-                        Pair<Long, Serializable> keyValuePair = propertyValueDAO.getPropertyValueById((Long) resultKeyIds[i]);
-                        resultsKeyValues[i] = (keyValuePair != null ? keyValuePair.getSecond() : null);
+                        Pair<Long, Serializable> keyValuePair = propertyValueDAO.getPropertyValueById((Long) resultKeyIds[j]);
+                        resultsKeyValues[j] = (keyValuePair != null ? keyValuePair.getSecond() : null);
                     }
                 }
 
-                more = callback.handleAttribute(id, value, resultsKeyValues);
+                more = callback.handleAttribute(ids.get(i), value, resultsKeyValues);
 
                 // Done
                 if (logger.isTraceEnabled())
@@ -168,9 +235,10 @@ public class AttributeServiceImpl implements AttributeService
                                     "   Value: " + value);
                 }
             }
-        };
-        propertyValueDAO.getPropertyUniqueContext(propertyUniqueContextCallback, keys);
-        // Done
+            ids.clear();
+            valueIds.clear();
+            resultKeyIdsList.clear();
+        }
     }
 
     /**
@@ -0,0 +1,56 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.audit;
+
+import org.quartz.Job;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+
+/**
+ * Job sealing the audit buckets whose period is over.
+ * 
+ * @see AuditBucketManager#sealBuckets()
+ */
+public class AuditBucketJob implements Job
+{
+    @Override
+    public void execute(JobExecutionContext jobCtx) throws JobExecutionException
+    {
+        JobDataMap jobData = jobCtx.getJobDetail().getJobDataMap();
+        Object managerObj = jobData.get("auditBucketManager");
+
+        if (managerObj == null || !(managerObj instanceof AuditBucketManager))
+        {
+            throw new AlfrescoRuntimeException(
+                    "AuditBucketJob data must contain valid 'auditBucketManager' reference");
+        }
+        AuditBucketManager manager = (AuditBucketManager) managerObj;
+        manager.sealBuckets();
+    }
+}
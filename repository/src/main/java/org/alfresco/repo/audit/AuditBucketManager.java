@@ -0,0 +1,314 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.audit;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.alfresco.repo.audit.model.AuditApplication;
+import org.alfresco.repo.audit.model.AuditModelRegistry;
+import org.alfresco.repo.domain.audit.AuditBucketEntity;
+import org.alfresco.repo.domain.audit.AuditDAO;
+import org.alfresco.repo.lock.JobLockService;
+import org.alfresco.repo.lock.LockAcquisitionException;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
+
+/**
+ * Manages the time buckets of the audit applications.
+ * <p>
+ * The entries of each application are split into periods of {@link #setBucketSizeMs(long) bucketSizeMs}. Once a period is over by {@link #setSealDelayMs(long) sealDelayMs}, it is sealed into a bucket recording the range of the IDs of its entries. Queries by time are then narrowed to those IDs, and old entries are {@link #purgeAuditEntries(String, Long, Long) purged} a bucket at a time, in short transactions.
+ * <p>
+ * The first runs seal the periods of the existing entries, oldest first, {@link #setMaxBucketsPerRun(int) a few} at a time.
+ */
+public class AuditBucketManager
+{
+    private static final Log logger = LogFactory.getLog(AuditBucketManager.class);
+
+    private static final long LOCK_TTL = 60000L;
+    private static final QName LOCK_QNAME = QName.createQName(NamespaceService.SYSTEM_MODEL_1_0_URI, AuditBucketManager.class.getName());
+
+    private AuditDAO auditDAO;
+    private AuditModelRegistry auditModelRegistry;
+    private TransactionService transactionService;
+    private JobLockService jobLockService;
+    private boolean enabled;
+    private long bucketSizeMs = 24L * 3600L * 1000L;
+    private long sealDelayMs = 3600L * 1000L;
+    private int maxBucketsPerRun = 1000;
+    private int deleteBatchSize = 1000;
+
+    public void setAuditDAO(AuditDAO auditDAO)
+    {
+        this.auditDAO = auditDAO;
+    }
+
+    public void setAuditModelRegistry(AuditModelRegistry auditModelRegistry)
+    {
+        this.auditModelRegistry = auditModelRegistry;
+    }
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    public void setJobLockService(JobLockService jobLockService)
+    {
+        this.jobLockService = jobLockService;
+    }
+
+    /**
+     * @param enabled
+     *            <tt>true</tt> to seal buckets
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return <tt>true</tt> if buckets are sealed, and so used to purge audit entries
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @param bucketSizeMs
+     *            the length of the period of a bucket
+     */
+    public void setBucketSizeMs(long bucketSizeMs)
+    {
+        this.bucketSizeMs = bucketSizeMs;
+    }
+
+    /**
+     * @param sealDelayMs
+     *            how long after its end a period is sealed, which should exceed the usual delay between the time of an audit entry and the time it is written
+     */
+    public void setSealDelayMs(long sealDelayMs)
+    {
+        this.sealDelayMs = sealDelayMs;
+    }
+
+    /**
+     * @param maxBucketsPerRun
+     *            the maximum number of buckets sealed per application and run
+     */
+    public void setMaxBucketsPerRun(int maxBucketsPerRun)
+    {
+        this.maxBucketsPerRun = maxBucketsPerRun;
+    }
+
+    /**
+     * @param deleteBatchSize
+     *            the number of entry IDs deleted per transaction when purging a bucket
+     */
+    public void setDeleteBatchSize(int deleteBatchSize)
+    {
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
+    public void checkProperties()
+    {
+        PropertyCheck.mandatory(this, "auditDAO", auditDAO);
+        PropertyCheck.mandatory(this, "auditModelRegistry", auditModelRegistry);
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        PropertyCheck.mandatory(this, "jobLockService", jobLockService);
+    }
+
+    /**
+     * @return the start of the period containing the given time
+     */
+    public long getBucketStart(long time)
+    {
+        return Math.floorDiv(time, bucketSizeMs) * bucketSizeMs;
+    }
+
+    /**
+     * Seal the periods that are over for all the audit applications, if enabled.
+     */
+    public void sealBuckets()
+    {
+        checkProperties();
+        if (!enabled || transactionService.isReadOnly())
+        {
+            return;
+        }
+        String lockToken = null;
+        try
+        {
+            lockToken = jobLockService.getLock(LOCK_QNAME, LOCK_TTL);
+            long sealUpTo = System.currentTimeMillis() - sealDelayMs;
+            for (AuditApplication application : auditModelRegistry.getAuditApplications().values())
+            {
+                jobLockService.refreshLock(lockToken, LOCK_QNAME, LOCK_TTL);
+                int sealed = sealBuckets(application.getApplicationId(), sealUpTo, maxBucketsPerRun);
+                if (sealed > 0 && logger.isDebugEnabled())
+                {
+                    logger.debug("Sealed " + sealed + " audit buckets of application " + application.getApplicationName());
+                }
+            }
+        }
+        catch (LockAcquisitionException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Skipping audit bucket sealing (could not get lock): " + e.getMessage());
+            }
+        }
+        finally
+        {
+            if (lockToken != null)
+            {
+                try
+                {
+                    jobLockService.releaseLock(lockToken, LOCK_QNAME);
+                }
+                catch (LockAcquisitionException e)
+                {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Seal the periods of an application ending before a given time, each in its own transaction
+     * 
+     * @return the number of buckets sealed
+     */
+    int sealBuckets(Long applicationId, long sealUpTo, int maxBuckets)
+    {
+        RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        Long bucketStart = txnHelper.doInTransaction(() -> {
+            Long bucketsEnd = auditDAO.getAuditBucketsEnd(applicationId);
+            if (bucketsEnd != null)
+            {
+                return bucketsEnd;
+            }
+            Long oldestEntryTime = auditDAO.getOldestAuditEntryTime(applicationId);
+            return oldestEntryTime == null ? null : getBucketStart(oldestEntryTime);
+        }, true, true);
+        if (bucketStart == null)
+        {
+            // Nothing audited yet
+            return 0;
+        }
+        int sealed = 0;
+        while (sealed < maxBuckets && bucketStart + bucketSizeMs <= sealUpTo)
+        {
+            final long start = bucketStart;
+            txnHelper.doInTransaction(() -> auditDAO.createAuditBucket(applicationId, start, start + bucketSizeMs), false, true);
+            bucketStart += bucketSizeMs;
+            sealed++;
+        }
+        return sealed;
+    }
+
+    /**
+     * Delete the entries of an audit application audited within a time range. The entries of the sealed buckets lying within the time range are deleted {@link #setDeleteBatchSize(int) a batch of IDs} per transaction, walking the primary key, and the buckets are then dropped. The remaining entries, those of the unsealed periods, of the buckets only partly within the time range and any written after their period was sealed, are deleted in the same batches of IDs.
+     * <p>
+     * Each transaction commits on its own, so a failure leaves the oldest entries deleted.
+     * 
+     * @param applicationName
+     *            the name of the audit application
+     * @param fromTime
+     *            the start time of entries to remove (inclusive and optional)
+     * @param toTime
+     *            the end time of entries to remove (exclusive and optional)
+     * @return the number of entries deleted
+     */
+    public int purgeAuditEntries(String applicationName, Long fromTime, Long toTime)
+    {
+        checkProperties();
+        AuditApplication application = auditModelRegistry.getAuditApplicationByName(applicationName);
+        if (application == null)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("No audit application named '" + applicationName + "' to purge.");
+            }
+            return 0;
+        }
+        Long applicationId = application.getApplicationId();
+        RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        List<AuditBucketEntity> buckets = txnHelper.doInTransaction(() -> auditDAO.getAuditBuckets(applicationId, fromTime, toTime), true, true);
+
+        int deleted = 0;
+        for (AuditBucketEntity bucket : buckets)
+        {
+            if ((fromTime != null && bucket.getBucketStart() < fromTime) || (toTime != null && bucket.getBucketEnd() > toTime))
+            {
+                // Only partly within the time range
+                continue;
+            }
+            if (!bucket.isEmpty())
+            {
+                deleted += deleteInBatches(bucket.getMinEntryId(), bucket.getMaxEntryId(),
+                        (batchFromId, batchToId) -> auditDAO.deleteAuditBucketEntries(bucket, batchFromId, batchToId));
+            }
+            txnHelper.doInTransaction(() -> auditDAO.deleteAuditBucket(bucket.getId()), false, true);
+        }
+        Pair<Long, Long> idRange = txnHelper.doInTransaction(() -> auditDAO.getAuditEntryIdRange(applicationId, fromTime, toTime), true, true);
+        if (idRange != null)
+        {
+            deleted += deleteInBatches(idRange.getFirst(), idRange.getSecond(),
+                    (batchFromId, batchToId) -> auditDAO.deleteAuditEntries(applicationId, fromTime, toTime, batchFromId, batchToId));
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Purged " + deleted + " entries of audit application '" + applicationName + "' (" + fromTime + " to " + toTime + ")");
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete a range of entry IDs, each batch in a transaction of its own
+     */
+    private int deleteInBatches(long minId, long maxId, BiFunction<Long, Long, Integer> delete)
+    {
+        RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        int deleted = 0;
+        for (long fromId = minId; fromId <= maxId; fromId += deleteBatchSize)
+        {
+            final long batchFromId = fromId;
+            final long batchToId = Math.min(fromId + deleteBatchSize, maxId + 1);
+            deleted += txnHelper.doInTransaction(() -> delete.apply(batchFromId, batchToId), false, true);
+        }
+        return deleted;
+    }
+}
@@ -108,7 +108,7 @@ public interface AuditComponent
     public boolean areAuditValuesRequired(String path);
 
     /**
-     * Delete audit entries for the given application and time range
+     * Delete audit entries for the given application and time range. When audit buckets are enabled, the entries are deleted in batches, each in a transaction of its own.
      *
      * @param applicationName
      *            the name of the application
@@ -82,6 +82,8 @@ public class AuditComponentImpl implements AuditComponent
     private AuditFilter auditFilter;
     private UserAuditFilter userAuditFilter;
     private AuditRecordReporter auditRecordReporter;
+    private AuditEntryWriter auditEntryWriter;
+    private AuditBucketManager auditBucketManager;
 
     /**
      * Default constructor
@@ -145,6 +147,22 @@ public class AuditComponentImpl implements AuditComponent
         this.auditRecordReporter = auditRecordReporter;
     }
 
+    /**
+     * Set the component writing audit entries in the background, if {@link AuditEntryWriter#isAsynchronous() enabled}
+     */
+    public void setAuditEntryWriter(AuditEntryWriter auditEntryWriter)
+    {
+        this.auditEntryWriter = auditEntryWriter;
+    }
+
+    /**
+     * Set the component purging audit entries a sealed bucket at a time, if {@link AuditBucketManager#isEnabled() enabled}
+     */
+    public void setAuditBucketManager(AuditBucketManager auditBucketManager)
+    {
+        this.auditBucketManager = auditBucketManager;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -158,7 +176,16 @@ public class AuditComponentImpl implements AuditComponent
             return 0;
         }
 
-        int deleted = auditDAO.deleteAuditEntries(applicationId, fromTime, toTime);
+        int deleted;
+        if (auditBucketManager != null && auditBucketManager.isEnabled())
+        {
+            // Delete in short transactions of their own rather than in one holding locks on the whole range
+            deleted = auditBucketManager.purgeAuditEntries(applicationName, fromTime, toTime);
+        }
+        else
+        {
+            deleted = auditDAO.deleteAuditEntries(applicationId, fromTime, toTime);
+        }
         // Done
         if (logger.isDebugEnabled())
         {
@@ -760,11 +787,20 @@ public class AuditComponentImpl implements AuditComponent
         {
             // Persist the values (if not just gathering data in a pre call for use in a post call)
             boolean justGatherPreCallData = application.isApplicationJustGeneratingPreCallData();
+            boolean writtenInBackground = false;
             if (!justGatherPreCallData && isAuditingToDatabaseEnabled())
             {
-                entryId = auditDAO.createAuditEntry(applicationId, time, username, auditData);
+                if (auditEntryWriter != null && auditEntryWriter.isAsynchronous())
+                {
+                    writeAuditEntryInBackground(applicationId, time, username, auditData, application.getApplicationKey());
+                    writtenInBackground = true;
+                }
+                else
+                {
+                    entryId = auditDAO.createAuditEntry(applicationId, time, username, auditData);
+                }
             }
-            if (isAuditingToAuditStorageEnabled())
+            if (!writtenInBackground && isAuditingToAuditStorageEnabled())
             {
                 auditRecordReporter.reportAuditRecord(createAuditRecord(auditData, true, username, entryId, application.getApplicationKey()));
             }
@@ -930,6 +966,22 @@ public class AuditComponentImpl implements AuditComponent
         return newData;
     }
 
+    /**
+     * Hands an audit entry to the {@link AuditEntryWriter}, reporting the audit record once the entry is written and has an ID
+     */
+    private void writeAuditEntryInBackground(Long applicationId, long time, String username, Map<String, Serializable> auditData, String applicationKey)
+    {
+        final boolean reportAuditRecord = isAuditingToAuditStorageEnabled();
+        // The data is returned to the caller, so write a copy of it
+        final Map<String, Serializable> entryData = new HashMap<>(auditData);
+        auditEntryWriter.write(applicationId, time, username, entryData, (entryId) -> {
+            if (reportAuditRecord)
+            {
+                auditRecordReporter.reportAuditRecord(createAuditRecord(entryData, true, username, entryId, applicationKey));
+            }
+        });
+    }
+
     /**
      * Creates an AuditRecord from the provided audit data.
      */
@@ -0,0 +1,418 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.audit;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.extensions.surf.util.AbstractLifecycleBean;
+
+import org.alfresco.repo.domain.audit.AuditDAO;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.TransactionalResourceHelper;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.PropertyCheck;
+import org.alfresco.util.TraceableThreadFactory;
+import org.alfresco.util.transaction.TransactionListenerAdapter;
+
+/**
+ * Writes audit entries to the database, optionally in the background.
+ * <p>
+ * When {@link #setAsynchronous(boolean) asynchronous}, the entries audited in a transaction are queued once it commits, and are dropped if it rolls back. A background thread writes the queued entries in batches of up to {@link #setBatchSize(int) batchSize}, each batch in a single transaction, so that many entries share one commit.
+ * <p>
+ * The queue is bounded. When it stays full for longer than {@link #setMaxEnqueueWaitMs(long) maxEnqueueWaitMs}, the committing thread writes its entries itself, slowing the producers down rather than losing entries. On shutdown, the queue is drained before returning.
+ */
+public class AuditEntryWriter extends AbstractLifecycleBean
+{
+    private static final Log logger = LogFactory.getLog(AuditEntryWriter.class);
+
+    private static final String KEY_PENDING_ENTRIES = AuditEntryWriter.class.getName() + ".pendingEntries";
+
+    private AuditDAO auditDAO;
+    private TransactionService transactionService;
+    private boolean asynchronous;
+    private int queueCapacity = 10000;
+    private int batchSize = 250;
+    private long maxEnqueueWaitMs = 500;
+
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private final PendingEntriesListener pendingEntriesListener = new PendingEntriesListener();
+    private BlockingQueue<PendingEntry> queue;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public void setAuditDAO(AuditDAO auditDAO)
+    {
+        this.auditDAO = auditDAO;
+    }
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * @param asynchronous
+     *            <tt>true</tt> to write audit entries in the background after the audited transaction commits (default: <tt>false</tt>)
+     */
+    public void setAsynchronous(boolean asynchronous)
+    {
+        this.asynchronous = asynchronous;
+    }
+
+    /**
+     * @param queueCapacity
+     *            the number of audit entries that may wait to be written
+     */
+    public void setQueueCapacity(int queueCapacity)
+    {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param batchSize
+     *            the maximum number of audit entries written in one transaction
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param maxEnqueueWaitMs
+     *            how long a committing transaction waits for room in a full queue before writing its audit entries itself
+     */
+    public void setMaxEnqueueWaitMs(long maxEnqueueWaitMs)
+    {
+        this.maxEnqueueWaitMs = maxEnqueueWaitMs;
+    }
+
+    /**
+     * @return <tt>true</tt> if audit entries are written in the background
+     */
+    public boolean isAsynchronous()
+    {
+        return asynchronous;
+    }
+
+    /**
+     * @return the number of audit entries waiting to be written
+     */
+    public int getQueuedCount()
+    {
+        BlockingQueue<PendingEntry> queue = this.queue;
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Write an audit entry. When asynchronous, the entry is written after the current transaction, if any, commits.
+     * 
+     * @param applicationId
+     *            the ID of the audit application
+     * @param time
+     *            the time of the audit entry
+     * @param username
+     *            the audited user, if any
+     * @param values
+     *            the audited values
+     * @param onWritten
+     *            called with the ID of the entry once it is written, or <tt>null</tt>
+     */
+    public void write(Long applicationId, long time, String username, Map<String, Serializable> values, Consumer<Long> onWritten)
+    {
+        PendingEntry entry = new PendingEntry(applicationId, time, username, values, onWritten);
+        if (!asynchronous)
+        {
+            Long entryId = auditDAO.createAuditEntry(applicationId, time, username, values);
+            entry.written(entryId);
+        }
+        else if (AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_NONE)
+        {
+            enqueue(List.of(entry));
+        }
+        else
+        {
+            List<PendingEntry> pendingEntries = TransactionalResourceHelper.getList(KEY_PENDING_ENTRIES);
+            if (pendingEntries.isEmpty())
+            {
+                AlfrescoTransactionSupport.bindListener(pendingEntriesListener);
+            }
+            pendingEntries.add(entry);
+        }
+    }
+
+    private void enqueue(List<PendingEntry> entries)
+    {
+        List<PendingEntry> rejected = List.of();
+        runningLock.readLock().lock();
+        try
+        {
+            for (int i = 0; i < entries.size(); i++)
+            {
+                if (!running || !offer(entries.get(i)))
+                {
+                    // The queue stayed full, so the remaining entries do not wait for it either
+                    rejected = entries.subList(i, entries.size());
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            runningLock.readLock().unlock();
+        }
+        if (!rejected.isEmpty())
+        {
+            if (running && logger.isDebugEnabled())
+            {
+                logger.debug("Audit queue full: writing " + rejected.size() + " audit entries synchronously.");
+            }
+            writeBatch(rejected);
+        }
+    }
+
+    private boolean offer(PendingEntry entry)
+    {
+        try
+        {
+            return queue.offer(entry, maxEnqueueWaitMs, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Write audit entries in one transaction, or one by one should the batch fail
+     */
+    private void writeBatch(List<PendingEntry> entries)
+    {
+        RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        txnHelper.setForceWritable(true);
+        List<Long> entryIds;
+        try
+        {
+            entryIds = txnHelper.doInTransaction(() -> {
+                List<Long> ids = new ArrayList<>(entries.size());
+                for (PendingEntry entry : entries)
+                {
+                    ids.add(auditDAO.createAuditEntry(entry.applicationId, entry.time, entry.username, entry.values));
+                }
+                return ids;
+            }, false, true);
+        }
+        catch (RuntimeException e)
+        {
+            if (entries.size() == 1)
+            {
+                logger.error("Failed to write audit entry for application " + entries.get(0).applicationId, e);
+                return;
+            }
+            logger.warn("Failed to write a batch of " + entries.size() + " audit entries, writing them one by one: " + e.getMessage());
+            for (PendingEntry entry : entries)
+            {
+                writeBatch(List.of(entry));
+            }
+            return;
+        }
+        for (int i = 0; i < entries.size(); i++)
+        {
+            entries.get(i).written(entryIds.get(i));
+        }
+    }
+
+    private void writeQueuedEntries()
+    {
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+        while (true)
+        {
+            try
+            {
+                PendingEntry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null)
+                {
+                    if (isRunning())
+                    {
+                        continue;
+                    }
+                    // Shut down and nothing left to write
+                    return;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (Throwable e)
+            {
+                logger.error("Failed to write queued audit entries", e);
+            }
+            finally
+            {
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean isRunning()
+    {
+        runningLock.readLock().lock();
+        try
+        {
+            return running;
+        }
+        finally
+        {
+            runningLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void onBootstrap(ApplicationEvent event)
+    {
+        if (!asynchronous)
+        {
+            return;
+        }
+        PropertyCheck.mandatory(this, "auditDAO", auditDAO);
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        runningLock.writeLock().lock();
+        try
+        {
+            running = true;
+        }
+        finally
+        {
+            runningLock.writeLock().unlock();
+        }
+        TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+        threadFactory.setThreadDaemon(true);
+        threadFactory.setNamePrefix("AuditEntryWriter");
+        writerThread = threadFactory.newThread(this::writeQueuedEntries);
+        writerThread.start();
+    }
+
+    @Override
+    protected void onShutdown(ApplicationEvent event)
+    {
+        if (!asynchronous || queue == null)
+        {
+            return;
+        }
+        // Wait for the entries being queued, after which nothing more is queued
+        runningLock.writeLock().lock();
+        try
+        {
+            running = false;
+        }
+        finally
+        {
+            runningLock.writeLock().unlock();
+        }
+        try
+        {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        // Write whatever the background thread did not
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0)
+        {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Queues the audit entries of a transaction once it commits
+     */
+    private class PendingEntriesListener extends TransactionListenerAdapter
+    {
+        @Override
+        public void afterCommit()
+        {
+            List<PendingEntry> pendingEntries = TransactionalResourceHelper.getList(KEY_PENDING_ENTRIES);
+            enqueue(new ArrayList<>(pendingEntries));
+        }
+    }
+
+    private static class PendingEntry
+    {
+        private final Long applicationId;
+        private final long time;
+        private final String username;
+        private final Map<String, Serializable> values;
+        private final Consumer<Long> onWritten;
+
+        private PendingEntry(Long applicationId, long time, String username, Map<String, Serializable> values, Consumer<Long> onWritten)
+        {
+            this.applicationId = applicationId;
+            this.time = time;
+            this.username = username;
+            this.values = values;
+            this.onWritten = onWritten;
+        }
+
+        private void written(Long entryId)
+        {
+            if (onWritten == null)
+            {
+                return;
+            }
+            try
+            {
+                onWritten.accept(entryId);
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Failed to handle written audit entry " + entryId, e);
+            }
+        }
+    }
+}
@@ -25,6 +25,8 @@
  */
 package org.alfresco.repo.cache;
 
+import java.io.Serializable;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -78,6 +80,18 @@ public abstract class AbstractMTAsynchronouslyRefreshedCache<T>
         refresh(tenantId);
     }
 
+    /**
+     * Request an incremental refresh of the entry for the current tenant.
+     * 
+     * @param change
+     *            the change to apply once the current transaction commits
+     */
+    public void refresh(Serializable change)
+    {
+        String tenantId = tenantService.getCurrentUserDomain();
+        refresh(tenantId, change);
+    }
+
     @Override
     public boolean isUpToDate()
     {
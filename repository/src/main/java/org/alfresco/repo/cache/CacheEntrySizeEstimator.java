@@ -0,0 +1,161 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.Pair;
+
+/**
+ * Rough estimate of the heap held by a cache entry, used to weigh the entries of weight-limited {@link DefaultSimpleCache caches}.
+ * <p>
+ * The estimate deliberately avoids reflection: common value types (strings, boxed primitives, arrays, collections, maps and a few repository types) are measured, anything else counts as a fixed {@link #DEFAULT_OBJECT_SIZE}. Large collections are sampled and extrapolated, and nesting is only followed to {@link #MAX_DEPTH} levels.
+ */
+final class CacheEntrySizeEstimator
+{
+    static final int ENTRY_OVERHEAD = 64;
+    static final int DEFAULT_OBJECT_SIZE = 64;
+    private static final int MAX_DEPTH = 4;
+    private static final int MAX_SAMPLED_ELEMENTS = 32;
+
+    private CacheEntrySizeEstimator()
+    {}
+
+    /**
+     * @return the estimated size in bytes of a cache entry holding the given key and value, including the cache's own overhead
+     */
+    static int estimate(Object key, Object value)
+    {
+        long size = ENTRY_OVERHEAD + sizeOf(key, 0) + sizeOf(value, 0);
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    static long sizeOf(Object object, int depth)
+    {
+        if (object == null)
+        {
+            return 0;
+        }
+        else if (object instanceof String)
+        {
+            return 40 + 2L * ((String) object).length();
+        }
+        else if (object instanceof Long || object instanceof Double || object instanceof Date)
+        {
+            return 24;
+        }
+        else if (object instanceof Number || object instanceof Boolean || object instanceof Character)
+        {
+            return 16;
+        }
+        else if (depth >= MAX_DEPTH)
+        {
+            return DEFAULT_OBJECT_SIZE;
+        }
+        else if (object instanceof NodeRef)
+        {
+            // The store reference is shared between node references
+            return 24 + sizeOf(((NodeRef) object).getId(), depth + 1);
+        }
+        else if (object instanceof QName)
+        {
+            // The namespace URI is interned
+            return 32 + sizeOf(((QName) object).getLocalName(), depth + 1);
+        }
+        else if (object instanceof Pair)
+        {
+            Pair<?, ?> pair = (Pair<?, ?>) object;
+            return 24 + sizeOf(pair.getFirst(), depth + 1) + sizeOf(pair.getSecond(), depth + 1);
+        }
+        else if (object instanceof Map.Entry)
+        {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) object;
+            return 24 + sizeOf(entry.getKey(), depth + 1) + sizeOf(entry.getValue(), depth + 1);
+        }
+        else if (object instanceof Collection)
+        {
+            return 48 + sizeOfElements(((Collection<?>) object).iterator(), ((Collection<?>) object).size(), 16, depth);
+        }
+        else if (object instanceof Map)
+        {
+            Map<?, ?> map = (Map<?, ?>) object;
+            return 64 + sizeOfElements(map.entrySet().iterator(), map.size(), 8, depth);
+        }
+        else if (object.getClass().isArray())
+        {
+            return sizeOfArray(object, depth);
+        }
+        return DEFAULT_OBJECT_SIZE;
+    }
+
+    private static long sizeOfElements(Iterator<?> elements, int count, int elementOverhead, int depth)
+    {
+        long sampled = 0;
+        int sampledCount = 0;
+        while (sampledCount < MAX_SAMPLED_ELEMENTS && elements.hasNext())
+        {
+            sampled += elementOverhead + sizeOf(elements.next(), depth + 1);
+            sampledCount++;
+        }
+        if (sampledCount == 0)
+        {
+            return 0;
+        }
+        return sampled * count / sampledCount;
+    }
+
+    private static long sizeOfArray(Object array, int depth)
+    {
+        if (array instanceof byte[])
+        {
+            return 16 + ((byte[]) array).length;
+        }
+        else if (array instanceof char[])
+        {
+            return 16 + 2L * ((char[]) array).length;
+        }
+        else if (array instanceof int[])
+        {
+            return 16 + 4L * ((int[]) array).length;
+        }
+        else if (array instanceof long[])
+        {
+            return 16 + 8L * ((long[]) array).length;
+        }
+        else if (array instanceof Object[])
+        {
+            Object[] elements = (Object[]) array;
+            return 16 + sizeOfElements(Arrays.asList(elements).iterator(), elements.length, 8, depth);
+        }
+        return DEFAULT_OBJECT_SIZE;
+    }
+}
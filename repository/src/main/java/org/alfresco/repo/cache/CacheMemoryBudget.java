@@ -0,0 +1,286 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.extensions.surf.util.AbstractLifecycleBean;
+
+import org.alfresco.util.TraceableThreadFactory;
+
+/**
+ * Shares a global heap budget between the weight-limited {@link DefaultSimpleCache caches}.
+ * <p>
+ * On startup, the budget is divided in proportion to the configured weight limits of the caches. It is then periodically rebalanced: caches that are not evicting give back what they do not use, keeping some headroom, and the rest is shared between the caches that are evicting, in proportion to the hits they served since the previous rebalance. No cache drops below {@link #setMinimumShare(double) a minimum share} of its initial allocation, and each limit only moves half way towards its target per rebalance. The estimated size and limit of every cache is reported through {@link CacheStatistics}.
+ * <p>
+ * When no budget is set, the configured weight limits are left alone and only the statistics are reported.
+ */
+public class CacheMemoryBudget extends AbstractLifecycleBean
+{
+    private static final Log logger = LogFactory.getLog(CacheMemoryBudget.class);
+
+    /** Head room kept above the current weight of a cache that is not evicting */
+    private static final double HEADROOM = 1.25;
+    /** Changes smaller than this fraction of the current limit are not applied */
+    private static final double MIN_CHANGE = 0.05;
+
+    private final Map<DefaultSimpleCache<?, ?>, Allocation> caches = new ConcurrentHashMap<>();
+
+    private CacheStatistics cacheStatistics;
+    private long budgetBytes;
+    private int rebalanceIntervalSeconds = 300;
+    private double minimumShare = 0.25;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param cacheStatistics
+     *            receives the estimated size and weight limit of the caches
+     */
+    public void setCacheStatistics(CacheStatistics cacheStatistics)
+    {
+        this.cacheStatistics = cacheStatistics;
+    }
+
+    /**
+     * @param budgetBytes
+     *            the heap shared by the weight-limited caches; <tt>0</tt> or less to keep their configured limits
+     */
+    public void setBudgetBytes(long budgetBytes)
+    {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @param rebalanceIntervalSeconds
+     *            the interval between rebalances; <tt>0</tt> or less to never rebalance
+     */
+    public void setRebalanceIntervalSeconds(int rebalanceIntervalSeconds)
+    {
+        this.rebalanceIntervalSeconds = rebalanceIntervalSeconds;
+    }
+
+    /**
+     * @param minimumShare
+     *            the fraction of its initial allocation that a cache always keeps
+     */
+    public void setMinimumShare(double minimumShare)
+    {
+        this.minimumShare = minimumShare;
+    }
+
+    /**
+     * Share the budget with a cache. Caches are registered by the {@link DefaultCacheFactory} as they are created.
+     * 
+     * @param cache
+     *            a weight-limited cache
+     */
+    public void register(DefaultSimpleCache<?, ?> cache)
+    {
+        if (cache.getMaxWeight() <= 0)
+        {
+            throw new IllegalArgumentException("The cache has no weight limit: " + cache);
+        }
+        caches.put(cache, new Allocation(cache.getMaxWeight()));
+    }
+
+    @Override
+    protected void onBootstrap(ApplicationEvent event)
+    {
+        if (caches.isEmpty())
+        {
+            return;
+        }
+        if (budgetBytes > 0)
+        {
+            distributeInitialBudget();
+        }
+        if (rebalanceIntervalSeconds > 0)
+        {
+            TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+            threadFactory.setThreadDaemon(true);
+            threadFactory.setNamePrefix("CacheMemoryBudget");
+            threadFactory.setThreadPriority(Thread.MIN_PRIORITY);
+            executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            executor.scheduleWithFixedDelay(this::rebalance, rebalanceIntervalSeconds, rebalanceIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    protected void onShutdown(ApplicationEvent event)
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Divide the budget in proportion to the configured weight limits of the caches.
+     */
+    synchronized void distributeInitialBudget()
+    {
+        long configured = 0;
+        for (Allocation allocation : caches.values())
+        {
+            configured += allocation.configuredBytes;
+        }
+        for (Map.Entry<DefaultSimpleCache<?, ?>, Allocation> entry : caches.entrySet())
+        {
+            Allocation allocation = entry.getValue();
+            allocation.initialBytes = Math.max(1, (long) ((double) budgetBytes * allocation.configuredBytes / configured));
+            entry.getKey().setMaxWeight(allocation.initialBytes);
+        }
+        report();
+    }
+
+    /**
+     * Move the weight limits of the caches towards their share of the budget, given their activity since the previous call, and report the usage of each cache.
+     */
+    public synchronized void rebalance()
+    {
+        try
+        {
+            if (budgetBytes > 0)
+            {
+                applyTargets(computeTargets());
+            }
+            report();
+        }
+        catch (Throwable e)
+        {
+            logger.warn("Failed to rebalance the cache memory budget", e);
+        }
+    }
+
+    private Map<DefaultSimpleCache<?, ?>, Long> computeTargets()
+    {
+        Map<DefaultSimpleCache<?, ?>, Long> targets = new HashMap<>();
+        List<DefaultSimpleCache<?, ?>> evicting = new ArrayList<>();
+        long available = budgetBytes;
+        long totalHits = 0;
+        for (Map.Entry<DefaultSimpleCache<?, ?>, Allocation> entry : caches.entrySet())
+        {
+            DefaultSimpleCache<?, ?> cache = entry.getKey();
+            Allocation allocation = entry.getValue();
+            long floor = (long) (allocation.initialBytes * minimumShare);
+            long hits = cache.getHitCount();
+            long evictions = cache.getEvictionCount();
+            allocation.hitsDelta = hits - allocation.lastHits;
+            boolean isEvicting = evictions > allocation.lastEvictions;
+            allocation.lastHits = hits;
+            allocation.lastEvictions = evictions;
+
+            long target = floor;
+            if (isEvicting)
+            {
+                evicting.add(cache);
+                totalHits += allocation.hitsDelta;
+            }
+            else
+            {
+                long needed = (long) (cache.getWeight() * HEADROOM);
+                target = Math.max(floor, Math.min(cache.getMaxWeight(), needed));
+            }
+            targets.put(cache, target);
+            available -= target;
+        }
+        if (available > 0 && !evicting.isEmpty())
+        {
+            for (DefaultSimpleCache<?, ?> cache : evicting)
+            {
+                long hitsDelta = caches.get(cache).hitsDelta;
+                long share = totalHits > 0
+                        ? (long) ((double) available * hitsDelta / totalHits)
+                        : available / evicting.size();
+                targets.put(cache, targets.get(cache) + share);
+            }
+        }
+        return targets;
+    }
+
+    private void applyTargets(Map<DefaultSimpleCache<?, ?>, Long> targets)
+    {
+        for (Map.Entry<DefaultSimpleCache<?, ?>, Long> entry : targets.entrySet())
+        {
+            DefaultSimpleCache<?, ?> cache = entry.getKey();
+            long current = cache.getMaxWeight();
+            long next = Math.max(1, current + (entry.getValue() - current) / 2);
+            if (Math.abs(next - current) < current * MIN_CHANGE)
+            {
+                continue;
+            }
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Resizing cache " + cache.getCacheName() + " from " + current + " to " + next + " bytes.");
+            }
+            cache.setMaxWeight(next);
+        }
+    }
+
+    private void report()
+    {
+        if (cacheStatistics == null)
+        {
+            return;
+        }
+        for (DefaultSimpleCache<?, ?> cache : caches.keySet())
+        {
+            if (cache.getCacheName() != null)
+            {
+                cacheStatistics.updateMemoryUsage(cache.getCacheName(), cache.getWeight(), cache.getMaxWeight());
+            }
+        }
+    }
+
+    /**
+     * Budget bookkeeping for a cache
+     */
+    private static class Allocation
+    {
+        private final long configuredBytes;
+        private long initialBytes;
+        private long lastHits;
+        private long lastEvictions;
+        private long hitsDelta;
+
+        private Allocation(long configuredBytes)
+        {
+            this.configuredBytes = configuredBytes;
+            this.initialBytes = configuredBytes;
+        }
+    }
+}
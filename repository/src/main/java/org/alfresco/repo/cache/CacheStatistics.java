@@ -90,4 +90,36 @@ public interface CacheStatistics
      * @return Map of OpType to OperationStats
      */
     Map<OpType, OperationStats> allStats(String cacheName);
+
+    /**
+     * Record the estimated heap held by a weight-limited cache, along with the share of the heap budget it is currently given.
+     * 
+     * @param cacheName
+     *            The cache name.
+     * @param estimatedBytes
+     *            The estimated size of the cache entries.
+     * @param budgetBytes
+     *            The weight limit of the cache.
+     */
+    void updateMemoryUsage(String cacheName, long estimatedBytes, long budgetBytes);
+
+    /**
+     * Retrieve the last recorded estimate of the heap held by a weight-limited cache.
+     * 
+     * @param cacheName
+     *            The cache name.
+     * @return Estimated size in bytes.
+     * @see #updateMemoryUsage(String, long, long)
+     */
+    long estimatedBytes(String cacheName);
+
+    /**
+     * Retrieve the last recorded weight limit of a weight-limited cache.
+     * 
+     * @param cacheName
+     *            The cache name.
+     * @return Budget in bytes.
+     * @see #updateMemoryUsage(String, long, long)
+     */
+    long budgetBytes(String cacheName);
 }
@@ -30,8 +30,15 @@ import java.io.Serializable;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.alfresco.repo.cache.invalidation.CacheInvalidationBus;
+import org.alfresco.repo.cache.invalidation.InvalidatingCache;
+
 /**
  * {@link CacheFactory} implementation that creates {@link DefaultSimpleCache} instances. The caches are created with a capacity specified by the property {name}.maxItems. For example, a cache named <tt>cache.ticketsCache</tt> would have a capacity specified by the property <tt>cache.ticketsCache.maxItems</tt>
+ * <p>
+ * When an enabled {@link CacheInvalidationBus} is set, the caches whose {name}.cluster.type is not <tt>local</tt> are wrapped in an {@link InvalidatingCache}, so that they stay coherent with the same caches on the other repository instances.
+ * <p>
+ * A cache may instead be limited by the estimated size of its entries, using the property {name}.maxWeightBytes, and may guard the admission of new keys with a frequency filter by setting {name}.admission to <tt>TINYLFU</tt>. Weight-limited caches are registered with the {@link CacheMemoryBudget}, if one is set.
  * 
  * @author Matt Ward
  */
@@ -39,11 +46,55 @@ public class DefaultCacheFactory<K extends Serializable, V> extends AbstractCach
 {
     private static final Log log = LogFactory.getLog(DefaultCacheFactory.class);
     private static final String EVICT_NONE = "NONE";
+    private static final String ADMISSION_TINYLFU = "TINYLFU";
+    private static final String CLUSTER_TYPE_LOCAL = "local";
+
+    private CacheMemoryBudget memoryBudget;
+    private CacheInvalidationBus invalidationBus;
+    private int maxInvalidatedKeysPerCache = 1000;
+
+    /**
+     * @param memoryBudget
+     *            shares a heap budget between the weight-limited caches; optional
+     */
+    public void setMemoryBudget(CacheMemoryBudget memoryBudget)
+    {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @param invalidationBus
+     *            keeps the caches that are not local coherent with the other repository instances; optional
+     */
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus)
+    {
+        this.invalidationBus = invalidationBus;
+    }
+
+    /**
+     * @param maxInvalidatedKeysPerCache
+     *            the number of keys of a cache invalidated by a transaction above which the whole cache is invalidated on the other instances
+     */
+    public void setMaxInvalidatedKeysPerCache(int maxInvalidatedKeysPerCache)
+    {
+        this.maxInvalidatedKeysPerCache = maxInvalidatedKeysPerCache;
+    }
 
     @Override
     public SimpleCache<K, V> createCache(String cacheName)
     {
-        return createLocalCache(cacheName);
+        SimpleCache<K, V> cache = createLocalCache(cacheName);
+        if (invalidationBus != null && invalidationBus.isEnabled() && !isLocalOnly(cacheName))
+        {
+            cache = new InvalidatingCache<K, V>(cache, cacheName, invalidationBus, maxInvalidatedKeysPerCache);
+        }
+        return cache;
+    }
+
+    private boolean isLocalOnly(String cacheName)
+    {
+        String clusterType = getProperty(cacheName, "cluster.type", "");
+        return clusterType.equalsIgnoreCase(CLUSTER_TYPE_LOCAL);
     }
 
     private SimpleCache<K, V> createLocalCache(String cacheName)
@@ -52,11 +103,17 @@ public class DefaultCacheFactory<K extends Serializable, V> extends AbstractCach
         boolean useMaxItems = useMaxItems(cacheName);
         int ttlSecs = ttlSeconds(cacheName);
         int maxIdleSeconds = maxIdleSeconds(cacheName);
-        DefaultSimpleCache<K, V> cache = new DefaultSimpleCache<K, V>(maxItems, useMaxItems, ttlSecs, maxIdleSeconds, cacheName);
+        long maxWeight = maxWeightBytes(cacheName);
+        boolean admissionFilter = admissionFilter(cacheName);
+        DefaultSimpleCache<K, V> cache = new DefaultSimpleCache<K, V>(maxItems, useMaxItems, maxWeight, admissionFilter, ttlSecs, maxIdleSeconds, cacheName);
         if (log.isDebugEnabled())
         {
             log.debug("Creating cache: " + cache);
         }
+        if (maxWeight > 0 && memoryBudget != null)
+        {
+            memoryBudget.register(cache);
+        }
         return cache;
     }
 
@@ -73,6 +130,18 @@ public class DefaultCacheFactory<K extends Serializable, V> extends AbstractCach
         return !evictionPolicy.equals(EVICT_NONE);
     }
 
+    private long maxWeightBytes(String cacheName)
+    {
+        String maxWeightStr = getProperty(cacheName, "maxWeightBytes", "0");
+        return Long.parseLong(maxWeightStr);
+    }
+
+    private boolean admissionFilter(String cacheName)
+    {
+        String admission = getProperty(cacheName, "admission", EVICT_NONE);
+        return admission.equalsIgnoreCase(ADMISSION_TINYLFU);
+    }
+
     private int ttlSeconds(String cacheName)
     {
         String ttlSecsStr = getProperty(cacheName, "timeToLiveSeconds", "0");
@@ -28,14 +28,22 @@ package org.alfresco.repo.cache;
 import java.io.Serializable;
 import java.util.AbstractMap;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
 import org.springframework.beans.factory.BeanNameAware;
 
 /**
  * {@link SimpleCache} implementation backed by a Google {@link Cache} implementation.
+ * <p>
+ * Besides the plain entry count limit, the cache can be limited by the estimated heap size of its entries (see {@link #getMaxWeight()}), and can guard its admission with a TinyLFU frequency filter: once the cache is full, a new key is only admitted if it has been read at least {@link #ADMISSION_FREQUENCY} times recently, so that keys read only once (during a scan, for example) do not push out frequently used entries. A weight-limited cache may be resized while in use, which is how the {@link CacheMemoryBudget} rebalances the heap between caches.
  * 
  * @author Matt Ward
  */
@@ -43,12 +51,33 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
         implements SimpleCache<K, V>, BeanNameAware
 {
     private static final int DEFAULT_CAPACITY = Integer.MAX_VALUE;
-    private Cache<K, AbstractMap.SimpleImmutableEntry<K, V>> cache;
+    /** The minimum estimated number of recent reads of a key for it to be admitted into a full cache */
+    static final int ADMISSION_FREQUENCY = 2;
+    /** Average entry size assumed when sizing the frequency sketch of a weight-limited cache */
+    private static final int EXPECTED_ENTRY_SIZE = 512;
+    /**
+     * Fraction of the weight limit that a weight-limited cache may still be below while being full: the limit is shared out between the segments of the underlying cache, which start evicting before the total reaches it
+     */
+    static final double FULL_WEIGHT_TOLERANCE = 0.05;
+
+    private volatile Cache<K, CacheEntry<K, V>> cache;
+    /** The cache being drained by {@link #setMaxWeight(long)}, <tt>null</tt> when no resize is in progress */
+    private volatile Cache<K, CacheEntry<K, V>> resizing;
     private String cacheName;
     private final int maxItems;
     private final boolean useMaxItems;
     private final int ttlSecs;
     private final int maxIdleSecs;
+    private volatile long maxWeight;
+    private final FrequencySketch sketch;
+    private final boolean tracking;
+    private final AtomicLong weight = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    /** The eviction count seen by the last check whether the cache is full */
+    private final AtomicLong evictionsChecked = new AtomicLong();
 
     /**
      * Construct a cache using the specified capacity and name.
@@ -60,8 +89,26 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
      * @param cacheName
      *            An arbitrary cache name.
      */
-    @SuppressWarnings("unchecked")
     public DefaultSimpleCache(int maxItems, boolean useMaxItems, int ttlSecs, int maxIdleSecs, String cacheName)
+    {
+        this(maxItems, useMaxItems, 0L, false, ttlSecs, maxIdleSecs, cacheName);
+    }
+
+    /**
+     * Construct a cache that may be limited by the estimated size of its entries and guarded by a frequency based admission filter.
+     * 
+     * @param maxItems
+     *            The cache capacity. 0 = use {@link #DEFAULT_CAPACITY}
+     * @param useMaxItems
+     *            Whether the maxItems value should be applied as a size-cap for the cache. Ignored when a <tt>maxWeight</tt> is given.
+     * @param maxWeight
+     *            The maximum estimated size of the cache entries, in bytes. 0 = no weight limit
+     * @param admissionFilter
+     *            Whether new keys must have been read recently to be admitted into the full cache.
+     * @param cacheName
+     *            An arbitrary cache name.
+     */
+    public DefaultSimpleCache(int maxItems, boolean useMaxItems, long maxWeight, boolean admissionFilter, int ttlSecs, int maxIdleSecs, String cacheName)
     {
         if (maxItems == 0)
         {
@@ -71,31 +118,20 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
         {
             throw new IllegalArgumentException("maxItems may not be negative, but was " + maxItems);
         }
+        if (maxWeight < 0)
+        {
+            throw new IllegalArgumentException("maxWeight may not be negative, but was " + maxWeight);
+        }
         this.maxItems = maxItems;
-        this.useMaxItems = useMaxItems;
+        this.useMaxItems = useMaxItems && maxWeight == 0;
+        this.maxWeight = maxWeight;
         this.ttlSecs = ttlSecs;
         this.maxIdleSecs = maxIdleSecs;
+        this.tracking = maxWeight > 0 || admissionFilter;
+        this.sketch = admissionFilter ? new FrequencySketch(maxWeight > 0 ? maxWeight / EXPECTED_ENTRY_SIZE : maxItems) : null;
         setBeanName(cacheName);
 
-        // The map will have a bounded size determined by the maxItems member variable.
-        @SuppressWarnings("rawtypes")
-        CacheBuilder builder = CacheBuilder.newBuilder();
-
-        if (useMaxItems)
-        {
-            builder.maximumSize(maxItems);
-        }
-        if (ttlSecs > 0)
-        {
-            builder.expireAfterWrite(ttlSecs, TimeUnit.SECONDS);
-        }
-        if (maxIdleSecs > 0)
-        {
-            builder.expireAfterAccess(maxIdleSecs, TimeUnit.SECONDS);
-        }
-        builder.concurrencyLevel(32);
-
-        cache = (Cache<K, AbstractMap.SimpleImmutableEntry<K, V>>) builder.build();
+        cache = buildCache(maxWeight);
     }
 
     /**
@@ -119,12 +155,68 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
         this(0, false, 0, 0, null);
     }
 
+    @SuppressWarnings("unchecked")
+    private Cache<K, CacheEntry<K, V>> buildCache(long maxWeight)
+    {
+        // The map will have a bounded size determined by the maxItems or maxWeight member variable.
+        @SuppressWarnings("rawtypes")
+        CacheBuilder builder = CacheBuilder.newBuilder();
+
+        if (maxWeight > 0)
+        {
+            builder.maximumWeight(maxWeight);
+            builder.weigher((key, kvp) -> ((CacheEntry<?, ?>) kvp).weight);
+        }
+        else if (useMaxItems)
+        {
+            builder.maximumSize(maxItems);
+        }
+        if (ttlSecs > 0)
+        {
+            builder.expireAfterWrite(ttlSecs, TimeUnit.SECONDS);
+        }
+        if (maxIdleSecs > 0)
+        {
+            builder.expireAfterAccess(maxIdleSecs, TimeUnit.SECONDS);
+        }
+        if (tracking)
+        {
+            builder.removalListener(notification -> onRemoval((RemovalNotification<K, CacheEntry<K, V>>) notification));
+        }
+        builder.concurrencyLevel(32);
+
+        return (Cache<K, CacheEntry<K, V>>) builder.build();
+    }
+
+    private void onRemoval(RemovalNotification<K, CacheEntry<K, V>> notification)
+    {
+        CacheEntry<K, V> kvp = notification.getValue();
+        if (kvp != null)
+        {
+            weight.addAndGet(-kvp.weight);
+        }
+        if (notification.getCause() == RemovalCause.SIZE)
+        {
+            evictions.increment();
+        }
+    }
+
     @Override
     public boolean contains(K key)
     {
-        return cache.asMap().containsKey(key);
+        if (cache.asMap().containsKey(key))
+        {
+            return true;
+        }
+        Cache<K, CacheEntry<K, V>> draining = resizing;
+        return draining != null && draining.asMap().containsKey(key);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * While the cache is being {@link #setMaxWeight(long) resized} the keys that have not been moved yet are not included.
+     */
     @Override
     public Collection<K> getKeys()
     {
@@ -134,7 +226,23 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
     @Override
     public V get(K key)
     {
-        AbstractMap.SimpleImmutableEntry<K, V> kvp = cache.getIfPresent(key);
+        CacheEntry<K, V> kvp = cache.getIfPresent(key);
+        if (kvp == null)
+        {
+            Cache<K, CacheEntry<K, V>> draining = resizing;
+            if (draining != null)
+            {
+                kvp = draining.getIfPresent(key);
+            }
+        }
+        if (tracking)
+        {
+            if (sketch != null)
+            {
+                sketch.increment(key);
+            }
+            (kvp == null ? misses : hits).increment();
+        }
         if (kvp == null)
         {
             return null;
@@ -155,27 +263,134 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
      */
     public boolean putAndCheckUpdate(K key, V value)
     {
-        AbstractMap.SimpleImmutableEntry<K, V> kvp = new AbstractMap.SimpleImmutableEntry<K, V>(key, value);
-        AbstractMap.SimpleImmutableEntry<K, V> priorKVP = cache.asMap().put(key, kvp);
+        Cache<K, CacheEntry<K, V>> current = cache;
+        if (sketch != null && isFull(current) && !current.asMap().containsKey(key) && sketch.frequency(key) < ADMISSION_FREQUENCY)
+        {
+            // Not admitted; make sure that no value for the key, put concurrently, outlives this newer one
+            remove(key);
+            rejections.increment();
+            return false;
+        }
+        int entryWeight = maxWeight > 0 ? CacheEntrySizeEstimator.estimate(key, value) : 0;
+        CacheEntry<K, V> kvp = new CacheEntry<K, V>(key, value, entryWeight);
+        if (tracking)
+        {
+            weight.addAndGet(entryWeight);
+        }
+        CacheEntry<K, V> priorKVP = current.asMap().put(key, kvp);
+        if (current != cache)
+        {
+            // A resize replaced the cache and may have moved the previous value already
+            cache.invalidate(key);
+        }
         return (priorKVP != null && (!priorKVP.equals(kvp)));
     }
 
+    private boolean isFull(Cache<K, CacheEntry<K, V>> current)
+    {
+        if (maxWeight > 0)
+        {
+            // An eviction since the last check shows that the cache is full, whatever the total weight
+            long evicted = evictions.sum();
+            if (evictionsChecked.getAndSet(evicted) != evicted)
+            {
+                return true;
+            }
+            return weight.get() >= (long) (maxWeight * (1 - FULL_WEIGHT_TOLERANCE));
+        }
+        return useMaxItems && current.size() >= maxItems;
+    }
+
     @Override
     public void remove(K key)
     {
-        cache.invalidate(key);
+        Cache<K, CacheEntry<K, V>> current = cache;
+        // Invalidate the draining cache first, so that the resize cannot move the entry back
+        Cache<K, CacheEntry<K, V>> draining = resizing;
+        if (draining != null)
+        {
+            draining.invalidate(key);
+        }
+        current.invalidate(key);
+        if (current != cache)
+        {
+            cache.invalidate(key);
+        }
     }
 
     @Override
     public void clear()
     {
-        cache.invalidateAll();
+        Cache<K, CacheEntry<K, V>> current = cache;
+        Cache<K, CacheEntry<K, V>> draining = resizing;
+        if (draining != null)
+        {
+            draining.invalidateAll();
+        }
+        current.invalidateAll();
+        if (current != cache)
+        {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Change the weight limit of the cache. The entries are moved into a new underlying cache, while the cache remains in use; entries modified or removed during the move are not moved.
+     * 
+     * @param maxWeight
+     *            The new maximum estimated size of the cache entries, in bytes
+     * @throws IllegalStateException
+     *             if the cache was not created with a weight limit
+     */
+    public synchronized void setMaxWeight(long maxWeight)
+    {
+        if (this.maxWeight == 0)
+        {
+            throw new IllegalStateException("The cache has no weight limit: " + this);
+        }
+        if (maxWeight <= 0)
+        {
+            throw new IllegalArgumentException("maxWeight must be positive, but was " + maxWeight);
+        }
+        if (maxWeight == this.maxWeight)
+        {
+            return;
+        }
+        Cache<K, CacheEntry<K, V>> previous = cache;
+        resizing = previous;
+        this.maxWeight = maxWeight;
+        cache = buildCache(maxWeight);
+        try
+        {
+            ConcurrentMap<K, CacheEntry<K, V>> previousMap = previous.asMap();
+            ConcurrentMap<K, CacheEntry<K, V>> currentMap = cache.asMap();
+            for (Map.Entry<K, CacheEntry<K, V>> entry : previousMap.entrySet())
+            {
+                K key = entry.getKey();
+                CacheEntry<K, V> kvp = entry.getValue();
+                weight.addAndGet(kvp.weight);
+                if (currentMap.putIfAbsent(key, kvp) != null)
+                {
+                    weight.addAndGet(-kvp.weight);
+                }
+                else if (previousMap.get(key) != kvp)
+                {
+                    // Changed or removed while being moved
+                    currentMap.remove(key, kvp);
+                }
+            }
+        }
+        finally
+        {
+            resizing = null;
+            previous.invalidateAll();
+        }
     }
 
     @Override
     public String toString()
     {
-        return "DefaultSimpleCache[maxItems=" + maxItems + ", useMaxItems=" + useMaxItems + ", cacheName=" + cacheName + "]";
+        return "DefaultSimpleCache[maxItems=" + maxItems + ", useMaxItems=" + useMaxItems + ", maxWeight=" + maxWeight + ", admissionFilter=" + (sketch != null) + ", cacheName=" + cacheName + "]";
     }
 
     /**
@@ -198,6 +413,68 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
         return this.useMaxItems;
     }
 
+    /**
+     * Get the maximum estimated size of the cache entries.
+     * 
+     * @return the weight limit in bytes, or 0 if the cache is not limited by weight
+     */
+    public long getMaxWeight()
+    {
+        return this.maxWeight;
+    }
+
+    /**
+     * Is the admission of new keys guarded by their recent frequency?
+     * 
+     * @return admissionFilter
+     */
+    public boolean isAdmissionFilter()
+    {
+        return this.sketch != null;
+    }
+
+    /**
+     * Get the estimated size of the cache entries. Only maintained for weight-limited caches.
+     * 
+     * @return weight in bytes
+     */
+    public long getWeight()
+    {
+        return this.weight.get();
+    }
+
+    /**
+     * @return the number of successful reads; only counted for caches that are weight-limited or have an admission filter
+     */
+    public long getHitCount()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of unsuccessful reads; only counted for caches that are weight-limited or have an admission filter
+     */
+    public long getMissCount()
+    {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return the number of entries evicted to honour the size or weight limit; only counted for caches that are weight-limited or have an admission filter
+     */
+    public long getEvictionCount()
+    {
+        return this.evictions.sum();
+    }
+
+    /**
+     * @return the number of puts refused by the admission filter
+     */
+    public long getRejectionCount()
+    {
+        return this.rejections.sum();
+    }
+
     /**
      * Get the time-to-live setting in seconds.
      * 
@@ -252,4 +529,19 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
     {
         this.cacheName = cacheName;
     }
+
+    /**
+     * Cached key-value pair, with its estimated size
+     */
+    private static final class CacheEntry<K, V> extends AbstractMap.SimpleImmutableEntry<K, V>
+    {
+        private static final long serialVersionUID = 1L;
+        private final int weight;
+
+        private CacheEntry(K key, V value, int weight)
+        {
+            super(key, value);
+            this.weight = weight;
+        }
+    }
 }
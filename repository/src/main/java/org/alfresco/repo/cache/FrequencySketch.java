@@ -0,0 +1,116 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+/**
+ * A count-min sketch with 4-bit counters estimating how often keys have been seen recently, as used by TinyLFU admission.
+ * <p>
+ * Once the number of recorded accesses reaches the sample size, all the counters are halved so that the estimates favour recent activity. Updates are deliberately not synchronized: a lost increment only makes an estimate slightly low, which is acceptable for an admission heuristic.
+ */
+final class FrequencySketch
+{
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+    private static final int MAX_TABLE_SIZE = 1 << 22;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedEntries
+     *            the expected number of entries in the cache being guarded
+     */
+    FrequencySketch(long expectedEntries)
+    {
+        int size = (int) Math.min(MAX_TABLE_SIZE, Math.max(16, Long.highestOneBit(Math.max(1, expectedEntries - 1)) << 1));
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    /**
+     * Record an access to the given key
+     */
+    void increment(Object key)
+    {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++)
+        {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            int index = (int) (h >>> 40) & tableMask;
+            int offset = ((int) (h >>> 32) & 0xF) << 2;
+            long value = table[index];
+            if (((value >>> offset) & 0xFL) < MAX_COUNT)
+            {
+                table[index] = value + (1L << offset);
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize)
+        {
+            reset();
+        }
+    }
+
+    /**
+     * @return the estimated number of recent accesses to the given key, between 0 and 15
+     */
+    int frequency(Object key)
+    {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++)
+        {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            int index = (int) (h >>> 40) & tableMask;
+            int offset = ((int) (h >>> 32) & 0xF) << 2;
+            frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xFL));
+        }
+        return frequency;
+    }
+
+    /**
+     * Halve every counter
+     */
+    void reset()
+    {
+        for (int i = 0; i < table.length; i++)
+        {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = additions / 2;
+    }
+
+    private static int spread(int hash)
+    {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -51,6 +51,8 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
     /** Read/Write locks by cache name */
     private final ConcurrentMap<String, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
     private Map<String, Map<OpType, OperationStats>> cacheToStatsMap = new HashMap<>();
+    /** Estimated size and budget, in bytes, by cache name */
+    private final ConcurrentMap<String, long[]> memoryUsage = new ConcurrentHashMap<>();
     private ApplicationContext applicationContext;
 
     @Override
@@ -208,6 +210,34 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
         }
     }
 
+    @Override
+    public void updateMemoryUsage(String cacheName, long estimatedBytes, long budgetBytes)
+    {
+        memoryUsage.put(cacheName, new long[]{estimatedBytes, budgetBytes});
+    }
+
+    @Override
+    public long estimatedBytes(String cacheName)
+    {
+        return getMemoryUsage(cacheName)[0];
+    }
+
+    @Override
+    public long budgetBytes(String cacheName)
+    {
+        return getMemoryUsage(cacheName)[1];
+    }
+
+    private long[] getMemoryUsage(String cacheName)
+    {
+        long[] usage = memoryUsage.get(cacheName);
+        if (usage == null)
+        {
+            throw new NoStatsForCache(cacheName);
+        }
+        return usage;
+    }
+
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException
     {
@@ -28,9 +28,9 @@ package org.alfresco.repo.cache;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -40,6 +40,8 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.cache.TransactionStats.OpType;
+import org.alfresco.repo.cache.invalidation.CacheInvalidationBatch;
+import org.alfresco.repo.cache.invalidation.InvalidatingCache;
 import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.repo.tenant.TenantUtil;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
@@ -60,6 +62,8 @@ import org.alfresco.util.PropertyCheck;
  * When the cache is {@link #clear() cleared}, a flag is set on the transaction. The shared cache, instead of being cleared itself, is just ignored for the remainder of the tranasaction. At the end of the transaction, if the flag is set, the shared transaction is cleared <i>before</i> updates are added back to it.
  * <p>
  * Because there is a limited amount of space available to the in-transaction caches, when either of these becomes full, the cleared flag is set. This ensures that the shared cache will not have stale data in the event of the transaction-local caches dropping items. It is therefore important to size the transactional caches correctly.
+ * <p>
+ * When the shared cache is an {@link InvalidatingCache}, the keys removed by the transaction, and the keys written by a read-write transaction, are invalidated on the other repository instances in one {@link CacheInvalidationBatch batch} once the transaction completes.
  * 
  * @author Derek Hulley
  */
@@ -67,6 +71,8 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         implements LockingCache<K, V>, TransactionListener, InitializingBean
 {
     private static final String RESOURCE_KEY_TXN_DATA = "TransactionalCache.TxnData";
+    /** marks a <tt>null</tt> read from the shared cache in the transaction's updated items */
+    private static final Object NULL_READ = new Object();
 
     private Log logger;
     private boolean isDebugEnabled;
@@ -77,6 +83,8 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     private boolean disableSharedCache;
     /** the shared cache that will get updated after commits */
     private SimpleCache<Serializable, ValueHolder<V>> sharedCache;
+    /** the shared cache, if it invalidates its keys on the other instances */
+    private InvalidatingCache<Serializable, ValueHolder<V>> invalidatingCache;
     /** can the cached values be modified */
     private boolean isMutable;
     /** can values be compared using full equality checking */
@@ -216,6 +224,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     /**
      * Ensures that all properties have been set
      */
+    @SuppressWarnings("unchecked")
     public void afterPropertiesSet() throws Exception
     {
         PropertyCheck.mandatory(this, "name", name);
@@ -232,6 +241,10 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         {
             sharedCache = NullCache.getInstance();
         }
+        else if (sharedCache instanceof InvalidatingCache)
+        {
+            invalidatingCache = (InvalidatingCache<Serializable, ValueHolder<V>>) sharedCache;
+        }
     }
 
     /**
@@ -244,10 +257,10 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         if (data == null)
         {
             data = new TransactionData();
-            // create and initialize caches
-            data.updatedItemsCache = new LRULinkedHashMap<Serializable, CacheBucket<V>>(23);
-            data.removedItemsCache = new HashSet<Serializable>(13);
-            data.lockedItemsCache = new HashSet<Serializable>(13);
+            // create and initialize caches, reusing the maps released by previous transactions on this thread
+            data.updatedItemsCache = TransactionalCacheMap.acquire(maxCacheSize);
+            data.removedItemsCache = TransactionalCacheMap.acquire(Integer.MAX_VALUE);
+            data.lockedItemsCache = Collections.emptySet();
             data.isReadOnly = AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_READ_ONLY;
             data.stats = new TransactionStats();
 
@@ -258,6 +271,11 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             if (TransactionSynchronizationManager.isSynchronizationActive())
             {
                 AlfrescoTransactionSupport.bindListener(this);
+                if (invalidatingCache != null)
+                {
+                    // The batch must be bound before the transaction completes
+                    invalidatingCache.bindTransaction();
+                }
             }
             AlfrescoTransactionSupport.bindResource(resourceKeyTxnData, data);
         }
@@ -300,11 +318,16 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         if (noSharedCacheRead && !txnData.noSharedCacheRead)
         {
             txnData.noSharedCacheRead = noSharedCacheRead;
+            if (txnData.isClosed)
+            {
+                // The per-transaction caches have been released
+                return;
+            }
             String currentCacheRegion = TenantUtil.getCurrentDomain();
-            for (Map.Entry<Serializable, CacheBucket<V>> entry : new ArrayList<Map.Entry<Serializable, CacheBucket<V>>>(
-                    txnData.updatedItemsCache.entrySet()))
+            List<Serializable> cacheKeys = new ArrayList<Serializable>(txnData.updatedItemsCache.size());
+            txnData.updatedItemsCache.addKeysTo(cacheKeys);
+            for (Serializable cacheKey : cacheKeys)
             {
-                Serializable cacheKey = entry.getKey();
                 K key = null;
                 if (cacheKey instanceof CacheRegionKey)
                 {
@@ -321,9 +344,9 @@ public class TransactionalCache<K extends Serializable, V extends Object>
 
                 if (key != null)
                 {
-                    CacheBucket<V> bucket = entry.getValue();
+                    Object bucket = txnData.updatedItemsCache.get(cacheKey);
                     // Simply 'forget' reads
-                    if (bucket instanceof ReadCacheBucket)
+                    if (!(bucket instanceof CacheBucket))
                     {
                         txnData.updatedItemsCache.remove(cacheKey);
                     }
@@ -366,7 +389,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         {
             keys = new HashSet<Serializable>(23);
             TransactionData txnData = getTransactionData();
-            if (!txnData.isClearOn)
+            if (!txnData.isClearOn || txnData.isClosed)
             {
                 // the backing cache is not due for a clear
                 Collection<K> backingKeys = (Collection<K>) sharedCache.getKeys();
@@ -377,10 +400,16 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 }
                 keys.addAll(backingCacheKeys);
             }
-            // add keys
-            keys.addAll(txnData.updatedItemsCache.keySet());
-            // remove keys
-            keys.removeAll(txnData.removedItemsCache);
+            if (!txnData.isClosed)
+            {
+                // add keys
+                txnData.updatedItemsCache.addKeysTo(keys);
+                // remove keys
+                for (int pos = txnData.removedItemsCache.first(); pos >= 0; pos = txnData.removedItemsCache.next(pos))
+                {
+                    keys.remove(txnData.removedItemsCache.keyAt(pos));
+                }
+            }
         }
         else
         {
@@ -523,6 +552,11 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         {
             final Serializable key = getTenantAwareCacheKey(keyIn);
             TransactionData txnData = getTransactionData();
+            if (txnData.lockedItemsCache.isEmpty())
+            {
+                // Locking is infrequent, so the set is only created when needed
+                txnData.lockedItemsCache = new HashSet<Serializable>(13);
+            }
             txnData.lockedItemsCache.add(key);
             return;
         }
@@ -572,7 +606,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 if (!txnData.isClearOn) // deletions cache only useful before a clear
                 {
                     // check to see if the key is present in the transaction's removed items
-                    if (txnData.removedItemsCache.contains(key))
+                    if (txnData.removedItemsCache.containsKey(key))
                     {
                         // it has been removed in this transaction
                         if (isDebugEnabled)
@@ -586,10 +620,10 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 }
 
                 // check for the item in the transaction's new/updated items
-                CacheBucket<V> bucket = (CacheBucket<V>) txnData.updatedItemsCache.get(key);
+                Object bucket = txnData.updatedItemsCache.get(key);
                 if (bucket != null)
                 {
-                    V value = bucket.getValue();
+                    V value = getBucketValue(bucket);
                     // element was found in transaction-specific updates/additions
                     if (isDebugEnabled)
                     {
@@ -624,8 +658,8 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                         // No stats tracking, pass in null TransactionStats
                         value = TransactionalCache.getSharedCacheValue(sharedCache, key, null);
                     }
-                    bucket = new ReadCacheBucket<V>(value);
-                    txnData.updatedItemsCache.put(key, bucket);
+                    // Reads never update the shared cache, so the value itself is kept rather than a bucket
+                    txnData.updatedItemsCache.put(key, value == null ? NULL_READ : value);
                     return value;
                 }
             }
@@ -749,7 +783,10 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 }
                 txnData.updatedItemsCache.put(key, bucket);
                 // remove the item from the removed cache, if present
-                txnData.removedItemsCache.remove(key);
+                if (!txnData.removedItemsCache.isEmpty())
+                {
+                    txnData.removedItemsCache.remove(key);
+                }
                 // done
                 if (isDebugEnabled)
                 {
@@ -842,7 +879,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                     else
                     {
                         // Create a bucket to remove the value from the shared cache
-                        txnData.removedItemsCache.add(key);
+                        txnData.removedItemsCache.put(key, Boolean.TRUE);
                     }
                 }
                 // remove the item from the udpated cache, if present
@@ -950,34 +987,13 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             else
             {
                 // transfer any removed items
-                for (Serializable key : txnData.removedItemsCache)
-                {
-                    final long startNanos = System.nanoTime();
-                    sharedCache.remove(key);
-                    final long endNanos = System.nanoTime();
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.REMOVE);
-                }
+                transferRemovals(txnData);
                 if (isDebugEnabled)
                 {
                     logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in commit");
                 }
             }
-
-            // transfer updates
-            Set<Serializable> keys = (Set<Serializable>) txnData.updatedItemsCache.keySet();
-            for (Map.Entry<Serializable, CacheBucket<V>> entry : (Set<Map.Entry<Serializable, CacheBucket<V>>>) txnData.updatedItemsCache.entrySet())
-            {
-                Serializable key = entry.getKey();
-                CacheBucket<V> bucket = entry.getValue();
-                bucket.doPreCommit(
-                        sharedCache,
-                        key, this.isMutable, this.allowEqualsChecks, txnData.isReadOnly);
-            }
-            if (isDebugEnabled)
-            {
-                logger.debug("Pre-commit called for " + keys.size() + " values.");
-            }
+            // updates are only transferred after the commit
         }
         catch (Throwable e)
         {
@@ -1022,14 +1038,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             else
             {
                 // transfer any removed items
-                for (Serializable key : txnData.removedItemsCache)
-                {
-                    final long startNanos = System.nanoTime();
-                    sharedCache.remove(key);
-                    final long endNanos = System.nanoTime();
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.REMOVE);
-                }
+                transferRemovals(txnData);
                 if (isDebugEnabled)
                 {
                     logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in commit");
@@ -1037,11 +1046,25 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             }
 
             // transfer updates
-            Set<Serializable> keys = (Set<Serializable>) txnData.updatedItemsCache.keySet();
-            for (Map.Entry<Serializable, CacheBucket<V>> entry : (Set<Map.Entry<Serializable, CacheBucket<V>>>) txnData.updatedItemsCache.entrySet())
+            TransactionalCacheMap<Serializable, Object> updatedItems = txnData.updatedItemsCache;
+            int updateCount = 0;
+            for (int pos = updatedItems.first(); pos >= 0; pos = updatedItems.next(pos))
             {
-                Serializable key = entry.getKey();
-                CacheBucket<V> bucket = entry.getValue();
+                Object value = updatedItems.valueAt(pos);
+                if (!(value instanceof CacheBucket))
+                {
+                    // Values read from the shared cache are not written back
+                    continue;
+                }
+                Serializable key = updatedItems.keyAt(pos);
+                @SuppressWarnings("unchecked")
+                CacheBucket<V> bucket = (CacheBucket<V>) value;
+                updateCount++;
+                if (invalidatingCache != null && !txnData.isReadOnly)
+                {
+                    // The transaction may have changed the value; other instances must reload it
+                    invalidatingCache.invalidateOnPeers(key);
+                }
                 try
                 {
                     bucket.doPostCommit(
@@ -1065,7 +1088,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             }
             if (isDebugEnabled)
             {
-                logger.debug("Post-commit called for " + keys.size() + " values.");
+                logger.debug("Post-commit called for " + updateCount + " values.");
             }
         }
         catch (Throwable e)
@@ -1110,14 +1133,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             else
             {
                 // transfer any removed items
-                for (Serializable key : txnData.removedItemsCache)
-                {
-                    final long startNanos = System.nanoTime();
-                    sharedCache.remove(key);
-                    final long endNanos = System.nanoTime();
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.REMOVE);
-                }
+                transferRemovals(txnData);
                 if (isDebugEnabled)
                 {
                     logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in rollback");
@@ -1148,6 +1164,47 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     private void removeCaches(TransactionData txnData)
     {
         txnData.isClosed = true;
+        // Return the maps to the pool; they are not used once the transaction is closed
+        TransactionalCacheMap.release(txnData.updatedItemsCache);
+        TransactionalCacheMap.release(txnData.removedItemsCache);
+        txnData.updatedItemsCache = null;
+        txnData.removedItemsCache = null;
+    }
+
+    /**
+     * Removes the keys removed in the transaction from the shared cache.
+     */
+    private void transferRemovals(TransactionData txnData)
+    {
+        TransactionalCacheMap<Serializable, Boolean> removedItems = txnData.removedItemsCache;
+        for (int pos = removedItems.first(); pos >= 0; pos = removedItems.next(pos))
+        {
+            Serializable key = removedItems.keyAt(pos);
+            if (cacheStatsEnabled)
+            {
+                final long startNanos = System.nanoTime();
+                sharedCache.remove(key);
+                final long endNanos = System.nanoTime();
+                txnData.stats.record(startNanos, endNanos, OpType.REMOVE);
+            }
+            else
+            {
+                sharedCache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Gets the value of an entry of the transaction's updated items, which is either a {@link CacheBucket} or a value read from the shared cache.
+     */
+    @SuppressWarnings("unchecked")
+    private static <BV> BV getBucketValue(Object bucket)
+    {
+        if (bucket instanceof CacheBucket)
+        {
+            return ((CacheBucket<BV>) bucket).getValue();
+        }
+        return bucket == NULL_READ ? null : (BV) bucket;
     }
 
     /**
@@ -1162,19 +1219,6 @@ public class TransactionalCache<K extends Serializable, V extends Object>
          */
         BV getValue();
 
-        /**
-         * Flush the current bucket to the shared cache as far as possible.
-         * 
-         * @param sharedCache
-         *            the cache to flush to
-         * @param key
-         *            the key that the bucket was stored against
-         */
-        public void doPreCommit(
-                SimpleCache<Serializable, ValueHolder<BV>> sharedCache,
-                Serializable key,
-                boolean mutable, boolean allowEqualsCheck, boolean readOnly);
-
         /**
          * Flush the current bucket to the shared cache as far as possible.
          * 
@@ -1210,12 +1254,6 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             return value;
         }
 
-        public void doPreCommit(
-                SimpleCache<Serializable, ValueHolder<BV>> sharedCache,
-                Serializable key,
-                boolean mutable, boolean allowEqualsCheck, boolean readOnly)
-        {}
-
         public void doPostCommit(
                 SimpleCache<Serializable, ValueHolder<BV>> sharedCache,
                 Serializable key,
@@ -1268,12 +1306,6 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             return value;
         }
 
-        public void doPreCommit(
-                SimpleCache<Serializable, ValueHolder<BV>> sharedCache,
-                Serializable key,
-                boolean mutable, boolean allowEqualsCheck, boolean readOnly)
-        {}
-
         public void doPostCommit(
                 SimpleCache<Serializable, ValueHolder<BV>> sharedCache,
                 Serializable key,
@@ -1318,43 +1350,12 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         }
     }
 
-    /**
-     * Data holder to represent data read from the shared cache. It will not attempt to update the shared cache.
-     */
-    private static class ReadCacheBucket<BV> implements CacheBucket<BV>
-    {
-        private static final long serialVersionUID = 7885689778259779578L;
-
-        private final BV value;
-
-        public ReadCacheBucket(BV value)
-        {
-            this.value = value;
-        }
-
-        public BV getValue()
-        {
-            return value;
-        }
-
-        public void doPreCommit(
-                SimpleCache<Serializable, ValueHolder<BV>> sharedCache,
-                Serializable key,
-                boolean mutable, boolean allowEqualsCheck, boolean readOnly)
-        {}
-
-        public void doPostCommit(
-                SimpleCache<Serializable, ValueHolder<BV>> sharedCache,
-                Serializable key,
-                boolean mutable, boolean allowEqualsCheck, boolean readOnly, TransactionStats stats)
-        {}
-    }
-
     /** Data holder to bind data to the transaction */
     private class TransactionData
     {
-        private LRULinkedHashMap<Serializable, CacheBucket<V>> updatedItemsCache;
-        private Set<Serializable> removedItemsCache;
+        /** values are either a {@link CacheBucket} or a value read from the shared cache (see {@link TransactionalCache#NULL_READ}) */
+        private TransactionalCacheMap<Serializable, Object> updatedItemsCache;
+        private TransactionalCacheMap<Serializable, Boolean> removedItemsCache;
         private Set<Serializable> lockedItemsCache;
         private boolean haveIssuedFullWarning;
         private boolean isClearOn;
@@ -1364,36 +1365,6 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         private TransactionStats stats;
     }
 
-    /**
-     * Simple LRU based on {@link LinkedHashMap}
-     * 
-     * @author Derek Hulley
-     * @since 3.4
-     */
-    private class LRULinkedHashMap<K1, V1> extends LinkedHashMap<K1, V1>
-    {
-        private static final long serialVersionUID = -4874684348174271106L;
-
-        private LRULinkedHashMap(int initialSize)
-        {
-            super(initialSize);
-        }
-
-        private boolean hasHitSize()
-        {
-            return size() >= maxCacheSize;
-        }
-
-        /**
-         * Remove the eldest entry if the size has reached the maximum cache size
-         */
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<K1, V1> eldest)
-        {
-            return (size() > maxCacheSize);
-        }
-    }
-
     /**
      * Convert the key to a tenant-specific key if the cache is tenant-aware and the current thread is running in the context of a tenant.
      * 
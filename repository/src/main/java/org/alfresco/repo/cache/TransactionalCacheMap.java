@@ -0,0 +1,337 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Insertion-ordered, open-addressing map used by {@link TransactionalCache} for its per-transaction state.
+ * <p>
+ * Entries are appended to dense key and value arrays, with an <tt>int</tt> hash index pointing into them, so no entry
+ * objects are created on <tt>put</tt>. When the map holds more than <tt>maxSize</tt> entries, the eldest entry is evicted,
+ * as with an LRU {@link java.util.LinkedHashMap} in insertion order.
+ * <p>
+ * Most transactions only touch a handful of keys per cache, so small maps are {@link #acquire(int) pooled} per thread and
+ * reused by the next transaction once {@link #release(TransactionalCacheMap) released}. Instances are not thread safe.
+ */
+final class TransactionalCacheMap<K, V>
+{
+    /** Initial capacity of the dense arrays */
+    static final int INITIAL_CAPACITY = 16;
+    /** Maps with a larger capacity are not returned to the pool, to bound the memory retained per thread */
+    static final int MAX_POOLED_CAPACITY = 128;
+    /** The maximum number of maps pooled per thread */
+    static final int MAX_POOLED_MAPS = 32;
+
+    private static final Object NULL_KEY = new Object();
+    private static final Object REMOVED = new Object();
+    private static final int EMPTY_SLOT = 0;
+    private static final int DELETED_SLOT = -1;
+
+    private static final ThreadLocal<ArrayDeque<TransactionalCacheMap<?, ?>>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private Object[] keys;
+    private Object[] values;
+    /** hash index holding (dense position + 1), {@link #EMPTY_SLOT} or {@link #DELETED_SLOT} */
+    private int[] index;
+    private int used;
+    private int size;
+    private int head;
+    private int maxSize;
+
+    TransactionalCacheMap(int maxSize)
+    {
+        this.keys = new Object[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+        this.index = new int[INITIAL_CAPACITY * 2];
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get an empty map, reusing one previously released by the current thread if possible.
+     *
+     * @param maxSize
+     *            the number of entries above which the eldest entry is evicted
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> TransactionalCacheMap<K, V> acquire(int maxSize)
+    {
+        TransactionalCacheMap<K, V> map = (TransactionalCacheMap<K, V>) POOL.get().pollFirst();
+        if (map == null)
+        {
+            return new TransactionalCacheMap<>(maxSize);
+        }
+        map.maxSize = maxSize;
+        return map;
+    }
+
+    /**
+     * Clear the map and make it available to the current thread again. The map must not be used after this call.
+     */
+    static void release(TransactionalCacheMap<?, ?> map)
+    {
+        if (map == null || map.keys.length > MAX_POOLED_CAPACITY)
+        {
+            return;
+        }
+        ArrayDeque<TransactionalCacheMap<?, ?>> pool = POOL.get();
+        if (pool.size() < MAX_POOLED_MAPS)
+        {
+            map.clear();
+            pool.addFirst(map);
+        }
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * @return <tt>true</tt> if the map has reached its maximum size
+     */
+    boolean hasHitSize()
+    {
+        return size >= maxSize;
+    }
+
+    boolean containsKey(Object key)
+    {
+        return find(maskNull(key)) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key)
+    {
+        int pos = find(maskNull(key));
+        return pos < 0 ? null : (V) values[pos];
+    }
+
+    /**
+     * Associates the value with the key. An existing key keeps its position in the iteration order.
+     */
+    void put(K key, V value)
+    {
+        Object maskedKey = maskNull(key);
+        int pos = find(maskedKey);
+        if (pos >= 0)
+        {
+            values[pos] = value;
+            return;
+        }
+        if (used == keys.length)
+        {
+            compactOrGrow();
+        }
+        pos = used++;
+        keys[pos] = maskedKey;
+        values[pos] = value;
+        insertIndex(maskedKey, pos);
+        size++;
+        if (size > maxSize)
+        {
+            removeAt(head);
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if the key was present
+     */
+    boolean remove(Object key)
+    {
+        int pos = find(maskNull(key));
+        if (pos < 0)
+        {
+            return false;
+        }
+        removeAt(pos);
+        return true;
+    }
+
+    void clear()
+    {
+        Arrays.fill(keys, 0, used, null);
+        Arrays.fill(values, 0, used, null);
+        Arrays.fill(index, EMPTY_SLOT);
+        used = 0;
+        size = 0;
+        head = 0;
+    }
+
+    /**
+     * @return the position of the first entry in iteration order, or <tt>-1</tt> if the map is empty
+     */
+    int first()
+    {
+        return next(head - 1);
+    }
+
+    /**
+     * @return the position of the entry following the given position, or <tt>-1</tt> if there are no more entries
+     */
+    int next(int pos)
+    {
+        for (int i = pos + 1; i < used; i++)
+        {
+            if (keys[i] != REMOVED)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    K keyAt(int pos)
+    {
+        Object key = keys[pos];
+        return key == NULL_KEY ? null : (K) key;
+    }
+
+    @SuppressWarnings("unchecked")
+    V valueAt(int pos)
+    {
+        return (V) values[pos];
+    }
+
+    /**
+     * Adds all the keys to the given collection.
+     */
+    void addKeysTo(Collection<? super K> target)
+    {
+        for (int pos = first(); pos >= 0; pos = next(pos))
+        {
+            target.add(keyAt(pos));
+        }
+    }
+
+    private int find(Object maskedKey)
+    {
+        int mask = index.length - 1;
+        for (int slot = hash(maskedKey) & mask;; slot = (slot + 1) & mask)
+        {
+            int entry = index[slot];
+            if (entry == EMPTY_SLOT)
+            {
+                return -1;
+            }
+            if (entry != DELETED_SLOT)
+            {
+                Object candidate = keys[entry - 1];
+                if (candidate == maskedKey || candidate.equals(maskedKey))
+                {
+                    return entry - 1;
+                }
+            }
+        }
+    }
+
+    private void insertIndex(Object maskedKey, int pos)
+    {
+        int mask = index.length - 1;
+        int slot = hash(maskedKey) & mask;
+        while (index[slot] > 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = pos + 1;
+    }
+
+    private void removeAt(int pos)
+    {
+        Object maskedKey = keys[pos];
+        int mask = index.length - 1;
+        for (int slot = hash(maskedKey) & mask;; slot = (slot + 1) & mask)
+        {
+            if (index[slot] == pos + 1)
+            {
+                index[slot] = DELETED_SLOT;
+                break;
+            }
+        }
+        keys[pos] = REMOVED;
+        values[pos] = null;
+        size--;
+        if (pos == head)
+        {
+            while (head < used && keys[head] == REMOVED)
+            {
+                head++;
+            }
+        }
+    }
+
+    /**
+     * Reclaims the space of removed entries or, if most entries are live, doubles the capacity. The hash index is rebuilt
+     * in both cases, which also drops its deleted slots.
+     */
+    private void compactOrGrow()
+    {
+        if (size >= keys.length / 2)
+        {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            values = Arrays.copyOf(values, values.length * 2);
+            index = new int[keys.length * 2];
+        }
+        else
+        {
+            Arrays.fill(index, EMPTY_SLOT);
+        }
+        int count = 0;
+        for (int i = head; i < used; i++)
+        {
+            if (keys[i] != REMOVED)
+            {
+                keys[count] = keys[i];
+                values[count] = values[i];
+                insertIndex(keys[count], count);
+                count++;
+            }
+        }
+        Arrays.fill(keys, count, used, null);
+        Arrays.fill(values, count, used, null);
+        used = count;
+        head = 0;
+    }
+
+    private static Object maskNull(Object key)
+    {
+        return key == null ? NULL_KEY : key;
+    }
+
+    private static int hash(Object key)
+    {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,626 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.invalidation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.extensions.surf.util.AbstractLifecycleBean;
+
+import org.alfresco.util.TraceableThreadFactory;
+
+/**
+ * Base {@link CacheInvalidationBus} implementation, leaving the transport of the messages to subclasses.
+ * <p>
+ * Published messages are queued and sent by a background thread, which coalesces the messages queued within {@link #setFlushIntervalMillis(int) a short interval} into one. Serialized messages should fit in {@link #setMaxMessageBytes(int) a maximum size}: larger messages are split by cache, and the keys of a cache that still do not fit are replaced by a clear of that cache. If the queue overflows or a message cannot be sent, its caches are cleared on the other instances by the next message.
+ * <p>
+ * Messages are signed with an HMAC computed from a {@link #setSharedSecret(String) secret shared by the instances}. A received message is only deserialized once its signature is verified, and then with a filter only accepting the classes of the message and of the cache keys, which can be {@link #setAdditionalKeyClasses(String) extended} for custom caches. The keys of a cache that the filter of this instance would reject are replaced by a clear of that cache before sending. Instances ignore the messages they sent.
+ * <p>
+ * Each instance numbers the messages it sends. An instance that finds a gap in the numbers of the messages received from another instance, or that receives a signed message it cannot read, clears all its shared caches, as the invalidations it missed are unknown.
+ */
+public abstract class AbstractCacheInvalidationBus extends AbstractLifecycleBean implements CacheInvalidationBus
+{
+    private static final Log logger = LogFactory.getLog(AbstractCacheInvalidationBus.class);
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    /** The length of the signature preceding the serialized message */
+    static final int MAC_LENGTH = 32;
+
+    /** The classes of the messages and of the keys of the caches that can be shared between instances */
+    private static final String MESSAGE_CLASSES = "maxdepth=20;maxarray=100000;"
+            + "java.lang.String;java.lang.Number;java.lang.Long;java.lang.Integer;java.lang.Short;java.lang.Byte;"
+            + "java.lang.Double;java.lang.Float;java.lang.Boolean;java.lang.Character;java.lang.Enum;"
+            + "java.util.HashMap;java.util.HashSet;java.util.Map$Entry;java.util.ArrayList;java.util.Date;java.util.Locale;"
+            + "org.alfresco.repo.cache.invalidation.CacheInvalidationMessage;"
+            + "org.alfresco.util.Pair;"
+            + "org.alfresco.service.cmr.repository.NodeRef;org.alfresco.service.cmr.repository.StoreRef;"
+            + "org.alfresco.service.namespace.QName;"
+            + "org.alfresco.repo.cache.TransactionalCache$CacheRegionKey;"
+            + "org.alfresco.repo.cache.lookup.CacheRegionKey;org.alfresco.repo.cache.lookup.CacheRegionValueKey;"
+            + "org.alfresco.repo.domain.node.NodeVersionKey;org.alfresco.repo.domain.node.ChildByNameKey;"
+            + "org.alfresco.repo.domain.permissions.PermissionEntity;"
+            + "org.alfresco.repo.domain.propval.AbstractPropertyValueDAOImpl$CachePucKey";
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<String, CacheInvalidationListener> listeners = new ConcurrentHashMap<>();
+    private final Set<String> overflowedCaches = ConcurrentHashMap.newKeySet();
+    /** Held while sending, so that messages are numbered in the order they are sent */
+    private final Object sendLock = new Object();
+    /** The sequence number of the last message sent (guarded by sendLock) */
+    private long lastSentSequence;
+    /** The highest sequence number received from each other instance (guarded by itself) */
+    private final Map<String, Long> lastReceivedSequences = new HashMap<>();
+
+    private boolean enabled;
+    private int maxQueuedMessages = 10000;
+    private int flushIntervalMillis = 20;
+    private int maxMessageBytes = 60000;
+    private SecretKeySpec macKey;
+    private ObjectInputFilter messageFilter = ObjectInputFilter.Config.createFilter(MESSAGE_CLASSES + ";!*");
+
+    private BlockingQueue<CacheInvalidationMessage> queue;
+    private Thread sender;
+    private volatile boolean running;
+
+    /**
+     * @param enabled
+     *            <tt>true</tt> to exchange invalidations with the other instances
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param maxQueuedMessages
+     *            the number of messages that may wait to be sent
+     */
+    public void setMaxQueuedMessages(int maxQueuedMessages)
+    {
+        this.maxQueuedMessages = maxQueuedMessages;
+    }
+
+    /**
+     * @param flushIntervalMillis
+     *            how long the sender waits for more messages to coalesce with the first one
+     */
+    public void setFlushIntervalMillis(int flushIntervalMillis)
+    {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * @param maxMessageBytes
+     *            the maximum size of a serialized message
+     */
+    public void setMaxMessageBytes(int maxMessageBytes)
+    {
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    /**
+     * @param sharedSecret
+     *            the secret, shared by all the instances, used to sign the messages
+     */
+    public void setSharedSecret(String sharedSecret)
+    {
+        this.macKey = (sharedSecret == null || sharedSecret.isEmpty()) ? null
+                : new SecretKeySpec(sharedSecret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM);
+    }
+
+    /**
+     * @param additionalKeyClasses
+     *            comma separated names of the classes of the keys of custom caches, beyond those of the repository caches
+     */
+    public void setAdditionalKeyClasses(String additionalKeyClasses)
+    {
+        StringBuilder pattern = new StringBuilder(MESSAGE_CLASSES);
+        if (additionalKeyClasses != null)
+        {
+            for (String className : additionalKeyClasses.split(","))
+            {
+                if (!className.isBlank())
+                {
+                    pattern.append(';').append(className.trim());
+                }
+            }
+        }
+        this.messageFilter = ObjectInputFilter.Config.createFilter(pattern.append(";!*").toString());
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return the identifier of this instance, carried by the messages it sends
+     */
+    public String getInstanceId()
+    {
+        return instanceId;
+    }
+
+    @Override
+    public void subscribe(String cacheName, CacheInvalidationListener listener)
+    {
+        listeners.put(cacheName, listener);
+    }
+
+    @Override
+    public void publish(CacheInvalidationMessage message)
+    {
+        if (!enabled || message.isEmpty())
+        {
+            return;
+        }
+        if (!getQueue().offer(message))
+        {
+            overflowedCaches.addAll(message.getCacheNames());
+        }
+    }
+
+    private synchronized BlockingQueue<CacheInvalidationMessage> getQueue()
+    {
+        if (queue == null)
+        {
+            queue = new ArrayBlockingQueue<>(maxQueuedMessages);
+        }
+        return queue;
+    }
+
+    @Override
+    protected void onBootstrap(ApplicationEvent event)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        if (macKey == null)
+        {
+            throw new IllegalStateException("Cache invalidations cannot be exchanged without a shared secret");
+        }
+        try
+        {
+            startReceiving();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Failed to start receiving cache invalidations", e);
+        }
+        running = true;
+        sender = newThread("CacheInvalidationSender", this::sendQueuedMessages);
+        sender.start();
+    }
+
+    @Override
+    protected void onShutdown(ApplicationEvent event)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        running = false;
+        if (sender != null)
+        {
+            sender.interrupt();
+        }
+        // Send what is left, as this instance's changes are committed
+        flush();
+        stopReceiving();
+    }
+
+    private void sendQueuedMessages()
+    {
+        while (running)
+        {
+            try
+            {
+                CacheInvalidationMessage first = getQueue().poll(1, TimeUnit.SECONDS);
+                if (first == null && overflowedCaches.isEmpty())
+                {
+                    continue;
+                }
+                if (flushIntervalMillis > 0)
+                {
+                    Thread.sleep(flushIntervalMillis);
+                }
+                sendQueued(first);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (Throwable e)
+            {
+                logger.error("Failed to send cache invalidations", e);
+            }
+        }
+    }
+
+    /**
+     * Send all the queued messages now, as one message if possible.
+     */
+    public void flush()
+    {
+        sendQueued(null);
+    }
+
+    private void sendQueued(CacheInvalidationMessage first)
+    {
+        synchronized (sendLock)
+        {
+            CacheInvalidationMessage message = new CacheInvalidationMessage();
+            message.setSourceId(instanceId);
+            if (first != null)
+            {
+                message.merge(first);
+            }
+            List<CacheInvalidationMessage> queued = new ArrayList<>();
+            getQueue().drainTo(queued);
+            for (CacheInvalidationMessage other : queued)
+            {
+                message.merge(other);
+            }
+            for (String cacheName : overflowedCaches)
+            {
+                overflowedCaches.remove(cacheName);
+                message.addClear(cacheName);
+            }
+            if (!message.isEmpty())
+            {
+                sendMessage(message);
+            }
+        }
+    }
+
+    private void sendMessage(CacheInvalidationMessage message)
+    {
+        // The sequence number is only used up if the message is sent rather than split
+        message.setSequence(lastSentSequence + 1);
+        byte[] payload = serialize(message);
+        if (!isReadable(payload))
+        {
+            message = clearUnreadableCaches(message);
+            payload = serialize(message);
+        }
+        byte[] bytes = sign(payload);
+        if (bytes.length > maxMessageBytes && message.getKeyCount() > 0)
+        {
+            Set<String> cacheNames = message.getCacheNames();
+            for (String cacheName : cacheNames)
+            {
+                CacheInvalidationMessage part = new CacheInvalidationMessage();
+                part.setSourceId(instanceId);
+                if (cacheNames.size() > 1 && !message.getKeys(cacheName).isEmpty())
+                {
+                    for (Serializable key : message.getKeys(cacheName))
+                    {
+                        part.addKey(cacheName, key);
+                    }
+                }
+                else
+                {
+                    // A single cache has too many keys to send
+                    part.addClear(cacheName);
+                }
+                sendMessage(part);
+            }
+            return;
+        }
+        // Used up even if sending fails, as the message may have reached some instances
+        lastSentSequence = message.getSequence();
+        try
+        {
+            send(bytes);
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Sent " + message.getKeyCount() + " cache invalidations (" + bytes.length + " bytes).");
+            }
+        }
+        catch (IOException e)
+        {
+            // The invalidations are lost, so have the caches cleared by the next message instead
+            overflowedCaches.addAll(message.getCacheNames());
+            logger.error("Failed to send cache invalidations, the caches will be cleared: " + message.getCacheNames(), e);
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if the other instances can read the message
+     */
+    private boolean isReadable(byte[] payload)
+    {
+        try
+        {
+            deserialize(payload, messageFilter);
+            return true;
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * @return a copy of the message where the keys of the caches that the other instances cannot read are replaced by clears of those caches
+     */
+    private CacheInvalidationMessage clearUnreadableCaches(CacheInvalidationMessage message)
+    {
+        CacheInvalidationMessage readable = new CacheInvalidationMessage();
+        readable.setSourceId(message.getSourceId());
+        readable.setSequence(message.getSequence());
+        for (String cacheName : message.getCacheNames())
+        {
+            CacheInvalidationMessage keys = new CacheInvalidationMessage();
+            for (Serializable key : message.getKeys(cacheName))
+            {
+                keys.addKey(cacheName, key);
+            }
+            if (message.isCleared(cacheName) || !isReadable(serialize(keys)))
+            {
+                if (!message.isCleared(cacheName))
+                {
+                    logger.warn("Cache " + cacheName + " has keys of classes that are not accepted by the other instances, the cache will be cleared instead: " + message.getKeys(cacheName));
+                }
+                readable.addClear(cacheName);
+            }
+            else
+            {
+                readable.merge(keys);
+            }
+        }
+        return readable;
+    }
+
+    /**
+     * Apply the invalidations of a message received from the transport.
+     * 
+     * @param bytes
+     *            the serialized message
+     */
+    protected void receive(byte[] bytes)
+    {
+        byte[] payload = verify(bytes);
+        if (payload == null)
+        {
+            logger.warn("Ignoring a cache invalidation message without a valid signature");
+            return;
+        }
+        CacheInvalidationMessage message;
+        try
+        {
+            message = deserialize(payload, messageFilter);
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            // The message comes from an instance sharing the secret, so its invalidations are lost
+            logger.warn("Clearing all the caches after an unreadable cache invalidation message: " + e.getMessage());
+            invalidateAll();
+            return;
+        }
+        if (instanceId.equals(message.getSourceId()))
+        {
+            return;
+        }
+        if (!isNextMessage(message))
+        {
+            logger.warn("Clearing all the caches as cache invalidations from " + message.getSourceId() + " were lost before message " + message.getSequence());
+            invalidateAll();
+            return;
+        }
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Received cache invalidations: " + message);
+        }
+        for (String cacheName : message.getCacheNames())
+        {
+            CacheInvalidationListener listener = listeners.get(cacheName);
+            if (listener == null)
+            {
+                continue;
+            }
+            try
+            {
+                if (message.isCleared(cacheName))
+                {
+                    listener.invalidateAll();
+                }
+                else
+                {
+                    listener.invalidate(message.getKeys(cacheName));
+                }
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Failed to invalidate cache " + cacheName, e);
+            }
+        }
+    }
+
+    /**
+     * Record the sequence number of a received message.
+     * 
+     * @return <tt>false</tt> if messages sent before it by the same instance have not been received
+     */
+    private boolean isNextMessage(CacheInvalidationMessage message)
+    {
+        long sequence = message.getSequence();
+        if (sequence <= 0)
+        {
+            // Not numbered
+            return true;
+        }
+        synchronized (lastReceivedSequences)
+        {
+            Long lastSequence = lastReceivedSequences.get(message.getSourceId());
+            long expected = (lastSequence == null) ? 1L : lastSequence + 1;
+            if (lastSequence == null || sequence > lastSequence)
+            {
+                lastReceivedSequences.put(message.getSourceId(), sequence);
+            }
+            // A late message after a gap was covered by clearing the caches
+            return sequence <= expected;
+        }
+    }
+
+    private void invalidateAll()
+    {
+        for (Map.Entry<String, CacheInvalidationListener> listener : listeners.entrySet())
+        {
+            try
+            {
+                listener.getValue().invalidateAll();
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Failed to invalidate cache " + listener.getKey(), e);
+            }
+        }
+    }
+
+    static byte[] serialize(CacheInvalidationMessage message)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(message);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalArgumentException("Cache invalidations cannot be serialized: " + message, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static CacheInvalidationMessage deserialize(byte[] bytes, ObjectInputFilter filter) throws IOException, ClassNotFoundException
+    {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)))
+        {
+            in.setObjectInputFilter(filter);
+            Object message = in.readObject();
+            if (!(message instanceof CacheInvalidationMessage))
+            {
+                throw new IOException("Not a cache invalidation message: " + message.getClass());
+            }
+            return (CacheInvalidationMessage) message;
+        }
+    }
+
+    /**
+     * @return the serialized message preceded by its signature
+     */
+    private byte[] sign(byte[] payload)
+    {
+        byte[] signed = new byte[MAC_LENGTH + payload.length];
+        System.arraycopy(mac(payload), 0, signed, 0, MAC_LENGTH);
+        System.arraycopy(payload, 0, signed, MAC_LENGTH, payload.length);
+        return signed;
+    }
+
+    /**
+     * @return the serialized message, or <tt>null</tt> if its signature does not match
+     */
+    private byte[] verify(byte[] signed)
+    {
+        if (macKey == null || signed.length < MAC_LENGTH)
+        {
+            return null;
+        }
+        byte[] payload = Arrays.copyOfRange(signed, MAC_LENGTH, signed.length);
+        return MessageDigest.isEqual(mac(payload), Arrays.copyOf(signed, MAC_LENGTH)) ? payload : null;
+    }
+
+    private byte[] mac(byte[] payload)
+    {
+        if (macKey == null)
+        {
+            throw new IllegalStateException("Cache invalidations cannot be signed without a shared secret");
+        }
+        try
+        {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            return mac.doFinal(payload);
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new IllegalStateException("Failed to sign cache invalidations", e);
+        }
+    }
+
+    /**
+     * Create a daemon thread for the bus
+     */
+    protected static Thread newThread(String name, Runnable runnable)
+    {
+        TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+        threadFactory.setThreadDaemon(true);
+        threadFactory.setNamePrefix(name);
+        return threadFactory.newThread(runnable);
+    }
+
+    /**
+     * Start delivering the received messages to {@link #receive(byte[])}
+     */
+    protected abstract void startReceiving() throws IOException;
+
+    /**
+     * Stop receiving messages and release the transport
+     */
+    protected abstract void stopReceiving();
+
+    /**
+     * Send a serialized message to the other instances
+     */
+    protected abstract void send(byte[] bytes) throws IOException;
+}
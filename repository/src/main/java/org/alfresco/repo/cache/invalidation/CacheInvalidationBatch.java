@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.invalidation;
+
+import java.io.Serializable;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.util.transaction.TransactionListenerAdapter;
+
+/**
+ * Collects the cache invalidations of a transaction, and publishes them as one message once the transaction has completed.
+ * <p>
+ * The batch is bound to the transaction as a normal priority listener, so that it completes after the {@link org.alfresco.repo.cache.TransactionalCache transactional caches} have written their changes to the shared caches. Invalidations of a rolled back transaction are published as well, as the transactional caches still propagate their removals in that case.
+ */
+public class CacheInvalidationBatch extends TransactionListenerAdapter
+{
+    private static final String RESOURCE_KEY = CacheInvalidationBatch.class.getName();
+
+    private final CacheInvalidationBus bus;
+    private final int maxKeysPerCache;
+    private final CacheInvalidationMessage message = new CacheInvalidationMessage();
+
+    private CacheInvalidationBatch(CacheInvalidationBus bus, int maxKeysPerCache)
+    {
+        this.bus = bus;
+        this.maxKeysPerCache = maxKeysPerCache;
+    }
+
+    /**
+     * Get the batch of the current transaction, binding a new one if the transaction is still active.
+     * 
+     * @param bus
+     *            publishes the batch
+     * @param maxKeysPerCache
+     *            the number of keys of a cache above which the whole cache is invalidated instead
+     * @return the batch, or <tt>null</tt> if there is no transaction able to take one
+     */
+    public static CacheInvalidationBatch bind(CacheInvalidationBus bus, int maxKeysPerCache)
+    {
+        CacheInvalidationBatch batch = getCurrent();
+        if (batch == null && TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            batch = new CacheInvalidationBatch(bus, maxKeysPerCache);
+            AlfrescoTransactionSupport.bindResource(RESOURCE_KEY, batch);
+            AlfrescoTransactionSupport.bindListener(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * @return the batch bound to the current transaction, or <tt>null</tt>
+     */
+    public static CacheInvalidationBatch getCurrent()
+    {
+        if (AlfrescoTransactionSupport.getTransactionId() == null)
+        {
+            return null;
+        }
+        return AlfrescoTransactionSupport.getResource(RESOURCE_KEY);
+    }
+
+    public void addKey(String cacheName, Serializable key)
+    {
+        if (message.isCleared(cacheName))
+        {
+            return;
+        }
+        message.addKey(cacheName, key);
+        if (message.getKeys(cacheName).size() > maxKeysPerCache)
+        {
+            message.addClear(cacheName);
+        }
+    }
+
+    public void addClear(String cacheName)
+    {
+        message.addClear(cacheName);
+    }
+
+    @Override
+    public void afterCommit()
+    {
+        publish();
+    }
+
+    @Override
+    public void afterRollback()
+    {
+        publish();
+    }
+
+    private void publish()
+    {
+        if (!message.isEmpty())
+        {
+            bus.publish(message);
+        }
+    }
+}
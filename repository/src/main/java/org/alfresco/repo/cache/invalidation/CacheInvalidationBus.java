@@ -0,0 +1,57 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.invalidation;
+
+/**
+ * Carries cache invalidations between repository instances sharing a database, so that their local caches remain coherent.
+ * <p>
+ * Invalidations made in a transaction are collected by a {@link CacheInvalidationBatch} and published as a single message once the transaction completes. Implementations may coalesce messages further before sending them, and must not deliver a message back to the instance that published it.
+ */
+public interface CacheInvalidationBus
+{
+    /**
+     * @return <tt>true</tt> if invalidations are exchanged with other instances
+     */
+    boolean isEnabled();
+
+    /**
+     * Publish invalidations to the other instances.
+     * 
+     * @param message
+     *            the invalidations, which must not be modified afterwards
+     */
+    void publish(CacheInvalidationMessage message);
+
+    /**
+     * Receive the invalidations published by other instances for a cache.
+     * 
+     * @param cacheName
+     *            the name of the cache, which must be the same on all instances
+     * @param listener
+     *            applies the invalidations to the local cache
+     */
+    void subscribe(String cacheName, CacheInvalidationListener listener);
+}
@@ -0,0 +1,47 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.invalidation;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Applies the invalidations received from other instances to a local cache.
+ * 
+ * @see CacheInvalidationBus#subscribe(String, CacheInvalidationListener)
+ */
+public interface CacheInvalidationListener
+{
+    /**
+     * Remove the given keys from the cache
+     */
+    void invalidate(Collection<Serializable> keys);
+
+    /**
+     * Remove all the entries from the cache
+     */
+    void invalidateAll();
+}
@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.invalidation;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The cache keys invalidated by one or more transactions, grouped by cache. Keys of a cache that is cleared are not kept.
+ */
+public class CacheInvalidationMessage implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private String sourceId;
+    private long sequence;
+    private final Map<String, Set<Serializable>> keysByCache = new HashMap<>();
+    private final Set<String> clearedCaches = new HashSet<>();
+
+    /**
+     * Record an invalidated key
+     */
+    public void addKey(String cacheName, Serializable key)
+    {
+        if (!clearedCaches.contains(cacheName))
+        {
+            keysByCache.computeIfAbsent(cacheName, name -> new HashSet<>()).add(key);
+        }
+    }
+
+    /**
+     * Record that all the entries of a cache are invalidated
+     */
+    public void addClear(String cacheName)
+    {
+        keysByCache.remove(cacheName);
+        clearedCaches.add(cacheName);
+    }
+
+    /**
+     * Add all the invalidations of another message to this one
+     */
+    public void merge(CacheInvalidationMessage other)
+    {
+        for (String cacheName : other.clearedCaches)
+        {
+            addClear(cacheName);
+        }
+        for (Map.Entry<String, Set<Serializable>> entry : other.keysByCache.entrySet())
+        {
+            for (Serializable key : entry.getValue())
+            {
+                addKey(entry.getKey(), key);
+            }
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if nothing was invalidated
+     */
+    public boolean isEmpty()
+    {
+        return keysByCache.isEmpty() && clearedCaches.isEmpty();
+    }
+
+    /**
+     * @return the names of all the caches with invalidations
+     */
+    public Set<String> getCacheNames()
+    {
+        Set<String> cacheNames = new HashSet<>(clearedCaches);
+        cacheNames.addAll(keysByCache.keySet());
+        return cacheNames;
+    }
+
+    /**
+     * @return the invalidated keys of a cache, empty if the cache is cleared
+     */
+    public Set<Serializable> getKeys(String cacheName)
+    {
+        Set<Serializable> keys = keysByCache.get(cacheName);
+        return keys == null ? Collections.emptySet() : Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * @return the number of invalidated keys, across all the caches
+     */
+    public int getKeyCount()
+    {
+        int count = 0;
+        for (Set<Serializable> keys : keysByCache.values())
+        {
+            count += keys.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return <tt>true</tt> if all the entries of the cache are invalidated
+     */
+    public boolean isCleared(String cacheName)
+    {
+        return clearedCaches.contains(cacheName);
+    }
+
+    /**
+     * @return the identifier of the instance that published the message
+     */
+    public String getSourceId()
+    {
+        return sourceId;
+    }
+
+    public void setSourceId(String sourceId)
+    {
+        this.sourceId = sourceId;
+    }
+
+    /**
+     * @return the number of the message among those sent by its instance, starting at 1, so that receivers can tell when messages were lost
+     */
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    public void setSequence(long sequence)
+    {
+        this.sequence = sequence;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheInvalidationMessage[sourceId=" + sourceId + ", sequence=" + sequence + ", keys=" + keysByCache + ", cleared=" + clearedCaches + "]";
+    }
+}
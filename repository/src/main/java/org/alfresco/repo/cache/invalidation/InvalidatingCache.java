@@ -0,0 +1,191 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.invalidation;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.repo.cache.SimpleCache;
+
+/**
+ * A local {@link SimpleCache} kept coherent with the same cache on other instances through a {@link CacheInvalidationBus}.
+ * <p>
+ * Removals, clears and puts that replace a different value are published to the other instances, which remove the keys from their own copy of the cache. Puts of keys that were not cached are not published: they are reads of committed data. Within a transaction the invalidations are added to its {@link CacheInvalidationBatch}, otherwise they are published straight away.
+ */
+public class InvalidatingCache<K extends Serializable, V> implements SimpleCache<K, V>, CacheInvalidationListener
+{
+    private final SimpleCache<K, V> cache;
+    private final String cacheName;
+    private final CacheInvalidationBus bus;
+    private final int maxKeysPerCache;
+
+    /**
+     * @param cache
+     *            the local cache
+     * @param cacheName
+     *            the name of the cache, which must be the same on all instances
+     * @param bus
+     *            exchanges the invalidations with the other instances
+     * @param maxKeysPerCache
+     *            the number of keys invalidated by a transaction above which the whole cache is invalidated instead
+     */
+    public InvalidatingCache(SimpleCache<K, V> cache, String cacheName, CacheInvalidationBus bus, int maxKeysPerCache)
+    {
+        this.cache = cache;
+        this.cacheName = cacheName;
+        this.bus = bus;
+        this.maxKeysPerCache = maxKeysPerCache;
+        bus.subscribe(cacheName, this);
+    }
+
+    /**
+     * @return the local cache
+     */
+    public SimpleCache<K, V> getCache()
+    {
+        return cache;
+    }
+
+    public String getCacheName()
+    {
+        return cacheName;
+    }
+
+    /**
+     * Make sure that the invalidations of the current transaction are batched. This must be called while the transaction is active, before it starts completing.
+     */
+    public void bindTransaction()
+    {
+        CacheInvalidationBatch.bind(bus, maxKeysPerCache);
+    }
+
+    /**
+     * Invalidate a key on the other instances, without changing the local cache.
+     */
+    public void invalidateOnPeers(Serializable key)
+    {
+        CacheInvalidationBatch batch = CacheInvalidationBatch.getCurrent();
+        if (batch != null)
+        {
+            batch.addKey(cacheName, key);
+        }
+        else
+        {
+            CacheInvalidationMessage message = new CacheInvalidationMessage();
+            message.addKey(cacheName, key);
+            bus.publish(message);
+        }
+    }
+
+    private void invalidateAllOnPeers()
+    {
+        CacheInvalidationBatch batch = CacheInvalidationBatch.getCurrent();
+        if (batch != null)
+        {
+            batch.addClear(cacheName);
+        }
+        else
+        {
+            CacheInvalidationMessage message = new CacheInvalidationMessage();
+            message.addClear(cacheName);
+            bus.publish(message);
+        }
+    }
+
+    @Override
+    public boolean contains(K key)
+    {
+        return cache.contains(key);
+    }
+
+    @Override
+    public Collection<K> getKeys()
+    {
+        return cache.getKeys();
+    }
+
+    @Override
+    public V get(K key)
+    {
+        return cache.get(key);
+    }
+
+    @Override
+    public void put(K key, V value)
+    {
+        boolean updated;
+        if (cache instanceof DefaultSimpleCache)
+        {
+            updated = ((DefaultSimpleCache<K, V>) cache).putAndCheckUpdate(key, value);
+        }
+        else
+        {
+            updated = cache.contains(key);
+            cache.put(key, value);
+        }
+        if (updated)
+        {
+            invalidateOnPeers(key);
+        }
+    }
+
+    @Override
+    public void remove(K key)
+    {
+        cache.remove(key);
+        invalidateOnPeers(key);
+    }
+
+    @Override
+    public void clear()
+    {
+        cache.clear();
+        invalidateAllOnPeers();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void invalidate(Collection<Serializable> keys)
+    {
+        for (Serializable key : keys)
+        {
+            cache.remove((K) key);
+        }
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        cache.clear();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "InvalidatingCache[" + cache + "]";
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.invalidation;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.util.Arrays;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * {@link CacheInvalidationBus} sending the invalidations as UDP multicast datagrams, for repository instances on the same network.
+ * <p>
+ * Multicast delivery is not guaranteed. A dropped datagram shows up as a gap in the numbers of the messages, and the receiving instance then clears all its shared caches, so the bus is suited to networks where datagrams are rarely dropped. The group should only be reachable from the repository instances.
+ */
+public class MulticastCacheInvalidationBus extends AbstractCacheInvalidationBus
+{
+    private static final Log logger = LogFactory.getLog(MulticastCacheInvalidationBus.class);
+
+    /** The largest payload of a UDP datagram */
+    private static final int MAX_DATAGRAM_BYTES = 65507;
+
+    private String groupAddress = "239.255.27.1";
+    private int port = 45570;
+    private String networkInterface;
+    private int timeToLive = 1;
+
+    private MulticastSocket socket;
+    private InetSocketAddress group;
+    private NetworkInterface groupInterface;
+    private Thread receiver;
+
+    /**
+     * @param groupAddress
+     *            the multicast group shared by the instances
+     */
+    public void setGroupAddress(String groupAddress)
+    {
+        this.groupAddress = groupAddress;
+    }
+
+    /**
+     * @param port
+     *            the port of the multicast group
+     */
+    public void setPort(int port)
+    {
+        this.port = port;
+    }
+
+    /**
+     * @param networkInterface
+     *            the name of the network interface to use, empty for the default
+     */
+    public void setNetworkInterface(String networkInterface)
+    {
+        this.networkInterface = networkInterface;
+    }
+
+    /**
+     * @param timeToLive
+     *            the number of router hops the datagrams may cross
+     */
+    public void setTimeToLive(int timeToLive)
+    {
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    protected void startReceiving() throws IOException
+    {
+        group = new InetSocketAddress(InetAddress.getByName(groupAddress), port);
+        socket = new MulticastSocket(port);
+        socket.setTimeToLive(timeToLive);
+        if (networkInterface != null && !networkInterface.isBlank())
+        {
+            groupInterface = NetworkInterface.getByName(networkInterface.trim());
+            if (groupInterface == null)
+            {
+                throw new IOException("No such network interface: " + networkInterface);
+            }
+            socket.setNetworkInterface(groupInterface);
+        }
+        socket.joinGroup(group, groupInterface);
+
+        receiver = newThread("CacheInvalidationReceiver", this::receiveDatagrams);
+        receiver.start();
+        if (logger.isInfoEnabled())
+        {
+            logger.info("Exchanging cache invalidations on multicast group " + group);
+        }
+    }
+
+    private void receiveDatagrams()
+    {
+        byte[] buffer = new byte[MAX_DATAGRAM_BYTES];
+        while (!socket.isClosed())
+        {
+            try
+            {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                receive(Arrays.copyOfRange(packet.getData(), packet.getOffset(), packet.getOffset() + packet.getLength()));
+            }
+            catch (IOException e)
+            {
+                if (!socket.isClosed())
+                {
+                    logger.warn("Failed to receive cache invalidations", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void stopReceiving()
+    {
+        if (socket == null)
+        {
+            return;
+        }
+        try
+        {
+            socket.leaveGroup(group, groupInterface);
+        }
+        catch (IOException e)
+        {
+            logger.debug("Failed to leave the multicast group", e);
+        }
+        socket.close();
+    }
+
+    @Override
+    protected void send(byte[] bytes) throws IOException
+    {
+        socket.send(new DatagramPacket(bytes, bytes.length, group));
+    }
+}
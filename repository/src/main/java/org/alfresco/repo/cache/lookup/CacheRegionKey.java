@@ -45,6 +45,16 @@ public class CacheRegionKey implements Serializable
         this.hashCode = cacheRegion.hashCode() + cacheKey.hashCode();
     }
 
+    public String getCacheRegion()
+    {
+        return cacheRegion;
+    }
+
+    public Serializable getCacheKey()
+    {
+        return cacheKey;
+    }
+
     @Override
     public String toString()
     {
@@ -27,6 +27,9 @@ package org.alfresco.repo.cache.lookup;
 
 import java.io.Serializable;
 import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.extensions.surf.util.ParameterCheck;
@@ -630,6 +633,11 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
     @SuppressWarnings("unchecked")
     public V getValue(K key)
     {
+        // Handle missing cache
+        if (cache == null)
+        {
+            return null;
+        }
         CacheRegionKey keyCacheKey = new CacheRegionKey(cacheRegion, key);
         // Look in the cache
         V value = (V) cache.get(keyCacheKey);
@@ -812,6 +820,40 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
         cache.remove(valueCacheKey);
     }
 
+    /**
+     * Cache-only operation: Get the keys of the entities cached in this cache region. Lookups by value are not included.
+     * 
+     * @param maxKeys
+     *            the maximum number of keys to return
+     * @return Returns the entity keys found in the cache
+     */
+    @SuppressWarnings("unchecked")
+    public List<K> getCachedKeys(int maxKeys)
+    {
+        // Handle missing cache
+        if (cache == null)
+        {
+            return Collections.emptyList();
+        }
+        List<K> keys = new ArrayList<K>();
+        for (Serializable cacheKey : cache.getKeys())
+        {
+            if (keys.size() >= maxKeys)
+            {
+                break;
+            }
+            if (cacheKey instanceof CacheRegionKey)
+            {
+                CacheRegionKey regionKey = (CacheRegionKey) cacheKey;
+                if (cacheRegion.equals(regionKey.getCacheRegion()))
+                {
+                    keys.add((K) regionKey.getCacheKey());
+                }
+            }
+        }
+        return keys;
+    }
+
     /**
      * Cache-only operation: Remove all cache entries
      * <p/>
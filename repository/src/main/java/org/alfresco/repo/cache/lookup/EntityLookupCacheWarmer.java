@@ -0,0 +1,400 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.lookup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.extensions.surf.util.AbstractLifecycleBean;
+
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.PropertyCheck;
+import org.alfresco.util.TraceableThreadFactory;
+
+/**
+ * Keeps {@link EntityLookupCache entity caches} warm across restarts.
+ * <p>
+ * The keys (not the values) of the registered caches are periodically written to a snapshot file per cache, and once more on shutdown. On startup, the keys of the previous snapshot are reloaded in the background, through the caches' {@link EntityLookupCache.EntityLookupCallbackDAO callback DAOs}, using a fixed number of threads and limited to a maximum number of loads per second so that the database is not swamped while the server takes on traffic.
+ * <p>
+ * Only <tt>Long</tt> and <tt>String</tt> keys are written to the snapshots. Caches are registered by the DAOs that own them, using {@link #register(String, Supplier)}.
+ */
+public class EntityLookupCacheWarmer extends AbstractLifecycleBean
+{
+    private static final Log logger = LogFactory.getLog(EntityLookupCacheWarmer.class);
+
+    static final String SNAPSHOT_FILE_SUFFIX = ".keys";
+    private static final String LONG_KEY_PREFIX = "L:";
+    private static final String STRING_KEY_PREFIX = "S:";
+
+    private final Map<String, Supplier<EntityLookupCache<?, ?, ?>>> caches = new ConcurrentHashMap<>();
+
+    private TransactionService transactionService;
+    private boolean enabled;
+    private String snapshotDirectory;
+    private int snapshotIntervalSeconds = 600;
+    private int maxKeysPerCache = 50000;
+    private int threads = 2;
+    private int batchSize = 100;
+    private int maxLoadsPerSecond = 500;
+
+    private ScheduledExecutorService snapshotExecutor;
+    private ExecutorService warmupExecutor;
+    private volatile boolean shuttingDown;
+    private long nextLoadNanos;
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * @param enabled
+     *            <tt>true</tt> to take snapshots and warm the caches on startup
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param snapshotDirectory
+     *            the local directory holding the snapshot files
+     */
+    public void setSnapshotDirectory(String snapshotDirectory)
+    {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * @param snapshotIntervalSeconds
+     *            the interval between snapshots; <tt>0</tt> or less to take a snapshot on shutdown only
+     */
+    public void setSnapshotIntervalSeconds(int snapshotIntervalSeconds)
+    {
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    /**
+     * @param maxKeysPerCache
+     *            the maximum number of keys written to, and reloaded from, the snapshot of a cache
+     */
+    public void setMaxKeysPerCache(int maxKeysPerCache)
+    {
+        this.maxKeysPerCache = maxKeysPerCache;
+    }
+
+    /**
+     * @param threads
+     *            the number of threads reloading the keys on startup
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
+    /**
+     * @param batchSize
+     *            the number of keys reloaded per transaction
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param maxLoadsPerSecond
+     *            the maximum number of keys reloaded per second, across all threads; <tt>0</tt> or less for no limit
+     */
+    public void setMaxLoadsPerSecond(int maxLoadsPerSecond)
+    {
+        this.maxLoadsPerSecond = maxLoadsPerSecond;
+    }
+
+    /**
+     * Register a cache to be snapshotted and warmed. The cache is provided by a supplier, as DAOs may replace their cache instances when they are configured.
+     * 
+     * @param name
+     *            a unique name for the cache, used to name its snapshot file
+     * @param cache
+     *            supplies the cache
+     */
+    public void register(String name, Supplier<EntityLookupCache<?, ?, ?>> cache)
+    {
+        caches.put(name, cache);
+    }
+
+    @Override
+    protected void onBootstrap(ApplicationEvent event)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        PropertyCheck.mandatory(this, "snapshotDirectory", snapshotDirectory);
+
+        warmupExecutor = Executors.newFixedThreadPool(Math.max(1, threads), threadFactory("CacheWarmer"));
+        for (Map.Entry<String, Supplier<EntityLookupCache<?, ?, ?>>> entry : caches.entrySet())
+        {
+            File file = getSnapshotFile(entry.getKey());
+            if (!file.exists())
+            {
+                continue;
+            }
+            try
+            {
+                List<Serializable> keys = readKeys(file, maxKeysPerCache);
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Warming cache '" + entry.getKey() + "' with " + keys.size() + " keys.");
+                }
+                for (int i = 0; i < keys.size(); i += batchSize)
+                {
+                    List<Serializable> batch = keys.subList(i, Math.min(keys.size(), i + batchSize));
+                    String name = entry.getKey();
+                    warmupExecutor.execute(() -> warm(name, entry.getValue().get(), batch));
+                }
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to read the cache snapshot: " + file, e);
+            }
+        }
+        // Let the threads finish the submitted work and exit
+        warmupExecutor.shutdown();
+
+        if (snapshotIntervalSeconds > 0)
+        {
+            snapshotExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory("CacheSnapshot"));
+            snapshotExecutor.scheduleWithFixedDelay(this::snapshot, snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    protected void onShutdown(ApplicationEvent event)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        shuttingDown = true;
+        if (warmupExecutor != null)
+        {
+            warmupExecutor.shutdownNow();
+        }
+        if (snapshotExecutor != null)
+        {
+            snapshotExecutor.shutdownNow();
+        }
+        snapshot();
+    }
+
+    /**
+     * Write the keys of all the registered caches to their snapshot files.
+     */
+    public void snapshot()
+    {
+        File directory = new File(snapshotDirectory);
+        if (!directory.exists() && !directory.mkdirs())
+        {
+            logger.warn("Unable to create the cache snapshot directory: " + directory);
+            return;
+        }
+        for (Map.Entry<String, Supplier<EntityLookupCache<?, ?, ?>>> entry : caches.entrySet())
+        {
+            File file = getSnapshotFile(entry.getKey());
+            try
+            {
+                List<?> keys = entry.getValue().get().getCachedKeys(maxKeysPerCache);
+                writeKeys(file, keys);
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Saved " + keys.size() + " keys of cache '" + entry.getKey() + "' to " + file);
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                logger.warn("Failed to save the cache snapshot: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Reload a batch of keys in a read-only transaction.
+     */
+    @SuppressWarnings("unchecked")
+    void warm(String name, EntityLookupCache<?, ?, ?> cache, List<Serializable> keys)
+    {
+        EntityLookupCache<Serializable, ?, ?> entityCache = (EntityLookupCache<Serializable, ?, ?>) cache;
+        RetryingTransactionCallback<Void> callback = () -> {
+            for (Serializable key : keys)
+            {
+                if (shuttingDown)
+                {
+                    break;
+                }
+                acquireLoadPermit();
+                entityCache.getByKey(key);
+            }
+            return null;
+        };
+        try
+        {
+            transactionService.getRetryingTransactionHelper().doInTransaction(callback, true, true);
+        }
+        catch (RuntimeException e)
+        {
+            if (shuttingDown)
+            {
+                return;
+            }
+            logger.warn("Failed to warm cache '" + name + "'", e);
+        }
+    }
+
+    /**
+     * Wait until another load is allowed by {@link #setMaxLoadsPerSecond(int) maxLoadsPerSecond}.
+     */
+    private void acquireLoadPermit() throws InterruptedException
+    {
+        if (maxLoadsPerSecond <= 0)
+        {
+            return;
+        }
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / maxLoadsPerSecond;
+        long waitNanos;
+        synchronized (this)
+        {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextLoadNanos);
+            nextLoadNanos = slot + intervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0)
+        {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    File getSnapshotFile(String name)
+    {
+        return new File(snapshotDirectory, name + SNAPSHOT_FILE_SUFFIX);
+    }
+
+    /**
+     * Write the keys to the file, one per line. The file is replaced atomically, so a crash never leaves a partial snapshot behind.
+     */
+    static void writeKeys(File file, Collection<?> keys) throws IOException
+    {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8))
+        {
+            for (Object key : keys)
+            {
+                String line = toLine(key);
+                if (line != null)
+                {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read at most <tt>maxKeys</tt> keys from the file. Lines that cannot be parsed are ignored.
+     */
+    static List<Serializable> readKeys(File file, int maxKeys) throws IOException
+    {
+        List<Serializable> keys = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))
+        {
+            String line;
+            while (keys.size() < maxKeys && (line = reader.readLine()) != null)
+            {
+                if (line.startsWith(LONG_KEY_PREFIX))
+                {
+                    try
+                    {
+                        keys.add(Long.valueOf(line.substring(LONG_KEY_PREFIX.length())));
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        // Ignore it
+                    }
+                }
+                else if (line.startsWith(STRING_KEY_PREFIX))
+                {
+                    keys.add(line.substring(STRING_KEY_PREFIX.length()));
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static String toLine(Object key)
+    {
+        if (key instanceof Long)
+        {
+            return LONG_KEY_PREFIX + key;
+        }
+        else if (key instanceof String && ((String) key).indexOf('\n') < 0 && ((String) key).indexOf('\r') < 0)
+        {
+            return STRING_KEY_PREFIX + key;
+        }
+        return null;
+    }
+
+    private static TraceableThreadFactory threadFactory(String namePrefix)
+    {
+        TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+        threadFactory.setThreadDaemon(true);
+        threadFactory.setNamePrefix(namePrefix);
+        threadFactory.setThreadPriority(Thread.MIN_PRIORITY);
+        return threadFactory;
+    }
+}
@@ -34,6 +34,11 @@ public interface ActivitiesDAO
 {
     public static final String KEY_ACTIVITY_NULL_VALUE = "@@NULL@@";
 
+    /**
+     * Feed user of a site feed entry that is shared by all members of the site, rather than copied to each of their user feeds
+     */
+    public static final String KEY_ACTIVITY_SITE_MEMBERS_VALUE = "@@MEMBERS@@";
+
     public void startTransaction() throws SQLException;
 
     public void commitTransaction() throws SQLException;
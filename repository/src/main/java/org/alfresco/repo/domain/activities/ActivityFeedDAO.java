@@ -45,6 +45,13 @@ public interface ActivityFeedDAO extends ActivitiesDAO
 
     public long insertFeedEntry(ActivityFeedEntity activityFeed) throws SQLException;
 
+    /**
+     * Insert many feed entries using multi-row inserts. The IDs of the new entries are not set.
+     * 
+     * @return the number of entries inserted
+     */
+    public int insertFeedEntries(List<ActivityFeedEntity> activityFeeds) throws SQLException;
+
     public int deleteFeedEntries(Integer maxIdRange) throws SQLException;
 
     public int deleteFeedEntries(Date keepDate) throws SQLException;
@@ -63,11 +70,38 @@ public interface ActivityFeedDAO extends ActivitiesDAO
 
     public List<ActivityFeedEntity> selectUserFeedEntries(String feedUserId, String siteId, boolean excludeThisUser, boolean excludeOtherUsers, long minFeedId, int maxFeedItems) throws SQLException;
 
+    /**
+     * Select the user's own feed entries together with the entries shared by the members of the given sites
+     * 
+     * @param memberSiteIds
+     *            the (tenant-specific) sites that the user is a member of
+     * @param excludedAppTools
+     *            the app tools whose shared entries are left out, for all sites if the site network is the null value or else for that (tenant-specific) site
+     */
+    public List<ActivityFeedEntity> selectUserFeedEntries(String feedUserId, List<String> memberSiteIds, List<FeedControlEntity> excludedAppTools, String siteId, boolean excludeThisUser, boolean excludeOtherUsers, long minFeedId, int maxFeedItems) throws SQLException;
+
     public List<ActivityFeedEntity> selectSiteFeedEntries(String siteUserId, int maxFeedItems) throws SQLException;
 
     public PagingResults<ActivityFeedEntity> selectPagedUserFeedEntries(String feedUserId, String networkId, String siteId, boolean excludeThisUser, boolean excludeOtherUsers, long minFeedId, PagingRequest pagingRequest) throws SQLException;
 
+    /**
+     * Select a page of the user's own feed entries together with the entries shared by the members of the given sites
+     * 
+     * @param memberSiteIds
+     *            the (tenant-specific) sites that the user is a member of
+     * @param excludedAppTools
+     *            the app tools whose shared entries are left out, for all sites if the site network is the null value or else for that (tenant-specific) site
+     */
+    public PagingResults<ActivityFeedEntity> selectPagedUserFeedEntries(String feedUserId, List<String> memberSiteIds, List<FeedControlEntity> excludedAppTools, String networkId, String siteId, boolean excludeThisUser, boolean excludeOtherUsers, long minFeedId, PagingRequest pagingRequest) throws SQLException;
+
     public Long countSiteFeedEntries(String siteId, int maxFeedSize) throws SQLException;
 
     public Long countUserFeedEntries(String feedUserId, String siteId, boolean excludeThisUser, boolean excludeOtherUsers, long minFeedId, int maxFeedSize) throws SQLException;
+
+    /**
+     * Count the user's own feed entries together with the entries shared by the members of the given sites
+     * 
+     * @see #selectUserFeedEntries(String, List, List, String, boolean, boolean, long, int)
+     */
+    public Long countUserFeedEntries(String feedUserId, List<String> memberSiteIds, List<FeedControlEntity> excludedAppTools, String siteId, boolean excludeThisUser, boolean excludeOtherUsers, long minFeedId, int maxFeedSize) throws SQLException;
 }
@@ -25,6 +25,8 @@
  */
 package org.alfresco.repo.domain.activities;
 
+import java.util.List;
+
 /**
  * Entity bean to carry query parameters for <tt>alf_activity_feed</tt>
  *
@@ -37,12 +39,20 @@ public class ActivityFeedQueryEntity
     private int maxFeedSize;
     private String feedUserId;
     private String siteNetwork;
+    private List<String> memberSiteNetworks;
+    private List<FeedControlEntity> excludedAppTools;
+    private Boolean postByFeedUser;
 
     public String getNullValue()
     {
         return ActivitiesDAO.KEY_ACTIVITY_NULL_VALUE;
     }
 
+    public String getMembersValue()
+    {
+        return ActivitiesDAO.KEY_ACTIVITY_SITE_MEMBERS_VALUE;
+    }
+
     public Long getMinId()
     {
         return minId;
@@ -92,4 +102,43 @@ public class ActivityFeedQueryEntity
     {
         this.siteNetwork = siteNetwork;
     }
+
+    /**
+     * @return the sites whose shared member entries are included in the feed user's feed
+     */
+    public List<String> getMemberSiteNetworks()
+    {
+        return memberSiteNetworks;
+    }
+
+    public void setMemberSiteNetworks(List<String> memberSiteNetworks)
+    {
+        this.memberSiteNetworks = memberSiteNetworks;
+    }
+
+    /**
+     * @return the app tools, each for all sites (null value site network) or for one site, whose shared member entries are left out of the feed user's feed
+     */
+    public List<FeedControlEntity> getExcludedAppTools()
+    {
+        return excludedAppTools;
+    }
+
+    public void setExcludedAppTools(List<FeedControlEntity> excludedAppTools)
+    {
+        this.excludedAppTools = excludedAppTools;
+    }
+
+    /**
+     * @return <tt>true</tt> for only the feed user's own posts, <tt>false</tt> for only posts by other users or <tt>null</tt> for all posts
+     */
+    public Boolean getPostByFeedUser()
+    {
+        return postByFeedUser;
+    }
+
+    public void setPostByFeedUser(Boolean postByFeedUser)
+    {
+        this.postByFeedUser = postByFeedUser;
+    }
 }
@@ -60,4 +60,11 @@ public interface ActivityPostDAO extends ActivitiesDAO
     public int updatePost(long id, String network, String activityData, ActivityPostEntity.STATUS status) throws SQLException;
 
     public int updatePostStatus(long id, ActivityPostEntity.STATUS status) throws SQLException;
+
+    /**
+     * Set the status of many posts at once
+     * 
+     * @return the number of posts updated
+     */
+    public int updatePostsStatus(List<Long> ids, ActivityPostEntity.STATUS status) throws SQLException;
 }
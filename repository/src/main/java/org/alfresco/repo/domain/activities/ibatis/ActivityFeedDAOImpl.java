@@ -27,6 +27,7 @@ package org.alfresco.repo.domain.activities.ibatis;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -42,12 +43,14 @@ import org.alfresco.query.PagingResults;
 import org.alfresco.repo.domain.activities.ActivityFeedDAO;
 import org.alfresco.repo.domain.activities.ActivityFeedEntity;
 import org.alfresco.repo.domain.activities.ActivityFeedQueryEntity;
+import org.alfresco.repo.domain.activities.FeedControlEntity;
 import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.util.Pair;
 
 public class ActivityFeedDAOImpl extends ActivitiesDAOImpl implements ActivityFeedDAO
 {
     private static final int DEFAULT_FETCH_BATCH_SIZE = 150;
+    private static final int MAX_ROWS_PER_INSERT = 100;
 
     private TenantService tenantService;
     private int fetchBatchSize = DEFAULT_FETCH_BATCH_SIZE;
@@ -69,6 +72,25 @@ public class ActivityFeedDAOImpl extends ActivitiesDAOImpl implements ActivityFe
         return (id != null ? id : -1);
     }
 
+    public int insertFeedEntries(List<ActivityFeedEntity> activityFeeds) throws SQLException
+    {
+        int inserted = 0;
+        for (int i = 0; i < activityFeeds.size(); i += MAX_ROWS_PER_INSERT)
+        {
+            List<ActivityFeedEntity> rows = activityFeeds.subList(i, Math.min(i + MAX_ROWS_PER_INSERT, activityFeeds.size()));
+            if (rows.size() == 1)
+            {
+                insertFeedEntry(rows.get(0));
+            }
+            else
+            {
+                template.insert("alfresco.activities.insert.insert_activity_feeds", rows);
+            }
+            inserted += rows.size();
+        }
+        return inserted;
+    }
+
     @Override
     public int deleteFeedEntries(Integer maxIdRange) throws SQLException
     {
@@ -204,6 +226,23 @@ public class ActivityFeedDAOImpl extends ActivitiesDAOImpl implements ActivityFe
         throw new AlfrescoRuntimeException("Unexpected: invalid arguments");
     }
 
+    @Override
+    public Long countUserFeedEntries(String feedUserId, List<String> memberSiteIds, List<FeedControlEntity> excludedAppTools, String siteId, boolean excludeThisUser, boolean excludeOtherUsers, long minFeedId, int maxFeedSize) throws SQLException
+    {
+        ActivityFeedQueryEntity params = getMemberSitesQueryParams(feedUserId, memberSiteIds, excludedAppTools, siteId, excludeThisUser, excludeOtherUsers, minFeedId);
+        if (params == null)
+        {
+            // no shared entries to include
+            return countUserFeedEntries(feedUserId, siteId, excludeThisUser, excludeOtherUsers, minFeedId, maxFeedSize);
+        }
+        if (excludeThisUser && excludeOtherUsers)
+        {
+            return Long.valueOf(0);
+        }
+
+        return template.selectOne("alfresco.activities.select.count_activity_feed_for_feeduser_and_member_sites", params);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public List<ActivityFeedEntity> selectSiteFeedsToClean(int maxFeedSize) throws SQLException
@@ -285,6 +324,69 @@ public class ActivityFeedDAOImpl extends ActivitiesDAOImpl implements ActivityFe
         throw new AlfrescoRuntimeException("Unexpected: invalid arguments");
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<ActivityFeedEntity> selectUserFeedEntries(String feedUserId, List<String> memberSiteIds, List<FeedControlEntity> excludedAppTools, String siteId, boolean excludeThisUser, boolean excludeOtherUsers, long minFeedId, int maxFeedSize) throws SQLException
+    {
+        ActivityFeedQueryEntity params = getMemberSitesQueryParams(feedUserId, memberSiteIds, excludedAppTools, siteId, excludeThisUser, excludeOtherUsers, minFeedId);
+        if (params == null)
+        {
+            // no shared entries to include
+            return selectUserFeedEntries(feedUserId, siteId, excludeThisUser, excludeOtherUsers, minFeedId, maxFeedSize);
+        }
+        if (excludeThisUser && excludeOtherUsers)
+        {
+            // effectively NOOP - return empty feed
+            return new ArrayList<ActivityFeedEntity>(0);
+        }
+
+        int rowLimit = maxFeedSize < 0 ? RowBounds.NO_ROW_LIMIT : maxFeedSize;
+        RowBounds rowBounds = new RowBounds(RowBounds.NO_ROW_OFFSET, rowLimit);
+
+        return template.selectList("alfresco.activities.select.select_activity_feed_for_feeduser_and_member_sites", params, rowBounds);
+    }
+
+    /**
+     * @return the query parameters for the user's own and shared member site entries or <tt>null</tt> if no member site is relevant
+     */
+    private ActivityFeedQueryEntity getMemberSitesQueryParams(String feedUserId, List<String> memberSiteIds, List<FeedControlEntity> excludedAppTools, String siteId, boolean excludeThisUser, boolean excludeOtherUsers, long minFeedId)
+    {
+        if (memberSiteIds == null || memberSiteIds.isEmpty())
+        {
+            return null;
+        }
+        if (siteId != null)
+        {
+            if (!memberSiteIds.contains(siteId))
+            {
+                return null;
+            }
+            memberSiteIds = Collections.singletonList(siteId);
+        }
+
+        ActivityFeedQueryEntity params = new ActivityFeedQueryEntity();
+        params.setFeedUserId(feedUserId);
+        params.setSiteNetwork(siteId);
+        params.setMemberSiteNetworks(memberSiteIds);
+        if (excludedAppTools != null && !excludedAppTools.isEmpty())
+        {
+            params.setExcludedAppTools(excludedAppTools);
+        }
+        if (excludeThisUser)
+        {
+            params.setPostByFeedUser(Boolean.FALSE);
+        }
+        else if (excludeOtherUsers)
+        {
+            params.setPostByFeedUser(Boolean.TRUE);
+        }
+        if (minFeedId > -1)
+        {
+            params.setMinId(minFeedId);
+        }
+        return params;
+    }
+
     private PagingResults<ActivityFeedEntity> getPagingResults(PagingRequest pagingRequest, final List<ActivityFeedEntity> feedEntries)
     {
         int maxItems = pagingRequest.getMaxItems();
@@ -454,6 +556,24 @@ public class ActivityFeedDAOImpl extends ActivitiesDAOImpl implements ActivityFe
         throw new AlfrescoRuntimeException("Unexpected: invalid arguments");
     }
 
+    @Override
+    public PagingResults<ActivityFeedEntity> selectPagedUserFeedEntries(String feedUserId, List<String> memberSiteIds, List<FeedControlEntity> excludedAppTools, String networkId, String siteId, boolean excludeThisUser, boolean excludeOtherUsers, long minFeedId, PagingRequest pagingRequest) throws SQLException
+    {
+        ActivityFeedQueryEntity params = getMemberSitesQueryParams(feedUserId, memberSiteIds, excludedAppTools, siteId, excludeThisUser, excludeOtherUsers, minFeedId);
+        if (params == null)
+        {
+            // no shared entries to include
+            return selectPagedUserFeedEntries(feedUserId, networkId, siteId, excludeThisUser, excludeOtherUsers, minFeedId, pagingRequest);
+        }
+        if (excludeThisUser && excludeOtherUsers)
+        {
+            // effectively NOOP - return empty feed
+            return new EmptyPagingResults<ActivityFeedEntity>();
+        }
+
+        return getPagingResults(pagingRequest, filterByNetwork(networkId, siteId, "alfresco.activities.select.select_activity_feed_for_feeduser_and_member_sites", params, pagingRequest));
+    }
+
     @Override
     public Long countSiteFeedEntries(String siteId, int maxFeedSize) throws SQLException
     {
@@ -28,7 +28,9 @@ package org.alfresco.repo.domain.activities.ibatis;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.session.RowBounds;
 
@@ -41,6 +43,8 @@ import org.alfresco.repo.domain.activities.ActivityPostEntity;
  */
 public class ActivityPostDAOImpl extends ActivitiesDAOImpl implements ActivityPostDAO
 {
+    private static final int MAX_IDS_PER_UPDATE = 500;
+
     @SuppressWarnings("unchecked")
     public List<ActivityPostEntity> selectPosts(ActivityPostEntity activityPost, int maxItems) throws SQLException
     {
@@ -101,6 +105,21 @@ public class ActivityPostDAOImpl extends ActivitiesDAOImpl implements ActivityPo
         return template.update("alfresco.activities.update_activity_post_status", post);
     }
 
+    public int updatePostsStatus(List<Long> ids, ActivityPostEntity.STATUS status) throws SQLException
+    {
+        Date lastModified = new Date();
+        int updated = 0;
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_UPDATE)
+        {
+            Map<String, Object> params = new HashMap<String, Object>(5);
+            params.put("ids", ids.subList(i, Math.min(i + MAX_IDS_PER_UPDATE, ids.size())));
+            params.put("status", status.toString());
+            params.put("lastModified", lastModified);
+            updated += template.update("alfresco.activities.update_activity_posts_status", params);
+        }
+        return updated;
+    }
+
     public int deletePosts(Date keepDate, ActivityPostEntity.STATUS status) throws SQLException
     {
         ActivityPostEntity params = new ActivityPostEntity();
@@ -67,6 +67,8 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
     private ContentService contentService;
     private ContentDataDAO contentDataDAO;
     protected PropertyValueDAO propertyValueDAO;
+    private boolean compactValues;
+    private boolean bucketsEnabled;
 
     public void setContentService(ContentService contentService)
     {
@@ -83,6 +85,33 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
         this.propertyValueDAO = propertyValueDAO;
     }
 
+    /**
+     * Set whether the values of new audit entries are stored as a single {@link CompactAuditValues} property instead of a row per value in the property tables. Entries stored this way are cheaper to write and read but cannot be found by searching on their values.
+     * 
+     * @param compactValues
+     *            <tt>true</tt> to store new audit values in compact form (default: <tt>false</tt>)
+     */
+    public void setCompactValues(boolean compactValues)
+    {
+        this.compactValues = compactValues;
+    }
+
+    /**
+     * Set whether the sealed {@link AuditBucketEntity buckets} of the audit applications are used to narrow queries by time to a range of IDs.
+     * 
+     * @param bucketsEnabled
+     *            <tt>true</tt> to use the sealed buckets (default: <tt>false</tt>)
+     */
+    public void setBucketsEnabled(boolean bucketsEnabled)
+    {
+        this.bucketsEnabled = bucketsEnabled;
+    }
+
+    protected boolean isBucketsEnabled()
+    {
+        return bucketsEnabled;
+    }
+
     protected PropertyValueDAO getPropertyValueDAO()
     {
         return this.propertyValueDAO;
@@ -299,7 +328,8 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
         Long valuesId = null;
         if (values != null && values.size() > 0)
         {
-            valuesId = propertyValueDAO.createProperty((Serializable) values);
+            Serializable persistedValues = compactValues ? new CompactAuditValues(values) : (Serializable) values;
+            valuesId = propertyValueDAO.createProperty(persistedValues);
         }
 
         // Create the audit entry
@@ -353,6 +383,22 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
 
     protected abstract int deleteAuditEntriesImpl(List<Long> auditEntryIds);
 
+    /**
+     * Convert a persisted audit values property, in either the normalized or the {@link CompactAuditValues compact} form, into the audited values
+     * 
+     * @throws ClassCastException
+     *             if the property is neither form of audit values
+     */
+    @SuppressWarnings("unchecked")
+    protected static Map<String, Serializable> toAuditValues(Serializable value)
+    {
+        if (value instanceof CompactAuditValues)
+        {
+            return ((CompactAuditValues) value).toMap();
+        }
+        return (Map<String, Serializable>) value;
+    }
+
     /* Searches */
 
     /**
@@ -402,15 +448,14 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
                                     "Audit entry not joined to audit properties: " + row, null);
                             return;
                         }
-                        auditValues = (Map<String, Serializable>) auditValuesPair.getSecond();
+                        auditValues = toAuditValues(auditValuesPair.getSecond());
                     }
                     else
                     {
                         // Resolve the map
                         try
                         {
-                            auditValues = (Map<String, Serializable>) propertyValueDAO
-                                    .convertPropertyIdSearchRows(propMapRows);
+                            auditValues = toAuditValues(propertyValueDAO.convertPropertyIdSearchRows(propMapRows));
                         }
                         catch (ClassCastException e)
                         {
@@ -500,6 +545,10 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
         dbParameters.setAuditToId(restParameters.getToId());
         dbParameters.setAuditFromTime(restParameters.getFromTime());
         dbParameters.setAuditToTime(restParameters.getToTime());
+        if (bucketsEnabled && appName != null && restParameters.getFromTime() != null)
+        {
+            narrowToAuditBuckets(appName, dbParameters);
+        }
 
         String searchKey = null;
         Serializable searchValue = null;
@@ -536,4 +585,43 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
 
         return dbParameters;
     }
+
+    /**
+     * Narrow a query by time to the IDs recorded by the sealed buckets it overlaps, so that the database can walk the primary key instead of the time index. No entry of the time range can have a lower ID than the lowest of those buckets. The highest ID does not bound the query, as entries may be written after their period was sealed. The time range of the query is kept, as the buckets only bound the IDs.
+     */
+    void narrowToAuditBuckets(String appName, AuditQueryParameters dbParameters)
+    {
+        AuditApplicationEntity application = getAuditApplicationByName(appName);
+        if (application == null)
+        {
+            return;
+        }
+        Long fromTime = dbParameters.getAuditFromTime();
+        if (fromTime == null)
+        {
+            return;
+        }
+        Long minEntryId = null;
+        for (AuditBucketEntity bucket : getAuditBuckets(application.getId(), fromTime, dbParameters.getAuditToTime()))
+        {
+            if (bucket.isEmpty())
+            {
+                continue;
+            }
+            minEntryId = (minEntryId == null) ? bucket.getMinEntryId() : Math.min(minEntryId, bucket.getMinEntryId());
+        }
+        if (minEntryId == null)
+        {
+            // The time range only covers empty or unsealed periods
+            return;
+        }
+        if (dbParameters.getAuditFromId() == null || dbParameters.getAuditFromId() < minEntryId)
+        {
+            dbParameters.setAuditFromId(minEntryId);
+        }
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Narrowed audit query to sealed buckets: " + dbParameters);
+        }
+    }
 }
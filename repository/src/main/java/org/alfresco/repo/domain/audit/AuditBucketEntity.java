@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.audit;
+
+import java.util.Date;
+
+/**
+ * Entity bean for <b>alf_audit_bucket</b> table.
+ * <p>
+ * A bucket is a sealed period of time of an audit application, recording the range of the IDs of the entries audited during that period. The IDs are <tt>null</tt> if the period has no entries.
+ */
+public class AuditBucketEntity
+{
+    private Long id;
+    private Long auditApplicationId;
+    private long bucketStart;
+    private long bucketEnd;
+    private Long minEntryId;
+    private Long maxEntryId;
+
+    public AuditBucketEntity()
+    {}
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("AuditBucketEntity")
+                .append("[ ID=").append(id)
+                .append(", auditApplicationId=").append(auditApplicationId)
+                .append(", bucketStart=").append(new Date(bucketStart))
+                .append(", bucketEnd=").append(new Date(bucketEnd))
+                .append(", minEntryId=").append(minEntryId)
+                .append(", maxEntryId=").append(maxEntryId)
+                .append("]");
+        return sb.toString();
+    }
+
+    /**
+     * @return <tt>true</tt> if no entries were audited during the period of the bucket
+     */
+    public boolean isEmpty()
+    {
+        return minEntryId == null;
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public void setId(Long id)
+    {
+        this.id = id;
+    }
+
+    public Long getAuditApplicationId()
+    {
+        return auditApplicationId;
+    }
+
+    public void setAuditApplicationId(Long auditApplicationId)
+    {
+        this.auditApplicationId = auditApplicationId;
+    }
+
+    public long getBucketStart()
+    {
+        return bucketStart;
+    }
+
+    public void setBucketStart(long bucketStart)
+    {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getBucketEnd()
+    {
+        return bucketEnd;
+    }
+
+    public void setBucketEnd(long bucketEnd)
+    {
+        this.bucketEnd = bucketEnd;
+    }
+
+    public Long getMinEntryId()
+    {
+        return minEntryId;
+    }
+
+    public void setMinEntryId(Long minEntryId)
+    {
+        this.minEntryId = minEntryId;
+    }
+
+    public Long getMaxEntryId()
+    {
+        return maxEntryId;
+    }
+
+    public void setMaxEntryId(Long maxEntryId)
+    {
+        this.maxEntryId = maxEntryId;
+    }
+}
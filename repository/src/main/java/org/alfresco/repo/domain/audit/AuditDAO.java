@@ -282,4 +282,112 @@ public interface AuditDAO
     {
         return -1;
     }
+
+    /* alf_audit_bucket */
+
+    /**
+     * Seal a period of time of an audit application, recording the range of the IDs of the entries audited during it. The period must be over: the entries of a sealed bucket may be deleted but no more may be added to it.
+     * 
+     * @param applicationId
+     *            an existing audit application ID
+     * @param bucketStart
+     *            the start of the period (inclusive)
+     * @param bucketEnd
+     *            the end of the period (exclusive)
+     * @return Returns the sealed bucket
+     * 
+     * @since 26.1
+     */
+    AuditBucketEntity createAuditBucket(Long applicationId, long bucketStart, long bucketEnd);
+
+    /**
+     * Get the sealed buckets of an audit application overlapping a time range, oldest first.
+     * 
+     * @param applicationId
+     *            an existing audit application ID
+     * @param fromTime
+     *            the start of the time range (inclusive, optional)
+     * @param toTime
+     *            the end of the time range (exclusive, optional)
+     * @return Returns the buckets overlapping the time range
+     * 
+     * @since 26.1
+     */
+    List<AuditBucketEntity> getAuditBuckets(Long applicationId, Long fromTime, Long toTime);
+
+    /**
+     * @param applicationId
+     *            an existing audit application ID
+     * @return Returns the end of the latest sealed bucket of the application or <tt>null</tt> if none is sealed
+     * 
+     * @since 26.1
+     */
+    Long getAuditBucketsEnd(Long applicationId);
+
+    /**
+     * @param applicationId
+     *            an existing audit application ID
+     * @return Returns the time of the oldest entry of the application or <tt>null</tt> if it has no entries
+     * 
+     * @since 26.1
+     */
+    Long getOldestAuditEntryTime(Long applicationId);
+
+    /**
+     * Delete the entries of a sealed bucket within an ID range, so that a bucket can be deleted in many short transactions.
+     * 
+     * @param bucket
+     *            a sealed bucket
+     * @param fromId
+     *            the minimum entry ID (inclusive)
+     * @param toId
+     *            the maximum entry ID (exclusive)
+     * @return Returns the number of entries deleted
+     * 
+     * @since 26.1
+     */
+    int deleteAuditBucketEntries(AuditBucketEntity bucket, long fromId, long toId);
+
+    /**
+     * @param applicationId
+     *            an existing audit application ID
+     * @param fromTime
+     *            the minimum entry time (inclusive, optional)
+     * @param toTime
+     *            the maximum entry time (exclusive, optional)
+     * @return Returns the lowest and the highest IDs of the entries of the application within the time range or <tt>null</tt> if there are none
+     * 
+     * @since 26.1
+     */
+    Pair<Long, Long> getAuditEntryIdRange(Long applicationId, Long fromTime, Long toTime);
+
+    /**
+     * Delete the entries of an application within both a time range and an ID range, so that a time range can be deleted in many short transactions.
+     * 
+     * @param applicationId
+     *            an existing audit application ID
+     * @param fromTime
+     *            the minimum entry time (inclusive, optional)
+     * @param toTime
+     *            the maximum entry time (exclusive, optional)
+     * @param fromId
+     *            the minimum entry ID (inclusive)
+     * @param toId
+     *            the maximum entry ID (exclusive)
+     * @return Returns the number of entries deleted
+     * 
+     * @since 26.1
+     */
+    int deleteAuditEntries(Long applicationId, Long fromTime, Long toTime, long fromId, long toId);
+
+    /**
+     * Delete a sealed bucket, once its entries have been deleted.
+     * 
+     * @param bucketId
+     *            the ID of the bucket
+     * @return Returns the number of buckets deleted
+     * 
+     * @since 26.1
+     */
+    int deleteAuditBucket(Long bucketId);
 }
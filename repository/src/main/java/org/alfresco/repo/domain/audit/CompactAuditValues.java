@@ -0,0 +1,260 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.audit;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The values of an audit entry, stored as a single serialized property value rather than a row per value in the property tables.
+ * <p>
+ * The paths are sorted and each one is written as the length of the prefix it shares with the previous path followed by the rest of the path, so the long common prefixes of audit paths are only written once. Common value types are written without Java serialization.
+ * <p>
+ * Audit entries stored this way cannot be found by searching on their values.
+ *
+ * @see AbstractAuditDAOImpl#setCompactValues(boolean)
+ */
+public final class CompactAuditValues implements Externalizable
+{
+    private static final long serialVersionUID = -4713907151860287214L;
+
+    private static final byte VERSION = 1;
+    // Strings up to this length are guaranteed to fit writeUTF
+    private static final int MAX_UTF_LENGTH = 16384;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_DATE = 5;
+    private static final byte TYPE_OBJECT = 6;
+
+    private String[] paths;
+    private Serializable[] values;
+
+    /**
+     * For deserialization only
+     */
+    public CompactAuditValues()
+    {
+        this.paths = new String[0];
+        this.values = new Serializable[0];
+    }
+
+    /**
+     * @param auditValues
+     *            the audited values keyed by path
+     */
+    public CompactAuditValues(Map<String, Serializable> auditValues)
+    {
+        TreeMap<String, Serializable> sorted = new TreeMap<String, Serializable>(auditValues);
+        this.paths = sorted.keySet().toArray(new String[sorted.size()]);
+        this.values = sorted.values().toArray(new Serializable[sorted.size()]);
+    }
+
+    /**
+     * @return a new map of the audited values keyed by path
+     */
+    public Map<String, Serializable> toMap()
+    {
+        Map<String, Serializable> map = new HashMap<String, Serializable>(paths.length * 2 + 1);
+        for (int i = 0; i < paths.length; i++)
+        {
+            map.put(paths[i], values[i]);
+        }
+        return map;
+    }
+
+    public int size()
+    {
+        return paths.length;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        out.writeByte(VERSION);
+        out.writeInt(paths.length);
+        String previous = "";
+        for (String path : paths)
+        {
+            int common = 0;
+            int max = Math.min(previous.length(), path.length());
+            while (common < max && previous.charAt(common) == path.charAt(common))
+            {
+                common++;
+            }
+            out.writeInt(common);
+            writeString(out, path.substring(common));
+            previous = path;
+        }
+        for (Serializable value : values)
+        {
+            writeValue(out, value);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        byte version = in.readByte();
+        if (version != VERSION)
+        {
+            throw new IOException("Unknown compact audit values version: " + version);
+        }
+        int size = in.readInt();
+        paths = new String[size];
+        values = new Serializable[size];
+        String previous = "";
+        for (int i = 0; i < size; i++)
+        {
+            int common = in.readInt();
+            paths[i] = previous.substring(0, common) + readString(in);
+            previous = paths[i];
+        }
+        for (int i = 0; i < size; i++)
+        {
+            values[i] = readValue(in);
+        }
+    }
+
+    private static void writeString(ObjectOutput out, String value) throws IOException
+    {
+        if (value.length() <= MAX_UTF_LENGTH)
+        {
+            out.writeBoolean(true);
+            out.writeUTF(value);
+        }
+        else
+        {
+            out.writeBoolean(false);
+            out.writeObject(value);
+        }
+    }
+
+    private static String readString(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        return in.readBoolean() ? in.readUTF() : (String) in.readObject();
+    }
+
+    private static void writeValue(ObjectOutput out, Serializable value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(TYPE_NULL);
+        }
+        else if (value instanceof String)
+        {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value.getClass() == Date.class)
+        {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        }
+        else
+        {
+            out.writeByte(TYPE_OBJECT);
+            out.writeObject(value);
+        }
+    }
+
+    private static Serializable readValue(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        byte type = in.readByte();
+        switch (type)
+        {
+        case TYPE_NULL:
+            return null;
+        case TYPE_STRING:
+            return readString(in);
+        case TYPE_LONG:
+            return in.readLong();
+        case TYPE_INTEGER:
+            return in.readInt();
+        case TYPE_BOOLEAN:
+            return in.readBoolean();
+        case TYPE_DATE:
+            return new Date(in.readLong());
+        case TYPE_OBJECT:
+            return (Serializable) in.readObject();
+        default:
+            throw new IOException("Unknown compact audit value type: " + type);
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Arrays.hashCode(paths) + Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof CompactAuditValues))
+        {
+            return false;
+        }
+        CompactAuditValues other = (CompactAuditValues) obj;
+        return Arrays.equals(paths, other.paths) && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CompactAuditValues " + toMap();
+    }
+}
@@ -38,6 +38,7 @@ import org.springframework.dao.ConcurrencyFailureException;
 
 import org.alfresco.repo.domain.audit.AbstractAuditDAOImpl;
 import org.alfresco.repo.domain.audit.AuditApplicationEntity;
+import org.alfresco.repo.domain.audit.AuditBucketEntity;
 import org.alfresco.repo.domain.audit.AuditDeleteParameters;
 import org.alfresco.repo.domain.audit.AuditEntryEntity;
 import org.alfresco.repo.domain.audit.AuditModelEntity;
@@ -68,6 +69,15 @@ public class AuditDAOImpl extends AbstractAuditDAOImpl
     private static final String SELECT_MINMAX_ENTRY_FOR_APP = "alfresco.audit.select_MinMaxAuditEntryId";
     private static final String SELECT_COUNT_ENTRIES_FOR_APP = "alfresco.audit.select_CountAuditEntryId";
     private static final String SELECT_COUNT_ENTRIES_FOR_APP_WITH_PROPERTIES = "select_CountAuditEntryIdWithWhereClause";
+    private static final String SELECT_ENTRY_ID_RANGE = "alfresco.audit.select_AuditEntryIdRange";
+    private static final String SELECT_OLDEST_ENTRY_TIME = "alfresco.audit.select_OldestAuditEntryTime";
+
+    private static final String INSERT_BUCKET = "alfresco.audit.insert.insert_AuditBucket";
+    private static final String SELECT_BUCKETS = "alfresco.audit.select_AuditBuckets";
+    private static final String SELECT_BUCKETS_END = "alfresco.audit.select_AuditBucketsEnd";
+    private static final String SELECT_BUCKETS_ID_RANGE = "alfresco.audit.select_AuditBucketsIdRange";
+    private static final String DELETE_BUCKET = "alfresco.audit.delete_AuditBucket";
+    private static final String DELETE_BUCKETS = "alfresco.audit.delete_AuditBuckets";
 
     @SuppressWarnings("unused")
     private static final String SELECT_ENTRIES_SIMPLE = "alfresco.audit.select_AuditEntriesSimple";
@@ -183,7 +193,13 @@ public class AuditDAOImpl extends AbstractAuditDAOImpl
         params.setAuditApplicationId(applicationId);
         params.setAuditFromTime(from);
         params.setAuditToTime(to);
-        return template.delete(DELETE_ENTRIES, params);
+        int deleted = template.delete(DELETE_ENTRIES, params);
+        if (applicationId != null)
+        {
+            // The buckets lying within the time range are now empty
+            template.delete(DELETE_BUCKETS, getTimeRangeParameters(applicationId, from, to));
+        }
+        return deleted;
     }
 
     public int deleteAuditEntriesByIdRange(Long applicationId, Long fromId, Long toId)
@@ -215,17 +231,52 @@ public class AuditDAOImpl extends AbstractAuditDAOImpl
         return entity;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When the application has sealed buckets, the IDs they record bound the search: the minimum ID cannot be lower than the lowest of the sealed IDs, and the maximum ID is the highest of the sealed IDs unless a newer entry exists.
+     */
     public HashMap<String, Long> getAuditMinMaxByApp(long appId, List<String> extremes)
     {
-        // Build parameters to be used in the query. Filter the duplicates when inserting into map
-        Map<String, Object> params = extremes.stream().collect(Collectors.toMap(s -> s, s -> Boolean.TRUE, (s1, s2) -> s1));
-        params.put("auditAppId", appId);
+        HashMap<String, Long> bucketsIdRange = isBucketsEnabled() ? template.selectOne(SELECT_BUCKETS_ID_RANGE, Map.of("auditAppId", appId)) : null;
+        if (bucketsIdRange == null || bucketsIdRange.get("min") == null)
+        {
+            // Build parameters to be used in the query. Filter the duplicates when inserting into map
+            Map<String, Object> params = extremes.stream().collect(Collectors.toMap(s -> s, s -> Boolean.TRUE, (s1, s2) -> s1));
+            params.put("auditAppId", appId);
 
-        HashMap<String, Long> result = template.selectOne(SELECT_MINMAX_ENTRY_FOR_APP, params);
+            HashMap<String, Long> result = template.selectOne(SELECT_MINMAX_ENTRY_FOR_APP, params);
 
+            return result;
+        }
+        HashMap<String, Long> result = new HashMap<>(3);
+        if (extremes.contains("min"))
+        {
+            result.put("min", selectAuditEntryIdExtreme(appId, "min", bucketsIdRange.get("min")));
+        }
+        if (extremes.contains("max"))
+        {
+            Long max = selectAuditEntryIdExtreme(appId, "max", bucketsIdRange.get("max"));
+            if (max == null)
+            {
+                // All the entries from the highest sealed ID on are gone
+                max = selectAuditEntryIdExtreme(appId, "max", null);
+            }
+            result.put("max", max);
+        }
         return result;
     }
 
+    private Long selectAuditEntryIdExtreme(long appId, String extreme, Long fromId)
+    {
+        Map<String, Object> params = new HashMap<>(5);
+        params.put(extreme, Boolean.TRUE);
+        params.put("auditAppId", appId);
+        params.put("fromId", fromId);
+        HashMap<String, Long> result = template.selectOne(SELECT_MINMAX_ENTRY_FOR_APP, params);
+        return result == null ? null : result.get(extreme);
+    }
+
     @Override
     public int getAuditEntriesCountByApp(long applicationId)
     {
@@ -247,6 +298,92 @@ public class AuditDAOImpl extends AbstractAuditDAOImpl
         return result;
     }
 
+    @Override
+    public AuditBucketEntity createAuditBucket(Long applicationId, long bucketStart, long bucketEnd)
+    {
+        HashMap<String, Long> idRange = template.selectOne(SELECT_ENTRY_ID_RANGE, getTimeRangeParameters(applicationId, bucketStart, bucketEnd));
+
+        AuditBucketEntity entity = new AuditBucketEntity();
+        entity.setAuditApplicationId(applicationId);
+        entity.setBucketStart(bucketStart);
+        entity.setBucketEnd(bucketEnd);
+        if (idRange != null)
+        {
+            entity.setMinEntryId(idRange.get("min"));
+            entity.setMaxEntryId(idRange.get("max"));
+        }
+        template.insert(INSERT_BUCKET, entity);
+        return entity;
+    }
+
+    @Override
+    public List<AuditBucketEntity> getAuditBuckets(Long applicationId, Long fromTime, Long toTime)
+    {
+        return template.selectList(SELECT_BUCKETS, getTimeRangeParameters(applicationId, fromTime, toTime));
+    }
+
+    @Override
+    public Long getAuditBucketsEnd(Long applicationId)
+    {
+        return template.selectOne(SELECT_BUCKETS_END, Map.of("auditAppId", applicationId));
+    }
+
+    @Override
+    public Long getOldestAuditEntryTime(Long applicationId)
+    {
+        return template.selectOne(SELECT_OLDEST_ENTRY_TIME, Map.of("auditAppId", applicationId));
+    }
+
+    @Override
+    public int deleteAuditBucketEntries(AuditBucketEntity bucket, long fromId, long toId)
+    {
+        AuditDeleteParameters params = new AuditDeleteParameters();
+        params.setAuditApplicationId(bucket.getAuditApplicationId());
+        params.setAuditFromTime(bucket.getBucketStart());
+        params.setAuditToTime(bucket.getBucketEnd());
+        params.setAuditFromId(fromId);
+        params.setAuditToId(toId);
+        return template.delete(DELETE_ENTRIES, params);
+    }
+
+    @Override
+    public Pair<Long, Long> getAuditEntryIdRange(Long applicationId, Long fromTime, Long toTime)
+    {
+        HashMap<String, Long> idRange = template.selectOne(SELECT_ENTRY_ID_RANGE, getTimeRangeParameters(applicationId, fromTime, toTime));
+        if (idRange == null || idRange.get("min") == null)
+        {
+            return null;
+        }
+        return new Pair<Long, Long>(idRange.get("min"), idRange.get("max"));
+    }
+
+    @Override
+    public int deleteAuditEntries(Long applicationId, Long fromTime, Long toTime, long fromId, long toId)
+    {
+        AuditDeleteParameters params = new AuditDeleteParameters();
+        params.setAuditApplicationId(applicationId);
+        params.setAuditFromTime(fromTime);
+        params.setAuditToTime(toTime);
+        params.setAuditFromId(fromId);
+        params.setAuditToId(toId);
+        return template.delete(DELETE_ENTRIES, params);
+    }
+
+    @Override
+    public int deleteAuditBucket(Long bucketId)
+    {
+        return template.delete(DELETE_BUCKET, Map.of("id", bucketId));
+    }
+
+    private static Map<String, Object> getTimeRangeParameters(Long applicationId, Long fromTime, Long toTime)
+    {
+        Map<String, Object> params = new HashMap<>(5);
+        params.put("auditAppId", applicationId);
+        params.put("fromTime", fromTime);
+        params.put("toTime", toTime);
+        return params;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     protected void findAuditEntries(
@@ -272,7 +409,7 @@ public class AuditDAOImpl extends AbstractAuditDAOImpl
                     AuditQueryResult row = resultsByValueId.get(id);
                     try
                     {
-                        row.setAuditValue((Map<String, Serializable>) value);
+                        row.setAuditValue(toAuditValues(value));
                     }
                     catch (ClassCastException e)
                     {
@@ -282,22 +419,15 @@ public class AuditDAOImpl extends AbstractAuditDAOImpl
             };
 
             List<AuditQueryResult> rows = template.selectList(SELECT_ENTRIES_WITHOUT_VALUES, params, new RowBounds(0, maxResults));
-            for (AuditQueryResult row : rows)
+            // Entries are handed over without values when the callback does not need them
+            if (rowHandler.valuesRequired())
             {
-                resultsByValueId.put(row.getAuditValuesId(), row);
-                if (resultsByValueId.size() >= 100)
+                for (AuditQueryResult row : rows)
                 {
-                    // Fetch values for the results. The treemap is ordered.
-                    List<Long> valueIds = new ArrayList<Long>(resultsByValueId.keySet());
-                    propertyValueDAO.getPropertiesByIds(valueIds, propertyFinderCallback);
-                    // Clear and continue
-                    resultsByValueId.clear();
+                    resultsByValueId.put(row.getAuditValuesId(), row);
                 }
-            }
-            // Process any remaining results
-            if (resultsByValueId.size() > 0)
-            {
-                // Fetch values for the results. The treemap is ordered.
+                // Fetch values for all the results at once; the DAO splits the IDs into batches as required.
+                // The values are not cached as exports and reports would only push out more useful entries.
                 List<Long> valueIds = new ArrayList<Long>(resultsByValueId.keySet());
                 propertyValueDAO.getPropertiesByIds(valueIds, propertyFinderCallback);
             }
@@ -60,6 +60,7 @@ import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.cache.TransactionalCache;
 import org.alfresco.repo.cache.lookup.EntityLookupCache;
 import org.alfresco.repo.cache.lookup.EntityLookupCache.EntityLookupCallbackDAOAdaptor;
+import org.alfresco.repo.cache.lookup.EntityLookupCacheWarmer;
 import org.alfresco.repo.domain.contentdata.ContentDataDAO;
 import org.alfresco.repo.domain.control.ControlDAO;
 import org.alfresco.repo.domain.locale.LocaleDAO;
@@ -69,6 +70,7 @@ import org.alfresco.repo.domain.qname.QNameDAO;
 import org.alfresco.repo.domain.usage.UsageDAO;
 import org.alfresco.repo.policy.BehaviourFilter;
 import org.alfresco.repo.security.permissions.AccessControlListProperties;
+import org.alfresco.repo.solr.TransactionCommitNotifier;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
@@ -138,6 +140,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     private ContentDataDAO contentDataDAO;
     private LocaleDAO localeDAO;
     private UsageDAO usageDAO;
+    private TransactionCommitNotifier transactionCommitNotifier;
 
     private int cachingThreshold = 10;
 
@@ -306,6 +309,15 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         this.usageDAO = usageDAO;
     }
 
+    /**
+     * @param transactionCommitNotifier
+     *            told about each committed transaction, optional
+     */
+    public void setTransactionCommitNotifier(TransactionCommitNotifier transactionCommitNotifier)
+    {
+        this.transactionCommitNotifier = transactionCommitNotifier;
+    }
+
     /**
      * Set the cache that maintains the Store root node data
      * 
@@ -349,6 +361,17 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         }
     }
 
+    /**
+     * Set the component that keeps the node cache warm across restarts (optional)
+     * 
+     * @param cacheWarmer
+     *            the cache warmer
+     */
+    public void setCacheWarmer(EntityLookupCacheWarmer cacheWarmer)
+    {
+        cacheWarmer.register("nodesCache", () -> nodesCache);
+    }
+
     /**
      * Set the cache that maintains the Node QName IDs
      * 
@@ -606,6 +629,16 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         AlfrescoTransactionSupport.bindResource(KEY_TRANSACTION, txn);
         // Listen for the end of the transaction
         AlfrescoTransactionSupport.bindDaoService(updateTransactionListener);
+        if (transactionCommitNotifier != null)
+        {
+            AlfrescoTransactionSupport.bindListener(new TransactionListenerAdapter() {
+                @Override
+                public void afterCommit()
+                {
+                    transactionCommitNotifier.transactionCommitted();
+                }
+            });
+        }
         // Done
         return txn;
     }
@@ -0,0 +1,81 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * DAO services for <b>alf_node_prop_lookup</b>, the copy of the <tt>string_value</tt> and <tt>long_value</tt> of the properties declared for transactional metadata queries.
+ * <p>
+ * The rows are copied from <b>alf_node_properties</b>, so they must be written after the properties of the node.
+ */
+public interface NodePropertyLookupDAO
+{
+    /**
+     * Copy the properties of a node into the lookup table.
+     * 
+     * @param nodeId
+     *            the node, or <tt>null</tt> for all nodes
+     * @param qnameIds
+     *            the properties to copy
+     * @return the number of rows copied
+     */
+    int insertNodePropertyLookups(Long nodeId, Set<Long> qnameIds);
+
+    /**
+     * Remove the lookup rows of a node.
+     * 
+     * @param nodeId
+     *            the node, or <tt>null</tt> for all nodes
+     * @param qnameIds
+     *            the properties to remove, or <tt>null</tt> for all of them
+     * @return the number of rows removed
+     */
+    int deleteNodePropertyLookups(Long nodeId, Set<Long> qnameIds);
+
+    /**
+     * Give the lookup rows of a node to another node, as its properties have been.
+     * 
+     * @return the number of rows moved
+     */
+    int moveNodePropertyLookups(Long fromNodeId, Long toNodeId);
+
+    /**
+     * @return the number of <b>alf_node_properties</b> rows of the property
+     */
+    long countNodeProperties(Long qnameId);
+
+    /**
+     * @return the number of lookup rows of the property
+     */
+    long countNodePropertyLookups(Long qnameId);
+
+    /**
+     * @return the properties that have rows in the lookup table
+     */
+    List<Long> selectNodePropertyLookupQNameIds();
+}
@@ -0,0 +1,318 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.StringUtils;
+
+import org.alfresco.repo.domain.qname.QNameDAO;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.service.namespace.NamespaceException;
+import org.alfresco.service.namespace.NamespacePrefixResolver;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
+
+/**
+ * Keeps <b>alf_node_prop_lookup</b> up to date for the properties declared for transactional metadata queries (TMDQ), and tells the query engine which of them it can look up there.
+ * <p>
+ * The declared properties are copied with their <tt>string_value</tt>, its lower case and their <tt>long_value</tt> into the lookup table whenever the properties of a node are written. The table only holds the declared properties, so its indexes are a fraction of the size of those of <b>alf_node_properties</b> and its <tt>string_lower</tt> column serves case-insensitive matches.
+ * <p>
+ * Upkeep starts with the first write. The table is only used by queries once {@link #synchronize()} has checked, when the repository starts, that it holds as many rows for a property as <b>alf_node_properties</b>, rebuilding those that don't. It also drops the rows of properties that are no longer declared. The declaration must be the same on all the servers of a cluster.
+ */
+public class NodePropertyLookupManager
+{
+    private static final Log logger = LogFactory.getLog(NodePropertyLookupManager.class);
+
+    private NodePropertyLookupDAO nodePropertyLookupDAO;
+    private QNameDAO qnameDAO;
+    private NamespacePrefixResolver namespacePrefixResolver;
+    private TransactionService transactionService;
+
+    /** The declared names that couldn't be turned into a QName yet, usually for want of a namespace */
+    private final Set<String> unparsedNames = new LinkedHashSet<>();
+    /** The declared properties that have no ID yet, so can't have any values */
+    private final Set<QName> unresolvedQNames = ConcurrentHashMap.newKeySet();
+    /** The IDs of the declared properties, which are copied whenever written */
+    private final Set<Long> maintainedQNameIds = ConcurrentHashMap.newKeySet();
+    /** The IDs of the properties whose lookup rows are complete */
+    private volatile Set<Long> queryableQNameIds = Collections.emptySet();
+    private volatile boolean lookupsSynchronized = false;
+
+    public void setNodePropertyLookupDAO(NodePropertyLookupDAO nodePropertyLookupDAO)
+    {
+        this.nodePropertyLookupDAO = nodePropertyLookupDAO;
+    }
+
+    public void setQnameDAO(QNameDAO qnameDAO)
+    {
+        this.qnameDAO = qnameDAO;
+    }
+
+    public void setNamespacePrefixResolver(NamespacePrefixResolver namespacePrefixResolver)
+    {
+        this.namespacePrefixResolver = namespacePrefixResolver;
+    }
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * @param properties
+     *            a comma-separated list of the properties to copy, either prefixed (<tt>cm:name</tt>) or in full (<tt>{uri}name</tt>)
+     */
+    public synchronized void setProperties(String properties)
+    {
+        unparsedNames.clear();
+        unparsedNames.addAll(StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(properties == null ? "" : properties)));
+        unparsedNames.remove("");
+    }
+
+    public void checkProperties()
+    {
+        PropertyCheck.mandatory(this, "nodePropertyLookupDAO", nodePropertyLookupDAO);
+        PropertyCheck.mandatory(this, "qnameDAO", qnameDAO);
+        PropertyCheck.mandatory(this, "namespacePrefixResolver", namespacePrefixResolver);
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+    }
+
+    /**
+     * @return the IDs of the properties that queries can look up in <b>alf_node_prop_lookup</b>
+     */
+    public Set<Long> getQueryableQNameIds()
+    {
+        return queryableQNameIds;
+    }
+
+    /**
+     * Bring the lookup rows of a node up to date after some of its properties have been written.
+     * 
+     * @param qnameIds
+     *            the written properties
+     */
+    public void onNodePropertiesWritten(Long nodeId, Collection<Long> qnameIds)
+    {
+        Set<Long> maintained = getMaintainedQNameIds(qnameIds);
+        if (maintained.isEmpty())
+        {
+            return;
+        }
+        nodePropertyLookupDAO.deleteNodePropertyLookups(nodeId, maintained);
+        nodePropertyLookupDAO.insertNodePropertyLookups(nodeId, maintained);
+    }
+
+    /**
+     * Remove the lookup rows of a node after some of its properties have been deleted.
+     * 
+     * @param qnameIds
+     *            the deleted properties, or <tt>null</tt> if all of them were deleted
+     */
+    public void onNodePropertiesDeleted(Long nodeId, Collection<Long> qnameIds)
+    {
+        if (qnameIds == null)
+        {
+            if (!maintainedQNameIds.isEmpty())
+            {
+                nodePropertyLookupDAO.deleteNodePropertyLookups(nodeId, null);
+            }
+            return;
+        }
+        Set<Long> maintained = getMaintainedQNameIds(qnameIds);
+        if (!maintained.isEmpty())
+        {
+            nodePropertyLookupDAO.deleteNodePropertyLookups(nodeId, maintained);
+        }
+    }
+
+    /**
+     * Give the lookup rows of a node to another node after its properties have been moved to it.
+     */
+    public void onNodePropertiesMoved(Long fromNodeId, Long toNodeId)
+    {
+        if (!maintainedQNameIds.isEmpty())
+        {
+            nodePropertyLookupDAO.moveNodePropertyLookups(fromNodeId, toNodeId);
+        }
+    }
+
+    /**
+     * Make the lookup rows of the declared properties match <b>alf_node_properties</b>, one property per transaction, and let queries use them. The rows of the properties that are not declared are deleted.
+     */
+    public void synchronize()
+    {
+        checkProperties();
+        if (transactionService.isReadOnly())
+        {
+            logger.warn("The repository is read-only: node property lookups are not used.");
+            return;
+        }
+        RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        txnHelper.doInTransaction(() -> {
+            parseNames(true);
+            resolveQNames();
+            return null;
+        }, true, true);
+
+        List<Long> presentQNameIds = txnHelper.doInTransaction(() -> nodePropertyLookupDAO.selectNodePropertyLookupQNameIds(), true, true);
+        for (Long qnameId : presentQNameIds)
+        {
+            if (!maintainedQNameIds.contains(qnameId))
+            {
+                int deleted = txnHelper.doInTransaction(() -> nodePropertyLookupDAO.deleteNodePropertyLookups(null, Collections.singleton(qnameId)), false, true);
+                if (logger.isInfoEnabled())
+                {
+                    logger.info("Deleted " + deleted + " node property lookups of property " + qnameId + ", which is no longer declared.");
+                }
+            }
+        }
+
+        Set<Long> queryable = new HashSet<>();
+        for (Long qnameId : maintainedQNameIds)
+        {
+            txnHelper.doInTransaction(() -> {
+                long propertyCount = nodePropertyLookupDAO.countNodeProperties(qnameId);
+                if (propertyCount != nodePropertyLookupDAO.countNodePropertyLookups(qnameId))
+                {
+                    nodePropertyLookupDAO.deleteNodePropertyLookups(null, Collections.singleton(qnameId));
+                    int copied = nodePropertyLookupDAO.insertNodePropertyLookups(null, Collections.singleton(qnameId));
+                    if (logger.isInfoEnabled())
+                    {
+                        logger.info("Rebuilt the " + copied + " node property lookups of " + qnameDAO.getQName(qnameId).getSecond());
+                    }
+                }
+                return null;
+            }, false, true);
+            queryable.add(qnameId);
+        }
+        synchronized (this)
+        {
+            queryable.addAll(queryableQNameIds);
+            queryableQNameIds = Collections.unmodifiableSet(queryable);
+            lookupsSynchronized = true;
+        }
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Node property lookups are used for properties " + queryable + ", pending: " + unresolvedQNames);
+        }
+    }
+
+    /**
+     * @return those of the given properties that are declared
+     */
+    Set<Long> getMaintainedQNameIds(Collection<Long> qnameIds)
+    {
+        if (!unparsedNames.isEmpty())
+        {
+            parseNames(false);
+        }
+        if (maintainedQNameIds.isEmpty() && unresolvedQNames.isEmpty())
+        {
+            return Collections.emptySet();
+        }
+        Set<Long> maintained = new HashSet<>();
+        for (Long qnameId : qnameIds)
+        {
+            if (maintainedQNameIds.contains(qnameId))
+            {
+                maintained.add(qnameId);
+            }
+            else if (!unresolvedQNames.isEmpty())
+            {
+                // A declared property may just have been given its ID
+                Pair<Long, QName> qnamePair = qnameDAO.getQName(qnameId);
+                if (qnamePair != null && unresolvedQNames.contains(qnamePair.getSecond()))
+                {
+                    resolved(qnamePair);
+                    maintained.add(qnameId);
+                }
+            }
+        }
+        return maintained;
+    }
+
+    private synchronized void parseNames(boolean last)
+    {
+        for (String name : new HashSet<>(unparsedNames))
+        {
+            QName qname = null;
+            try
+            {
+                qname = QName.resolveToQName(namespacePrefixResolver, name);
+            }
+            catch (NamespaceException e)
+            {
+                // The namespace is not registered yet
+            }
+            if (qname != null)
+            {
+                unparsedNames.remove(name);
+                unresolvedQNames.add(qname);
+            }
+            else if (last)
+            {
+                unparsedNames.remove(name);
+                logger.warn("Ignoring node property lookup property " + name + ", whose namespace is unknown.");
+            }
+        }
+    }
+
+    private void resolveQNames()
+    {
+        for (QName qname : unresolvedQNames)
+        {
+            Pair<Long, QName> qnamePair = qnameDAO.getQName(qname);
+            if (qnamePair != null)
+            {
+                resolved(qnamePair);
+            }
+        }
+    }
+
+    private synchronized void resolved(Pair<Long, QName> qnamePair)
+    {
+        maintainedQNameIds.add(qnamePair.getFirst());
+        unresolvedQNames.remove(qnamePair.getSecond());
+        if (lookupsSynchronized)
+        {
+            // There was no ID when the lookups were synchronized, so all the values have been copied
+            Set<Long> queryable = new HashSet<>(queryableQNameIds);
+            queryable.add(qnamePair.getFirst());
+            queryableQNameIds = Collections.unmodifiableSet(queryable);
+        }
+    }
+}
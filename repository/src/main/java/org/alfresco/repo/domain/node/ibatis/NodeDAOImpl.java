@@ -58,6 +58,7 @@ import org.alfresco.repo.domain.node.NodeExistsException;
 import org.alfresco.repo.domain.node.NodeIdAndAclId;
 import org.alfresco.repo.domain.node.NodePropertyEntity;
 import org.alfresco.repo.domain.node.NodePropertyKey;
+import org.alfresco.repo.domain.node.NodePropertyLookupManager;
 import org.alfresco.repo.domain.node.NodePropertyValue;
 import org.alfresco.repo.domain.node.NodeRangeEntity;
 import org.alfresco.repo.domain.node.NodeUpdateEntity;
@@ -179,12 +180,22 @@ public class NodeDAOImpl extends AbstractNodeDAOImpl
     protected DictionaryService dictionaryService;
 
     private SqlSessionTemplate template;
+    private NodePropertyLookupManager nodePropertyLookupManager;
 
     public void setSqlSessionTemplate(SqlSessionTemplate sqlSessionTemplate)
     {
         this.template = sqlSessionTemplate;
     }
 
+    /**
+     * @param nodePropertyLookupManager
+     *            keeps the node property lookups up to date as properties are written, optional
+     */
+    public void setNodePropertyLookupManager(NodePropertyLookupManager nodePropertyLookupManager)
+    {
+        this.nodePropertyLookupManager = nodePropertyLookupManager;
+    }
+
     @Override
     public void setQnameDAO(QNameDAO qnameDAO)
     {
@@ -617,7 +628,12 @@ public class NodeDAOImpl extends AbstractNodeDAOImpl
             prop.setQnameIds(new ArrayList<Long>(qnameIds));
         }
 
-        return template.delete(DELETE_NODE_PROPERTIES, prop);
+        int count = template.delete(DELETE_NODE_PROPERTIES, prop);
+        if (nodePropertyLookupManager != null)
+        {
+            nodePropertyLookupManager.onNodePropertiesDeleted(nodeId, qnameIds);
+        }
+        return count;
     }
 
     @Override
@@ -649,6 +665,11 @@ public class NodeDAOImpl extends AbstractNodeDAOImpl
         {
             executeBatch();
         }
+        if (nodePropertyLookupManager != null)
+        {
+            // Other values of the properties may remain
+            nodePropertyLookupManager.onNodePropertiesWritten(nodeId, getQNameIds(propKeys));
+        }
         return count;
     }
 
@@ -674,6 +695,20 @@ public class NodeDAOImpl extends AbstractNodeDAOImpl
         {
             executeBatch();
         }
+        if (nodePropertyLookupManager != null)
+        {
+            nodePropertyLookupManager.onNodePropertiesWritten(nodeId, getQNameIds(persistableProps.keySet()));
+        }
+    }
+
+    private static Set<Long> getQNameIds(Collection<NodePropertyKey> propKeys)
+    {
+        Set<Long> qnameIds = new HashSet<Long>(propKeys.size());
+        for (NodePropertyKey propKey : propKeys)
+        {
+            qnameIds.add(propKey.getQnameId());
+        }
+        return qnameIds;
     }
 
     @Override
@@ -1612,6 +1647,10 @@ public class NodeDAOImpl extends AbstractNodeDAOImpl
         int countTA = template.update(UPDATE_MOVE_TARGET_ASSOCS, params);
         int countP = template.update(UPDATE_MOVE_PROPERTIES, params);
         int countA = template.update(UPDATE_MOVE_ASPECTS, params);
+        if (nodePropertyLookupManager != null)
+        {
+            nodePropertyLookupManager.onNodePropertiesMoved(fromNodeId, toNodeId);
+        }
         if (isDebugEnabled)
         {
             logger.debug(
@@ -0,0 +1,114 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node.ibatis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.mybatis.spring.SqlSessionTemplate;
+
+import org.alfresco.ibatis.IdsEntity;
+import org.alfresco.repo.domain.node.NodePropertyEntity;
+import org.alfresco.repo.domain.node.NodePropertyLookupDAO;
+
+/**
+ * iBatis-specific implementation of the node property lookup DAO.
+ */
+public class NodePropertyLookupDAOImpl implements NodePropertyLookupDAO
+{
+    private static final String INSERT_NODE_PROPERTY_LOOKUPS = "alfresco.node.insert_NodePropertyLookups";
+    private static final String DELETE_NODE_PROPERTY_LOOKUPS = "alfresco.node.delete_NodePropertyLookups";
+    private static final String UPDATE_MOVE_NODE_PROPERTY_LOOKUPS = "alfresco.node.update_MovePropertyLookups";
+    private static final String SELECT_NODE_PROPERTY_COUNT = "alfresco.node.select_NodePropertyCountByQName";
+    private static final String SELECT_NODE_PROPERTY_LOOKUP_COUNT = "alfresco.node.select_NodePropertyLookupCountByQName";
+    private static final String SELECT_NODE_PROPERTY_LOOKUP_QNAME_IDS = "alfresco.node.select_NodePropertyLookupQNameIds";
+
+    private SqlSessionTemplate template;
+
+    public final void setSqlSessionTemplate(SqlSessionTemplate sqlSessionTemplate)
+    {
+        this.template = sqlSessionTemplate;
+    }
+
+    @Override
+    public int insertNodePropertyLookups(Long nodeId, Set<Long> qnameIds)
+    {
+        if (qnameIds.isEmpty())
+        {
+            return 0; // Nothing to do
+        }
+        NodePropertyEntity prop = new NodePropertyEntity();
+        prop.setNodeId(nodeId);
+        prop.setQnameIds(new ArrayList<Long>(qnameIds));
+        return template.insert(INSERT_NODE_PROPERTY_LOOKUPS, prop);
+    }
+
+    @Override
+    public int deleteNodePropertyLookups(Long nodeId, Set<Long> qnameIds)
+    {
+        NodePropertyEntity prop = new NodePropertyEntity();
+        prop.setNodeId(nodeId);
+        if (qnameIds != null)
+        {
+            if (qnameIds.isEmpty())
+            {
+                return 0; // Nothing to do
+            }
+            prop.setQnameIds(new ArrayList<Long>(qnameIds));
+        }
+        return template.delete(DELETE_NODE_PROPERTY_LOOKUPS, prop);
+    }
+
+    @Override
+    public int moveNodePropertyLookups(Long fromNodeId, Long toNodeId)
+    {
+        IdsEntity params = new IdsEntity();
+        params.setIdOne(fromNodeId);
+        params.setIdTwo(toNodeId);
+        return template.update(UPDATE_MOVE_NODE_PROPERTY_LOOKUPS, params);
+    }
+
+    @Override
+    public long countNodeProperties(Long qnameId)
+    {
+        Long count = template.selectOne(SELECT_NODE_PROPERTY_COUNT, qnameId);
+        return count == null ? 0L : count;
+    }
+
+    @Override
+    public long countNodePropertyLookups(Long qnameId)
+    {
+        Long count = template.selectOne(SELECT_NODE_PROPERTY_LOOKUP_COUNT, qnameId);
+        return count == null ? 0L : count;
+    }
+
+    @Override
+    public List<Long> selectNodePropertyLookupQNameIds()
+    {
+        return template.selectList(SELECT_NODE_PROPERTY_LOOKUP_QNAME_IDS);
+    }
+}
@@ -39,6 +39,7 @@ import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.cache.TransactionalCache;
 import org.alfresco.repo.cache.lookup.EntityLookupCache;
 import org.alfresco.repo.cache.lookup.EntityLookupCache.EntityLookupCallbackDAO;
+import org.alfresco.repo.cache.lookup.EntityLookupCacheWarmer;
 import org.alfresco.repo.domain.CrcHelper;
 import org.alfresco.repo.domain.qname.QNameDAO;
 import org.alfresco.repo.security.permissions.ACEType;
@@ -127,6 +128,18 @@ public abstract class AbstractAclCrudDAOImpl implements AclCrudDAO
         this.aclEntityTransactionalCache = aclEntityCache;
     }
 
+    /**
+     * Set the component that keeps the ACL and authority caches warm across restarts (optional).
+     * 
+     * @param cacheWarmer
+     *            the cache warmer
+     */
+    public void setCacheWarmer(EntityLookupCacheWarmer cacheWarmer)
+    {
+        cacheWarmer.register("aclEntityCache", () -> aclEntityCache);
+        cacheWarmer.register("authorityEntityCache", () -> authorityEntityCache);
+    }
+
     /**
      * Set the cache to use for <b>alf_authority</b> lookups (optional).
      * 
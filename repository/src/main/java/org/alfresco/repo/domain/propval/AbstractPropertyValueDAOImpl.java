@@ -47,6 +47,7 @@ import org.alfresco.repo.cache.NullCache;
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.cache.lookup.EntityLookupCache;
 import org.alfresco.repo.cache.lookup.EntityLookupCache.EntityLookupCallbackDAOAdaptor;
+import org.alfresco.repo.cache.lookup.EntityLookupCacheWarmer;
 import org.alfresco.repo.domain.CrcHelper;
 import org.alfresco.repo.domain.control.ControlDAO;
 import org.alfresco.repo.domain.propval.PropertyValueEntity.PersistedType;
@@ -72,6 +73,11 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
     private static final String CACHE_REGION_PROPERTY_VALUE = "PropertyValue";
     private static final String CACHE_REGION_PROPERTY = "Property";
 
+    /**
+     * The largest number of root property IDs passed to a single query
+     */
+    public static final int MAX_PROPERTY_IDS_PER_QUERY = 500;
+
     protected final Log logger = LogFactory.getLog(getClass());
 
     protected PropertyTypeConverter converter;
@@ -287,6 +293,18 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
                 propertyValueCallback);
     }
 
+    /**
+     * Set the component that keeps the property value caches warm across restarts (optional).
+     * 
+     * @param cacheWarmer
+     *            the cache warmer
+     */
+    public void setCacheWarmer(EntityLookupCacheWarmer cacheWarmer)
+    {
+        cacheWarmer.register("propertyValueCache", () -> propertyValueCache);
+        cacheWarmer.register("propertyCache", () -> propertyCache);
+    }
+
     /**
      * Set the cache to use for <b>alf_prop_root</b> lookups (optional).
      * 
@@ -878,9 +896,76 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
         return entityPair.getSecond();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The IDs are queried in batches of {@link #MAX_PROPERTY_IDS_PER_QUERY} and the results are not cached.
+     */
     public void getPropertiesByIds(List<Long> ids, PropertyFinderCallback callback)
     {
-        findPropertiesByIds(ids, callback);
+        for (int i = 0; i < ids.size(); i += MAX_PROPERTY_IDS_PER_QUERY)
+        {
+            List<Long> batch = ids.subList(i, Math.min(i + MAX_PROPERTY_IDS_PER_QUERY, ids.size()));
+            findPropertiesByIds(batch, callback);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Cached properties are used as they are. The rest are queried in batches of {@link #MAX_PROPERTY_IDS_PER_QUERY} and then cached as if fetched by {@link #getPropertyById(Long)}.
+     */
+    public Map<Long, Serializable> getPropertiesByIds(Collection<Long> ids)
+    {
+        Map<Long, Serializable> valuesById = new HashMap<Long, Serializable>(ids.size() * 2);
+        List<Long> missingIds = new ArrayList<Long>(ids.size());
+        for (Long id : ids)
+        {
+            if (id == null)
+            {
+                throw new IllegalArgumentException("Cannot look up entity by null ID.");
+            }
+            if (valuesById.containsKey(id))
+            {
+                continue;
+            }
+            Serializable value = propertyCache.getValue(id);
+            if (value == null)
+            {
+                // Not cached (or cached as null, which is just fetched again)
+                missingIds.add(id);
+            }
+            else
+            {
+                valuesById.put(id, value);
+            }
+        }
+        if (missingIds.isEmpty())
+        {
+            return valuesById;
+        }
+        final Map<Long, Serializable> fetchedValuesById = new HashMap<Long, Serializable>(missingIds.size() * 2);
+        getPropertiesByIds(missingIds, new PropertyFinderCallback() {
+            public void handleProperty(Long id, Serializable value)
+            {
+                fetchedValuesById.put(id, value);
+            }
+        });
+        for (Map.Entry<Long, Serializable> entry : fetchedValuesById.entrySet())
+        {
+            propertyCache.setValue(entry.getKey(), entry.getValue());
+        }
+        valuesById.putAll(fetchedValuesById);
+        // Done
+        if (logger.isDebugEnabled())
+        {
+            logger.debug(
+                    "Got properties by ID: \n" +
+                            "   Requested: " + ids.size() + "\n" +
+                            "   Fetched:   " + fetchedValuesById.size() + "\n" +
+                            "   Missing:   " + (missingIds.size() - fetchedValuesById.size()));
+        }
+        return valuesById;
     }
 
     /**
@@ -26,8 +26,10 @@
 package org.alfresco.repo.domain.propval;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.dao.DataIntegrityViolationException;
 
@@ -278,6 +280,17 @@ public interface PropertyValueDAO
      */
     void getPropertiesByIds(List<Long> ids, PropertyFinderCallback callback);
 
+    /**
+     * Use for accessing non-unique, exploded properties; see interface comments.
+     * <p/>
+     * <b>alf_prop_root</b> accessor: get many properties at once based on the database IDs. The link and value rows of all the properties are fetched together rather than one property at a time.
+     * 
+     * @param ids
+     *            the IDs (may not contain <tt>null</tt>; may be empty)
+     * @return Returns the values by ID. IDs that do not exist are absent from the map.
+     */
+    Map<Long, Serializable> getPropertiesByIds(Collection<Long> ids);
+
     /**
      * Use for accessing non-unique, exploded properties; see interface comments.
      * <p/>
@@ -25,13 +25,16 @@
  */
 package org.alfresco.repo.event2;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -41,23 +44,71 @@ import org.alfresco.util.PropertyCheck;
 
 /**
  * Enqueuing event sender allows to create asynchronously the RepoEvent offloading the work to a ThreadPool but at the same time it preserves the order of the events.
+ * <p>
+ * Events are held in a bounded queue. What happens when the queue is full is decided by the {@link OverflowPolicy}: the caller can be blocked until there is room, the events can be spilled to an {@link EventSpillJournal} on disk and sent once the queue has drained, or they can be dropped. Ready events are dequeued and sent in batches of up to <tt>batchSize</tt>, so that the making of the following events overlaps with the sending of the current batch.
  */
 public class EnqueuingEventSender extends DirectEventSender
 {
     protected static final Log LOGGER = LogFactory.getLog(EnqueuingEventSender.class);
 
+    public static final int DEFAULT_QUEUE_CAPACITY = 100000;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final long SPILL_POLL_INTERVAL_MS = 500;
+    private static final long DROP_LOG_INTERVAL = 1000;
+
+    /**
+     * What to do with an event when the queue is full
+     */
+    public enum OverflowPolicy
+    {
+        /** Block the caller until there is room in the queue */
+        BLOCK,
+        /** Make the event in the calling thread and append it to the spill journal */
+        SPILL,
+        /** Discard the event */
+        DROP
+    }
+
     protected final Executor enqueueThreadPoolExecutor;
     protected final Executor dequeueThreadPoolExecutor;
-    protected BlockingQueue<EventInMaking> queue = new LinkedBlockingQueue<>();
+    protected BlockingQueue<EventInMaking> queue;
     protected Runnable listener = createListener();
 
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final EventSpillJournal spillJournal;
+
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder spilledCount = new LongAdder();
+    private final LongAdder sendTimeNanos = new LongAdder();
+    private volatile long lastSendLatencyMs;
+    private volatile long lastLagMs;
+
     public EnqueuingEventSender(Event2MessageProducer event2MessageProducer, Executor enqueueThreadPoolExecutor, Executor dequeueThreadPoolExecutor)
+    {
+        this(event2MessageProducer, enqueueThreadPoolExecutor, dequeueThreadPoolExecutor, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.BLOCK, DEFAULT_BATCH_SIZE, null);
+    }
+
+    public EnqueuingEventSender(Event2MessageProducer event2MessageProducer, Executor enqueueThreadPoolExecutor, Executor dequeueThreadPoolExecutor,
+            int queueCapacity, OverflowPolicy overflowPolicy, int batchSize, EventSpillJournal spillJournal)
     {
         super(event2MessageProducer);
         PropertyCheck.mandatory(this, "enqueueThreadPoolExecutor", enqueueThreadPoolExecutor);
         PropertyCheck.mandatory(this, "dequeueThreadPoolExecutor", dequeueThreadPoolExecutor);
+        PropertyCheck.mandatory(this, "overflowPolicy", overflowPolicy);
+        if (overflowPolicy == OverflowPolicy.SPILL)
+        {
+            PropertyCheck.mandatory(this, "spillJournal", spillJournal);
+        }
         this.enqueueThreadPoolExecutor = enqueueThreadPoolExecutor;
         this.dequeueThreadPoolExecutor = dequeueThreadPoolExecutor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.batchSize = Math.max(1, batchSize);
+        this.spillJournal = spillJournal;
     }
 
     /**
@@ -70,7 +121,10 @@ public class EnqueuingEventSender extends DirectEventSender
     public void accept(Callable<Optional<RepoEvent<?>>> eventProducer)
     {
         EventInMaking eventInMaking = new EventInMaking(eventProducer);
-        queue.offer(eventInMaking);
+        if (!enqueue(eventInMaking))
+        {
+            return;
+        }
         enqueueThreadPoolExecutor.execute(() -> {
             try
             {
@@ -83,12 +137,89 @@ public class EnqueuingEventSender extends DirectEventSender
         });
     }
 
+    /**
+     * Put the event in the queue, applying the overflow policy if the queue is full.
+     * 
+     * @return <tt>true</tt> if the event was queued and still has to be made
+     */
+    private boolean enqueue(EventInMaking eventInMaking)
+    {
+        switch (overflowPolicy)
+        {
+        case SPILL:
+            return enqueueOrSpill(eventInMaking);
+        case DROP:
+            if (queue.offer(eventInMaking))
+            {
+                return true;
+            }
+            droppedCount.increment();
+            long dropped = droppedCount.sum();
+            if (dropped == 1 || dropped % DROP_LOG_INTERVAL == 0)
+            {
+                LOGGER.warn("Repository event queue is full (capacity " + (queue.size() + queue.remainingCapacity()) + "), " + dropped + " events dropped so far");
+            }
+            return false;
+        default:
+            try
+            {
+                queue.put(eventInMaking);
+                return true;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                droppedCount.increment();
+                LOGGER.error("Interrupted while waiting for room in the repository event queue, event dropped: " + eventInMaking);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Queue the event unless the queue is full or there is already a spill backlog, in which case the event is made straight away and appended to the journal. Once anything is spilled, new events keep going to the journal until it has been drained, which preserves the ordering.
+     */
+    private boolean enqueueOrSpill(EventInMaking eventInMaking)
+    {
+        synchronized (spillJournal)
+        {
+            if (spillJournal.isEmpty() && queue.offer(eventInMaking))
+            {
+                return true;
+            }
+            try
+            {
+                eventInMaking.make();
+                Optional<RepoEvent<?>> event = eventInMaking.getEventWhenReady();
+                if (event.isPresent())
+                {
+                    spillJournal.append(event2MessageProducer.serialize(event.get()));
+                    spilledCount.increment();
+                }
+            }
+            catch (Exception e)
+            {
+                LOGGER.error("Unexpected error while spilling repository event " + e);
+            }
+            return false;
+        }
+    }
+
     @Override
     public void initialize()
     {
         dequeueThreadPoolExecutor.execute(listener);
     }
 
+    @Override
+    public void destroy()
+    {
+        if (spillJournal != null)
+        {
+            spillJournal.close();
+        }
+    }
+
     /**
      * Create listener task in charge of dequeuing and sending events ready to be sent.
      * 
@@ -103,7 +234,7 @@ public class EnqueuingEventSender extends DirectEventSender
                 {
                     try
                     {
-                        queue.take().getEventWhenReady().ifPresent(event -> event2MessageProducer.send(event));
+                        sendNextBatch();
                     }
                     catch (Exception e)
                     {
@@ -117,7 +248,166 @@ public class EnqueuingEventSender extends DirectEventSender
                 dequeueThreadPoolExecutor.execute(listener);
             }
         };
+    }
+
+    /**
+     * Wait for the next events in the queue and send up to <tt>batchSize</tt> of them. Spilled events are only sent once the queue is empty, as nothing is queued while there is a spill backlog.
+     */
+    private void sendNextBatch() throws InterruptedException
+    {
+        if (spillJournal != null && queue.isEmpty() && !spillJournal.isEmpty())
+        {
+            sendSpilled();
+            return;
+        }
 
+        EventInMaking first = (spillJournal == null) ? queue.take() : queue.poll(SPILL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (first == null)
+        {
+            return;
+        }
+        List<EventInMaking> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+
+        // Send every event of the batch, only then rethrow any error so the listener gets rescheduled
+        Error error = null;
+        for (EventInMaking eventInMaking : batch)
+        {
+            try
+            {
+                Optional<RepoEvent<?>> event = eventInMaking.getEventWhenReady();
+                if (event.isPresent())
+                {
+                    send(event.get(), eventInMaking.getEnqueuedTime());
+                }
+            }
+            catch (Exception e)
+            {
+                failedCount.increment();
+                LOGGER.error("Unexpected error while dequeuing and sending repository event " + e);
+            }
+            catch (Error e)
+            {
+                failedCount.increment();
+                LOGGER.error("Unexpected error while dequeuing and sending repository event " + e);
+                error = e;
+            }
+        }
+        if (error != null)
+        {
+            throw error;
+        }
+    }
+
+    /**
+     * Send the next spilled events. Each event is only consumed from the journal once it has been sent; on a failure the rest of the batch stays in the journal and is retried after a pause.
+     */
+    private void sendSpilled() throws InterruptedException
+    {
+        int sent = 0;
+        try
+        {
+            for (String event : spillJournal.peek(batchSize))
+            {
+                send(event, 0);
+                sent++;
+            }
+        }
+        catch (Exception e)
+        {
+            failedCount.increment();
+            LOGGER.error("Unexpected error while sending spilled repository event, will retry " + e);
+            spillJournal.commit(sent);
+            Thread.sleep(SPILL_POLL_INTERVAL_MS);
+            return;
+        }
+        spillJournal.commit(sent);
+    }
+
+    private void send(Object event, long enqueuedTime)
+    {
+        long start = System.nanoTime();
+        event2MessageProducer.send(event);
+        long elapsed = System.nanoTime() - start;
+
+        sentCount.increment();
+        sendTimeNanos.add(elapsed);
+        lastSendLatencyMs = TimeUnit.NANOSECONDS.toMillis(elapsed);
+        if (enqueuedTime > 0)
+        {
+            lastLagMs = System.currentTimeMillis() - enqueuedTime;
+        }
+    }
+
+    /**
+     * @return the number of events waiting in the in-memory queue
+     */
+    public int getQueueDepth()
+    {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of events waiting in the spill journal
+     */
+    public long getSpillDepth()
+    {
+        return spillJournal == null ? 0 : spillJournal.size();
+    }
+
+    /**
+     * @return how long the oldest queued event has been waiting (ms)
+     */
+    public long getQueueLagMs()
+    {
+        EventInMaking head = queue.peek();
+        return head == null ? 0 : System.currentTimeMillis() - head.getEnqueuedTime();
+    }
+
+    /**
+     * @return the time between accepting and sending the last sent event (ms)
+     */
+    public long getLastLagMs()
+    {
+        return lastLagMs;
+    }
+
+    /**
+     * @return the broker send time of the last sent event (ms)
+     */
+    public long getLastSendLatencyMs()
+    {
+        return lastSendLatencyMs;
+    }
+
+    /**
+     * @return the average broker send time (ms)
+     */
+    public double getAverageSendLatencyMs()
+    {
+        long sent = sentCount.sum();
+        return sent == 0 ? 0 : sendTimeNanos.sum() / 1000000.0 / sent;
+    }
+
+    public long getSentCount()
+    {
+        return sentCount.sum();
+    }
+
+    public long getFailedCount()
+    {
+        return failedCount.sum();
+    }
+
+    public long getDroppedCount()
+    {
+        return droppedCount.sum();
+    }
+
+    public long getSpilledCount()
+    {
+        return spilledCount.sum();
     }
 
     /**
@@ -126,12 +416,14 @@ public class EnqueuingEventSender extends DirectEventSender
     private static class EventInMaking
     {
         private final Callable<Optional<RepoEvent<?>>> maker;
+        private final long enqueuedTime;
         private volatile RepoEvent<?> event;
         private final CountDownLatch latch;
 
         public EventInMaking(Callable<Optional<RepoEvent<?>>> maker)
         {
             this.maker = maker;
+            this.enqueuedTime = System.currentTimeMillis();
             this.latch = new CountDownLatch(1);
         }
 
@@ -153,6 +445,11 @@ public class EnqueuingEventSender extends DirectEventSender
             return Optional.ofNullable(event);
         }
 
+        public long getEnqueuedTime()
+        {
+            return enqueuedTime;
+        }
+
         @Override
         public String toString()
         {
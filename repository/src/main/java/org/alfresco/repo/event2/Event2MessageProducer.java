@@ -61,6 +61,30 @@ public class Event2MessageProducer extends AbstractEventProducer implements Init
         send(this.endpoint, null, event, null);
     }
 
+    public void send(Object event, Map<String, Object> headers)
+    {
+        send(this.endpoint, null, event, headers);
+    }
+
+    /**
+     * Serialize the event in the form it is sent to the broker. The result can be passed to {@link #send(Object)} later on.
+     */
+    public String serialize(Object event)
+    {
+        if (event instanceof String)
+        {
+            return (String) event;
+        }
+        try
+        {
+            return this.objectMapper.writeValueAsString(event);
+        }
+        catch (Exception e)
+        {
+            throw new AlfrescoRuntimeException(ERROR_SENDING, e);
+        }
+    }
+
     @Override
     public void send(String endpointUri, ExchangePattern exchangePattern, Object event, Map<String, Object> headers)
     {
@@ -44,6 +44,7 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.extensions.surf.util.AbstractLifecycleBean;
 
+import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.domain.node.NodeDAO;
 import org.alfresco.repo.domain.node.TransactionEntity;
 import org.alfresco.repo.event.v1.model.DataAttributes;
@@ -599,6 +600,11 @@ public class EventGenerator extends AbstractLifecycleBean implements Initializin
                 }
                 catch (Exception e)
                 {
+                    if (isSendingEventBeforeCommitRequired())
+                    {
+                        // The events are written as part of the transaction, so it must roll back rather than commit without them
+                        throw new AlfrescoRuntimeException("Unable to send repository events", e);
+                    }
                     // Must consume the exception to protect other TransactionListeners
                     LOGGER.error("Unexpected error while sending repository events", e);
                 }
@@ -626,11 +632,13 @@ public class EventGenerator extends AbstractLifecycleBean implements Initializin
             {
                 sendEvent(entry.getKey(), entry.getValue());
             }
+
+            eventSender.flush();
         }
 
         protected void sendEvent(NodeRef nodeRef, NodeEventConsolidator consolidator)
         {
-            sendEvent(nodeRef, consolidator, nodeToEventEligibilityVerifier());
+            sendEvent(nodeRef, consolidator, nodeToEventFilter(), nodeToEventEligibilityVerifier());
         }
 
         protected void sendEvent(ChildAssociationRef childAssociationRef, ChildAssociationEventConsolidator consolidator)
@@ -659,16 +667,39 @@ public class EventGenerator extends AbstractLifecycleBean implements Initializin
          */
         private <REF extends EntityRef, CON extends EventConsolidator<REF, ? extends Resource>> void sendEvent(
                 final REF entityReference, final CON eventConsolidator, final TriPredicate<REF, CON, EventInfo> entityToEventEligibilityVerifier)
+        {
+            sendEvent(entityReference, eventConsolidator, null, entityToEventEligibilityVerifier);
+        }
+
+        /**
+         * Handles all kinds of events and sends them within dedicated transaction.
+         *
+         * @param entityReference
+         *            - reference to an entity (e.g. node, child association, peer association)
+         * @param eventConsolidator
+         *            - object encapsulating events occurred in a transaction
+         * @param entityFilter
+         *            - allows to discard the entity before its resource is built. If null no filtering is necessary
+         * @param entityToEventEligibilityVerifier
+         *            - allows to verify if entity is eligible to generate an even. If null no verification is necessary
+         * @param <REF>
+         *            - entity reference type (e.g. {@link NodeRef}, {@link AssociationRef}, {@link ChildAssociationRef})
+         * @param <CON>
+         *            - event consolidator type - extension of {@link EventConsolidator}
+         */
+        private <REF extends EntityRef, CON extends EventConsolidator<REF, ? extends Resource>> void sendEvent(
+                final REF entityReference, final CON eventConsolidator, final TriPredicate<REF, CON, EventInfo> entityFilter,
+                final TriPredicate<REF, CON, EventInfo> entityToEventEligibilityVerifier)
         {
             final EventInfo eventInfo = getEventInfo(AuthenticationUtil.getFullyAuthenticatedUser());
             if (isSendingEventBeforeCommitRequired())
             {
-                eventSender.accept(() -> createEvent(entityReference, eventConsolidator, eventInfo, entityToEventEligibilityVerifier));
+                eventSender.accept(() -> createEvent(entityReference, eventConsolidator, eventInfo, entityFilter, entityToEventEligibilityVerifier));
             }
             else
             {
                 transactionService.getRetryingTransactionHelper().doInTransaction((RetryingTransactionCallback<Void>) () -> {
-                    eventSender.accept(() -> createEvent(entityReference, eventConsolidator, eventInfo, entityToEventEligibilityVerifier));
+                    eventSender.accept(() -> createEvent(entityReference, eventConsolidator, eventInfo, entityFilter, entityToEventEligibilityVerifier));
                     return null;
                 }, true, true);
             }
@@ -683,6 +714,8 @@ public class EventGenerator extends AbstractLifecycleBean implements Initializin
          *            - object encapsulating events occurred in a transaction
          * @param eventInfo
          *            - object holding the event information
+         * @param entityFilter
+         *            - allows to discard the entity before its resource is built. If null no filtering is necessary
          * @param entityToEventEligibilityVerifier
          *            - allows to verify if entity is eligible to generate an even. If null no verification is necessary
          * @param <REF>
@@ -692,7 +725,7 @@ public class EventGenerator extends AbstractLifecycleBean implements Initializin
          */
         private <REF extends EntityRef, CON extends EventConsolidator<REF, ? extends Resource>> Optional<RepoEvent<?>> createEvent(
                 final REF entityReference, final CON eventConsolidator, final EventInfo eventInfo,
-                final TriPredicate<REF, CON, EventInfo> entityToEventEligibilityVerifier)
+                final TriPredicate<REF, CON, EventInfo> entityFilter, final TriPredicate<REF, CON, EventInfo> entityToEventEligibilityVerifier)
         {
             if (eventConsolidator.isTemporaryEntity())
             {
@@ -703,6 +736,12 @@ public class EventGenerator extends AbstractLifecycleBean implements Initializin
                 return Optional.empty();
             }
 
+            // discard filtered entities before building the resource, which resolves paths, properties, etc.
+            if (entityFilter != null && !entityFilter.test(entityReference, eventConsolidator, eventInfo))
+            {
+                return Optional.empty();
+            }
+
             // get the repo event before verifying entity eligibility to generate event, so we can take the latest node info into account
             final RepoEvent<? extends DataAttributes<? extends Resource>> event = eventConsolidator.getRepoEvent(eventInfo);
 
@@ -716,11 +755,12 @@ public class EventGenerator extends AbstractLifecycleBean implements Initializin
             return Optional.of(event);
         }
 
-        private TriPredicate<NodeRef, NodeEventConsolidator, EventInfo> nodeToEventEligibilityVerifier()
+        private TriPredicate<NodeRef, NodeEventConsolidator, EventInfo> nodeToEventFilter()
         {
             return (nodeReference, eventConsolidator, eventInfo) -> {
                 final String user = eventInfo.getPrincipal();
-                final QName nodeType = eventConsolidator.getEntityType();
+                // take the latest node type into account, without building the node resource
+                final QName nodeType = eventConsolidator.refreshEntityType();
                 if (isFiltered(nodeType, user))
                 {
                     if (LOGGER.isTraceEnabled())
@@ -731,7 +771,13 @@ public class EventGenerator extends AbstractLifecycleBean implements Initializin
                     }
                     return false;
                 }
+                return true;
+            };
+        }
 
+        private TriPredicate<NodeRef, NodeEventConsolidator, EventInfo> nodeToEventEligibilityVerifier()
+        {
+            return (nodeReference, eventConsolidator, eventInfo) -> {
                 if (eventConsolidator.isEventTypeEqualTo(EventType.NODE_UPDATED) && eventConsolidator.isResourceBeforeAllFieldsNull())
                 {
                     if (LOGGER.isTraceEnabled())
@@ -0,0 +1,826 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.event2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongPredicate;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+
+/**
+ * Durable, append-only journal of repository events used by {@link OutboxEventSender} as a transactional outbox.
+ * <p>
+ * Events are appended as <i>prepared</i> records tagged with the id of the writing transaction, and {@link #force() forced} to disk before that transaction commits. Once the commit has happened a <i>commit</i> record gives the events of the transaction consecutive sequence numbers; a rolled back transaction gets a <i>rollback</i> record instead. Transactions left prepared by a crash are resolved against the database through {@link #resolveRecovered(LongPredicate)} when the journal is reopened.
+ * <p>
+ * Sequence numbers never change once assigned, so events can be {@link #read(long, int) replayed} from any retained offset and consumers can discard duplicates by sequence number. The journal is split into segment files; the oldest segments are deleted once all their events have been dispatched and fall outside the retention count.
+ */
+public class EventOutbox
+{
+    private static final Log LOGGER = LogFactory.getLog(EventOutbox.class);
+
+    static final String SEGMENT_PREFIX = "event2-outbox-";
+    static final String SEGMENT_SUFFIX = ".journal";
+    static final String OFFSET_FILE_NAME = "event2-outbox.offset";
+
+    private static final byte PREPARED = 1;
+    private static final byte COMMITTED = 2;
+    private static final byte ROLLED_BACK = 3;
+
+    // Record header: body length and CRC32 of the body
+    private static final int HEADER_SIZE = 8;
+    // Record body prefix: type, transaction id and sequence number
+    private static final int BODY_PREFIX_SIZE = 17;
+
+    private final File directory;
+    private final long segmentSize;
+    private final long retainEvents;
+    private final int maxBufferedEvents;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<Long, List<Prepared>> pending = new LinkedHashMap<>();
+    private final Set<Long> recoveredTxnIds = new HashSet<>();
+    private final Deque<OutboxEvent> buffered = new ArrayDeque<>();
+    private boolean bufferOverflowed;
+    // Where the events that did not fit in the buffer are being read back from disk
+    private ReadCursor cursor;
+    // A commit record has been appended since the journal was last forced
+    private boolean commitUnforced;
+    private long nextSequence = 1;
+    private long dispatchedSequence;
+
+    /**
+     * Open (or create) the outbox in the given directory.
+     * 
+     * @param directory
+     *            the directory holding the segment files
+     * @param segmentSize
+     *            the size (bytes) after which a new segment file is started
+     * @param retainEvents
+     *            the number of dispatched events kept available for replay
+     * @param maxBufferedEvents
+     *            the number of undispatched events held in memory; beyond that they are read back from disk
+     */
+    public EventOutbox(File directory, long segmentSize, long retainEvents, int maxBufferedEvents)
+    {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.retainEvents = retainEvents;
+        this.maxBufferedEvents = maxBufferedEvents;
+        if (!directory.exists() && !directory.mkdirs())
+        {
+            throw new AlfrescoRuntimeException("Unable to create event outbox directory: " + directory);
+        }
+        try
+        {
+            recover();
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Unable to open event outbox: " + directory, e);
+        }
+    }
+
+    private void recover() throws IOException
+    {
+        dispatchedSequence = readOffset();
+
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        for (File file : files)
+        {
+            Segment segment = new Segment(file, segmentIndex(file));
+            segments.add(segment);
+            segment.scan((type, txnId, sequence, payload) -> replayRecord(segment, type, txnId, sequence, payload), true);
+        }
+        if (segments.isEmpty())
+        {
+            segments.add(new Segment(segmentFile(1), 1));
+        }
+        nextSequence = Math.max(nextSequence, dispatchedSequence + 1);
+
+        recoveredTxnIds.addAll(pending.keySet());
+
+        if (LOGGER.isInfoEnabled())
+        {
+            LOGGER.info("Opened event outbox " + directory + ": last sequence " + (nextSequence - 1) + ", dispatched up to " + dispatchedSequence);
+        }
+    }
+
+    /**
+     * Resolve the transactions that a previous run left prepared, i.e. that crashed between forcing their events and recording the outcome.
+     * 
+     * @param isCommitted
+     *            decides whether a transaction has been committed
+     * @return the number of transactions resolved
+     */
+    public int resolveRecovered(LongPredicate isCommitted)
+    {
+        List<Long> txnIds;
+        synchronized (this)
+        {
+            txnIds = new ArrayList<>(recoveredTxnIds);
+        }
+        for (Long txnId : txnIds)
+        {
+            boolean committed = isCommitted.test(txnId);
+            LOGGER.info("Resolving event outbox transaction " + txnId + " left prepared as " + (committed ? "committed" : "rolled back"));
+            synchronized (this)
+            {
+                if (committed)
+                {
+                    commit(txnId);
+                }
+                else
+                {
+                    rollback(txnId);
+                }
+                recoveredTxnIds.remove(txnId);
+            }
+        }
+        if (!txnIds.isEmpty())
+        {
+            force();
+        }
+        return txnIds.size();
+    }
+
+    private void replayRecord(Segment segment, byte type, long txnId, long sequence, String payload)
+    {
+        switch (type)
+        {
+        case PREPARED:
+            pending.computeIfAbsent(txnId, k -> new ArrayList<>()).add(new Prepared(segment, payload));
+            segment.unresolved++;
+            break;
+        case COMMITTED:
+            List<Prepared> events = pending.remove(txnId);
+            if (events != null)
+            {
+                long seq = sequence;
+                for (Prepared prepared : events)
+                {
+                    prepared.segment.unresolved--;
+                    prepared.segment.addSequence(seq);
+                    if (seq > dispatchedSequence)
+                    {
+                        buffer(new OutboxEvent(seq, txnId, prepared.payload));
+                    }
+                    seq++;
+                }
+            }
+            // The commit record holds the event count, as the prepared records may have been deleted with an older segment
+            nextSequence = Math.max(nextSequence, sequence + Integer.parseInt(payload));
+            break;
+        case ROLLED_BACK:
+            List<Prepared> discarded = pending.remove(txnId);
+            if (discarded != null)
+            {
+                discarded.forEach(prepared -> prepared.segment.unresolved--);
+            }
+            break;
+        default:
+            throw new AlfrescoRuntimeException("Unknown event outbox record type " + type + " in " + segment.file);
+        }
+    }
+
+    /**
+     * Append an event written by a transaction that has not committed yet. The record is only guaranteed to be on disk after {@link #force()}.
+     */
+    public synchronized void prepare(long txnId, String payload)
+    {
+        Segment segment = append(PREPARED, txnId, 0, payload);
+        pending.computeIfAbsent(txnId, k -> new ArrayList<>()).add(new Prepared(segment, payload));
+        segment.unresolved++;
+    }
+
+    /**
+     * Mark the events of a transaction as committed, assigning their sequence numbers.
+     * 
+     * @return the number of events committed
+     */
+    public synchronized int commit(long txnId)
+    {
+        List<Prepared> events = pending.remove(txnId);
+        if (events == null)
+        {
+            return 0;
+        }
+        long sequence = nextSequence;
+        append(COMMITTED, txnId, sequence, Integer.toString(events.size()));
+        commitUnforced = true;
+        for (Prepared prepared : events)
+        {
+            prepared.segment.unresolved--;
+            prepared.segment.addSequence(sequence);
+            buffer(new OutboxEvent(sequence, txnId, prepared.payload));
+            sequence++;
+        }
+        nextSequence = sequence;
+        return events.size();
+    }
+
+    /**
+     * Discard the events of a rolled back transaction.
+     */
+    public synchronized void rollback(long txnId)
+    {
+        List<Prepared> events = pending.remove(txnId);
+        if (events != null)
+        {
+            append(ROLLED_BACK, txnId, 0, null);
+            events.forEach(prepared -> prepared.segment.unresolved--);
+        }
+    }
+
+    /**
+     * Force everything appended so far to disk.
+     */
+    public synchronized void force()
+    {
+        try
+        {
+            current().channel.force(false);
+            commitUnforced = false;
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Unable to force event outbox to disk: " + directory, e);
+        }
+    }
+
+    private void buffer(OutboxEvent event)
+    {
+        if (!bufferOverflowed && buffered.size() < maxBufferedEvents)
+        {
+            buffered.add(event);
+        }
+        else
+        {
+            bufferOverflowed = true;
+        }
+    }
+
+    /**
+     * Get the next committed events that have not been dispatched yet, oldest first. The commit records of the returned events are forced to disk first, as a commit record lost in a crash would let the sequence numbers of published events be handed out again.
+     */
+    public synchronized List<OutboxEvent> nextToDispatch(int maxEvents)
+    {
+        if (commitUnforced)
+        {
+            force();
+        }
+        if (!buffered.isEmpty())
+        {
+            return head(buffered, maxEvents);
+        }
+        if (bufferOverflowed)
+        {
+            // Catch up from disk, as everything committed since the overflow is on disk only. The cursor carries on
+            // from where the previous batch stopped, so each record is read once.
+            if (cursor == null)
+            {
+                cursor = openCursor(dispatchedSequence + 1);
+            }
+            fill(cursor, maxEvents);
+            List<OutboxEvent> events = head(cursor.decoded, maxEvents);
+            if (isCaughtUp(cursor))
+            {
+                // Every committed event has been read back, so the buffer can take over again
+                buffered.addAll(cursor.decoded);
+                cursor = null;
+                bufferOverflowed = false;
+            }
+            return events;
+        }
+        return Collections.emptyList();
+    }
+
+    private static List<OutboxEvent> head(Deque<OutboxEvent> events, int maxEvents)
+    {
+        List<OutboxEvent> head = new ArrayList<>(Math.min(maxEvents, events.size()));
+        Iterator<OutboxEvent> iterator = events.iterator();
+        while (iterator.hasNext() && head.size() < maxEvents)
+        {
+            head.add(iterator.next());
+        }
+        return head;
+    }
+
+    /**
+     * Start reading back from the oldest segment that holds either an event from the given sequence number on or a prepared record of a transaction that has not committed yet, so that every commit record met later finds its events.
+     */
+    private ReadCursor openCursor(long fromSequence)
+    {
+        int first = segments.size() - 1;
+        for (int i = 0; i < segments.size(); i++)
+        {
+            Segment segment = segments.get(i);
+            if (segment.maxSequence >= fromSequence || segment.unresolved > 0)
+            {
+                first = i;
+                break;
+            }
+        }
+        return new ReadCursor(segments.get(first).index, fromSequence);
+    }
+
+    /**
+     * Read records from the cursor onwards until it holds <tt>maxEvents</tt> events or has reached the end of the journal.
+     */
+    private void fill(ReadCursor cursor, int maxEvents)
+    {
+        while (cursor.decoded.size() < maxEvents)
+        {
+            Segment segment = cursorSegment(cursor);
+            if (cursor.position < segment.size)
+            {
+                cursor.position = segment.scan(cursor.position, cursor, () -> cursor.decoded.size() >= maxEvents, false);
+            }
+            else if (segment != current())
+            {
+                cursor.segmentIndex = segment.index + 1;
+                cursor.position = 0;
+            }
+            else
+            {
+                break;
+            }
+        }
+    }
+
+    private Segment cursorSegment(ReadCursor cursor)
+    {
+        for (Segment segment : segments)
+        {
+            if (segment.index >= cursor.segmentIndex)
+            {
+                if (segment.index > cursor.segmentIndex)
+                {
+                    // The segment the cursor was in has gone, carry on from the start of the next one
+                    cursor.segmentIndex = segment.index;
+                    cursor.position = 0;
+                }
+                return segment;
+            }
+        }
+        return current();
+    }
+
+    private boolean isCaughtUp(ReadCursor cursor)
+    {
+        return cursorSegment(cursor) == current() && cursor.position >= current().size;
+    }
+
+    /**
+     * Record that all events up to and including the given sequence number have been dispatched, and delete the segments no longer needed.
+     */
+    public synchronized void markDispatched(long sequence)
+    {
+        if (sequence <= dispatchedSequence)
+        {
+            return;
+        }
+        dispatchedSequence = sequence;
+        while (!buffered.isEmpty() && buffered.peekFirst().getSequence() <= sequence)
+        {
+            buffered.removeFirst();
+        }
+        if (cursor != null)
+        {
+            while (!cursor.decoded.isEmpty() && cursor.decoded.peekFirst().getSequence() <= sequence)
+            {
+                cursor.decoded.removeFirst();
+            }
+        }
+        writeOffset();
+
+        // Delete the oldest segments, in order, once they are fully resolved, dispatched and outside the retention
+        while (segments.size() > 1)
+        {
+            Segment oldest = segments.get(0);
+            if (oldest.unresolved > 0 || oldest.maxSequence > dispatchedSequence - retainEvents)
+            {
+                break;
+            }
+            oldest.delete();
+            segments.remove(0);
+        }
+    }
+
+    /**
+     * Read committed events starting from the given sequence number. Reading has no side effects, so a consumer can replay from the same offset as often as needed.
+     * 
+     * @param fromSequence
+     *            the first sequence number to return
+     * @param maxEvents
+     *            the maximum number of events to return
+     * @return the events, ordered by sequence number
+     */
+    public synchronized List<OutboxEvent> read(long fromSequence, int maxEvents)
+    {
+        // A commit record is never in an older segment than the events it commits, so scan from the first segment holding a wanted event
+        int first = 0;
+        while (first < segments.size() - 1 && segments.get(first).maxSequence < fromSequence)
+        {
+            first++;
+        }
+
+        Map<Long, List<String>> prepared = new HashMap<>();
+        List<OutboxEvent> events = new ArrayList<>();
+        for (Segment segment : segments.subList(first, segments.size()))
+        {
+            segment.scan((type, txnId, sequence, payload) -> {
+                if (type == PREPARED)
+                {
+                    prepared.computeIfAbsent(txnId, k -> new ArrayList<>()).add(payload);
+                }
+                else
+                {
+                    List<String> payloads = prepared.remove(txnId);
+                    if (type == COMMITTED && payloads != null)
+                    {
+                        long seq = sequence;
+                        for (String p : payloads)
+                        {
+                            if (seq >= fromSequence)
+                            {
+                                events.add(new OutboxEvent(seq, txnId, p));
+                            }
+                            seq++;
+                        }
+                    }
+                }
+            }, false);
+        }
+        events.sort(Comparator.comparingLong(OutboxEvent::getSequence));
+        return events.size() > maxEvents ? new ArrayList<>(events.subList(0, maxEvents)) : events;
+    }
+
+    public synchronized long getLastSequence()
+    {
+        return nextSequence - 1;
+    }
+
+    public synchronized long getDispatchedSequence()
+    {
+        return dispatchedSequence;
+    }
+
+    /**
+     * @return the lowest sequence number that can still be replayed
+     */
+    public synchronized long getFirstRetainedSequence()
+    {
+        long first = nextSequence;
+        for (Segment segment : segments)
+        {
+            first = Math.min(first, segment.minSequence);
+        }
+        return first;
+    }
+
+    public synchronized int getSegmentCount()
+    {
+        return segments.size();
+    }
+
+    public synchronized void close()
+    {
+        for (Segment segment : segments)
+        {
+            segment.close();
+        }
+    }
+
+    private Segment current()
+    {
+        return segments.get(segments.size() - 1);
+    }
+
+    private Segment append(byte type, long txnId, long sequence, String payload)
+    {
+        Segment segment = current();
+        try
+        {
+            if (segment.size >= segmentSize)
+            {
+                segment.channel.force(false);
+                segment = new Segment(segmentFile(segment.index + 1), segment.index + 1);
+                segments.add(segment);
+            }
+            byte[] bytes = (payload == null) ? new byte[0] : payload.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer body = ByteBuffer.allocate(BODY_PREFIX_SIZE + bytes.length);
+            body.put(type).putLong(txnId).putLong(sequence).put(bytes);
+            CRC32 crc = new CRC32();
+            crc.update(body.array());
+            ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + body.capacity());
+            record.putInt(body.capacity()).putInt((int) crc.getValue()).put(body.array());
+            record.flip();
+            while (record.hasRemaining())
+            {
+                segment.size += segment.channel.write(record, segment.size);
+            }
+            return segment;
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Unable to append to event outbox: " + segment.file, e);
+        }
+    }
+
+    private File segmentFile(long index)
+    {
+        return new File(directory, String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentIndex(File file)
+    {
+        String name = file.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private long readOffset() throws IOException
+    {
+        File offsetFile = new File(directory, OFFSET_FILE_NAME);
+        if (!offsetFile.exists())
+        {
+            return 0;
+        }
+        return Long.parseLong(new String(Files.readAllBytes(offsetFile.toPath()), StandardCharsets.UTF_8).trim());
+    }
+
+    private void writeOffset()
+    {
+        File offsetFile = new File(directory, OFFSET_FILE_NAME);
+        File tempFile = new File(directory, OFFSET_FILE_NAME + ".tmp");
+        try
+        {
+            Files.write(tempFile.toPath(), Long.toString(dispatchedSequence).getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile.toPath(), offsetFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            // Not fatal: at worst some events are dispatched again after a restart
+            LOGGER.warn("Unable to record the dispatched event outbox offset in " + offsetFile, e);
+        }
+    }
+
+    /**
+     * A committed event
+     */
+    public static class OutboxEvent
+    {
+        private final long sequence;
+        private final long txnId;
+        private final String payload;
+
+        OutboxEvent(long sequence, long txnId, String payload)
+        {
+            this.sequence = sequence;
+            this.txnId = txnId;
+            this.payload = payload;
+        }
+
+        public long getSequence()
+        {
+            return sequence;
+        }
+
+        public long getTxnId()
+        {
+            return txnId;
+        }
+
+        /**
+         * @return the serialized event
+         */
+        public String getPayload()
+        {
+            return payload;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "OutboxEvent[sequence=" + sequence + ", txnId=" + txnId + "]";
+        }
+    }
+
+    private static class Prepared
+    {
+        private final Segment segment;
+        private final String payload;
+
+        private Prepared(Segment segment, String payload)
+        {
+            this.segment = segment;
+            this.payload = payload;
+        }
+    }
+
+    private interface RecordVisitor
+    {
+        void visit(byte type, long txnId, long sequence, String payload);
+    }
+
+    /**
+     * Read position in the journal, with the prepared records seen so far and the committed events read but not dispatched yet
+     */
+    private static class ReadCursor implements RecordVisitor
+    {
+        private final long fromSequence;
+        private final Map<Long, List<String>> prepared = new HashMap<>();
+        private final Deque<OutboxEvent> decoded = new ArrayDeque<>();
+        private long segmentIndex;
+        private long position;
+
+        private ReadCursor(long segmentIndex, long fromSequence)
+        {
+            this.segmentIndex = segmentIndex;
+            this.fromSequence = fromSequence;
+        }
+
+        @Override
+        public void visit(byte type, long txnId, long sequence, String payload)
+        {
+            if (type == PREPARED)
+            {
+                prepared.computeIfAbsent(txnId, k -> new ArrayList<>()).add(payload);
+                return;
+            }
+            List<String> payloads = prepared.remove(txnId);
+            if (type == COMMITTED && payloads != null)
+            {
+                long seq = sequence;
+                for (String eventPayload : payloads)
+                {
+                    if (seq >= fromSequence)
+                    {
+                        decoded.add(new OutboxEvent(seq, txnId, eventPayload));
+                    }
+                    seq++;
+                }
+            }
+        }
+    }
+
+    private static class Segment
+    {
+        private final File file;
+        private final long index;
+        private final FileChannel channel;
+        private long size;
+        private long minSequence = Long.MAX_VALUE;
+        private long maxSequence;
+        private int unresolved;
+
+        private Segment(File file, long index) throws IOException
+        {
+            this.file = file;
+            this.index = index;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+
+        private void addSequence(long sequence)
+        {
+            minSequence = Math.min(minSequence, sequence);
+            maxSequence = Math.max(maxSequence, sequence);
+        }
+
+        /**
+         * Visit every complete record. When <tt>truncate</tt> is set, a torn or corrupt tail left by a crash is cut off.
+         */
+        private void scan(RecordVisitor visitor, boolean truncate)
+        {
+            scan(0, visitor, () -> false, truncate);
+        }
+
+        /**
+         * Visit the complete records from the given position on, until <tt>done</tt> holds. When <tt>truncate</tt> is set, a torn or corrupt tail left by a crash is cut off.
+         * 
+         * @return the position after the last record visited
+         */
+        private long scan(long from, RecordVisitor visitor, BooleanSupplier done, boolean truncate)
+        {
+            try
+            {
+                long position = from;
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                while (position + HEADER_SIZE <= size && !done.getAsBoolean())
+                {
+                    header.clear();
+                    readFully(header, position);
+                    int length = header.getInt(0);
+                    int checksum = header.getInt(4);
+                    if (length < BODY_PREFIX_SIZE || position + HEADER_SIZE + length > size)
+                    {
+                        break;
+                    }
+                    ByteBuffer body = ByteBuffer.allocate(length);
+                    readFully(body, position + HEADER_SIZE);
+                    CRC32 crc = new CRC32();
+                    crc.update(body.array());
+                    if ((int) crc.getValue() != checksum)
+                    {
+                        break;
+                    }
+                    String payload = new String(body.array(), BODY_PREFIX_SIZE, length - BODY_PREFIX_SIZE, StandardCharsets.UTF_8);
+                    visitor.visit(body.get(0), body.getLong(1), body.getLong(9), payload);
+                    position += HEADER_SIZE + length;
+                }
+                if (truncate && position < size)
+                {
+                    LOGGER.warn("Discarding " + (size - position) + " bytes of incomplete data at the end of event outbox segment " + file);
+                    channel.truncate(position);
+                    size = position;
+                }
+                return position;
+            }
+            catch (IOException e)
+            {
+                throw new AlfrescoRuntimeException("Unable to read event outbox segment: " + file, e);
+            }
+        }
+
+        private void readFully(ByteBuffer buffer, long position) throws IOException
+        {
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+        }
+
+        private void close()
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                LOGGER.warn("Unable to close event outbox segment " + file, e);
+            }
+        }
+
+        private void delete()
+        {
+            close();
+            if (!file.delete())
+            {
+                LOGGER.warn("Unable to delete event outbox segment " + file);
+            }
+        }
+    }
+}
@@ -43,6 +43,14 @@ public interface EventSender
      */
     void accept(Callable<Optional<RepoEvent<?>>> eventProducer);
 
+    /**
+     * It's called once all the events of a transaction have been accepted. Senders participating in the transaction may use it to complete work that has to happen before the commit.
+     */
+    default void flush()
+    {
+        // nothing to flush by default
+    }
+
     /**
      * It's called right after event sender instantiation (see {@link org.alfresco.repo.event2.EventSenderFactoryBean}). It might be used to initialize the sender implementation.
      */
@@ -25,6 +25,8 @@
  */
 package org.alfresco.repo.event2;
 
+import java.io.File;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.concurrent.Executor;
 import jakarta.annotation.Nonnull;
@@ -34,6 +36,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
 import org.springframework.core.env.PropertyResolver;
 
+import org.alfresco.repo.domain.node.NodeDAO;
+import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.util.PropertyCheck;
 
 public class EventSenderFactoryBean extends AbstractFactoryBean<EventSender>
@@ -42,6 +46,16 @@ public class EventSenderFactoryBean extends AbstractFactoryBean<EventSender>
     static final String EVENT_SEND_STRATEGY_PROPERTY = "repo.event2.send.strategy";
     private static final String DIRECT_EVENT_SENDER_NAME = "direct";
     private static final String ASYNC_EVENT_SENDER_NAME = "async";
+    private static final String OUTBOX_EVENT_SENDER_NAME = "outbox";
+    static final String QUEUE_CAPACITY_PROPERTY = "repo.event2.queue.capacity";
+    static final String QUEUE_OVERFLOW_POLICY_PROPERTY = "repo.event2.queue.overflowPolicy";
+    static final String QUEUE_BATCH_SIZE_PROPERTY = "repo.event2.queue.batchSize";
+    static final String QUEUE_SPILL_DIRECTORY_PROPERTY = "repo.event2.queue.spillDirectory";
+    static final String OUTBOX_DIRECTORY_PROPERTY = "repo.event2.outbox.directory";
+    static final String OUTBOX_SEGMENT_SIZE_PROPERTY = "repo.event2.outbox.segmentSize";
+    static final String OUTBOX_RETAIN_EVENTS_PROPERTY = "repo.event2.outbox.retainEvents";
+    static final String OUTBOX_BUFFERED_EVENTS_PROPERTY = "repo.event2.outbox.bufferedEvents";
+    static final String OUTBOX_RETRY_DELAY_PROPERTY = "repo.event2.outbox.retryDelayMs";
 
     private final PropertyResolver propertyResolver;
     private final Event2MessageProducer event2MessageProducer;
@@ -50,6 +64,17 @@ public class EventSenderFactoryBean extends AbstractFactoryBean<EventSender>
 
     private String configuredSenderName;
     private boolean legacySkipQueueConfig;
+    private int queueCapacity = EnqueuingEventSender.DEFAULT_QUEUE_CAPACITY;
+    private String overflowPolicy = EnqueuingEventSender.OverflowPolicy.BLOCK.name();
+    private int batchSize = EnqueuingEventSender.DEFAULT_BATCH_SIZE;
+    private String spillDirectory;
+    private String outboxDirectory;
+    private long outboxSegmentSize = 64L * 1024 * 1024;
+    private long outboxRetainEvents = 1000000;
+    private int outboxBufferedEvents = 10000;
+    private long outboxRetryDelayMs = 5000;
+    private NodeDAO nodeDAO;
+    private TransactionService transactionService;
 
     public EventSenderFactoryBean(@Autowired PropertyResolver propertyResolver, Event2MessageProducer event2MessageProducer,
             Executor enqueueThreadPoolExecutor, Executor dequeueThreadPoolExecutor)
@@ -77,6 +102,70 @@ public class EventSenderFactoryBean extends AbstractFactoryBean<EventSender>
         this.configuredSenderName = configuredSenderName;
     }
 
+    @Value("${" + QUEUE_CAPACITY_PROPERTY + "}")
+    public void setQueueCapacity(int queueCapacity)
+    {
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Value("${" + QUEUE_OVERFLOW_POLICY_PROPERTY + "}")
+    public void setOverflowPolicy(String overflowPolicy)
+    {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Value("${" + QUEUE_BATCH_SIZE_PROPERTY + "}")
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    @Value("${" + QUEUE_SPILL_DIRECTORY_PROPERTY + "}")
+    public void setSpillDirectory(String spillDirectory)
+    {
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Value("${" + OUTBOX_DIRECTORY_PROPERTY + "}")
+    public void setOutboxDirectory(String outboxDirectory)
+    {
+        this.outboxDirectory = outboxDirectory;
+    }
+
+    @Value("${" + OUTBOX_SEGMENT_SIZE_PROPERTY + "}")
+    public void setOutboxSegmentSize(long outboxSegmentSize)
+    {
+        this.outboxSegmentSize = outboxSegmentSize;
+    }
+
+    @Value("${" + OUTBOX_RETAIN_EVENTS_PROPERTY + "}")
+    public void setOutboxRetainEvents(long outboxRetainEvents)
+    {
+        this.outboxRetainEvents = outboxRetainEvents;
+    }
+
+    @Value("${" + OUTBOX_BUFFERED_EVENTS_PROPERTY + "}")
+    public void setOutboxBufferedEvents(int outboxBufferedEvents)
+    {
+        this.outboxBufferedEvents = outboxBufferedEvents;
+    }
+
+    @Value("${" + OUTBOX_RETRY_DELAY_PROPERTY + "}")
+    public void setOutboxRetryDelayMs(long outboxRetryDelayMs)
+    {
+        this.outboxRetryDelayMs = outboxRetryDelayMs;
+    }
+
+    public void setNodeDAO(NodeDAO nodeDAO)
+    {
+        this.nodeDAO = nodeDAO;
+    }
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
     @Override
     public Class<?> getObjectType()
     {
@@ -115,6 +204,11 @@ public class EventSenderFactoryBean extends AbstractFactoryBean<EventSender>
             return instantiateAsyncSender();
         }
 
+        if (OUTBOX_EVENT_SENDER_NAME.equalsIgnoreCase(senderName))
+        {
+            return instantiateOutboxSender();
+        }
+
         throw new IllegalStateException("Failed to instantiate sender: " + senderName);
     }
 
@@ -125,7 +219,24 @@ public class EventSenderFactoryBean extends AbstractFactoryBean<EventSender>
 
     private EnqueuingEventSender instantiateAsyncSender()
     {
-        return new EnqueuingEventSender(getEvent2MessageProducer(), enqueueThreadPoolExecutor, dequeueThreadPoolExecutor);
+        EnqueuingEventSender.OverflowPolicy policy = EnqueuingEventSender.OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase(Locale.ROOT));
+        EventSpillJournal spillJournal = null;
+        if (policy == EnqueuingEventSender.OverflowPolicy.SPILL)
+        {
+            PropertyCheck.mandatory(this, "spillDirectory", spillDirectory);
+            spillJournal = new EventSpillJournal(new File(spillDirectory));
+        }
+        return new EnqueuingEventSender(getEvent2MessageProducer(), enqueueThreadPoolExecutor, dequeueThreadPoolExecutor,
+                queueCapacity, policy, batchSize, spillJournal);
+    }
+
+    private OutboxEventSender instantiateOutboxSender()
+    {
+        PropertyCheck.mandatory(this, "outboxDirectory", outboxDirectory);
+        EventOutbox outbox = new EventOutbox(new File(outboxDirectory), outboxSegmentSize, outboxRetainEvents, outboxBufferedEvents);
+        // The dequeue pool is otherwise only used by the async sender, so it hosts the outbox dispatcher
+        return new OutboxEventSender(getEvent2MessageProducer(), outbox, nodeDAO, transactionService, dequeueThreadPoolExecutor,
+                batchSize, outboxRetryDelayMs);
     }
 
     private boolean isSenderNameConfigured()
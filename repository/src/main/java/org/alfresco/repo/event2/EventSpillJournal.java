@@ -0,0 +1,357 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.event2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+
+/**
+ * Simple append-only disk journal used by {@link EnqueuingEventSender} to hold serialized events once its in-memory queue is full.
+ * <p>
+ * Entries are stored as length-prefixed UTF-8 records after a header that holds the read position, and are read back in the order they were appended. Reading is done in two steps: {@link #peek(int)} returns entries without consuming them and {@link #commit(int)} moves the read position past them once they have been sent, so an entry that could not be sent is read again. Appends and read position updates are forced to disk before they return.
+ * <p>
+ * The file is truncated as soon as every entry has been consumed. While a backlog persists, the consumed head of the file is compacted away once it reaches <tt>compactThreshold</tt> bytes, so the file does not grow without bound. Entries left behind by a previous run are picked up again from the persisted read position when the journal is opened; a partially written trailing record is discarded. As the read position is committed after the send, an entry sent just before a crash may be sent again after a restart.
+ */
+public class EventSpillJournal
+{
+    private static final Log LOGGER = LogFactory.getLog(EventSpillJournal.class);
+
+    static final String JOURNAL_FILE_NAME = "event2-spill.journal";
+    static final String COMPACT_FILE_NAME = JOURNAL_FILE_NAME + ".compact";
+
+    /** The header holds the read position */
+    static final int HEADER_SIZE = 8;
+
+    public static final long DEFAULT_COMPACT_THRESHOLD = 64L * 1024 * 1024;
+
+    private final File file;
+    private final File compactFile;
+    private final long compactThreshold;
+    private RandomAccessFile journal;
+    private long readPosition;
+    private long writePosition;
+    private long size;
+
+    public EventSpillJournal(File directory)
+    {
+        this(directory, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    /**
+     * @param directory
+     *            the directory holding the journal file
+     * @param compactThreshold
+     *            the number of consumed bytes at the head of the file above which it is compacted
+     */
+    public EventSpillJournal(File directory, long compactThreshold)
+    {
+        if (!directory.exists() && !directory.mkdirs())
+        {
+            throw new AlfrescoRuntimeException("Unable to create event spill directory: " + directory);
+        }
+        this.file = new File(directory, JOURNAL_FILE_NAME);
+        this.compactFile = new File(directory, COMPACT_FILE_NAME);
+        this.compactThreshold = compactThreshold;
+        try
+        {
+            // A compaction that did not complete leaves the journal itself untouched
+            Files.deleteIfExists(compactFile.toPath());
+            this.journal = new RandomAccessFile(file, "rw");
+            recover();
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Unable to open event spill journal: " + file, e);
+        }
+    }
+
+    /**
+     * Read the persisted read position and scan the entries after it, counting complete entries and discarding an incomplete trailing one.
+     */
+    private void recover() throws IOException
+    {
+        long length = journal.length();
+        if (length < HEADER_SIZE)
+        {
+            if (length > 0)
+            {
+                LOGGER.warn("Discarding " + length + " bytes of incomplete data in event spill journal " + file);
+            }
+            reset();
+            return;
+        }
+        journal.seek(0);
+        readPosition = journal.readLong();
+        if (readPosition < HEADER_SIZE || readPosition > length)
+        {
+            LOGGER.warn("Invalid read position " + readPosition + " in event spill journal " + file + ", reading it from the start");
+            readPosition = HEADER_SIZE;
+        }
+        long position = readPosition;
+        while (position + 4 <= length)
+        {
+            journal.seek(position);
+            int recordLength = journal.readInt();
+            if (recordLength < 0 || position + 4 + recordLength > length)
+            {
+                break;
+            }
+            position += 4 + recordLength;
+            size++;
+        }
+        if (position < length)
+        {
+            LOGGER.warn("Discarding " + (length - position) + " bytes of incomplete data at the end of event spill journal " + file);
+            journal.setLength(position);
+            journal.getChannel().force(true);
+        }
+        writePosition = position;
+        if (size > 0)
+        {
+            LOGGER.info("Found " + size + " spilled repository events in " + file + " to be sent");
+        }
+    }
+
+    /**
+     * Append a serialized event to the end of the journal.
+     * 
+     * @param event
+     *            the serialized event
+     */
+    public synchronized void append(String event)
+    {
+        byte[] bytes = event.getBytes(StandardCharsets.UTF_8);
+        byte[] record = new byte[4 + bytes.length];
+        record[0] = (byte) (bytes.length >>> 24);
+        record[1] = (byte) (bytes.length >>> 16);
+        record[2] = (byte) (bytes.length >>> 8);
+        record[3] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, record, 4, bytes.length);
+        try
+        {
+            journal.seek(writePosition);
+            journal.write(record);
+            journal.getChannel().force(false);
+            writePosition += record.length;
+            size++;
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Unable to append to event spill journal: " + file, e);
+        }
+    }
+
+    /**
+     * Read up to <tt>maxEntries</tt> entries from the head of the journal without consuming them.
+     * 
+     * @param maxEntries
+     *            the maximum number of entries to read
+     * @return the serialized events, in the order they were appended
+     */
+    public synchronized List<String> peek(int maxEntries)
+    {
+        if (size == 0)
+        {
+            return Collections.emptyList();
+        }
+        List<String> entries = new ArrayList<>((int) Math.min(maxEntries, size));
+        try
+        {
+            journal.seek(readPosition);
+            while (entries.size() < size && entries.size() < maxEntries)
+            {
+                int recordLength = journal.readInt();
+                byte[] bytes = new byte[recordLength];
+                journal.readFully(bytes);
+                entries.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Unable to read from event spill journal: " + file, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Consume entries from the head of the journal, typically those returned by {@link #peek(int)} that have been sent.
+     * 
+     * @param count
+     *            the number of entries to consume
+     */
+    public synchronized void commit(int count)
+    {
+        if (count <= 0)
+        {
+            return;
+        }
+        if (count > size)
+        {
+            throw new IllegalArgumentException("Cannot consume " + count + " entries, the event spill journal only holds " + size);
+        }
+        try
+        {
+            if (count == size)
+            {
+                // Everything has been consumed, so reclaim the space
+                reset();
+                return;
+            }
+            long position = readPosition;
+            for (int i = 0; i < count; i++)
+            {
+                journal.seek(position);
+                position += 4 + journal.readInt();
+            }
+            readPosition = position;
+            size -= count;
+            if (readPosition - HEADER_SIZE >= compactThreshold)
+            {
+                compact();
+            }
+            else
+            {
+                writeReadPosition();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Unable to consume from event spill journal: " + file, e);
+        }
+    }
+
+    private void writeReadPosition() throws IOException
+    {
+        journal.seek(0);
+        journal.writeLong(readPosition);
+        journal.getChannel().force(false);
+    }
+
+    private void reset() throws IOException
+    {
+        journal.setLength(0);
+        readPosition = HEADER_SIZE;
+        writePosition = HEADER_SIZE;
+        size = 0;
+        writeReadPosition();
+    }
+
+    /**
+     * Copy the unconsumed entries to a new file and move it over the journal, so that a crash at any point leaves either the old or the new journal in place.
+     */
+    private void compact() throws IOException
+    {
+        long remaining = writePosition - readPosition;
+        try (RandomAccessFile compacted = new RandomAccessFile(compactFile, "rw"))
+        {
+            compacted.setLength(0);
+            compacted.writeLong(HEADER_SIZE);
+            FileChannel source = journal.getChannel();
+            FileChannel target = compacted.getChannel();
+            long copied = 0;
+            while (copied < remaining)
+            {
+                copied += source.transferTo(readPosition + copied, remaining - copied, target);
+            }
+            target.force(true);
+        }
+        journal.close();
+        boolean moved = false;
+        try
+        {
+            Files.move(compactFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        }
+        finally
+        {
+            journal = new RandomAccessFile(file, "rw");
+            if (!moved)
+            {
+                // Keep using the old journal, just record how far it has been consumed
+                writeReadPosition();
+            }
+        }
+        if (LOGGER.isDebugEnabled())
+        {
+            LOGGER.debug("Compacted event spill journal " + file + ", dropped " + (readPosition - HEADER_SIZE) + " consumed bytes");
+        }
+        writePosition = HEADER_SIZE + remaining;
+        readPosition = HEADER_SIZE;
+    }
+
+    /**
+     * @return the number of entries still to be consumed
+     */
+    public synchronized long size()
+    {
+        return size;
+    }
+
+    public synchronized boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * @return the length of the journal file in bytes
+     */
+    public synchronized long length()
+    {
+        try
+        {
+            return journal.length();
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Unable to read the length of event spill journal: " + file, e);
+        }
+    }
+
+    public synchronized void close()
+    {
+        try
+        {
+            journal.close();
+        }
+        catch (IOException e)
+        {
+            LOGGER.warn("Unable to close event spill journal " + file, e);
+        }
+    }
+}
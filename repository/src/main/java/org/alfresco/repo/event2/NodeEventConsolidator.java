@@ -34,6 +34,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import org.alfresco.model.ContentModel;
@@ -60,7 +61,9 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
     private final List<QName> aspectsRemoved;
 
     private NodeResource.Builder resourceBuilder;
-    private Map<QName, Serializable> propertiesBefore;
+    // original values of the changed properties only; keys absent before the txn are kept in propertiesAddedKeys
+    private Map<QName, Serializable> changedPropertiesBefore;
+    private Set<QName> propertiesAddedKeys;
     private Map<QName, Serializable> propertiesAfter;
     private QName nodeType;
     private QName nodeTypeBefore;
@@ -97,6 +100,38 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
         return eventDataBuilder.build();
     }
 
+    /**
+     * Records the node reference and its type, without building the node resource. The resource itself is only
+     * materialised when the event is sent (or before the node is deleted), so nodes whose events are later discarded
+     * do not pay for resolving paths, properties and secondary parents.
+     *
+     * @param nodeRef
+     *            the nodeRef in the txn
+     */
+    protected void trackNode(NodeRef nodeRef)
+    {
+        if (entityReference == null)
+        {
+            this.entityReference = nodeRef;
+            this.nodeType = helper.getNodeType(nodeRef);
+        }
+    }
+
+    /**
+     * Refreshes the node type with the latest node info, if the node still exists. This allows the type filter to be
+     * applied before the node resource is built.
+     *
+     * @return QName the latest node type
+     */
+    public QName refreshEntityType()
+    {
+        if (entityReference != null && eventTypes.peekLast() != EventType.NODE_DELETED && helper.nodeExists(entityReference))
+        {
+            this.nodeType = helper.getNodeType(entityReference);
+        }
+        return nodeType;
+    }
+
     /**
      * Creates a builder instance if absent or {@code forceUpdate} is requested. It also, sets the required fields.
      *
@@ -131,13 +166,13 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
     {
         eventTypes.add(EventType.NODE_CREATED);
 
-        NodeRef nodeRef = childAssocRef.getChildRef();
-        createBuilderIfAbsent(nodeRef);
+        trackNode(childAssocRef.getChildRef());
 
-        // Sometimes onCreateNode policy is out of order
-        this.propertiesBefore = null;
-        setBeforeProperties(Collections.emptyMap());
-        setAfterProperties(helper.getProperties(nodeRef));
+        // Sometimes onCreateNode policy is out of order. The 'before' state is never sent for a created node,
+        // so there is no need to keep track of its properties.
+        this.changedPropertiesBefore = null;
+        this.propertiesAddedKeys = null;
+        this.propertiesAfter = null;
     }
 
     @Override
@@ -145,12 +180,16 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
     {
         eventTypes.add(EventType.NODE_UPDATED);
 
-        createBuilderIfAbsent(newChildAssocRef.getChildRef());
+        trackNode(newChildAssocRef.getChildRef());
         if (newChildAssocRef.isPrimary())
         {
-            setBeforePrimaryHierarchy(helper.getPrimaryHierarchy(oldChildAssocRef.getParentRef(), true));
+            // Don't resolve the hierarchy again if the original value is already known.
+            if (primaryHierarchyBefore == null)
+            {
+                setBeforePrimaryHierarchy(helper.getPrimaryHierarchy(oldChildAssocRef.getParentRef(), true));
+            }
         }
-        else
+        else if (secondaryParentsBefore == null)
         {
             List<String> secondaryParents = helper.getSecondaryParents(newChildAssocRef.getChildRef());
             if (newChildAssocRef.getParentRef() != null)
@@ -172,7 +211,7 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
     {
         eventTypes.add(EventType.NODE_UPDATED);
         nodeTypeBefore = before;
-        createBuilderIfAbsent(nodeRef);
+        trackNode(nodeRef);
     }
 
     @Override
@@ -180,13 +219,19 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
     {
         eventTypes.add(EventType.NODE_UPDATED);
 
+        trackNode(nodeRef);
+        if (eventTypes.contains(EventType.NODE_CREATED))
+        {
+            // The 'before' state is never sent for a created node
+            return;
+        }
+
         // Sometimes we don't get the 'before', so just use the latest
         if (before.isEmpty() && this.propertiesAfter != null)
         {
             before = this.propertiesAfter;
         }
-        createBuilderIfAbsent(nodeRef);
-        setBeforeProperties(before);
+        recordChangedProperties(before, after);
         setAfterProperties(after);
     }
 
@@ -194,7 +239,13 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
     public void beforeDeleteNode(NodeRef nodeRef)
     {
         eventTypes.add(EventType.NODE_DELETED);
-        createBuilderIfAbsent(nodeRef);
+        trackNode(nodeRef);
+        if (!eventTypes.contains(EventType.NODE_CREATED))
+        {
+            // This is the last chance to get the node info, as the node won't exist when the event is sent.
+            // Temporary nodes (created and deleted within the txn) are filtered out, so they don't need it.
+            createBuilderIfAbsent(nodeRef);
+        }
     }
 
     @Override
@@ -202,7 +253,7 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
     {
         eventTypes.add(EventType.NODE_UPDATED);
         addAspect(aspectTypeQName);
-        createBuilderIfAbsent(nodeRef);
+        trackNode(nodeRef);
     }
 
     void addAspect(QName aspectTypeQName)
@@ -222,7 +273,7 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
     {
         eventTypes.add(EventType.NODE_UPDATED);
         removeAspect(aspectTypeQName);
-        createBuilderIfAbsent(nodeRef);
+        trackNode(nodeRef);
     }
 
     void removeAspect(QName aspectTypeQName)
@@ -242,15 +293,53 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
         propertiesAfter = after;
     }
 
-    private void setBeforeProperties(Map<QName, Serializable> before)
+    /**
+     * Keeps the original value of each property changed between {@code before} and {@code after}. Unchanged
+     * properties are not copied, so the cost depends on the size of the change rather than on the size of the node.
+     */
+    private void recordChangedProperties(Map<QName, Serializable> before, Map<QName, Serializable> after)
+    {
+        if (changedPropertiesBefore == null)
+        {
+            changedPropertiesBefore = new HashMap<>();
+            propertiesAddedKeys = new HashSet<>();
+        }
+        for (Map.Entry<QName, Serializable> entry : before.entrySet())
+        {
+            QName key = entry.getKey();
+            if (!after.containsKey(key) || !Objects.equals(entry.getValue(), after.get(key)))
+            {
+                recordOriginalValue(key, entry.getValue(), true);
+            }
+        }
+        for (QName key : after.keySet())
+        {
+            if (!before.containsKey(key))
+            {
+                recordOriginalValue(key, null, false);
+            }
+        }
+    }
+
+    private void recordOriginalValue(QName key, Serializable value, boolean existed)
     {
         // Don't overwrite the original value if there are multiple calls.
-        if (propertiesBefore == null)
+        if (changedPropertiesBefore.containsKey(key))
         {
-            propertiesBefore = before;
+            return;
+        }
+        changedPropertiesBefore.put(key, value);
+        if (!existed)
+        {
+            propertiesAddedKeys.add(key);
         }
     }
 
+    Map<QName, Serializable> getChangedPropertiesBefore()
+    {
+        return changedPropertiesBefore;
+    }
+
     private void setBeforePrimaryHierarchy(List<String> before)
     {
         // Don't overwrite the original value if there are multiple calls.
@@ -275,7 +364,7 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
 
     private NodeResource buildNodeResource()
     {
-        if (resourceBuilder == null)
+        if (entityReference == null)
         {
             return null;
         }
@@ -291,6 +380,13 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
                 createBuilderIfAbsent(entityReference, true);
             }
         }
+        if (resourceBuilder == null)
+        {
+            // The node disappeared before its info could be captured, so send what is known about it
+            resourceBuilder = NodeResource.builder()
+                    .setId(entityReference.getId())
+                    .setNodeType(nodeType == null ? null : helper.getQNamePrefixString(nodeType));
+        }
         // Now create an instance of NodeResource
         return resourceBuilder.build();
     }
@@ -305,7 +401,7 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
         Builder builder = NodeResource.builder();
 
         ZonedDateTime modifiedAt = null;
-        Map<QName, Serializable> changedPropsBefore = getBeforeMapChanges(propertiesBefore, propertiesAfter);
+        Map<QName, Serializable> changedPropsBefore = getBeforeMapChanges();
         if (!changedPropsBefore.isEmpty())
         {
             // Set only the changed properties
@@ -346,7 +442,7 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
         }
 
         // Handle case where the content does not exist on the propertiesBefore
-        if (propertiesBefore != null && !propertiesBefore.containsKey(ContentModel.PROP_CONTENT) &&
+        if (propertiesAddedKeys != null && propertiesAddedKeys.contains(ContentModel.PROP_CONTENT) &&
                 propertiesAfter != null && propertiesAfter.containsKey(ContentModel.PROP_CONTENT))
         {
             builder.setContent(new ContentInfo());
@@ -428,32 +524,29 @@ public class NodeEventConsolidator extends EventConsolidator<NodeRef, NodeResour
         return true;
     }
 
-    private <K, V> Map<K, V> getBeforeMapChanges(Map<K, V> before, Map<K, V> after)
+    /**
+     * Gets the original values of the properties that differ from the latest ones. Properties that were changed
+     * and then reverted within the txn are dropped, and properties that did not exist before have a {@code null} value.
+     */
+    private Map<QName, Serializable> getBeforeMapChanges()
     {
-        if (before == null)
+        if (changedPropertiesBefore == null || changedPropertiesBefore.isEmpty())
         {
             return Collections.emptyMap();
         }
-        if (after == null)
-        {
-            after = Collections.emptyMap();
-        }
-        // Get before values that changed
-        Map<K, V> beforeDelta = new HashMap<>(before);
-        Map<K, V> afterDelta = new HashMap<>(after);
-
-        beforeDelta.entrySet().removeAll(after.entrySet());
-
-        // Add nulls for before properties
-        Set<K> beforeKeys = before.keySet();
-        Set<K> newKeys = afterDelta.keySet();
-        newKeys.removeAll(beforeKeys);
+        Map<QName, Serializable> after = (propertiesAfter == null) ? Collections.emptyMap() : propertiesAfter;
 
-        for (K key : newKeys)
+        Map<QName, Serializable> beforeDelta = new HashMap<>(changedPropertiesBefore.size());
+        for (Map.Entry<QName, Serializable> entry : changedPropertiesBefore.entrySet())
         {
-            beforeDelta.put(key, null);
+            QName key = entry.getKey();
+            boolean existedBefore = !propertiesAddedKeys.contains(key);
+            boolean existsAfter = after.containsKey(key);
+            if (existedBefore != existsAfter || (existedBefore && !Objects.equals(entry.getValue(), after.get(key))))
+            {
+                beforeDelta.put(key, entry.getValue());
+            }
         }
-
         return beforeDelta;
     }
 
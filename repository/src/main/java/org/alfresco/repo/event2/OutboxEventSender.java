@@ -0,0 +1,309 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.event2;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.repo.domain.node.NodeDAO;
+import org.alfresco.repo.event.v1.model.RepoEvent;
+import org.alfresco.repo.event2.EventOutbox.OutboxEvent;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.repo.transaction.TransactionListenerAdapter;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.PropertyCheck;
+
+/**
+ * Event sender implementing a transactional outbox.
+ * <p>
+ * Events are made while the writing transaction is still active, stored in the {@link EventOutbox} and forced to disk before the commit. A background dispatcher publishes them once the commit has happened, so events survive a JVM crash at any point after the commit. Every message carries its outbox sequence number in the {@value #SEQUENCE_HEADER} header; delivery to the broker is at-least-once, and consumers get exactly-once processing by discarding sequence numbers they have already seen. Retained events can be read again from any offset with {@link #replay(long, int)}, letting downstream systems catch up incrementally.
+ */
+public class OutboxEventSender implements EventSender
+{
+    private static final Log LOGGER = LogFactory.getLog(OutboxEventSender.class);
+
+    public static final String SEQUENCE_HEADER = "alfrescoEventSequence";
+
+    private static final String KEY_TXN_ID = OutboxEventSender.class.getName() + ".txnId";
+    private static final long IDLE_WAIT_MS = 1000;
+
+    private final Event2MessageProducer event2MessageProducer;
+    private final EventOutbox outbox;
+    private final NodeDAO nodeDAO;
+    private final TransactionService transactionService;
+    private final Executor dispatcherExecutor;
+    private final int batchSize;
+    private final long retryDelayMs;
+
+    private final OutboxTransactionListener transactionListener = new OutboxTransactionListener();
+    private final Object dispatchSignal = new Object();
+    private volatile boolean running;
+
+    public OutboxEventSender(Event2MessageProducer event2MessageProducer, EventOutbox outbox, NodeDAO nodeDAO, TransactionService transactionService,
+            Executor dispatcherExecutor, int batchSize, long retryDelayMs)
+    {
+        PropertyCheck.mandatory(this, "event2MessageProducer", event2MessageProducer);
+        PropertyCheck.mandatory(this, "outbox", outbox);
+        PropertyCheck.mandatory(this, "nodeDAO", nodeDAO);
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        PropertyCheck.mandatory(this, "dispatcherExecutor", dispatcherExecutor);
+        this.event2MessageProducer = event2MessageProducer;
+        this.outbox = outbox;
+        this.nodeDAO = nodeDAO;
+        this.transactionService = transactionService;
+        this.dispatcherExecutor = dispatcherExecutor;
+        this.batchSize = Math.max(1, batchSize);
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * Events have to be written to the outbox before the transaction commits
+     */
+    @Override
+    public boolean shouldParticipateInTransaction()
+    {
+        return true;
+    }
+
+    @Override
+    public void accept(Callable<Optional<RepoEvent<?>>> eventProducer)
+    {
+        Optional<RepoEvent<?>> event;
+        try
+        {
+            event = eventProducer.call();
+        }
+        catch (RuntimeException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new AlfrescoRuntimeException("Unexpected error while executing maker function for repository event", e);
+        }
+        if (event == null || event.isEmpty())
+        {
+            return;
+        }
+
+        Long txnId = AlfrescoTransactionSupport.getResource(KEY_TXN_ID);
+        if (txnId == null)
+        {
+            txnId = nodeDAO.getCurrentTransactionId(true);
+            AlfrescoTransactionSupport.bindResource(KEY_TXN_ID, txnId);
+            AlfrescoTransactionSupport.bindListener(transactionListener);
+        }
+        outbox.prepare(txnId, event2MessageProducer.serialize(event.get()));
+    }
+
+    /**
+     * Force the events of the current transaction to disk before it commits
+     */
+    @Override
+    public void flush()
+    {
+        if (AlfrescoTransactionSupport.getResource(KEY_TXN_ID) != null)
+        {
+            outbox.force();
+        }
+    }
+
+    @Override
+    public void initialize()
+    {
+        running = true;
+        dispatcherExecutor.execute(this::dispatch);
+    }
+
+    @Override
+    public void destroy()
+    {
+        running = false;
+        signalDispatcher();
+        outbox.close();
+    }
+
+    /**
+     * Read the retained events starting from the given sequence number. This has no side effects and can be repeated as often as needed.
+     * 
+     * @param fromSequence
+     *            the first sequence number to return
+     * @param maxEvents
+     *            the maximum number of events to return
+     * @return the events, ordered by sequence number
+     */
+    public List<OutboxEvent> replay(long fromSequence, int maxEvents)
+    {
+        return outbox.read(fromSequence, maxEvents);
+    }
+
+    /**
+     * Publish the retained events starting from the given sequence number once more, with their original sequence numbers.
+     * 
+     * @param fromSequence
+     *            the first sequence number to publish
+     * @param maxEvents
+     *            the maximum number of events to publish
+     * @return the number of events published
+     */
+    public int redeliver(long fromSequence, int maxEvents)
+    {
+        List<OutboxEvent> events = outbox.read(fromSequence, maxEvents);
+        for (OutboxEvent event : events)
+        {
+            send(event);
+        }
+        return events.size();
+    }
+
+    public long getLastSequence()
+    {
+        return outbox.getLastSequence();
+    }
+
+    public long getDispatchedSequence()
+    {
+        return outbox.getDispatchedSequence();
+    }
+
+    public long getFirstRetainedSequence()
+    {
+        return outbox.getFirstRetainedSequence();
+    }
+
+    private void send(OutboxEvent event)
+    {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(SEQUENCE_HEADER, event.getSequence());
+        event2MessageProducer.send(event.getPayload(), headers);
+    }
+
+    private void signalDispatcher()
+    {
+        synchronized (dispatchSignal)
+        {
+            dispatchSignal.notifyAll();
+        }
+    }
+
+    /**
+     * Dispatcher loop: resolve transactions left prepared by a previous run, then publish committed events in sequence order, retrying until the broker accepts them.
+     */
+    private void dispatch()
+    {
+        boolean recovered = false;
+        while (running)
+        {
+            try
+            {
+                if (!recovered)
+                {
+                    outbox.resolveRecovered(txnId -> transactionService.getRetryingTransactionHelper().doInTransaction(
+                            (RetryingTransactionCallback<Boolean>) () -> nodeDAO.getTxnById(txnId) != null, true, false));
+                    recovered = true;
+                }
+
+                List<OutboxEvent> events = outbox.nextToDispatch(batchSize);
+                if (events.isEmpty())
+                {
+                    synchronized (dispatchSignal)
+                    {
+                        dispatchSignal.wait(IDLE_WAIT_MS);
+                    }
+                    continue;
+                }
+
+                long dispatched = 0;
+                try
+                {
+                    for (OutboxEvent event : events)
+                    {
+                        send(event);
+                        dispatched = event.getSequence();
+                    }
+                }
+                finally
+                {
+                    if (dispatched > 0)
+                    {
+                        outbox.markDispatched(dispatched);
+                    }
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (Exception e)
+            {
+                LOGGER.warn("Unable to dispatch repository events from the outbox, retrying in " + retryDelayMs + "ms: " + e);
+                try
+                {
+                    Thread.sleep(retryDelayMs);
+                }
+                catch (InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private class OutboxTransactionListener extends TransactionListenerAdapter
+    {
+        @Override
+        public void afterCommit()
+        {
+            Long txnId = AlfrescoTransactionSupport.getResource(KEY_TXN_ID);
+            if (txnId != null)
+            {
+                outbox.commit(txnId);
+                signalDispatcher();
+            }
+        }
+
+        @Override
+        public void afterRollback()
+        {
+            Long txnId = AlfrescoTransactionSupport.getResource(KEY_TXN_ID);
+            if (txnId != null)
+            {
+                outbox.rollback(txnId);
+            }
+        }
+    }
+}
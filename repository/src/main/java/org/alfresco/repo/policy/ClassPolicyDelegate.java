@@ -26,10 +26,15 @@
 package org.alfresco.repo.policy;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.alfresco.api.AlfrescoPublicApi;
+import org.alfresco.repo.tenant.TenantUtil;
 import org.alfresco.service.cmr.dictionary.ClassDefinition;
 import org.alfresco.service.cmr.dictionary.DictionaryService;
 import org.alfresco.service.cmr.repository.NodeRef;
@@ -46,8 +51,19 @@ import org.alfresco.service.namespace.QName;
 @AlfrescoPublicApi
 public class ClassPolicyDelegate<P extends ClassPolicy>
 {
+    /**
+     * Upper bound on the number of distinct class signatures held in the dispatch table of a tenant
+     */
+    /* package */ static final int MAX_DISPATCH_TABLE_SIZE = 4096;
+
     private DictionaryService dictionary;
     private CachedPolicyFactory<ClassBehaviourBinding, P> factory;
+    private BehaviourFilter behaviourFilter;
+
+    /**
+     * Dispatch tables of aggregate policies keyed by class signature (e.g. a node's type plus aspects), one per tenant domain as each tenant has its own dictionary. A table is swapped out rather than cleared on invalidation so that a policy built against stale bindings can never be published into the live table.
+     */
+    private volatile ConcurrentMap<String, Map<Set<QName>, P>> dispatchTables = new ConcurrentHashMap<String, Map<Set<QName>, P>>();
 
     /**
      * Construct.
@@ -75,6 +91,50 @@ public class ClassPolicyDelegate<P extends ClassPolicy>
         this.factory = new CachedPolicyFactory<ClassBehaviourBinding, P>(policyClass, index);
         this.factory.setTryLockTimeout(tryLockTimeout);
         this.dictionary = dictionary;
+        this.behaviourFilter = index.getFilter();
+
+        // Any binding change may alter the behaviours resolved for a signature
+        index.addChangeObserver(new BehaviourChangeObserver<ClassBehaviourBinding>() {
+            public void addition(ClassBehaviourBinding binding, Behaviour behaviour)
+            {
+                invalidateDispatchTable();
+            }
+
+            public void removal(ClassBehaviourBinding binding, Behaviour behaviour)
+            {
+                invalidateDispatchTable();
+            }
+        });
+    }
+
+    /**
+     * Discard the precompiled dispatch entries of all tenants. Called when behaviours are bound or unbound and when the core dictionary, which all tenants inherit, is reloaded, as either may change the class hierarchy walked to resolve behaviours.
+     */
+    /* package */ void invalidateDispatchTable()
+    {
+        dispatchTables = new ConcurrentHashMap<String, Map<Set<QName>, P>>();
+    }
+
+    /**
+     * Discard the precompiled dispatch entries of one tenant. Called when the dictionary of that tenant is reloaded.
+     * 
+     * @param tenantDomain
+     *            the tenant domain
+     */
+    /* package */ void invalidateDispatchTable(String tenantDomain)
+    {
+        dispatchTables.remove(tenantDomain);
+    }
+
+    /**
+     * @param tenantDomain
+     *            the tenant domain
+     * @return the number of class signatures currently held in the dispatch table of the tenant
+     */
+    /* package */ int getDispatchTableSize(String tenantDomain)
+    {
+        Map<Set<QName>, P> table = dispatchTables.get(tenantDomain);
+        return table == null ? 0 : table.size();
     }
 
     /**
@@ -164,7 +224,47 @@ public class ClassPolicyDelegate<P extends ClassPolicy>
      */
     public P get(NodeRef nodeRef, Set<QName> classQNames)
     {
-        return factory.toPolicy(getList(nodeRef, classQNames));
+        // When behaviour filters are activated the result may depend on the node, so bypass the dispatch table
+        if (behaviourFilter != null && behaviourFilter.isActivated())
+        {
+            return factory.toPolicy(getList(nodeRef, classQNames));
+        }
+
+        Map<Set<QName>, P> table = getDispatchTable(TenantUtil.getCurrentDomain());
+        P policy = table.get(classQNames);
+        if (policy == null)
+        {
+            // Build against the table captured above; if it is invalidated meanwhile this entry is simply discarded
+            policy = factory.toPolicy(getList(nodeRef, classQNames));
+            if (table.size() < MAX_DISPATCH_TABLE_SIZE)
+            {
+                // Callers frequently pass live aspect sets, so key on a private copy
+                Set<QName> signature = Collections.unmodifiableSet(new HashSet<QName>(classQNames));
+                P existing = table.putIfAbsent(signature, policy);
+                if (existing != null)
+                {
+                    policy = existing;
+                }
+            }
+        }
+        return policy;
+    }
+
+    private Map<Set<QName>, P> getDispatchTable(String tenantDomain)
+    {
+        ConcurrentMap<String, Map<Set<QName>, P>> tables = dispatchTables;
+        Map<Set<QName>, P> table = tables.get(tenantDomain);
+        if (table == null)
+        {
+            // Publish into the tables captured above, so that a table created across an invalidation is discarded with them
+            Map<Set<QName>, P> newTable = new ConcurrentHashMap<Set<QName>, P>();
+            table = tables.putIfAbsent(tenantDomain, newTable);
+            if (table == null)
+            {
+                table = newTable;
+            }
+        }
+        return table;
     }
 
     /**
@@ -31,13 +31,20 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.extensions.surf.util.ParameterCheck;
 
+import org.alfresco.repo.dictionary.DictionaryDAO;
+import org.alfresco.repo.dictionary.DictionaryListener;
 import org.alfresco.repo.policy.Policy.Arg;
 import org.alfresco.repo.tenant.TenantService;
+import org.alfresco.util.cache.AbstractAsynchronouslyRefreshedCache;
+import org.alfresco.util.cache.RefreshableCacheEvent;
+import org.alfresco.util.cache.RefreshableCacheListener;
+import org.alfresco.util.cache.RefreshableCacheRefreshedEvent;
 import org.alfresco.service.cmr.dictionary.AssociationDefinition;
 import org.alfresco.service.cmr.dictionary.ClassDefinition;
 import org.alfresco.service.cmr.dictionary.DictionaryService;
@@ -63,6 +70,10 @@ public class PolicyComponentImpl implements PolicyComponent
     // Dictionary Service
     private DictionaryService dictionary;
 
+    // Dictionary DAO and the cache of its per-tenant registries (for dispatch table invalidation on dictionary changes)
+    private DictionaryDAO dictionaryDAO;
+    private AbstractAsynchronouslyRefreshedCache<?> dictionaryRegistryCache;
+
     // Behaviour Filter
     private BehaviourFilter behaviourFilter;
 
@@ -78,6 +89,9 @@ public class PolicyComponentImpl implements PolicyComponent
     // Map of Association Behaviours (by policy name)
     private Map<QName, ClassBehaviourIndex<ClassFeatureBehaviourBinding>> associationBehaviours = new HashMap<QName, ClassBehaviourIndex<ClassFeatureBehaviourBinding>>();
 
+    // Class policy delegates (for dispatch table invalidation on dictionary changes)
+    private Collection<ClassPolicyDelegate<?>> classPolicyDelegates = new CopyOnWriteArrayList<ClassPolicyDelegate<?>>();
+
     // Wild Card Feature
     private static final QName FEATURE_WILDCARD = QName.createQName(NamespaceService.DEFAULT_URI, "*");
 
@@ -134,6 +148,90 @@ public class PolicyComponentImpl implements PolicyComponent
         PolicyFactory.setTransactionInvocationHandlerFactory(factory);
     }
 
+    /**
+     * Sets the dictionary DAO. When set, the class policy dispatch tables are discarded when a dictionary is destroyed.
+     * 
+     * @param dictionaryDAO
+     *            DictionaryDAO
+     */
+    public void setDictionaryDAO(DictionaryDAO dictionaryDAO)
+    {
+        this.dictionaryDAO = dictionaryDAO;
+    }
+
+    /**
+     * Sets the cache of the per-tenant dictionary registries. When set, the class policy dispatch tables of a tenant are discarded whenever its dictionary is (re-)built, as model changes may alter the class hierarchy.
+     * 
+     * @param dictionaryRegistryCache
+     *            the cache that (re-)builds the dictionary registries, keyed by tenant domain
+     */
+    public void setDictionaryRegistryCache(AbstractAsynchronouslyRefreshedCache<?> dictionaryRegistryCache)
+    {
+        this.dictionaryRegistryCache = dictionaryRegistryCache;
+    }
+
+    /**
+     * Registers for the dictionary changes that invalidate the class policy dispatch tables
+     */
+    public void init()
+    {
+        if (dictionaryDAO != null)
+        {
+            dictionaryDAO.registerListener(new DictionaryListener() {
+                public void onDictionaryInit()
+                {}
+
+                public void afterDictionaryInit()
+                {}
+
+                public void afterDictionaryDestroy()
+                {
+                    invalidateDispatchTables(TenantService.DEFAULT_DOMAIN);
+                }
+            });
+        }
+        if (dictionaryRegistryCache != null)
+        {
+            // The refresh is broadcast from the thread that built the registry, which need not run as the tenant, so rely on the event key
+            dictionaryRegistryCache.register(new RefreshableCacheListener() {
+                public void onRefreshableCacheEvent(RefreshableCacheEvent event)
+                {
+                    if (event instanceof RefreshableCacheRefreshedEvent)
+                    {
+                        invalidateDispatchTables(event.getKey());
+                    }
+                }
+
+                public String getCacheId()
+                {
+                    return PolicyComponentImpl.class.getName();
+                }
+            });
+        }
+    }
+
+    /**
+     * Discard the precompiled dispatch tables of all registered class policies for a tenant. The core dictionary is inherited by all tenants, so a change to it discards the tables of every tenant.
+     * 
+     * @param tenantDomain
+     *            the tenant domain whose dictionary changed
+     */
+    /* package */ void invalidateDispatchTables(String tenantDomain)
+    {
+        boolean allTenants = tenantDomain == null || TenantService.DEFAULT_DOMAIN.equals(tenantDomain);
+        for (ClassPolicyDelegate<?> delegate : classPolicyDelegates)
+        {
+            if (allTenants)
+            {
+                delegate.invalidateDispatchTable();
+            }
+            else
+            {
+                delegate.invalidateDispatchTable(tenantDomain);
+            }
+        }
+    }
+
     /* (non-Javadoc)
      * 
      * @see org.alfresco.repo.policy.PolicyComponent#registerClassPolicy() */
@@ -144,6 +242,7 @@ public class PolicyComponentImpl implements PolicyComponent
         PolicyDefinition definition = createPolicyDefinition(policy);
         registeredPolicies.put(new PolicyKey(definition.getType(), definition.getName()), definition);
         ClassPolicyDelegate<P> delegate = new ClassPolicyDelegate<P>(dictionary, policy, getClassBehaviourIndex(definition.getName()), tryLockTimeout);
+        classPolicyDelegates.add(delegate);
 
         if (logger.isInfoEnabled())
             logger.info("Registered class policy " + definition.getName() + " (" + definition.getPolicyInterface() + ")");
@@ -74,6 +74,8 @@ public class DbOrIndexSwitchingQueryLanguage extends AbstractLuceneQueryLanguage
 
     private String subsystemName;
 
+    private boolean dbFieldFacetsEnabled = false;
+
     /**
      * @param dbQueryLanguage
      *            the dbQueryLanguage to set
@@ -137,6 +139,15 @@ public class DbOrIndexSwitchingQueryLanguage extends AbstractLuceneQueryLanguage
         this.subsystemName = subsystemName;
     }
 
+    /**
+     * @param dbFieldFacetsEnabled
+     *            if <tt>true</tt>, queries whose only faceting is field facets are tried against the database before the index
+     */
+    public void setDbFieldFacetsEnabled(boolean dbFieldFacetsEnabled)
+    {
+        this.dbFieldFacetsEnabled = dbFieldFacetsEnabled;
+    }
+
     public ResultSet executeQuery(SearchParameters searchParameters)
     {
         QueryConsistency consistency = searchParameters.getQueryConsistency();
@@ -185,7 +196,7 @@ public class DbOrIndexSwitchingQueryLanguage extends AbstractLuceneQueryLanguage
                 }
                 StopWatch stopWatch = new StopWatch("database only");
                 stopWatch.start();
-                ResultSet results = dbQueryLanguage.executeQuery(flattenDBQuery(searchParameters));
+                ResultSet results = dbQueryLanguage.executeQuery(prepareDBQuery(searchParameters));
                 stopWatch.stop();
                 if (logger.isDebugEnabled())
                 {
@@ -208,8 +219,8 @@ public class DbOrIndexSwitchingQueryLanguage extends AbstractLuceneQueryLanguage
         case TRANSACTIONAL_IF_POSSIBLE:
         default:
             StopWatch stopWatch = new StopWatch("DB if possible");
-            // SEARCH-347, exclude TMDQ calls if faceting present.
-            if (dbQueryLanguage != null && !searchParameters.hasFaceting())
+            // SEARCH-347, exclude TMDQ calls if faceting present, unless the DB query engine can compute it.
+            if (dbQueryLanguage != null && (!searchParameters.hasFaceting() || isDbFacetingSupported(searchParameters)))
             {
                 try
                 {
@@ -218,7 +229,7 @@ public class DbOrIndexSwitchingQueryLanguage extends AbstractLuceneQueryLanguage
                         logger.debug("Trying db query for " + dbQueryLanguage.getName() + " for " + searchParameters);
                     }
                     stopWatch.start();
-                    ResultSet results = dbQueryLanguage.executeQuery(flattenDBQuery(searchParameters));
+                    ResultSet results = dbQueryLanguage.executeQuery(prepareDBQuery(searchParameters));
                     stopWatch.stop();
                     if (logger.isDebugEnabled())
                     {
@@ -282,6 +293,37 @@ public class DbOrIndexSwitchingQueryLanguage extends AbstractLuceneQueryLanguage
         }
     }
 
+    /**
+     * The DB query engine only computes field facets, see {@link org.alfresco.repo.search.impl.querymodel.impl.db.DBFacetAggregator}
+     */
+    private boolean isDbFacetingSupported(SearchParameters sp)
+    {
+        return dbFieldFacetsEnabled
+                && sp.getFacetQueries().isEmpty()
+                && sp.getInterval() == null
+                && (sp.getPivots() == null || sp.getPivots().isEmpty())
+                && (sp.getRanges() == null || sp.getRanges().isEmpty())
+                && (sp.getStats() == null || sp.getStats().isEmpty());
+    }
+
+    private SearchParameters prepareDBQuery(SearchParameters sp)
+    {
+        SearchParameters flattened = flattenDBQuery(sp);
+        // Without DB field facets, any field facets are ignored by transactional queries as they always have been
+        return dbFieldFacetsEnabled ? flattened : withoutFieldFacets(flattened);
+    }
+
+    private SearchParameters withoutFieldFacets(SearchParameters sp)
+    {
+        if (sp.getFieldFacets().isEmpty())
+        {
+            return sp;
+        }
+        SearchParameters copy = sp.copy();
+        copy.getFieldFacets().clear();
+        return copy;
+    }
+
     private SearchParameters flattenDBQuery(SearchParameters sp)
     {
         if (sp.getFilterQueries().size() == 0)
@@ -352,7 +394,8 @@ public class DbOrIndexSwitchingQueryLanguage extends AbstractLuceneQueryLanguage
             logger.debug("Hybrid search, using DB query: " + dbQueryLanguage.getName() + " for " + searchParameters);
         }
         stopWatch.start("database query");
-        ResultSet dbResults = dbQueryLanguage.executeQuery(searchParameters);
+        // The facets come from the index
+        ResultSet dbResults = dbQueryLanguage.executeQuery(withoutFieldFacets(searchParameters));
         stopWatch.stop();
         if (logger.isDebugEnabled())
         {
@@ -0,0 +1,366 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.querymodel.impl.db;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.alfresco.repo.domain.node.Node;
+import org.alfresco.repo.domain.node.NodeDAO;
+import org.alfresco.repo.domain.qname.QNameDAO;
+import org.alfresco.repo.search.impl.querymodel.QueryModelException;
+import org.alfresco.service.cmr.dictionary.DataTypeDefinition;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.alfresco.service.cmr.dictionary.PropertyDefinition;
+import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.datatype.DefaultTypeConverter;
+import org.alfresco.service.cmr.search.SearchParameters.FieldFacet;
+import org.alfresco.service.cmr.search.SearchParameters.FieldFacetSort;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.ISO8601DateFormat;
+import org.alfresco.util.Pair;
+
+/**
+ * Computes field facets over the permitted results of a database query in a single pass, as the nodes are streamed from the database.
+ * <p>
+ * Supported fields are <tt>TYPE</tt> and single or multi-valued properties given as <tt>{uri}local</tt>, <tt>prefix:local</tt> or <tt>local</tt> (content model), optionally with a leading <tt>@</tt>. Content properties are faceted on <tt>.mimetype</tt>, <tt>.encoding</tt>, <tt>.locale</tt> or <tt>.size</tt>. Any other field is rejected with a {@link QueryModelException} so that the query can be sent to the index instead.
+ * <p>
+ * Properties are read through the node DAO caches, which are warmed for each batch of nodes with {@link NodeDAO#cacheNodesById(List)}.
+ * <p>
+ * The counts are returned in the same shape as SOLR field facets: missing values are counted as <tt>Null</tt>, and prefix, minimum count, sort, offset and limit are applied as SOLR would.
+ */
+public class DBFacetAggregator
+{
+    static final String MISSING_VALUE = "Null";
+
+    private static final String TYPE_FIELD = "TYPE";
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final NodeDAO nodeDAO;
+
+    private final QNameDAO qnameDAO;
+
+    private final List<FacetField> fields;
+
+    private final boolean hasPropertyFields;
+
+    private final List<Long> pendingNodeIds;
+
+    private final int batchSize;
+
+    private int nodesAggregated;
+
+    public DBFacetAggregator(List<FieldFacet> fieldFacets, NodeDAO nodeDAO, QNameDAO qnameDAO, DictionaryService dictionaryService,
+            NamespaceService namespaceService)
+    {
+        this(fieldFacets, nodeDAO, qnameDAO, dictionaryService, namespaceService, DEFAULT_BATCH_SIZE);
+    }
+
+    DBFacetAggregator(List<FieldFacet> fieldFacets, NodeDAO nodeDAO, QNameDAO qnameDAO, DictionaryService dictionaryService,
+            NamespaceService namespaceService, int batchSize)
+    {
+        this.nodeDAO = nodeDAO;
+        this.qnameDAO = qnameDAO;
+        this.batchSize = batchSize;
+        this.fields = new ArrayList<>(fieldFacets.size());
+        boolean propertyFields = false;
+        for (FieldFacet fieldFacet : fieldFacets)
+        {
+            FacetField field = resolve(fieldFacet, dictionaryService, namespaceService);
+            propertyFields |= field.propertyQName != null;
+            fields.add(field);
+        }
+        this.hasPropertyFields = propertyFields;
+        this.pendingNodeIds = new ArrayList<>(propertyFields ? batchSize : 0);
+    }
+
+    /**
+     * Count a node that has passed the permission checks. The property values are read when the current batch is full.
+     */
+    public void add(Node node)
+    {
+        nodesAggregated++;
+        for (FacetField field : fields)
+        {
+            if (field.propertyQName == null)
+            {
+                Pair<Long, QName> type = qnameDAO.getQName(node.getTypeQNameId());
+                field.count(type == null ? null : type.getSecond().toString());
+            }
+        }
+        if (hasPropertyFields)
+        {
+            pendingNodeIds.add(node.getId());
+            if (pendingNodeIds.size() >= batchSize)
+            {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * @return the number of nodes counted so far
+     */
+    public int getNodesAggregated()
+    {
+        return nodesAggregated;
+    }
+
+    /**
+     * Complete the counts and get the facets, keyed by the field as requested.
+     */
+    public Map<String, List<Pair<String, Integer>>> getFieldFacets()
+    {
+        flush();
+        Map<String, List<Pair<String, Integer>>> facets = new LinkedHashMap<>();
+        for (FacetField field : fields)
+        {
+            facets.put(field.fieldFacet.getField(), field.toFacetList());
+        }
+        return facets;
+    }
+
+    private void flush()
+    {
+        if (pendingNodeIds.isEmpty())
+        {
+            return;
+        }
+        nodeDAO.cacheNodesById(pendingNodeIds);
+        for (Long nodeId : pendingNodeIds)
+        {
+            for (FacetField field : fields)
+            {
+                if (field.propertyQName != null)
+                {
+                    field.countProperty(nodeDAO.getNodeProperty(nodeId, field.propertyQName));
+                }
+            }
+        }
+        pendingNodeIds.clear();
+    }
+
+    private static FacetField resolve(FieldFacet fieldFacet, DictionaryService dictionaryService, NamespaceService namespaceService)
+    {
+        String field = fieldFacet.getField();
+        if (field == null || field.isEmpty())
+        {
+            throw new QueryModelException("Facet field is required");
+        }
+        if (field.startsWith("@"))
+        {
+            field = field.substring(1);
+        }
+        if (field.equals(TYPE_FIELD))
+        {
+            return new FacetField(fieldFacet, null, null);
+        }
+
+        String contentField = null;
+        int dot = field.lastIndexOf('.');
+        if (dot > field.lastIndexOf('}'))
+        {
+            contentField = field.substring(dot + 1);
+            field = field.substring(0, dot);
+        }
+
+        QName propertyQName;
+        try
+        {
+            propertyQName = QName.resolveToQName(namespaceService, field);
+        }
+        catch (RuntimeException e)
+        {
+            throw new QueryModelException("Unknown facet field: " + fieldFacet.getField(), e);
+        }
+        PropertyDefinition propertyDef = propertyQName == null ? null : dictionaryService.getProperty(propertyQName);
+        if (propertyDef == null)
+        {
+            throw new QueryModelException("Facet field is not supported by the database query engine: " + fieldFacet.getField());
+        }
+        boolean isContent = propertyDef.getDataType().getName().equals(DataTypeDefinition.CONTENT);
+        if (isContent != (contentField != null))
+        {
+            throw new QueryModelException("Facet field is not supported by the database query engine: " + fieldFacet.getField());
+        }
+        if (contentField != null && !(contentField.equals("mimetype") || contentField.equals("encoding") || contentField.equals("locale") || contentField.equals("size")))
+        {
+            throw new QueryModelException("Facet field is not supported by the database query engine: " + fieldFacet.getField());
+        }
+        return new FacetField(fieldFacet, propertyQName, contentField);
+    }
+
+    /**
+     * The counts for one requested facet field
+     */
+    private static class FacetField
+    {
+        private final FieldFacet fieldFacet;
+        private final QName propertyQName;
+        private final String contentField;
+        private final Map<String, int[]> counts = new HashMap<>();
+        private int missing;
+
+        FacetField(FieldFacet fieldFacet, QName propertyQName, String contentField)
+        {
+            this.fieldFacet = fieldFacet;
+            this.propertyQName = propertyQName;
+            this.contentField = contentField;
+        }
+
+        void countProperty(Serializable value)
+        {
+            if (value instanceof Collection)
+            {
+                // Count each distinct value once per node, as SOLR does for multi-valued fields
+                Set<String> values = new HashSet<>();
+                for (Object item : (Collection<?>) value)
+                {
+                    String text = asString(item);
+                    if (text != null)
+                    {
+                        values.add(text);
+                    }
+                }
+                if (values.isEmpty())
+                {
+                    count(null);
+                }
+                for (String text : values)
+                {
+                    count(text);
+                }
+            }
+            else
+            {
+                count(asString(value));
+            }
+        }
+
+        void count(String value)
+        {
+            if (value == null)
+            {
+                missing++;
+                return;
+            }
+            String prefix = fieldFacet.getPrefix();
+            if (prefix != null && !value.startsWith(prefix))
+            {
+                return;
+            }
+            int[] count = counts.get(value);
+            if (count == null)
+            {
+                counts.put(value, new int[]{1});
+            }
+            else
+            {
+                count[0]++;
+            }
+        }
+
+        private String asString(Object value)
+        {
+            if (value == null)
+            {
+                return null;
+            }
+            if (contentField != null)
+            {
+                if (!(value instanceof ContentData))
+                {
+                    return null;
+                }
+                ContentData contentData = (ContentData) value;
+                switch (contentField)
+                {
+                case "mimetype":
+                    return contentData.getMimetype();
+                case "encoding":
+                    return contentData.getEncoding();
+                case "locale":
+                    return contentData.getLocale() == null ? null : contentData.getLocale().toString();
+                default:
+                    return Long.toString(contentData.getSize());
+                }
+            }
+            if (value instanceof Date)
+            {
+                return ISO8601DateFormat.format((Date) value);
+            }
+            return DefaultTypeConverter.INSTANCE.convert(String.class, value);
+        }
+
+        List<Pair<String, Integer>> toFacetList()
+        {
+            List<Pair<String, Integer>> facets = new ArrayList<>(counts.size() + 1);
+            for (Map.Entry<String, int[]> entry : counts.entrySet())
+            {
+                if (entry.getValue()[0] >= fieldFacet.getMinCount())
+                {
+                    facets.add(new Pair<>(entry.getKey(), entry.getValue()[0]));
+                }
+            }
+            if (fieldFacet.getSort() == FieldFacetSort.INDEX)
+            {
+                facets.sort((a, b) -> a.getFirst().compareTo(b.getFirst()));
+            }
+            else
+            {
+                facets.sort((a, b) -> {
+                    int byCount = Integer.compare(b.getSecond(), a.getSecond());
+                    return byCount != 0 ? byCount : a.getFirst().compareTo(b.getFirst());
+                });
+            }
+
+            int from = Math.min(Math.max(fieldFacet.getOffset(), 0), facets.size());
+            Integer limitOrNull = fieldFacet.getLimitOrNull();
+            int limit = limitOrNull == null ? DEFAULT_LIMIT : limitOrNull;
+            int to = limit < 0 ? facets.size() : (int) Math.min((long) from + limit, facets.size());
+            List<Pair<String, Integer>> page = from == 0 && to == facets.size() ? facets : new ArrayList<>(facets.subList(from, to));
+
+            if (fieldFacet.isCountDocsMissingFacetField())
+            {
+                page.add(new Pair<>(MISSING_VALUE, missing));
+            }
+            return Collections.unmodifiableList(page);
+        }
+    }
+}
@@ -27,6 +27,7 @@ package org.alfresco.repo.search.impl.querymodel.impl.db;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -77,6 +78,8 @@ public class DBQuery extends BaseQuery implements DBQueryBuilderComponent
 
     private int offset = 0;
 
+    private Set<Long> lookupQNameIds = Collections.emptySet();
+
     /**
      * @param source
      *            Source
@@ -159,6 +162,15 @@ public class DBQuery extends BaseQuery implements DBQueryBuilderComponent
         this.offset = offset;
     }
 
+    /**
+     * @param lookupQNameIds
+     *            the properties whose predicates are looked up in <b>alf_node_prop_lookup</b>
+     */
+    public void setLookupQNameIds(Set<Long> lookupQNameIds)
+    {
+        this.lookupQNameIds = lookupQNameIds;
+    }
+
     public List<DBQueryBuilderJoinCommand> getJoins()
     {
         HashMap<QName, DBQueryBuilderJoinCommand> singleJoins = new HashMap<QName, DBQueryBuilderJoinCommand>();
@@ -185,9 +197,31 @@ public class DBQuery extends BaseQuery implements DBQueryBuilderComponent
     {
         ArrayList<DBQueryBuilderPredicatePartCommand> predicatePartCommands = new ArrayList<DBQueryBuilderPredicatePartCommand>();
         buildPredicateCommands(predicatePartCommands);
+        if (!lookupQNameIds.isEmpty())
+        {
+            for (DBQueryBuilderPredicatePartCommand command : predicatePartCommands)
+            {
+                if (isLookup(command))
+                {
+                    command.setJoinCommandType(DBQueryBuilderJoinCommandType.PROPERTY_LOOKUP);
+                }
+            }
+        }
         return predicatePartCommands;
     }
 
+    /**
+     * @return <tt>true</tt> if the predicate can be looked up in <b>alf_node_prop_lookup</b>, which holds the <tt>string_value</tt> and <tt>long_value</tt> of the declared properties. Orderings keep their joins to <b>alf_node_properties</b>.
+     */
+    private boolean isLookup(DBQueryBuilderPredicatePartCommand command)
+    {
+        return command.joinCommandType == DBQueryBuilderJoinCommandType.PROPERTY
+                && command.type != DBQueryBuilderPredicatePartCommandType.ORDER
+                && command.type != DBQueryBuilderPredicatePartCommandType.NO_ORDER
+                && lookupQNameIds.contains(command.qnameId)
+                && ("string_value".equals(command.fieldName) || "long_value".equals(command.fieldName));
+    }
+
     public boolean getHasPredicatePartsOrder()
     {
         boolean hasPredicatePartsOrder = false;
@@ -59,6 +59,18 @@ public enum DBQueryBuilderJoinCommandType
             return false;
         }
     },
+    /**
+     * A predicate on a property declared for node property lookups, served by <b>alf_node_prop_lookup</b> rather than <b>alf_node_properties</b>
+     */
+    PROPERTY_LOOKUP
+    {
+
+        @Override
+        public boolean isMultiValued()
+        {
+            return false;
+        }
+    },
     CONTENT_MIMETYPE
     {
 
@@ -201,7 +201,12 @@ public class DBQueryBuilderPredicatePartCommand
     {
         if (function != null)
         {
-            if (function == LuceneFunction.LOWER)
+            if (function == LuceneFunction.LOWER && joinCommandType == DBQueryBuilderJoinCommandType.PROPERTY_LOOKUP && "string_value".equals(fieldName))
+            {
+                // The lookup table holds the lower case of the value
+                return alias + ".string_lower";
+            }
+            else if (function == LuceneFunction.LOWER)
             {
                 return "LOWER( " + alias + "." + fieldName + ") ";
             }
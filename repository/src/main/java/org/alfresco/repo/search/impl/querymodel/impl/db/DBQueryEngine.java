@@ -53,6 +53,7 @@ import org.alfresco.repo.cache.lookup.EntityLookupCache;
 import org.alfresco.repo.cache.lookup.EntityLookupCache.EntityLookupCallbackDAOAdaptor;
 import org.alfresco.repo.domain.node.Node;
 import org.alfresco.repo.domain.node.NodeDAO;
+import org.alfresco.repo.domain.node.NodePropertyLookupManager;
 import org.alfresco.repo.domain.node.StoreEntity;
 import org.alfresco.repo.domain.permissions.AclCrudDAO;
 import org.alfresco.repo.domain.permissions.Authority;
@@ -95,6 +96,8 @@ public class DBQueryEngine implements QueryEngine
 
     private static final int DEFAULT_MAX_PAGING_BATCH_SIZE = 10000;
 
+    private static final int DEFAULT_MAX_FACETED_RESULTS = 10000;
+
     protected SqlSessionTemplate template;
 
     protected QNameDAO qnameDAO;
@@ -125,10 +128,16 @@ public class DBQueryEngine implements QueryEngine
 
     private int maxPagingBatchSize = DEFAULT_MAX_PAGING_BATCH_SIZE;
 
+    private int maxFacetedResults = DEFAULT_MAX_FACETED_RESULTS;
+
     protected EntityLookupCache<Long, Node, NodeRef> nodesCache;
 
     private List<Pair<Long, StoreRef>> stores;
 
+    private DBQueryIndexAdvisor indexAdvisor;
+
+    private NodePropertyLookupManager nodePropertyLookupManager;
+
     AclCrudDAO aclCrudDAO;
 
     public void setAclCrudDAO(AclCrudDAO aclCrudDAO)
@@ -191,6 +200,38 @@ public class DBQueryEngine implements QueryEngine
         this.maxPagingBatchSize = maxPagingBatchSize;
     }
 
+    public int getMaxFacetedResults()
+    {
+        return maxFacetedResults;
+    }
+
+    /**
+     * @param maxFacetedResults
+     *            the maximum number of permitted results over which field facets are computed in the database. Faceted queries with more results fail with a {@link QueryModelException}, so that they can be sent to the index instead.
+     */
+    public void setMaxFacetedResults(int maxFacetedResults)
+    {
+        this.maxFacetedResults = maxFacetedResults;
+    }
+
+    /**
+     * @param indexAdvisor
+     *            records the property predicates that the metadata query indexes can't serve, optional
+     */
+    public void setIndexAdvisor(DBQueryIndexAdvisor indexAdvisor)
+    {
+        this.indexAdvisor = indexAdvisor;
+    }
+
+    /**
+     * @param nodePropertyLookupManager
+     *            tells which property predicates can be looked up in <b>alf_node_prop_lookup</b>, optional
+     */
+    public void setNodePropertyLookupManager(NodePropertyLookupManager nodePropertyLookupManager)
+    {
+        this.nodePropertyLookupManager = nodePropertyLookupManager;
+    }
+
     public void setMetadataIndexCheck2(OptionalPatchApplicationCheckBootstrapBean metadataIndexCheck2)
     {
         this.metadataIndexCheck2 = metadataIndexCheck2;
@@ -316,13 +357,22 @@ public class DBQueryEngine implements QueryEngine
             sinceTxId = -1L;
         }
         dbQuery.setSinceTxId(sinceTxId);
+        if (nodePropertyLookupManager != null)
+        {
+            dbQuery.setLookupQNameIds(nodePropertyLookupManager.getQueryableQNameIds());
+        }
 
         logger.debug("- query is being prepared");
         dbQuery.prepare(namespaceService, dictionaryService, qnameDAO, nodeDAO, tenantService, selectorGroup,
                 null, functionContext, metadataIndexCheck2.getPatchApplied());
 
+        long selectStart = System.nanoTime();
         ResultSet resultSet;
         resultSet = selectNodesWithPermissions(options, dbQuery);
+        if (indexAdvisor != null)
+        {
+            indexAdvisor.recordQuery(dbQuery, (System.nanoTime() - selectStart) / 1_000_000L);
+        }
         if (logger.isDebugEnabled())
         {
             long ms = System.currentTimeMillis() - start;
@@ -369,12 +419,19 @@ public class DBQueryEngine implements QueryEngine
         List<Node> nodes = new ArrayList<>();
         int requiredNodes = computeRequiredNodesCount(options);
 
+        // Facets are counted over all the permitted results, so the selection can't stop at the requested page
+        DBFacetAggregator facetAggregator = options.getFieldFacets().isEmpty()
+                ? null
+                : new DBFacetAggregator(options.getFieldFacets(), nodeDAO, qnameDAO, dictionaryService, namespaceService);
+        boolean[] tooManyToFacet = new boolean[1];
+        boolean[] facetsIncomplete = new boolean[1];
+
         logger.debug("- query sent to the database");
         performTmdqSelect(pickQueryTemplate(options, dbQuery), dbQuery, requiredNodes, new ResultHandler<Node>() {
             @Override
             public void handleResult(ResultContext<? extends Node> context)
             {
-                if (!maxPermissionCheckEnabled && nodes.size() >= requiredNodes)
+                if (!maxPermissionCheckEnabled && facetAggregator == null && nodes.size() >= requiredNodes)
                 {
                     context.stop();
                     return;
@@ -404,10 +461,23 @@ public class DBQueryEngine implements QueryEngine
                     {
                         nodes.add(shouldCache ? node : null);
                     }
+
+                    if (facetAggregator != null)
+                    {
+                        facetAggregator.add(node);
+                        if (facetAggregator.getNodesAggregated() > maxFacetedResults)
+                        {
+                            tooManyToFacet[0] = true;
+                            context.stop();
+                            return;
+                        }
+                    }
                 }
 
                 if (permissionAssessor.shouldQuitChecks())
                 {
+                    // The facet counts would only cover the nodes checked so far
+                    facetsIncomplete[0] = facetAggregator != null;
                     context.stop();
                     return;
                 }
@@ -426,10 +496,23 @@ public class DBQueryEngine implements QueryEngine
             }
         });
 
+        if (tooManyToFacet[0])
+        {
+            throw new QueryModelException("Too many results to compute facets in the database, the limit is " + maxFacetedResults);
+        }
+        if (facetsIncomplete[0])
+        {
+            throw new QueryModelException("Permission checks were stopped before all results were counted, facets can not be computed in the database");
+        }
+
         int numberFound = nodes.size();
         nodes.removeAll(Collections.singleton(null));
 
         DBResultSet rs = createResultSet(options, nodes, numberFound);
+        if (facetAggregator != null)
+        {
+            rs.setFieldFacets(facetAggregator.getFieldFacets());
+        }
         FilteringResultSet frs = new FilteringResultSet(rs, formInclusionMask(nodes));
         frs.setResultSetMetaData(new SimpleResultSetMetaData(LimitBy.UNLIMITED, PermissionEvaluationMode.EAGER, rs.getResultSetMetaData().getSearchParameters()));
 
@@ -0,0 +1,335 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.querymodel.impl.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.alfresco.repo.search.adaptor.LuceneFunction;
+import org.alfresco.service.namespace.QName;
+
+/**
+ * Watches the property predicates of transactional metadata queries (TMDQ) and reports those that the metadata query indexes on <tt>alf_node_properties</tt> cannot serve, together with the time spent in the queries that use them.
+ * <p>
+ * The <tt>idx_alf_nprop_*</tt> indexes cover <tt>(qname_id, &lt;value column&gt;, node_id)</tt>, which gives index-only semi-joins for equality, range and prefix predicates. They can't be used for:
+ * <ul>
+ * <li>{@link Reason#FUNCTION} - <tt>LOWER</tt> or <tt>UPPER</tt> applied to the value. An expression index, for which DDL is suggested, serves these.</li>
+ * <li>{@link Reason#LEADING_WILDCARD} - a <tt>LIKE</tt> pattern that starts with a wildcard, which scans every value of the property.</li>
+ * <li>{@link Reason#NEGATION} - <tt>&lt;&gt;</tt>, <tt>NOT IN</tt> and <tt>NOT LIKE</tt>, which scan every value of the property.</li>
+ * <li>{@link Reason#SORT} - ordering by a property, which sorts all the matching rows.</li>
+ * </ul>
+ * <p>
+ * Predicates on the properties declared for node property lookups are served by <tt>alf_node_prop_lookup</tt> and are not reported.
+ * <p>
+ * Each new combination of property, column and reason is logged once at INFO. The full list, most expensive first, is available from {@link #getAdvice()} and from the <tt>/api/admin/metadata-query/index-advice</tt> web script.
+ */
+public class DBQueryIndexAdvisor
+{
+    protected static final Log logger = LogFactory.getLog(DBQueryIndexAdvisor.class);
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    public enum Reason
+    {
+        FUNCTION, LEADING_WILDCARD, NEGATION, SORT;
+    }
+
+    private final ConcurrentMap<AdviceKey, Usage> usages = new ConcurrentHashMap<>();
+
+    private boolean enabled = false;
+
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    /**
+     * @param enabled
+     *            <tt>true</tt> to record the queries
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @param maxEntries
+     *            the maximum number of distinct predicates to keep track of
+     */
+    public void setMaxEntries(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Record a query that has been executed.
+     * 
+     * @param dbQuery
+     *            the prepared query
+     * @param elapsedMs
+     *            the time spent selecting the nodes
+     */
+    public void recordQuery(DBQuery dbQuery, long elapsedMs)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        for (DBQueryBuilderPredicatePartCommand command : dbQuery.getPredicateParts())
+        {
+            if (command.joinCommandType != DBQueryBuilderJoinCommandType.PROPERTY || command.getQName() == null)
+            {
+                continue;
+            }
+            Reason reason = getReason(command);
+            if (reason != null)
+            {
+                record(new AdviceKey(command.getQName(), command.getFieldName(), reason, command.getFunction()), elapsedMs);
+            }
+        }
+    }
+
+    /**
+     * @return the recorded predicates that the indexes can't serve, most expensive first
+     */
+    public List<IndexAdvice> getAdvice()
+    {
+        List<IndexAdvice> advice = new ArrayList<>(usages.size());
+        for (Map.Entry<AdviceKey, Usage> entry : usages.entrySet())
+        {
+            AdviceKey key = entry.getKey();
+            advice.add(new IndexAdvice(key.propertyQName, key.column, key.reason, entry.getValue().count.sum(),
+                    entry.getValue().totalTimeMs.sum(), suggestIndex(key)));
+        }
+        advice.sort((a, b) -> Long.compare(b.getTotalTimeMs(), a.getTotalTimeMs()));
+        return advice;
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public void reset()
+    {
+        usages.clear();
+    }
+
+    static Reason getReason(DBQueryBuilderPredicatePartCommand command)
+    {
+        if (command.type == null)
+        {
+            return null;
+        }
+        switch (command.type)
+        {
+        case ORDER:
+            return Reason.SORT;
+        case NOTEQUALS:
+        case NOTIN:
+        case NOTLIKE:
+            return Reason.NEGATION;
+        case LIKE:
+            Object value = command.getValue();
+            if (value instanceof String && (((String) value).startsWith("%") || ((String) value).startsWith("_")))
+            {
+                return Reason.LEADING_WILDCARD;
+            }
+            return command.getFunction() == null ? null : Reason.FUNCTION;
+        case EQUALS:
+        case GT:
+        case GTE:
+        case LT:
+        case LTE:
+        case IN:
+            return command.getFunction() == null ? null : Reason.FUNCTION;
+        default:
+            return null;
+        }
+    }
+
+    private static String suggestIndex(AdviceKey key)
+    {
+        if (key.reason != Reason.FUNCTION || !"string_value".equals(key.column))
+        {
+            return null;
+        }
+        String function = key.function == LuceneFunction.UPPER ? "UPPER" : "LOWER";
+        // Expression index syntax as accepted by PostgreSQL and Oracle; MySQL 8 needs the expression in an extra pair of brackets
+        return "CREATE INDEX idx_alf_nprop_s" + function.substring(0, 1).toLowerCase()
+                + " ON alf_node_properties (qname_id, " + function + "(string_value), node_id)";
+    }
+
+    private void record(AdviceKey key, long elapsedMs)
+    {
+        Usage usage = usages.get(key);
+        if (usage == null)
+        {
+            if (usages.size() >= maxEntries)
+            {
+                return;
+            }
+            Usage newUsage = new Usage();
+            usage = usages.putIfAbsent(key, newUsage);
+            if (usage == null)
+            {
+                usage = newUsage;
+                if (logger.isInfoEnabled())
+                {
+                    String ddl = suggestIndex(key);
+                    logger.info("Transactional metadata query predicate not served by an index: " + key
+                            + (ddl == null ? "" : ", consider: " + ddl));
+                }
+            }
+        }
+        usage.count.increment();
+        usage.totalTimeMs.add(elapsedMs);
+    }
+
+    private static class Usage
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalTimeMs = new LongAdder();
+    }
+
+    private static class AdviceKey
+    {
+        private final QName propertyQName;
+        private final String column;
+        private final Reason reason;
+        private final LuceneFunction function;
+
+        AdviceKey(QName propertyQName, String column, Reason reason, LuceneFunction function)
+        {
+            this.propertyQName = propertyQName;
+            this.column = column;
+            this.reason = reason;
+            this.function = reason == Reason.FUNCTION ? function : null;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof AdviceKey))
+            {
+                return false;
+            }
+            AdviceKey that = (AdviceKey) o;
+            return propertyQName.equals(that.propertyQName) && Objects.equals(column, that.column) && reason == that.reason
+                    && function == that.function;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(propertyQName, column, reason, function);
+        }
+
+        @Override
+        public String toString()
+        {
+            return propertyQName + " " + column + " (" + (function == null ? reason : reason + " " + function) + ")";
+        }
+    }
+
+    /**
+     * A property predicate that the indexes can't serve
+     */
+    public static class IndexAdvice
+    {
+        private final QName propertyQName;
+        private final String column;
+        private final Reason reason;
+        private final long queryCount;
+        private final long totalTimeMs;
+        private final String suggestedIndex;
+
+        IndexAdvice(QName propertyQName, String column, Reason reason, long queryCount, long totalTimeMs, String suggestedIndex)
+        {
+            this.propertyQName = propertyQName;
+            this.column = column;
+            this.reason = reason;
+            this.queryCount = queryCount;
+            this.totalTimeMs = totalTimeMs;
+            this.suggestedIndex = suggestedIndex;
+        }
+
+        public QName getPropertyQName()
+        {
+            return propertyQName;
+        }
+
+        /**
+         * @return the <tt>alf_node_properties</tt> column
+         */
+        public String getColumn()
+        {
+            return column;
+        }
+
+        public Reason getReason()
+        {
+            return reason;
+        }
+
+        public long getQueryCount()
+        {
+            return queryCount;
+        }
+
+        public long getTotalTimeMs()
+        {
+            return totalTimeMs;
+        }
+
+        /**
+         * @return the DDL of an index that would serve the predicate, or <tt>null</tt> if there is none
+         */
+        public String getSuggestedIndex()
+        {
+            return suggestedIndex;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "IndexAdvice [propertyQName=" + propertyQName + ", column=" + column + ", reason=" + reason + ", queryCount=" + queryCount
+                    + ", totalTimeMs=" + totalTimeMs + ", suggestedIndex=" + suggestedIndex + "]";
+        }
+    }
+}
@@ -26,8 +26,10 @@
 package org.alfresco.repo.search.impl.querymodel.impl.db;
 
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.alfresco.repo.domain.node.Node;
 import org.alfresco.repo.domain.node.NodeDAO;
@@ -42,6 +44,7 @@ import org.alfresco.service.cmr.search.PermissionEvaluationMode;
 import org.alfresco.service.cmr.search.ResultSetMetaData;
 import org.alfresco.service.cmr.search.ResultSetRow;
 import org.alfresco.service.cmr.search.SearchParameters;
+import org.alfresco.util.Pair;
 
 /**
  * @author Andy
@@ -63,6 +66,8 @@ public class DBResultSet extends AbstractResultSet
 
     private int numberFound;
 
+    private Map<String, List<Pair<String, Integer>>> fieldFacets = Collections.emptyMap();
+
     public DBResultSet(SearchParameters searchParameters, List<Node> nodes, NodeDAO nodeDao, NodeService nodeService, TenantService tenantService, int maximumResultsFromUnlimitedQuery)
     {
         this.nodeDao = nodeDao;
@@ -122,6 +127,22 @@ public class DBResultSet extends AbstractResultSet
         return numberFound;
     }
 
+    /**
+     * @param fieldFacets
+     *            the field facets computed over the permitted results, keyed by field
+     */
+    public void setFieldFacets(Map<String, List<Pair<String, Integer>>> fieldFacets)
+    {
+        this.fieldFacets = fieldFacets;
+    }
+
+    @Override
+    public List<Pair<String, Integer>> getFieldFacet(String field)
+    {
+        List<Pair<String, Integer>> facet = fieldFacets.get(field);
+        return facet == null ? Collections.<Pair<String, Integer>> emptyList() : facet;
+    }
+
     /* (non-Javadoc)
      * 
      * @see org.alfresco.service.cmr.search.ResultSetSPI#getNodeRef(int) */
@@ -88,8 +88,21 @@ public abstract class AbstractSolrQueryHTTPClient
     private static final List<String> STATUS_CODE_501_EXCEPTIONS = List.of("java.lang.UnsupportedOperationException");
 
     protected JSONObject postQuery(HttpClient httpClient, String url, JSONObject body) throws IOException, JSONException
+    {
+        return postQuery(httpClient, url, body, 0);
+    }
+
+    /**
+     * @param socketTimeoutMs
+     *            the longest wait for data from the server for this request, or <tt>0</tt> to use the timeout of the client
+     */
+    protected JSONObject postQuery(HttpClient httpClient, String url, JSONObject body, int socketTimeoutMs) throws IOException, JSONException
     {
         PostMethod post = createNewPostMethod(url);
+        if (socketTimeoutMs > 0)
+        {
+            post.getParams().setSoTimeout(socketTimeoutMs);
+        }
         if (body.toString().length() > DEFAULT_SAVEPOST_BUFFER)
         {
             post.getParams().setBooleanParameter(HttpMethodParams.USE_EXPECT_CONTINUE, true);
@@ -26,6 +26,7 @@
 package org.alfresco.repo.search.impl.solr;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
@@ -136,5 +137,20 @@ public class DynamicSolrStoreMappingWrapperFactory
             }
         }
 
+        /* (non-Javadoc)
+         * 
+         * @see org.alfresco.repo.search.impl.solr.SolrStoreMappingWrapper#getShardHttpClientsAndBaseUrls() */
+        @Override
+        public List<Pair<HttpClient, String>> getShardHttpClientsAndBaseUrls()
+        {
+            List<Pair<HttpClient, String>> shards = new ArrayList<Pair<HttpClient, String>>(slice.size());
+            for (ShardInstance instance : slice)
+            {
+                Pair<String, Integer> key = new Pair<String, Integer>(instance.getHostName(), instance.getPort());
+                shards.add(new Pair<HttpClient, String>(clients.get(key), instance.getBaseUrl()));
+            }
+            return shards;
+        }
+
     }
 }
@@ -26,6 +26,7 @@
 package org.alfresco.repo.search.impl.solr;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Random;
@@ -240,6 +241,25 @@ public class ExplicitSolrStoreMappingWrapper implements SolrStoreMappingWrapper
         }
     }
 
+    public List<Pair<HttpClient, String>> getShardHttpClientsAndBaseUrls()
+    {
+        if (!policy.configurationIsValid())
+        {
+            throw new AlfrescoRuntimeException("Invalid shard configuration: shard = "
+                    + wrapped.getNumShards() + "   reoplicationFactor = " + wrapped.getReplicationFactor() + " with node count = " + httpClientsAndBaseURLs.size());
+        }
+        HttpClientAndBaseUrl[] nodes = httpClientsAndBaseURLs.toArray(new HttpClientAndBaseUrl[0]);
+        List<Pair<HttpClient, String>> shards = new ArrayList<>(wrapped.getNumShards());
+        for (int shard = 0; shard < wrapped.getNumShards(); shard++)
+        {
+            int position = random.nextInt(wrapped.getReplicationFactor());
+            List<Integer> nodeInstances = policy.getNodeInstancesForShardId(shard);
+            HttpClientAndBaseUrl httpClientAndBaseUrl = nodes[nodeInstances.get(position) - 1];
+            shards.add(new Pair<>(httpClientAndBaseUrl.httpClient, isSharded() ? httpClientAndBaseUrl.baseUrl + "-" + shard : httpClientAndBaseUrl.baseUrl));
+        }
+        return shards;
+    }
+
     /**
      * @return
      */
@@ -116,6 +116,8 @@ public class SolrJSONResultSet implements SearchEngineResultSet
 
     private boolean processedDenies;
 
+    private boolean partialResults;
+
     /**
      * Detached result set based on that provided
      * 
@@ -142,6 +144,7 @@ public class SolrJSONResultSet implements SearchEngineResultSet
             JSONObject responseHeader = json.getJSONObject("responseHeader");
             status = responseHeader.getLong("status");
             queryTime = responseHeader.getLong("QTime");
+            partialResults = responseHeader.optBoolean(SolrShardResponseMerger.PARTIAL_RESULTS, false);
 
             JSONObject response = json.getJSONObject("response");
             numberFound = response.getLong("numFound");
@@ -818,4 +821,12 @@ public class SolrJSONResultSet implements SearchEngineResultSet
         return facetRanges;
     }
 
+    /**
+     * @return <tt>true</tt> if some shards did not contribute to these results, e.g. because they timed out
+     */
+    public boolean isPartialResults()
+    {
+        return partialResults;
+    }
+
 }
@@ -42,6 +42,12 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.apache.commons.codec.net.URLCodec;
@@ -146,6 +152,12 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
 
     private PermissionService permissionService;
 
+    private boolean shardFanOutEnabled = false;
+
+    private long shardQueryTimeoutMs = 5000;
+
+    private ExecutorService shardQueryExecutor;
+
     public SolrQueryHTTPClient()
     {}
 
@@ -276,6 +288,35 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
         this.defaultShardedFacetLimit = defaultShardedFacetLimit;
     }
 
+    /**
+     * When enabled, eligible queries against a sharded index are sent to one instance of each shard in parallel and the responses are merged here, instead of being sent to a single core that forwards them to the shards. Requires a {@link #setShardQueryExecutor(ExecutorService) shardQueryExecutor}.
+     *
+     * @param shardFanOutEnabled
+     *            <tt>true</tt> to query the shards directly
+     */
+    public void setShardFanOutEnabled(boolean shardFanOutEnabled)
+    {
+        this.shardFanOutEnabled = shardFanOutEnabled;
+    }
+
+    /**
+     * @param shardQueryTimeoutMs
+     *            how long to wait for the shards when querying them directly. It is the socket timeout of each shard request, so a shard that stops sending data fails its request and frees its thread, and it also bounds the wait for all the shards. Shards that have not answered by then are left out and the results are flagged as partial.
+     */
+    public void setShardQueryTimeoutMs(long shardQueryTimeoutMs)
+    {
+        this.shardQueryTimeoutMs = shardQueryTimeoutMs;
+    }
+
+    /**
+     * @param shardQueryExecutor
+     *            the thread pool used to query the shards in parallel
+     */
+    public void setShardQueryExecutor(ExecutorService shardQueryExecutor)
+    {
+        this.shardQueryExecutor = shardQueryExecutor;
+    }
+
     /**
      * Executes a solr query for statistics
      * 
@@ -577,6 +618,27 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
 
             final int maximumResults = maxResults; // just needed for the final parameter
 
+            if (isShardFanOutApplicable(searchParameters, mapping))
+            {
+                // Same request without the shards parameter, sent to each shard and asking each of them for all the rows up to the requested page
+                StringBuilder shardQuery = new StringBuilder();
+                shardQuery.append(languageUrlFragment);
+                shardQuery.append("?wt=").append(encoder.encode("json", "UTF-8"));
+                shardQuery.append("&fl=").append(encoder.encode("DBID,score", "UTF-8"));
+                shardQuery.append("&rows=").append(String.valueOf(Math.min((long) searchParameters.getSkipCount() + maxResults, Integer.MAX_VALUE)));
+                buildUrlParameters(searchParameters, true, 0, encoder, shardQuery);
+
+                JSONObject json = postShardQueries(mapping, shardQuery.toString(), body, searchParameters.getSkipCount(), maxResults);
+                SolrJSONResultSet results = new SolrJSONResultSet(json, searchParameters, nodeService, nodeDAO, limitBy, maximumResults);
+                if (s_logger.isDebugEnabled())
+                {
+                    s_logger.debug("Sent to shards :" + shardQuery);
+                    s_logger.debug("   with: " + body.toString());
+                    s_logger.debug("Got: " + results.getNumberFound() + " in " + results.getQueryTime() + " ms" + (results.isPartialResults() ? " (partial results)" : ""));
+                }
+                return results;
+            }
+
             return (ResultSet) postSolrQuery(httpClient, url.toString(), body, json -> {
                 return new SolrJSONResultSet(json, searchParameters, nodeService, nodeDAO, limitBy, maximumResults);
             }, spellCheckQueryStr);
@@ -599,6 +661,100 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
         }
     }
 
+    /**
+     * Can the query be sent to the shards directly? Only score ordered queries without highlighting, spell checking, stats, pivots, ranges or intervals are merged here, as well as field facets counted by descending count.
+     */
+    private boolean isShardFanOutApplicable(SearchParameters searchParameters, SolrStoreMappingWrapper mapping)
+    {
+        if (!shardFanOutEnabled || shardQueryExecutor == null || !mapping.isSharded() || searchParameters.getStores().size() != 1)
+        {
+            return false;
+        }
+        if (searchParameters.isSpellCheck() || searchParameters.getHighlight() != null || searchParameters.getInterval() != null
+                || !searchParameters.getPivots().isEmpty()
+                || (searchParameters.getStats() != null && !searchParameters.getStats().isEmpty())
+                || (searchParameters.getRanges() != null && !searchParameters.getRanges().isEmpty()))
+        {
+            return false;
+        }
+        for (SortDefinition sortDefinition : searchParameters.getSortDefinitions())
+        {
+            if (sortDefinition.getSortType() != SortDefinition.SortType.SCORE || sortDefinition.isAscending())
+            {
+                return false;
+            }
+        }
+        for (FieldFacet facet : searchParameters.getFieldFacets())
+        {
+            if (facet.getOffset() != 0 || facet.getSort() == FieldFacetSort.INDEX || facet.isCountDocsMissingFacetField())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends the query to one instance of each shard in parallel and merges the responses. Shards that fail or do not answer within {@link #setShardQueryTimeoutMs(long) shardQueryTimeoutMs} are left out and the merged response is flagged as partial.
+     */
+    private JSONObject postShardQueries(SolrStoreMappingWrapper mapping, String shardQuery, JSONObject body, int skipCount, int rows) throws JSONException
+    {
+        List<Pair<HttpClient, String>> shards = mapping.getShardHttpClientsAndBaseUrls();
+        List<Callable<JSONObject>> queries = new ArrayList<>(shards.size());
+        for (Pair<HttpClient, String> shard : shards)
+        {
+            String baseUrl = shard.getSecond();
+            String shardUrl = baseUrl.endsWith("/") ? baseUrl + shardQuery : baseUrl + "/" + shardQuery;
+            // The request itself times out, as commons-httpclient does not give up on interrupts
+            queries.add(() -> postQuery(shard.getFirst(), shardUrl, body, (int) Math.min(shardQueryTimeoutMs, Integer.MAX_VALUE)));
+        }
+
+        List<Future<JSONObject>> futures;
+        try
+        {
+            // A backstop for the requests' own timeouts, e.g. while connecting
+            futures = shardQueryExecutor.invokeAll(queries, shardQueryTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new QueryParserException("Interrupted while querying the shards", e);
+        }
+
+        List<JSONObject> responses = new ArrayList<>(futures.size());
+        RuntimeException failure = null;
+        for (int i = 0; i < futures.size(); i++)
+        {
+            try
+            {
+                responses.add(futures.get(i).get());
+            }
+            catch (CancellationException e)
+            {
+                s_logger.warn("Shard " + shards.get(i).getSecond() + " did not answer within " + shardQueryTimeoutMs + " ms");
+            }
+            catch (ExecutionException e)
+            {
+                s_logger.warn("Shard " + shards.get(i).getSecond() + " failed: " + e.getCause());
+                if (failure == null)
+                {
+                    failure = (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : new QueryParserException("", e.getCause());
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new QueryParserException("Interrupted while querying the shards", e);
+            }
+        }
+
+        if (responses.isEmpty())
+        {
+            throw (failure != null) ? failure : new QueryParserException("None of the " + shards.size() + " shards answered within " + shardQueryTimeoutMs + " ms");
+        }
+        return new SolrShardResponseMerger(skipCount, rows).merge(responses, shards.size() - responses.size());
+    }
+
     /**
      * Builds most of the Url parameters for a Solr Http request.
      * 
@@ -610,10 +766,19 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
      */
     public void buildUrlParameters(SearchParameters searchParameters, boolean isSharded, URLCodec encoder, StringBuilder url)
             throws UnsupportedEncodingException
+    {
+        buildUrlParameters(searchParameters, isSharded, searchParameters.getSkipCount(), encoder, url);
+    }
+
+    /**
+     * Builds most of the Url parameters for a Solr Http request, starting at the given result rather than at the skip count of the search parameters.
+     */
+    protected void buildUrlParameters(SearchParameters searchParameters, boolean isSharded, int start, URLCodec encoder, StringBuilder url)
+            throws UnsupportedEncodingException
     {
         Locale locale = SolrClientUtil.extractLocale(searchParameters);
         url.append("&df=").append(encoder.encode(searchParameters.getDefaultFieldName(), "UTF-8"));
-        url.append("&start=").append(encoder.encode("" + searchParameters.getSkipCount(), "UTF-8"));
+        url.append("&start=").append(encoder.encode("" + start, "UTF-8"));
 
         url.append("&locale=");
         url.append(encoder.encode(locale.toString(), "UTF-8"));
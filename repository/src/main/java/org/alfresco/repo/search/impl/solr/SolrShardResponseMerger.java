@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.solr;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Merges the JSON responses of the individual shards of a sharded index into the response that a single core would have produced when forwarding the request to the shards itself.
+ * <p>
+ * Only what {@link SolrJSONResultSet} reads for score ordered queries is merged: the top documents by score, the hit counts, field facets and facet queries. Field facet counts are summed over the values returned by each shard, so, as with SOLR without facet refinement, a value that did not make it into the top list of a shard is not counted for that shard.
+ * <p>
+ * The merged response header contains <tt>partialResults=true</tt> if any shard did not answer.
+ *
+ * @since 26.1
+ */
+public class SolrShardResponseMerger
+{
+    public static final String PARTIAL_RESULTS = "partialResults";
+    public static final String SHARDS_TOTAL = "shardsTotal";
+    public static final String SHARDS_FAILED = "shardsFailed";
+
+    private final int skipCount;
+    private final int rows;
+
+    /**
+     * @param skipCount
+     *            the number of (merged) results to skip
+     * @param rows
+     *            the number of (merged) results to return after skipping
+     */
+    public SolrShardResponseMerger(int skipCount, int rows)
+    {
+        this.skipCount = skipCount;
+        this.rows = rows;
+    }
+
+    /**
+     * @param responses
+     *            the responses of the shards that answered in time
+     * @param shardsFailed
+     *            the number of shards that failed or timed out
+     * @return the merged response
+     */
+    public JSONObject merge(List<JSONObject> responses, int shardsFailed) throws JSONException
+    {
+        long qTime = 0;
+        long status = 0;
+        long numFound = 0;
+        double maxScore = 0;
+        Long lastIndexedTx = null;
+        Boolean processedDenies = null;
+
+        List<JSONArray> docLists = new ArrayList<>(responses.size());
+        Map<String, Map<String, Long>> fieldFacets = new LinkedHashMap<>();
+        Map<String, Integer> fieldFacetSizes = new HashMap<>();
+        Map<String, Long> facetQueries = new LinkedHashMap<>();
+        boolean hasFacets = false;
+
+        for (JSONObject json : responses)
+        {
+            JSONObject responseHeader = json.getJSONObject("responseHeader");
+            qTime = Math.max(qTime, responseHeader.optLong("QTime"));
+            status = Math.max(status, responseHeader.optLong("status"));
+
+            JSONObject response = json.getJSONObject("response");
+            numFound += response.getLong("numFound");
+            maxScore = Math.max(maxScore, response.optDouble("maxScore", 0));
+            docLists.add(response.getJSONArray("docs"));
+
+            if (json.has("lastIndexedTx"))
+            {
+                // The merged view is only as up to date as the shard furthest behind
+                long txId = json.getLong("lastIndexedTx");
+                lastIndexedTx = (lastIndexedTx == null) ? txId : Math.min(lastIndexedTx, txId);
+            }
+            if (json.has("processedDenies"))
+            {
+                boolean denies = json.getBoolean("processedDenies");
+                processedDenies = (processedDenies == null) ? denies : (processedDenies && denies);
+            }
+            if (json.has("facet_counts"))
+            {
+                hasFacets = true;
+                mergeFacets(json.getJSONObject("facet_counts"), fieldFacets, fieldFacetSizes, facetQueries);
+            }
+        }
+
+        JSONObject merged = new JSONObject();
+
+        JSONObject responseHeader = new JSONObject();
+        responseHeader.put("status", status);
+        responseHeader.put("QTime", qTime);
+        responseHeader.put(PARTIAL_RESULTS, shardsFailed > 0);
+        responseHeader.put(SHARDS_TOTAL, responses.size() + shardsFailed);
+        responseHeader.put(SHARDS_FAILED, shardsFailed);
+        merged.put("responseHeader", responseHeader);
+
+        JSONObject response = new JSONObject();
+        response.put("numFound", numFound);
+        response.put("start", skipCount);
+        response.put("maxScore", maxScore);
+        response.put("docs", mergeDocs(docLists));
+        merged.put("response", response);
+
+        if (lastIndexedTx != null)
+        {
+            merged.put("lastIndexedTx", lastIndexedTx.longValue());
+        }
+        if (processedDenies != null)
+        {
+            merged.put("processedDenies", processedDenies.booleanValue());
+        }
+        if (hasFacets)
+        {
+            merged.put("facet_counts", buildFacetCounts(fieldFacets, fieldFacetSizes, facetQueries));
+        }
+        return merged;
+    }
+
+    /**
+     * k-way merge of the score ordered document lists, keeping the shard order for equal scores.
+     */
+    private JSONArray mergeDocs(List<JSONArray> docLists) throws JSONException
+    {
+        // Each entry is {list index, position in list}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, docLists.size()), new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b)
+            {
+                int byScore = Double.compare(score(docLists, b), score(docLists, a));
+                return byScore != 0 ? byScore : Integer.compare(a[0], b[0]);
+            }
+        });
+        for (int i = 0; i < docLists.size(); i++)
+        {
+            if (docLists.get(i).length() > 0)
+            {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        JSONArray docs = new JSONArray();
+        long end = (long) skipCount + rows;
+        for (long position = 0; position < end && !heads.isEmpty(); position++)
+        {
+            int[] head = heads.poll();
+            JSONArray list = docLists.get(head[0]);
+            if (position >= skipCount)
+            {
+                docs.put(list.getJSONObject(head[1]));
+            }
+            if (head[1] + 1 < list.length())
+            {
+                heads.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return docs;
+    }
+
+    private static double score(List<JSONArray> docLists, int[] head)
+    {
+        JSONObject doc = docLists.get(head[0]).optJSONObject(head[1]);
+        return doc == null ? 0 : doc.optDouble("score", 0);
+    }
+
+    private static void mergeFacets(JSONObject facetCounts, Map<String, Map<String, Long>> fieldFacets, Map<String, Integer> fieldFacetSizes,
+            Map<String, Long> facetQueries) throws JSONException
+    {
+        if (facetCounts.has("facet_queries"))
+        {
+            JSONObject queries = facetCounts.getJSONObject("facet_queries");
+            for (Iterator<String> it = queries.keys(); it.hasNext(); /**/)
+            {
+                String query = it.next();
+                facetQueries.merge(query, queries.getLong(query), Long::sum);
+            }
+        }
+        if (facetCounts.has("facet_fields"))
+        {
+            JSONObject fields = facetCounts.getJSONObject("facet_fields");
+            for (Iterator<String> it = fields.keys(); it.hasNext(); /**/)
+            {
+                String field = it.next();
+                JSONArray values = fields.getJSONArray(field);
+                Map<String, Long> counts = fieldFacets.computeIfAbsent(field, k -> new LinkedHashMap<>());
+                // Each shard applied the same facet limit, so the longest list tells us the limit to apply to the merged list
+                fieldFacetSizes.merge(field, values.length() / 2, Math::max);
+                for (int i = 0; i + 1 < values.length(); i += 2)
+                {
+                    // Keep null (missing) values apart from the string "null"
+                    String value = values.isNull(i) ? null : values.getString(i);
+                    counts.merge(value, values.getLong(i + 1), Long::sum);
+                }
+            }
+        }
+    }
+
+    private static JSONObject buildFacetCounts(Map<String, Map<String, Long>> fieldFacets, Map<String, Integer> fieldFacetSizes,
+            Map<String, Long> facetQueries) throws JSONException
+    {
+        JSONObject facetCounts = new JSONObject();
+
+        JSONObject queries = new JSONObject();
+        for (Map.Entry<String, Long> entry : facetQueries.entrySet())
+        {
+            queries.put(entry.getKey(), entry.getValue().longValue());
+        }
+        facetCounts.put("facet_queries", queries);
+
+        JSONObject fields = new JSONObject();
+        for (Map.Entry<String, Map<String, Long>> field : fieldFacets.entrySet())
+        {
+            List<Map.Entry<String, Long>> counts = new ArrayList<>(field.getValue().entrySet());
+            counts.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+            int limit = Math.min(counts.size(), fieldFacetSizes.get(field.getKey()));
+
+            JSONArray values = new JSONArray();
+            for (int i = 0; i < limit; i++)
+            {
+                Map.Entry<String, Long> count = counts.get(i);
+                values.put(count.getKey() == null ? JSONObject.NULL : count.getKey());
+                values.put(count.getValue().longValue());
+            }
+            fields.put(field.getKey(), values);
+        }
+        facetCounts.put("facet_fields", fields);
+        return facetCounts;
+    }
+}
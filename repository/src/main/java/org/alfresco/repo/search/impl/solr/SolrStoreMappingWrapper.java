@@ -25,6 +25,8 @@
  */
 package org.alfresco.repo.search.impl.solr;
 
+import java.util.List;
+
 import org.apache.commons.httpclient.HttpClient;
 
 import org.alfresco.util.Pair;
@@ -51,4 +53,11 @@ public interface SolrStoreMappingWrapper
      */
     String getShards();
 
+    /**
+     * Selects one instance (replica) of each shard, for querying the shards directly rather than through {@link #getShards()}.
+     *
+     * @return the http client and base url of one instance per shard
+     */
+    List<Pair<HttpClient, String>> getShardHttpClientsAndBaseUrls();
+
 }
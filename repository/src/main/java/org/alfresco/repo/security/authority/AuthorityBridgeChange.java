@@ -0,0 +1,182 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.authority;
+
+import java.io.Serializable;
+
+import org.alfresco.util.BridgeTable;
+import org.alfresco.util.EqualsHelper;
+
+/**
+ * A change to the authority bridge table that can be applied to the cached table without reloading every link.
+ * <p>
+ * Changes are checked against the table before they are applied: adding a link that already exists or would create a cycle, or removing a link that does not exist, means the cached table no longer matches the database and must be rebuilt.
+ * 
+ * @see AuthorityBridgeTableAsynchronouslyRefreshedCache
+ */
+public final class AuthorityBridgeChange implements Serializable
+{
+    private static final long serialVersionUID = 5380466829871437206L;
+
+    private enum Type
+    {
+        ADD_LINK, REMOVE_LINK, DELETE_AUTHORITY
+    };
+
+    private final Type type;
+    private final String parentName;
+    private final String childName;
+
+    private AuthorityBridgeChange(Type type, String parentName, String childName)
+    {
+        this.type = type;
+        this.parentName = parentName;
+        this.childName = childName;
+    }
+
+    /**
+     * @return a change adding the child authority to the parent authority
+     */
+    public static AuthorityBridgeChange addLink(String parentName, String childName)
+    {
+        return new AuthorityBridgeChange(Type.ADD_LINK, parentName, childName);
+    }
+
+    /**
+     * @return a change removing the child authority from the parent authority
+     */
+    public static AuthorityBridgeChange removeLink(String parentName, String childName)
+    {
+        return new AuthorityBridgeChange(Type.REMOVE_LINK, parentName, childName);
+    }
+
+    /**
+     * @return a change removing every link to or from the authority
+     */
+    public static AuthorityBridgeChange deleteAuthority(String authorityName)
+    {
+        return new AuthorityBridgeChange(Type.DELETE_AUTHORITY, authorityName, null);
+    }
+
+    /**
+     * Apply this change to a bridge table.
+     * 
+     * @param bridgeTable
+     *            the table to change
+     * @return <tt>false</tt> if the change does not fit the table, which must then be rebuilt
+     */
+    public boolean applyTo(BridgeTable<String> bridgeTable)
+    {
+        switch (type)
+        {
+        case ADD_LINK:
+            if (parentName.equals(childName)
+                    || bridgeTable.getDescendants(parentName, 1).contains(childName)
+                    || bridgeTable.getAncestors(parentName).contains(childName))
+            {
+                return false;
+            }
+            bridgeTable.addLink(parentName, childName);
+            return true;
+        case REMOVE_LINK:
+            if (!bridgeTable.getDescendants(parentName, 1).contains(childName))
+            {
+                return false;
+            }
+            bridgeTable.removeLink(parentName, childName);
+            return true;
+        case DELETE_AUTHORITY:
+            for (String parent : bridgeTable.getAncestors(parentName, 1))
+            {
+                bridgeTable.removeLink(parent, parentName);
+            }
+            for (String child : bridgeTable.getDescendants(parentName, 1))
+            {
+                bridgeTable.removeLink(parentName, child);
+            }
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Check whether this change and another one must be applied in the order they were committed. Changes to the same link conflict, as do changes to links of a deleted authority.
+     * 
+     * @param other
+     *            another change to the same bridge table
+     * @return <tt>true</tt> if applying the changes in a different order may give a different table
+     */
+    public boolean conflictsWith(AuthorityBridgeChange other)
+    {
+        if (type == Type.DELETE_AUTHORITY)
+        {
+            return other.touches(parentName);
+        }
+        if (other.type == Type.DELETE_AUTHORITY)
+        {
+            return touches(other.parentName);
+        }
+        return parentName.equals(other.parentName) && childName.equals(other.childName);
+    }
+
+    private boolean touches(String authorityName)
+    {
+        return authorityName.equals(parentName) || authorityName.equals(childName);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = type.hashCode();
+        result = 31 * result + ((parentName == null) ? 0 : parentName.hashCode());
+        result = 31 * result + ((childName == null) ? 0 : childName.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof AuthorityBridgeChange))
+        {
+            return false;
+        }
+        AuthorityBridgeChange other = (AuthorityBridgeChange) obj;
+        return type == other.type
+                && EqualsHelper.nullSafeEquals(parentName, other.parentName)
+                && EqualsHelper.nullSafeEquals(childName, other.childName);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AuthorityBridgeChange [type=" + type + ", parentName=" + parentName + ", childName=" + childName + "]";
+    }
+}
@@ -25,6 +25,7 @@
  */
 package org.alfresco.repo.security.authority;
 
+import java.io.Serializable;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -130,6 +131,40 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends AbstractMT
         return bridgeTable;
     }
 
+    /**
+     * Applies {@link AuthorityBridgeChange}s to a copy of the current table. Readers of the current table are not affected and a group change costs a copy of the table in memory rather than a reload of every link from the database.
+     */
+    @Override
+    protected BridgeTable<String> applyChanges(String tenantId, BridgeTable<String> current, List<Serializable> changes)
+    {
+        BridgeTable<String> bridgeTable = current.copy();
+        for (Serializable change : changes)
+        {
+            if (!(change instanceof AuthorityBridgeChange) || !((AuthorityBridgeChange) change).applyTo(bridgeTable))
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Change " + change + " does not fit the bridge table for tenant '" + tenantId + "'; rebuilding");
+                }
+                return null;
+            }
+        }
+        return bridgeTable;
+    }
+
+    /**
+     * Only changes to the same links need to be applied in the order they were committed, so transactions changing different groups stay incremental.
+     */
+    @Override
+    protected boolean changesConflict(Serializable change, Serializable other)
+    {
+        if (!(change instanceof AuthorityBridgeChange) || !(other instanceof AuthorityBridgeChange))
+        {
+            return true;
+        }
+        return ((AuthorityBridgeChange) change).conflictsWith((AuthorityBridgeChange) other);
+    }
+
     private void checkCyclic(List<AuthorityBridgeLink> links)
     {
         Map<String, Set<String>> parentsToChildren = new HashMap<String, Set<String>>();
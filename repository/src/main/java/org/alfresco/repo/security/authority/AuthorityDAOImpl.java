@@ -126,6 +126,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
 
     private SimpleCache<Pair<String, String>, NodeRef> authorityLookupCache;
     private SimpleCache<String, Set<String>> userAuthorityCache;
+    private SimpleCache<String, ExpandedAuthorities> userExpandedAuthorityCache;
     private SimpleCache<Pair<String, String>, List<ChildAssociationRef>> zoneAuthorityCache;
     private SimpleCache<NodeRef, Pair<Map<NodeRef, String>, List<NodeRef>>> childAuthorityCache;
     private AuthorityBridgeTableAsynchronouslyRefreshedCache authorityBridgeTableCache;
@@ -202,6 +203,15 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         this.userAuthorityCache = userAuthorityCache;
     }
 
+    /**
+     * @param userExpandedAuthorityCache
+     *            a node-local cache of the users' authorities expanded through the bridge table
+     */
+    public void setUserExpandedAuthorityCache(SimpleCache<String, ExpandedAuthorities> userExpandedAuthorityCache)
+    {
+        this.userExpandedAuthorityCache = userExpandedAuthorityCache;
+    }
+
     public void setZoneAuthorityCache(SimpleCache<Pair<String, String>, List<ChildAssociationRef>> zoneAuthorityCache)
     {
         this.zoneAuthorityCache = zoneAuthorityCache;
@@ -372,8 +382,16 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
         else
         {
-            userAuthorityCache.clear();
-            authorityBridgeTableCache.refresh();
+            if (!useBridgeTable)
+            {
+                // Users' cached authorities include the groups containing this one. Using the bridge table, only their direct authorities are cached.
+                userAuthorityCache.clear();
+            }
+            for (NodeRef parentRef : parentRefs)
+            {
+                String parentName = (String) nodeService.getProperty(parentRef, ContentModel.PROP_AUTHORITY_NAME);
+                authorityBridgeTableCache.refresh(AuthorityBridgeChange.addLink(parentName, childName));
+            }
         }
     }
 
@@ -441,12 +459,20 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
         zoneAuthorityCache.remove(new Pair<String, String>(currentUserDomain, null));
         removeParentsFromChildAuthorityCache(nodeRef, false);
+        String authorityName = (String) nodeService.getProperty(nodeRef, ContentModel.PROP_AUTHORITY_NAME);
 
         nodeService.deleteNode(nodeRef);
 
         authorityLookupCache.remove(cacheKey(name));
         userAuthorityCache.clear();
-        authorityBridgeTableCache.refresh();
+        if (authorityName == null)
+        {
+            authorityBridgeTableCache.refresh();
+        }
+        else
+        {
+            authorityBridgeTableCache.refresh(AuthorityBridgeChange.deleteAuthority(authorityName));
+        }
     }
 
     public PagingResults<AuthorityInfo> getAuthoritiesInfo(AuthorityType type, String zoneName, String displayNameFilter, String sortBy, boolean sortAscending, PagingRequest pagingRequest)
@@ -831,51 +857,60 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
         else
         {
-            userAuthorityCache.clear();
+            if (!useBridgeTable)
+            {
+                userAuthorityCache.clear();
+            }
             if (cacheRefresh)
             {
-                authorityBridgeTableCache.refresh();
+                String storedParentName = (String) nodeService.getProperty(parentRef, ContentModel.PROP_AUTHORITY_NAME);
+                authorityBridgeTableCache.refresh(AuthorityBridgeChange.removeLink(storedParentName, childName));
             }
         }
     }
 
     /**
-     * Explicitly use the bridge table to list authorities.
+     * List the authorities that directly contain a user, as held by the <tt>userAuthorityCache</tt> when the bridge table is used.
+     */
+    private void listDirectAuthoritiesByBridgeTable(Set<String> authorities, String name)
+    {
+        NodeRef authRef = getAuthorityOrNull(name);
+        List<AuthorityBridgeLink> parents = authorityBridgeDAO.getDirectAuthoritiesForUser(authRef);
+        for (AuthorityBridgeLink parent : parents)
+        {
+            authorities.add(getPooledName(parent.getParentName()));
+        }
+    }
+
+    /**
+     * Add the ancestors held by the bridge table to a user's direct authorities. The bridge table is kept up to date incrementally, so group changes do not need to invalidate the cached direct authorities.
+     * <p>
+     * The expanded set is cached with the bridge table and the direct authorities it was built from, and is only reused while both are unchanged.
      */
-    private void listAuthoritiesByBridgeTable(Set<String> authorities, String name)
+    private Set<String> expandByBridgeTable(String userName, Set<String> directAuthorities)
     {
         BridgeTable<String> bridgeTable = authorityBridgeTableCache.get();
+        ExpandedAuthorities expanded = userExpandedAuthorityCache.get(userName);
+        if (expanded != null && expanded.bridgeTable == bridgeTable && expanded.directAuthorities.equals(directAuthorities))
+        {
+            return expanded.authorities;
+        }
+        Set<String> authorities = expandByBridgeTable(bridgeTable, directAuthorities);
+        userExpandedAuthorityCache.put(userName, new ExpandedAuthorities(bridgeTable, directAuthorities, authorities));
+        return authorities;
+    }
 
-        AuthorityType type = AuthorityType.getAuthorityType(name);
-        switch (type)
-        {
-        case WILDCARD:
-            // Dual use of the enum means that this value should not be received
-            logger.warn("Found an authority with type '" + AuthorityType.WILDCARD + "': " + name);
-        case ADMIN:
-        case GUEST:
-        case USER:
-        case EVERYONE:
-            NodeRef authRef = getAuthorityOrNull(name);
-            List<AuthorityBridgeLink> parents = authorityBridgeDAO.getDirectAuthoritiesForUser(authRef);
-            for (AuthorityBridgeLink parent : parents)
-            {
-                authorities.add(getPooledName(parent.getParentName()));
-                for (String ancestor : bridgeTable.getAncestors(parent.getParentName()))
-                {
-                    authorities.add(getPooledName(ancestor));
-                }
-            }
-            break;
-        case GROUP:
-        case OWNER:
-        case ROLE:
-            for (String ancestor : bridgeTable.getAncestors(name))
+    private Set<String> expandByBridgeTable(BridgeTable<String> bridgeTable, Set<String> directAuthorities)
+    {
+        Set<String> authorities = new TreeSet<String>(directAuthorities);
+        for (String directAuthority : directAuthorities)
+        {
+            for (String ancestor : bridgeTable.getAncestors(directAuthority))
             {
                 authorities.add(getPooledName(ancestor));
             }
-            break;
         }
+        return Collections.unmodifiableSet(authorities);
     }
 
     @Override
@@ -902,7 +937,8 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
                 authorities = new TreeSet<String>();
                 if (useBridgeTable)
                 {
-                    listAuthoritiesByBridgeTable(authorities, name);
+                    // Only cache the direct authorities, the bridge table holds their ancestors
+                    listDirectAuthoritiesByBridgeTable(authorities, name);
                 }
                 else
                 {
@@ -911,6 +947,10 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
                 // Add the set back to the cache. Name has already been normalized. If the value is locked then nothing will happen.
                 userAuthorityCache.put(name, Collections.unmodifiableSet(authorities));
             }
+            if (useBridgeTable)
+            {
+                authorities = expandByBridgeTable(name, authorities);
+            }
             // If we wanted the unfiltered set we are done
             if (type == null)
             {
@@ -1838,7 +1878,15 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         {
             logger.debug("Bridge Table cache triggering userAuthorityCache.clear()");
         }
-        userAuthorityCache.clear();
+        if (useBridgeTable)
+        {
+            // Expanded sets built from the previous bridge table are never reused, so free them
+            userExpandedAuthorityCache.clear();
+        }
+        else
+        {
+            userAuthorityCache.clear();
+        }
     }
 
     @Override
@@ -1865,10 +1913,28 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         PropertyCheck.mandatory(this, "storeRef", storeRef);
         PropertyCheck.mandatory(this, "tenantService", tenantService);
         PropertyCheck.mandatory(this, "userAuthorityCache", userAuthorityCache);
+        PropertyCheck.mandatory(this, "userExpandedAuthorityCache", userExpandedAuthorityCache);
         PropertyCheck.mandatory(this, "zoneAuthorityCache", zoneAuthorityCache);
         PropertyCheck.mandatory(this, "storeRef", storeRef);
         PropertyCheck.mandatory(this, "storeRef", storeRef);
         authorityBridgeTableCache.register(this);
 
     };
+
+    /**
+     * A user's authorities expanded through a bridge table, with the table and the direct authorities they were built from
+     */
+    /* package */ static final class ExpandedAuthorities
+    {
+        private final BridgeTable<String> bridgeTable;
+        private final Set<String> directAuthorities;
+        private final Set<String> authorities;
+
+        private ExpandedAuthorities(BridgeTable<String> bridgeTable, Set<String> directAuthorities, Set<String> authorities)
+        {
+            this.bridgeTable = bridgeTable;
+            this.directAuthorities = directAuthorities;
+            this.authorities = authorities;
+        }
+    }
 }
@@ -31,6 +31,8 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -168,6 +170,12 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
     /** The number of worker threads. */
     private int workerThreads = 2;
 
+    /** The number of worker threads for the group association phases, or zero to use {@link #workerThreads}. */
+    private int associationWorkerThreads = 0;
+
+    /** The number of worker threads for the user creation phase, or zero to use {@link #workerThreads}. */
+    private int userWorkerThreads = 0;
+
     private MBeanServerConnection mbeanServer;
 
     /** Allow a full sync to perform deletions? */
@@ -355,6 +363,28 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
         this.workerThreads = workerThreads;
     }
 
+    /**
+     * Sets the number of worker threads for the group creation and association phases, which only maintain associations and can usually use more threads than the analysis.
+     * 
+     * @param associationWorkerThreads
+     *            the number of worker threads or zero to use the default number of worker threads
+     */
+    public void setAssociationWorkerThreads(int associationWorkerThreads)
+    {
+        this.associationWorkerThreads = associationWorkerThreads;
+    }
+
+    /**
+     * Sets the number of worker threads for the user creation phase.
+     * 
+     * @param userWorkerThreads
+     *            the number of worker threads or zero to use the default number of worker threads
+     */
+    public void setUserWorkerThreads(int userWorkerThreads)
+    {
+        this.userWorkerThreads = userWorkerThreads;
+    }
+
     /**
      * Controls how deleted users and groups are handled. By default is set to true.
      * 
@@ -848,7 +878,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
      * Lookup table for sync process used by syncWithPlugin
      * 
      */
-    private enum SyncProcess
+    enum SyncProcess
     {
         GROUP_ANALYSIS("1 Group Analysis"), MISSING_AUTHORITY("2 Missing Authority Scanning"), GROUP_CREATION_AND_ASSOCIATION_DELETION("3 Group Creation and Association Deletion"), GROUP_ASSOCIATION_CREATION("4 Group Association Creation"), PERSON_ASSOCIATION("5 User Association"), USER_CREATION("6 User Creation and Association"), AUTHORITY_DELETION("7 Authority Deletion");
 
@@ -865,6 +895,24 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
         private String title;
     }
 
+    /**
+     * Gets the number of worker threads to use for a synchronization phase.
+     */
+    int getWorkerThreads(SyncProcess process)
+    {
+        switch (process)
+        {
+        case GROUP_CREATION_AND_ASSOCIATION_DELETION:
+        case GROUP_ASSOCIATION_CREATION:
+        case PERSON_ASSOCIATION:
+            return this.associationWorkerThreads > 0 ? this.associationWorkerThreads : this.workerThreads;
+        case USER_CREATION:
+            return this.userWorkerThreads > 0 ? this.userWorkerThreads : this.workerThreads;
+        default:
+            return this.workerThreads;
+        }
+    }
+
     /**
      * Synchronizes local groups and users with a {@link UserRegistry} for a particular zone, optionally handling deletions.
      * 
@@ -954,7 +1002,10 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
             private Map<String, Set<String>> groupParentAssocsToCreate = new TreeMap<String, Set<String>>();
             private final Map<String, Set<String>> groupParentAssocsToDelete = new TreeMap<String, Set<String>>();
             private final List<String> groupToRezone = new LinkedList<>();
-            private final Map<String, Set<String>> finalGroupChildAssocs = new TreeMap<String, Set<String>>();
+            // Concurrent, so that the worker threads can check which groups are cached without the analyzer lock
+            private final Map<String, Set<String>> finalGroupChildAssocs = new ConcurrentSkipListMap<String, Set<String>>();
+            // Current children of existing groups, read by the worker threads before the analysis of each group and removed once used
+            private final Map<String, Set<String>> currentGroupChildAssocs = new ConcurrentHashMap<String, Set<String>>();
             private List<String> personsProcessed = new LinkedList<String>();
             private Set<String> allZonePersons = Collections.emptySet();
             private Set<String> deletionCandidates;
@@ -1006,6 +1057,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                     if (groupZones.contains(zoneId))
                     {
                         // The group already existed in this zone: update the group
+                        snapshotContainedAuthorities(groupName);
                         updateGroup(group, true);
                     }
                     else if (!visited.isEmpty())
@@ -1026,6 +1078,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                         updateAuthorityZones(groupName, groupZones, zoneSet);
 
                         // The group now exists in this zone: update the group
+                        snapshotContainedAuthorities(groupName);
                         updateGroup(group, true);
                     }
                     else
@@ -1063,6 +1116,8 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                 Set<String> children = this.finalGroupChildAssocs.get(groupName);
                 if (children != null)
                 {
+                    // The group was cached while this worker read its children
+                    this.currentGroupChildAssocs.remove(groupName);
                     return children;
                 }
 
@@ -1077,8 +1132,22 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                 return cacheContainedAuthorities(groupName);
             }
 
+            // Reads the current children of a group without holding the analyzer lock, so that worker threads can read them in parallel.
+            // Groups that were already cached, as the parent or child of a group analyzed before, are not read again.
+            private void snapshotContainedAuthorities(String groupName)
+            {
+                if (!this.finalGroupChildAssocs.containsKey(groupName) && !this.currentGroupChildAssocs.containsKey(groupName))
+                {
+                    this.currentGroupChildAssocs.put(groupName, ChainingUserRegistrySynchronizer.this.authorityService
+                            .getContainedAuthorities(null, groupName, true));
+                }
+            }
+
             private Set<String> cacheContainedAuthorities(String groupName)
             {
+                // The snapshot is only used once, if at all
+                Set<String> snapshot = this.currentGroupChildAssocs.remove(groupName);
+
                 // Return the cached children if it is processed
                 Set<String> children = this.finalGroupChildAssocs.get(groupName);
                 if (children != null)
@@ -1087,8 +1156,12 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                 }
 
                 // Descend on unprocessed parents.
-                children = ChainingUserRegistrySynchronizer.this.authorityService.getContainedAuthorities(null,
-                        groupName, true);
+                children = snapshot;
+                if (children == null)
+                {
+                    children = ChainingUserRegistrySynchronizer.this.authorityService.getContainedAuthorities(null,
+                            groupName, true);
+                }
                 this.finalGroupChildAssocs.put(groupName, children);
 
                 for (String child : children)
@@ -1543,7 +1616,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                                 SyncProcess.GROUP_CREATION_AND_ASSOCIATION_DELETION.getTitle(zone),
                                 ChainingUserRegistrySynchronizer.this.transactionService.getRetryingTransactionHelper(),
                                 this.groupParentAssocsToDelete.entrySet(),
-                                ChainingUserRegistrySynchronizer.this.workerThreads, 20,
+                                ChainingUserRegistrySynchronizer.this.getWorkerThreads(SyncProcess.GROUP_CREATION_AND_ASSOCIATION_DELETION), 20,
                                 ChainingUserRegistrySynchronizer.this.applicationEventPublisher,
                                 ChainingUserRegistrySynchronizer.logger,
                                 ChainingUserRegistrySynchronizer.this.loggingInterval);
@@ -1599,7 +1672,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                             SyncProcess.GROUP_ASSOCIATION_CREATION.getTitle(zone),
                             ChainingUserRegistrySynchronizer.this.transactionService.getRetryingTransactionHelper(),
                             this.groupParentAssocsToCreate.entrySet(),
-                            ChainingUserRegistrySynchronizer.this.workerThreads, 20,
+                            ChainingUserRegistrySynchronizer.this.getWorkerThreads(SyncProcess.GROUP_ASSOCIATION_CREATION), 20,
                             ChainingUserRegistrySynchronizer.this.applicationEventPublisher,
                             ChainingUserRegistrySynchronizer.logger,
                             ChainingUserRegistrySynchronizer.this.loggingInterval);
@@ -1631,7 +1704,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                             SyncProcess.PERSON_ASSOCIATION.getTitle(zone),
                             ChainingUserRegistrySynchronizer.this.transactionService.getRetryingTransactionHelper(),
                             this.personParentAssocsToDelete.entrySet(),
-                            ChainingUserRegistrySynchronizer.this.workerThreads, 20,
+                            ChainingUserRegistrySynchronizer.this.getWorkerThreads(SyncProcess.PERSON_ASSOCIATION), 20,
                             ChainingUserRegistrySynchronizer.this.applicationEventPublisher,
                             ChainingUserRegistrySynchronizer.logger,
                             ChainingUserRegistrySynchronizer.this.loggingInterval);
@@ -1773,7 +1846,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                 SyncProcess.USER_CREATION.getTitle(zone),
                 this.transactionService.getRetryingTransactionHelper(),
                 userRegistry.getPersons(lastModified),
-                this.workerThreads,
+                this.getWorkerThreads(SyncProcess.USER_CREATION),
                 10,
                 this.applicationEventPublisher,
                 ChainingUserRegistrySynchronizer.logger,
@@ -696,6 +696,9 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
             // We get a whole new context to avoid interference with cookies from paged results
             private DirContext ctx = LDAPUserRegistry.this.ldapInitialContextFactory.getDefaultIntialDirContext();
 
+            // Authority names of the member DNs resolved by directory lookup, as the same members usually belong to many groups
+            private Map<String, String> resolvedMembers = new HashMap<String, String>();
+
             protected void doProcess(SearchResult result) throws NamingException, ParseException
             {
                 Attributes attributes = result.getAttributes();
@@ -801,6 +804,13 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
                                 if (distinguishedNameForComparison.startsWith(userDistinguishedNamePrefix)
                                         || distinguishedNameForComparison.startsWith(groupDistinguishedNamePrefix))
                                 {
+                                    String memberKey = distinguishedNameForComparison.toString();
+                                    String resolvedMember = this.resolvedMembers.get(memberKey);
+                                    if (resolvedMember != null)
+                                    {
+                                        childAssocs.add(resolvedMember);
+                                        continue;
+                                    }
                                     try
                                     {
                                         Attributes childAttributes = this.ctx.getAttributes(jndiName(attribute),
@@ -834,6 +844,7 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
                                             {
                                                 LDAPUserRegistry.logger.debug("User DN recognized by directory lookup: " + nameAttribute.get());
                                             }
+                                            this.resolvedMembers.put(memberKey, (String) nameAttribute.get());
                                             childAssocs.add((String) nameAttribute.get());
                                             continue;
                                         }
@@ -858,6 +869,7 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
                                             {
                                                 LDAPUserRegistry.logger.debug("Group DN recognized by directory lookup: " + "GROUP_" + nameAttribute.get());
                                             }
+                                            this.resolvedMembers.put(memberKey, "GROUP_" + nameAttribute.get());
                                             childAssocs.add("GROUP_" + nameAttribute.get());
                                             continue;
                                         }
@@ -936,6 +948,7 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
 
             public void close() throws NamingException
             {
+                this.resolvedMembers.clear();
                 this.ctx.close();
             }
         }, this.groupSearchBase, query, this.groupKeys.getFirst());
@@ -27,7 +27,9 @@ package org.alfresco.repo.site;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -36,10 +38,12 @@ import org.alfresco.query.AbstractCannedQuery;
 import org.alfresco.query.CannedQueryParameters;
 import org.alfresco.query.CannedQuerySortDetails;
 import org.alfresco.query.CannedQuerySortDetails.SortOrder;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.NodeService;
 import org.alfresco.service.cmr.security.PersonService;
 import org.alfresco.service.cmr.site.SiteInfo;
+import org.alfresco.service.cmr.site.SiteMemberInfo;
 import org.alfresco.service.cmr.site.SiteService;
 import org.alfresco.service.cmr.site.SiteService.SiteMembersCallback;
 import org.alfresco.util.Pair;
@@ -56,13 +60,24 @@ public class SiteMembersCannedQuery extends AbstractCannedQuery<SiteMembership>
     private NodeService nodeService;
     private PersonService personService;
     private SiteService siteService;
+    private NodeBulkLoader nodeBulkLoader;
 
     protected SiteMembersCannedQuery(SiteService siteService, PersonService personService, NodeService nodeService, CannedQueryParameters parameters)
+    {
+        this(siteService, personService, nodeService, null, parameters);
+    }
+
+    /**
+     * @param nodeBulkLoader
+     *            used to load the members' person nodes in bulk before their names are read, may be <tt>null</tt>
+     */
+    protected SiteMembersCannedQuery(SiteService siteService, PersonService personService, NodeService nodeService, NodeBulkLoader nodeBulkLoader, CannedQueryParameters parameters)
     {
         super(parameters);
         this.personService = personService;
         this.nodeService = nodeService;
         this.siteService = siteService;
+        this.nodeBulkLoader = nodeBulkLoader;
     }
 
     @Override
@@ -93,6 +108,8 @@ public class SiteMembersCannedQuery extends AbstractCannedQuery<SiteMembership>
     {
         private SiteInfo siteInfo;
         private Set<SiteMembership> siteMembers;
+        // the members reported so far, their names are read in bulk when done
+        private List<SiteMemberInfo> members = new ArrayList<>();
 
         CQSiteMembersCallback(String siteShortName, List<Pair<? extends Object, SortOrder>> sortPairs)
         {
@@ -112,17 +129,7 @@ public class SiteMembersCannedQuery extends AbstractCannedQuery<SiteMembership>
         @Override
         public void siteMember(String authority, String permission, boolean isMemberOfGroup)
         {
-            String firstName = null;
-            String lastName = null;
-
-            if (personService.personExists(authority))
-            {
-                NodeRef nodeRef = personService.getPerson(authority);
-                firstName = (String) nodeService.getProperty(nodeRef, ContentModel.PROP_FIRSTNAME);
-                lastName = (String) nodeService.getProperty(nodeRef, ContentModel.PROP_LASTNAME);
-            }
-
-            siteMembers.add(new SiteMembership(siteInfo, authority, firstName, lastName, permission, isMemberOfGroup));
+            members.add(new SiteMemberInfoImpl(authority, permission, isMemberOfGroup));
         }
 
         @Override
@@ -137,6 +144,46 @@ public class SiteMembersCannedQuery extends AbstractCannedQuery<SiteMembership>
         }
 
         void done()
-        {}
+        {
+            // Look up the person nodes first so that they can be loaded in one go rather than one member at a time
+            Map<String, NodeRef> personRefs = new LinkedHashMap<>();
+            for (SiteMemberInfo member : members)
+            {
+                String authority = member.getMemberName();
+                if (!personRefs.containsKey(authority))
+                {
+                    personRefs.put(authority, personService.getPersonOrNull(authority));
+                }
+            }
+            if (nodeBulkLoader != null)
+            {
+                List<NodeRef> nodeRefs = new ArrayList<>(personRefs.size());
+                for (NodeRef nodeRef : personRefs.values())
+                {
+                    if (nodeRef != null)
+                    {
+                        nodeRefs.add(nodeRef);
+                    }
+                }
+                nodeBulkLoader.cacheNodes(nodeRefs);
+            }
+
+            for (SiteMemberInfo member : members)
+            {
+                String authority = member.getMemberName();
+                String firstName = null;
+                String lastName = null;
+
+                NodeRef nodeRef = personRefs.get(authority);
+                if (nodeRef != null)
+                {
+                    firstName = (String) nodeService.getProperty(nodeRef, ContentModel.PROP_FIRSTNAME);
+                    lastName = (String) nodeService.getProperty(nodeRef, ContentModel.PROP_LASTNAME);
+                }
+
+                siteMembers.add(new SiteMembership(siteInfo, authority, firstName, lastName, member.getMemberRole(), member.isMemberOfGroup()));
+            }
+            members.clear();
+        }
     }
 }
@@ -85,6 +85,7 @@ import org.alfresco.repo.search.QueryParserException;
 import org.alfresco.repo.security.authentication.AuthenticationContext;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
+import org.alfresco.repo.security.authority.AuthorityServicePolicies;
 import org.alfresco.repo.security.permissions.AccessDeniedException;
 import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.repo.tenant.TenantUtil;
@@ -138,7 +139,8 @@ import org.alfresco.util.registry.NamedObjectRegistry;
  * 
  * @author Roy Wetherall
  */
-public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServiceInternal, SiteModel, NodeArchiveServicePolicies.BeforePurgeNodePolicy, NodeServicePolicies.OnRestoreNodePolicy, NodeArchiveServicePolicies.BeforeRestoreArchivedNodePolicy, NodeArchiveServicePolicies.OnRestoreArchivedNodePolicy
+public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServiceInternal, SiteModel, NodeArchiveServicePolicies.BeforePurgeNodePolicy, NodeServicePolicies.OnRestoreNodePolicy, NodeArchiveServicePolicies.BeforeRestoreArchivedNodePolicy, NodeArchiveServicePolicies.OnRestoreArchivedNodePolicy,
+        AuthorityServicePolicies.OnAuthorityAddedToGroup, AuthorityServicePolicies.OnAuthorityRemovedFromGroup, AuthorityServicePolicies.OnGroupDeleted
 {
     /** Logger */
     protected static Log logger = LogFactory.getLog(SiteServiceImpl.class);
@@ -167,6 +169,8 @@ public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServic
 
     private SimpleCache<String, NodeRef> siteNodeRefCache; // for site shortname to nodeRef lookup
 
+    private SimpleCache<String, Map<String, Set<String>>> siteMembershipCache; // for site shortname to the authorities directly in each role group
+
     private String sitesXPath;
 
     /** Messages */
@@ -351,6 +355,14 @@ public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServic
         this.siteNodeRefCache = siteNodeRefCache;
     }
 
+    /**
+     * Set the cache of the authorities directly contained by each of a site's role groups. If not set, the role groups are read on every member listing.
+     */
+    public void setSiteMembershipCache(SimpleCache<String, Map<String, Set<String>>> siteMembershipCache)
+    {
+        this.siteMembershipCache = siteMembershipCache;
+    }
+
     /**
      * Sets helper that provides transaction callbacks
      */
@@ -448,6 +460,22 @@ public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServic
                 OnRestoreArchivedNodePolicy.QNAME,
                 SiteModel.TYPE_SITE,
                 new JavaBehaviour(this, "onRestoreArchivedNode"));
+        this.policyComponent.bindClassBehaviour(
+                AuthorityServicePolicies.OnAuthorityAddedToGroup.QNAME,
+                ContentModel.TYPE_AUTHORITY,
+                new JavaBehaviour(this, "onAuthorityAddedToGroup"));
+        this.policyComponent.bindClassBehaviour(
+                AuthorityServicePolicies.OnAuthorityRemovedFromGroup.QNAME,
+                ContentModel.TYPE_AUTHORITY,
+                new JavaBehaviour(this, "onAuthorityRemovedFromGroup"));
+        this.policyComponent.bindClassBehaviour(
+                AuthorityServicePolicies.OnGroupDeleted.QNAME,
+                ContentModel.TYPE_AUTHORITY,
+                new JavaBehaviour(this, "onGroupDeleted"));
+        this.policyComponent.bindClassBehaviour(
+                NodeServicePolicies.BeforeDeleteNodePolicy.QNAME,
+                ContentModel.TYPE_PERSON,
+                new JavaBehaviour(this, "beforeDeletePerson"));
     }
 
     /* (non-Javadoc)
@@ -1663,6 +1691,7 @@ public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServic
 
         // Delete the cached reference
         siteNodeRefCache.remove(shortName);
+        removeSiteMembershipSnapshot(shortName);
 
         // no need to retain the membership of the site as we postpone delete of authorities until purge from the trashcan
 
@@ -1762,15 +1791,15 @@ public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServic
 
         QName siteType = directNodeService.getType(siteNodeRef);
         Set<String> permissions = this.permissionService.getSettablePermissions(siteType);
+        Map<String, Set<String>> membership = getSiteMembershipSnapshot(shortName, permissions);
         Map<String, String> groupsToExpand = new HashMap<String, String>(32);
 
         for (String permission : permissions)
         {
-            String groupName = getSiteRoleGroup(shortName, permission, true);
+            Set<String> authorities = membership.get(permission);
 
-            if ((roleFilter == null || roleFilter.length() == 0 || roleFilter.equals(permission)) && this.authorityService.authorityExists(groupName))
+            if ((roleFilter == null || roleFilter.length() == 0 || roleFilter.equals(permission)) && authorities != null)
             {
-                Set<String> authorities = this.authorityService.getContainedAuthorities(null, groupName, true);
                 for (String authority : authorities)
                 {
                     switch (AuthorityType.getAuthorityType(authority))
@@ -1859,6 +1888,87 @@ public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServic
         }
     }
 
+    /**
+     * Get the authorities directly contained by each of the site's role groups, keyed by role. Roles without a group are left out.
+     * <p/>
+     * The result is cached per site and removed from the cache whenever an authority is added to or removed from one of the site's groups, so a member listing does not have to read every role group again.
+     */
+    private Map<String, Set<String>> getSiteMembershipSnapshot(String shortName, Set<String> permissions)
+    {
+        String cacheKey = shortName.toLowerCase();
+        Map<String, Set<String>> membership = (siteMembershipCache == null) ? null : siteMembershipCache.get(cacheKey);
+        if (membership == null)
+        {
+            membership = new HashMap<String, Set<String>>(permissions.size() * 2);
+            for (String permission : permissions)
+            {
+                String groupName = getSiteRoleGroup(shortName, permission, true);
+                if (authorityService.authorityExists(groupName))
+                {
+                    Set<String> authorities = authorityService.getContainedAuthorities(null, groupName, true);
+                    membership.put(permission, Collections.unmodifiableSet(authorities));
+                }
+            }
+            membership = Collections.unmodifiableMap(membership);
+            if (siteMembershipCache != null)
+            {
+                siteMembershipCache.put(cacheKey, membership);
+            }
+        }
+        return membership;
+    }
+
+    private void removeSiteMembershipSnapshot(String shortName)
+    {
+        if (siteMembershipCache != null && shortName != null)
+        {
+            siteMembershipCache.remove(shortName.toLowerCase());
+        }
+    }
+
+    @Override
+    public void onAuthorityAddedToGroup(String parentGroup, String childAuthority)
+    {
+        removeSiteMembershipSnapshot(resolveSite(parentGroup));
+    }
+
+    @Override
+    public void onAuthorityRemovedFromGroup(String parentGroup, String childAuthority)
+    {
+        removeSiteMembershipSnapshot(resolveSite(parentGroup));
+    }
+
+    @Override
+    public void onGroupDeleted(String groupName, boolean cascade)
+    {
+        String shortName = resolveSite(groupName);
+        if (shortName != null)
+        {
+            removeSiteMembershipSnapshot(shortName);
+        }
+        else if (siteMembershipCache != null)
+        {
+            // The deleted group may have been a member of any site
+            siteMembershipCache.clear();
+        }
+    }
+
+    /**
+     * Deleting a person removes them from their groups without the authority policies being invoked.
+     */
+    public void beforeDeletePerson(NodeRef personRef)
+    {
+        String userName = (String) directNodeService.getProperty(personRef, ContentModel.PROP_USERNAME);
+        if (siteMembershipCache == null || userName == null)
+        {
+            return;
+        }
+        for (String group : authorityService.getContainingAuthorities(AuthorityType.GROUP, userName, true))
+        {
+            removeSiteMembershipSnapshot(resolveSite(group));
+        }
+    }
+
     /* Build an array of name filter tokens pre lowercased to test against person properties We require that matching people have at least one match against one of these on either their firstname or last name */
     static String[] tokenizeFilterLowercase(String nameFilter)
     {
@@ -1879,7 +1989,7 @@ public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServic
     {
         CannedQueryParameters params = getCannedQueryParameters(shortName, collapseGroups, sortProps, pagingRequest);
 
-        CannedQuery<SiteMembership> query = new SiteMembersCannedQuery(this, personService, nodeService, params);
+        CannedQuery<SiteMembership> query = new SiteMembersCannedQuery(this, personService, nodeService, nodeDAO, params);
 
         CannedQueryResults<SiteMembership> results = query.execute();
 
@@ -2009,14 +2119,14 @@ public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServic
 
         QName siteType = directNodeService.getType(siteNodeRef);
         Set<String> permissions = this.permissionService.getSettablePermissions(siteType);
+        Map<String, Set<String>> membership = getSiteMembershipSnapshot(shortName, permissions);
         Map<String, String> groupsToExpand = new HashMap<String, String>(32);
 
         AUTHORITY_FIND: for (String permission : permissions)
         {
-            if (roleFilter == null || roleFilter.length() == 0 || roleFilter.equals(permission))
+            if ((roleFilter == null || roleFilter.length() == 0 || roleFilter.equals(permission)) && membership.containsKey(permission))
             {
-                String groupName = getSiteRoleGroup(shortName, permission, true);
-                Set<String> authorities = this.authorityService.getContainedAuthorities(null, groupName, true);
+                Set<String> authorities = membership.get(permission);
                 for (String authority : authorities)
                 {
                     switch (AuthorityType.getAuthorityType(authority))
@@ -2226,13 +2336,14 @@ public class SiteServiceImpl extends AbstractLifecycleBean implements SiteServic
 
         QName siteType = directNodeService.getType(siteNodeRef);
         Set<String> permissions = this.permissionService.getSettablePermissions(siteType);
+        Map<String, Set<String>> membership = getSiteMembershipSnapshot(shortName, permissions);
         // This set is a lazily evaluated one, so merely getting it in advance as we do here is not expensive
         Set<String> userAuthoritySet = this.authorityService.getAuthoritiesForUser(authorityName);
         for (String role : permissions)
         {
             String roleGroup = getSiteRoleGroup(shortName, role, true);
-            Set<String> authorities = this.authorityService.getContainedAuthorities(null, roleGroup, true);
-            if (authorities.contains(authorityName))
+            Set<String> authorities = membership.get(role);
+            if (authorities != null && authorities.contains(authorityName))
             {
                 // found a direct membership for this user - return this role info
                 return new SiteMemberInfoImpl(authorityName, role, false);
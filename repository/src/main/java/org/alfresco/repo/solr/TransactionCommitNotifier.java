@@ -0,0 +1,90 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.solr;
+
+/**
+ * Wakes up index trackers waiting for new transactions when a transaction that wrote to <tt>alf_transaction</tt> commits on this server.
+ * <p>
+ * Trackers take the {@link #getCommitCount() commit count} before looking for transactions and, if they find none, {@link #awaitCommit(long, long) wait} for it to change instead of polling the database again. Commits on other servers of a cluster are not seen, so a tracker picks them up when its wait times out, as it would have done with its next poll.
+ *
+ * @since 26.1
+ */
+public class TransactionCommitNotifier
+{
+    private final Object lock = new Object();
+
+    private long commitCount;
+
+    /**
+     * Called after a transaction that wrote to <tt>alf_transaction</tt> has committed.
+     */
+    public void transactionCommitted()
+    {
+        synchronized (lock)
+        {
+            commitCount++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * @return the number of commits seen since startup
+     */
+    public long getCommitCount()
+    {
+        synchronized (lock)
+        {
+            return commitCount;
+        }
+    }
+
+    /**
+     * Wait for a commit after the given commit count was read.
+     *
+     * @param sinceCommitCount
+     *            a value previously returned by {@link #getCommitCount()}
+     * @param timeoutMs
+     *            the maximum time to wait
+     * @return <tt>true</tt> if there has been a commit, <tt>false</tt> if the wait timed out
+     */
+    public boolean awaitCommit(long sinceCommitCount, long timeoutMs) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        synchronized (lock)
+        {
+            while (commitCount == sinceCommitCount)
+            {
+                long remainingMs = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remainingMs <= 0)
+                {
+                    return false;
+                }
+                lock.wait(remainingMs);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.transaction;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+
+import org.alfresco.error.ExceptionStackUtil;
+import org.alfresco.util.LockHelper.LockTryException;
+
+/**
+ * The kind of contention that caused a transaction to be retried. Each kind backs off differently in the {@link RetryingTransactionHelper}.
+ */
+public enum ContentionType
+{
+    /** The transaction lost a deadlock or a serialization check in the database */
+    DEADLOCK,
+    /** Another transaction changed the same row first, e.g. a node version check failed */
+    OPTIMISTIC_LOCK,
+    /** Another transaction inserted the same key first */
+    UNIQUE_CONSTRAINT,
+    /** A database or repository lock could not be acquired in time */
+    LOCK,
+    /** Any other retryable failure */
+    OTHER;
+
+    /**
+     * Work out the kind of contention from a retryable exception.
+     * 
+     * @param cause
+     *            the exception, including its causes
+     * @return the kind of contention, never <tt>null</tt>
+     */
+    public static ContentionType classify(Throwable cause)
+    {
+        if (ExceptionStackUtil.getCause(cause, DeadlockLoserDataAccessException.class) != null)
+        {
+            return DEADLOCK;
+        }
+        if (ExceptionStackUtil.getCause(cause, DataIntegrityViolationException.class, SQLIntegrityConstraintViolationException.class) != null)
+        {
+            return UNIQUE_CONSTRAINT;
+        }
+        SQLException sqlException = (SQLException) ExceptionStackUtil.getCause(cause, SQLException.class);
+        String sqlState = (sqlException == null) ? null : sqlException.getSQLState();
+        if (sqlState != null)
+        {
+            // 40001: serialization failure (also MySQL deadlocks); 40P01: PostgreSQL deadlock; class 23: integrity constraint violation
+            if (sqlState.equals("40001") || sqlState.equals("40P01"))
+            {
+                return DEADLOCK;
+            }
+            if (sqlState.startsWith("23"))
+            {
+                return UNIQUE_CONSTRAINT;
+            }
+        }
+        if (ExceptionStackUtil.getCause(cause, LockTryException.class, PessimisticLockingFailureException.class) != null)
+        {
+            return LOCK;
+        }
+        if (ExceptionStackUtil.getCause(cause, ConcurrencyFailureException.class, JdbcUpdateAffectedIncorrectNumberOfRowsException.class) != null)
+        {
+            return OPTIMISTIC_LOCK;
+        }
+        return OTHER;
+    }
+}
@@ -70,8 +70,13 @@ import org.alfresco.util.LockHelper.LockTryException;
  * <li><b>minRetryWaitMs: 100</b></li>
  * <li><b>maxRetryWaitMs: 2000</b></li>
  * <li><b>retryWaitIncrementMs: 100</b></li>
+ * <li><b>contentionAwareRetries: true</b></li>
  * </ul>
  * <p>
+ * With <b>contentionAwareRetries</b> each failure is classified as a {@link ContentionType}. Database contention backs off with decorrelated jitter: each wait is a random time between <tt>minRetryWaitMs</tt> and three times the previous wait for the same kind of contention, capped at <tt>maxRetryWaitMs</tt>. Unique constraint failures are capped at four times <tt>minRetryWaitMs</tt>, since the retry will usually find the row the other transaction inserted. Other failures use the <tt>retryWaitIncrementMs</tt> schedule.
+ * <p>
+ * Retries, failures and latencies of new transactions are recorded per call site by a {@link TransactionContentionMonitor}, which can also limit how many transactions of a hot call site run at once.
+ * <p>
  * To get details of 'why' transactions are retried use the following log level:<br>
  * <b>Summary: log4j.logger.org.alfresco.repo.transaction.RetryingTransactionHelper=INFO</b><br>
  * <b>Details: log4j.logger.org.alfresco.repo.transaction.RetryingTransactionHelper=DEBUG</b><br>
@@ -198,6 +203,16 @@ public class RetryingTransactionHelper
      */
     private List<Class<?>> extraExceptions;
 
+    /**
+     * Whether waits between retries depend on the kind of contention.
+     */
+    private boolean contentionAwareRetries;
+
+    /**
+     * Records retries per call site and holds back transactions of hot call sites.
+     */
+    private TransactionContentionMonitor contentionMonitor;
+
     /**
      * Callback interface
      * 
@@ -227,6 +242,8 @@ public class RetryingTransactionHelper
         this.maxRetryWaitMs = 2000;
         this.retryWaitIncrementMs = 100;
         this.forceWritable = false;
+        this.contentionAwareRetries = true;
+        this.contentionMonitor = TransactionContentionMonitor.getDefault();
     }
 
     /**
@@ -291,6 +308,22 @@ public class RetryingTransactionHelper
         this.readOnly = false;
     }
 
+    /**
+     * Set whether the wait between retries depends on the kind of contention. If <tt>false</tt>, all retries use the <tt>retryWaitIncrementMs</tt> schedule.
+     */
+    public void setContentionAwareRetries(boolean contentionAwareRetries)
+    {
+        this.contentionAwareRetries = contentionAwareRetries;
+    }
+
+    /**
+     * Set the monitor that records retries and limits hot call sites. Defaults to {@link TransactionContentionMonitor#getDefault()}.
+     */
+    public void setContentionMonitor(TransactionContentionMonitor contentionMonitor)
+    {
+        this.contentionMonitor = contentionMonitor;
+    }
+
     /**
      * Set the list of extra exceptions that should be retried
      */
@@ -349,6 +382,30 @@ public class RetryingTransactionHelper
      *             all checked exceptions are converted
      */
     public <R> R doInTransaction(RetryingTransactionCallback<R> cb, boolean readOnly, boolean requiresNew)
+    {
+        return doInTransaction(cb, readOnly, requiresNew, null, true);
+    }
+
+    /**
+     * Execute a callback in a transaction until it succeeds, fails because of an error not the result of an optimistic locking failure, or a deadlock loser failure, or until a maximum number of retries have been attempted.
+     * <p>
+     * The retries of a new transaction are recorded by the {@link TransactionContentionMonitor} against the given call site rather than the class of the callback. Generic wrappers, whose callback class says nothing about the work it runs, use this to name the work and to keep it from being held back.
+     *
+     * @param cb
+     *            The callback containing the unit of work.
+     * @param readOnly
+     *            Whether this is a read only transaction.
+     * @param requiresNew
+     *            <tt>true</tt> to force a new transaction or <tt>false</tt> to partake in any existing transaction.
+     * @param callSite
+     *            the name to record retries against, or <tt>null</tt> for the class of the callback
+     * @param limitWhenHot
+     *            <tt>false</tt> if the transaction must never wait for a turn, even when its call site is hot
+     * @return Returns the result of the unit of work.
+     * @throws RuntimeException
+     *             all checked exceptions are converted
+     */
+    public <R> R doInTransaction(RetryingTransactionCallback<R> cb, boolean readOnly, boolean requiresNew, String callSite, boolean limitWhenHot)
     {
         // First validate the requiresNew setting
         if (!requiresNew)
@@ -416,11 +473,25 @@ public class RetryingTransactionHelper
             }
         }
 
+        // New transactions are recorded against their call site and may have to wait for a turn if it is hot
+        TransactionContentionMonitor.CallSite contentionSite = null;
+        boolean admitted = false;
+        boolean failed = true;
+        long callStartTime = 0;
+        if (requiresNew && contentionMonitor != null)
+        {
+            contentionSite = contentionMonitor.getCallSite((callSite == null) ? cb.getClass().getName() : callSite, limitWhenHot);
+            callStartTime = System.currentTimeMillis();
+            admitted = contentionSite.admit(maxRetryWaitMs);
+        }
+
         try
         {
             // Track the last exception caught, so that we
             // can throw it if we run out of retries.
             RuntimeException lastException = null;
+            // The last wait for each kind of contention
+            int[] lastRetryWaits = new int[ContentionType.values().length];
             for (int count = 0; count == 0 || count < maxRetries; count++)
             {
                 UserTransaction txn = null;
@@ -477,6 +548,7 @@ public class RetryingTransactionHelper
                                     "   Iteration: " + count);
                         }
                     }
+                    failed = false;
                     return result;
                 }
                 catch (Throwable e)
@@ -537,19 +609,20 @@ public class RetryingTransactionHelper
 
                     if (retryCause != null)
                     {
+                        ContentionType contentionType = ContentionType.classify(e);
+                        if (contentionSite != null)
+                        {
+                            contentionSite.recordRetry(contentionType);
+                        }
                         // Sleep a random amount of time before retrying.
-                        // The sleep interval increases with the number of retries.
-                        int sleepIntervalRandom = (count > 0 && retryWaitIncrementMs > 0)
-                                ? random.nextInt(count * retryWaitIncrementMs)
-                                : minRetryWaitMs;
-                        int sleepInterval = Math.min(maxRetryWaitMs, sleepIntervalRandom);
-                        sleepInterval = Math.max(sleepInterval, minRetryWaitMs);
+                        int sleepInterval = getRetryWaitMs(contentionType, count, lastRetryWaits);
                         if (logger.isInfoEnabled() && !logger.isDebugEnabled())
                         {
                             String msg = String.format(
-                                    "Retrying %s: count %2d; wait: %1.1fs; msg: \"%s\"; exception: (%s)",
+                                    "Retrying %s: count %2d; wait: %1.1fs; contention: %s; msg: \"%s\"; exception: (%s)",
                                     Thread.currentThread().getName(),
                                     count, (double) sleepInterval / 1000D,
+                                    contentionType,
                                     retryCause.getMessage(),
                                     retryCause.getClass().getName());
                             logger.info(msg);
@@ -578,6 +651,14 @@ public class RetryingTransactionHelper
         }
         finally
         {
+            if (contentionSite != null)
+            {
+                contentionSite.recordTransaction(System.currentTimeMillis() - callStartTime, failed);
+                if (admitted)
+                {
+                    contentionSite.release();
+                }
+            }
             if (requiresNew && maxExecutionMs > 0)
             {
                 synchronized (this)
@@ -600,6 +681,39 @@ public class RetryingTransactionHelper
         }
     }
 
+    /**
+     * Work out how long to wait before a retry.
+     * 
+     * @param contentionType
+     *            the kind of contention that caused the retry
+     * @param count
+     *            the number of the attempt that failed, starting at 0
+     * @param lastRetryWaits
+     *            the last wait for each kind of contention, updated by this method
+     * @return the time to wait in milliseconds
+     */
+    int getRetryWaitMs(ContentionType contentionType, int count, int[] lastRetryWaits)
+    {
+        if (!contentionAwareRetries || contentionType == ContentionType.OTHER)
+        {
+            // The sleep interval increases with the number of retries.
+            int sleepIntervalRandom = (count > 0 && retryWaitIncrementMs > 0)
+                    ? random.nextInt(count * retryWaitIncrementMs)
+                    : minRetryWaitMs;
+            int sleepInterval = Math.min(maxRetryWaitMs, sleepIntervalRandom);
+            return Math.max(sleepInterval, minRetryWaitMs);
+        }
+        int base = Math.max(1, minRetryWaitMs);
+        int cap = (contentionType == ContentionType.UNIQUE_CONSTRAINT) ? Math.min(maxRetryWaitMs, base * 4) : maxRetryWaitMs;
+        cap = Math.max(cap, base);
+        // Decorrelated jitter: anywhere between the base and three times the last wait for this kind of contention
+        int last = Math.max(base, lastRetryWaits[contentionType.ordinal()]);
+        long upper = Math.min((long) cap, last * 3L);
+        int sleepInterval = (upper > base) ? base + random.nextInt((int) (upper - base) + 1) : base;
+        lastRetryWaits[contentionType.ordinal()] = sleepInterval;
+        return sleepInterval;
+    }
+
     /**
      * Sometimes, the exception means retry and sometimes not. The stack of exceptions is also checked for any occurence of {@link DoNotRetryException} and, if found, nothing is returned.
      *
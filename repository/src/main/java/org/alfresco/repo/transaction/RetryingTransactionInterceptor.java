@@ -112,7 +112,9 @@ public class RetryingTransactionInterceptor extends TransactionAspectSupport imp
                                 }
                             },
                             txnAttr.isReadOnly(),
-                            (TransactionAttribute.PROPAGATION_REQUIRES_NEW == propagationBehaviour));
+                            (TransactionAttribute.PROPAGATION_REQUIRES_NEW == propagationBehaviour),
+                            joinpointIdentification,
+                            false);
                 }
                 else
                 {
@@ -0,0 +1,444 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retry statistics and admission control for the transactions started by {@link RetryingTransactionHelper}, per call site.
+ * <p>
+ * A call site is identified by the class of the transaction callback, which for the usual anonymous callbacks points to the code that started the transaction, or by a name given by the caller. Generic wrappers that run any kind of work in a transaction, such as web scripts and transactional service methods, give the name of the work they wrap and are never held back. For each call site the monitor records the number of transactions, their retries by {@link ContentionType}, failures and latency, so that contention hot spots can be found.
+ * <p>
+ * A call site becomes <i>hot</i> when it retries <tt>hotThreshold</tt> times within <tt>hotPeriodMs</tt>. If <tt>maxConcurrentHotTransactions</tt> is set, at most that many transactions of a hot call site run at once; the others wait for a turn rather than add to the retry storm. Waiting is bounded, so a transaction that does not get a turn in time runs anyway.
+ * <p>
+ * {@link RetryingTransactionHelper} instances share the {@link #getDefault() default monitor} unless another one is set.
+ */
+public class TransactionContentionMonitor
+{
+    /** The call site that collects statistics once <tt>maxCallSites</tt> have been seen */
+    public static final String OTHER_CALL_SITES = "other";
+
+    private static final TransactionContentionMonitor DEFAULT = new TransactionContentionMonitor();
+
+    private final ConcurrentMap<String, CallSite> callSites = new ConcurrentHashMap<String, CallSite>();
+    // Set by Spring after the default monitor may already be in use
+    private volatile int maxCallSites = 1000;
+    private volatile int maxConcurrentHotTransactions = 0;
+    private volatile int hotThreshold = 3;
+    private volatile long hotPeriodMs = 10000L;
+
+    /**
+     * @return the monitor shared by all helpers that have not been given their own
+     */
+    public static TransactionContentionMonitor getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * @param maxCallSites
+     *            the number of call sites to keep statistics for; further call sites are counted as {@link #OTHER_CALL_SITES}
+     */
+    public void setMaxCallSites(int maxCallSites)
+    {
+        this.maxCallSites = maxCallSites;
+    }
+
+    /**
+     * @param maxConcurrentHotTransactions
+     *            the number of transactions a hot call site may run at once, or zero to never hold transactions back
+     */
+    public void setMaxConcurrentHotTransactions(int maxConcurrentHotTransactions)
+    {
+        this.maxConcurrentHotTransactions = maxConcurrentHotTransactions;
+        // Existing call sites admit against the new limit; wake their waiters in case it was raised
+        for (CallSite callSite : callSites.values())
+        {
+            callSite.limitChanged();
+        }
+    }
+
+    /**
+     * @param hotThreshold
+     *            the number of retries within <tt>hotPeriodMs</tt> that makes a call site hot
+     */
+    public void setHotThreshold(int hotThreshold)
+    {
+        this.hotThreshold = hotThreshold;
+    }
+
+    /**
+     * @param hotPeriodMs
+     *            how long retries are counted for and how long a call site stays hot after its last retry
+     */
+    public void setHotPeriodMs(long hotPeriodMs)
+    {
+        this.hotPeriodMs = hotPeriodMs;
+    }
+
+    /**
+     * Get the call site for a name, creating it if necessary.
+     * 
+     * @param limited
+     *            <tt>false</tt> if the transactions of the call site must never be held back, when it is created
+     */
+    CallSite getCallSite(String name, boolean limited)
+    {
+        CallSite callSite = callSites.get(name);
+        if (callSite == null)
+        {
+            if (callSites.size() >= maxCallSites)
+            {
+                name = OTHER_CALL_SITES;
+                limited = false;
+            }
+            final boolean limitedSite = limited;
+            callSite = callSites.computeIfAbsent(name, siteName -> new CallSite(siteName, limitedSite));
+        }
+        return callSite;
+    }
+
+    /**
+     * @return the names of the call sites seen so far
+     */
+    public Set<String> getCallSiteNames()
+    {
+        return Collections.unmodifiableSet(callSites.keySet());
+    }
+
+    /**
+     * @return the current statistics of a call site or <tt>null</tt> if it has not been seen
+     */
+    public CallSiteStatistics getStatistics(String callSite)
+    {
+        CallSite site = callSites.get(callSite);
+        return (site == null) ? null : site.getStatistics();
+    }
+
+    /**
+     * @param count
+     *            the maximum number of call sites to return
+     * @return the statistics of the call sites with the most retries, most retries first
+     */
+    public List<CallSiteStatistics> getMostContended(int count)
+    {
+        List<CallSiteStatistics> statistics = new ArrayList<CallSiteStatistics>(callSites.size());
+        for (CallSite site : callSites.values())
+        {
+            CallSiteStatistics siteStatistics = site.getStatistics();
+            if (siteStatistics.getRetries() > 0)
+            {
+                statistics.add(siteStatistics);
+            }
+        }
+        statistics.sort((first, second) -> Long.compare(second.getRetries(), first.getRetries()));
+        return (statistics.size() > count) ? new ArrayList<CallSiteStatistics>(statistics.subList(0, count)) : statistics;
+    }
+
+    /**
+     * @return the statistics of all the call sites, most retries first
+     */
+    public List<CallSiteStatistics> getAllStatistics()
+    {
+        List<CallSiteStatistics> statistics = new ArrayList<CallSiteStatistics>(callSites.size());
+        for (CallSite site : callSites.values())
+        {
+            statistics.add(site.getStatistics());
+        }
+        statistics.sort((first, second) -> (first.getRetries() != second.getRetries())
+                ? Long.compare(second.getRetries(), first.getRetries())
+                : Long.compare(second.getTransactions(), first.getTransactions()));
+        return statistics;
+    }
+
+    /**
+     * @return the number of transactions a hot call site may run at once, or zero if transactions are never held back
+     */
+    public int getMaxConcurrentHotTransactions()
+    {
+        return maxConcurrentHotTransactions;
+    }
+
+    /**
+     * Forget all statistics.
+     */
+    public void reset()
+    {
+        callSites.clear();
+    }
+
+    /**
+     * The live counters and admission state of a call site.
+     */
+    final class CallSite
+    {
+        private final String name;
+        private final boolean limited;
+        private final LongAdder transactions = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalTimeMs = new LongAdder();
+        private final AtomicLong maxTimeMs = new AtomicLong();
+        private final LongAdder[] retries = new LongAdder[ContentionType.values().length];
+        // The transactions holding a turn, checked against the current maxConcurrentHotTransactions (guarded by turnLock)
+        private final Object turnLock = new Object();
+        private int turnsTaken;
+        // Retries counted since windowStart, and the time until which the call site is hot (guarded by this)
+        private long windowStart;
+        private int windowRetries;
+        private volatile long hotUntil;
+
+        private CallSite(String name, boolean limited)
+        {
+            this.name = name;
+            this.limited = limited;
+            for (int i = 0; i < retries.length; i++)
+            {
+                retries[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Wait for a turn if the call site is hot.
+         * 
+         * @return <tt>true</tt> if a turn was taken and must be given back with {@link #release()}
+         */
+        boolean admit(long maxWaitMs)
+        {
+            if (!limited || System.currentTimeMillis() >= hotUntil)
+            {
+                return false;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+            synchronized (turnLock)
+            {
+                while (true)
+                {
+                    int maxTurns = maxConcurrentHotTransactions;
+                    if (maxTurns <= 0)
+                    {
+                        return false;
+                    }
+                    if (turnsTaken < maxTurns)
+                    {
+                        turnsTaken++;
+                        return true;
+                    }
+                    long remainingNs = deadline - System.nanoTime();
+                    if (remainingNs <= 0L)
+                    {
+                        return false;
+                    }
+                    try
+                    {
+                        TimeUnit.NANOSECONDS.timedWait(turnLock, remainingNs);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+        }
+
+        void release()
+        {
+            synchronized (turnLock)
+            {
+                turnsTaken--;
+                turnLock.notify();
+            }
+        }
+
+        void limitChanged()
+        {
+            synchronized (turnLock)
+            {
+                turnLock.notifyAll();
+            }
+        }
+
+        void recordRetry(ContentionType type)
+        {
+            retries[type.ordinal()].increment();
+            long now = System.currentTimeMillis();
+            synchronized (this)
+            {
+                if (now - windowStart > hotPeriodMs)
+                {
+                    windowStart = now;
+                    windowRetries = 0;
+                }
+                if (++windowRetries >= hotThreshold)
+                {
+                    hotUntil = now + hotPeriodMs;
+                }
+            }
+        }
+
+        void recordTransaction(long timeMs, boolean failed)
+        {
+            transactions.increment();
+            if (failed)
+            {
+                failures.increment();
+            }
+            totalTimeMs.add(timeMs);
+            maxTimeMs.accumulateAndGet(timeMs, Math::max);
+        }
+
+        boolean isHot()
+        {
+            return System.currentTimeMillis() < hotUntil;
+        }
+
+        CallSiteStatistics getStatistics()
+        {
+            long[] retryCounts = new long[retries.length];
+            for (int i = 0; i < retries.length; i++)
+            {
+                retryCounts[i] = retries[i].sum();
+            }
+            return new CallSiteStatistics(name, transactions.sum(), failures.sum(), retryCounts, totalTimeMs.sum(), maxTimeMs.get(), isHot());
+        }
+    }
+
+    /**
+     * A snapshot of the statistics of a call site.
+     */
+    public static final class CallSiteStatistics
+    {
+        private final String callSite;
+        private final long transactions;
+        private final long failures;
+        private final long[] retries;
+        private final long totalTimeMs;
+        private final long maxTimeMs;
+        private final boolean hot;
+
+        CallSiteStatistics(String callSite, long transactions, long failures, long[] retries, long totalTimeMs, long maxTimeMs, boolean hot)
+        {
+            this.callSite = callSite;
+            this.transactions = transactions;
+            this.failures = failures;
+            this.retries = retries;
+            this.totalTimeMs = totalTimeMs;
+            this.maxTimeMs = maxTimeMs;
+            this.hot = hot;
+        }
+
+        public String getCallSite()
+        {
+            return callSite;
+        }
+
+        /**
+         * @return the number of completed transactions, including failed ones
+         */
+        public long getTransactions()
+        {
+            return transactions;
+        }
+
+        /**
+         * @return the number of transactions that failed, after any retries
+         */
+        public long getFailures()
+        {
+            return failures;
+        }
+
+        /**
+         * @return the total number of retries
+         */
+        public long getRetries()
+        {
+            long total = 0;
+            for (long count : retries)
+            {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * @return the number of retries caused by the given kind of contention
+         */
+        public long getRetries(ContentionType type)
+        {
+            return retries[type.ordinal()];
+        }
+
+        /**
+         * @return the average time taken by a transaction, including retries and waits
+         */
+        public double getAverageTimeMs()
+        {
+            return (transactions == 0) ? 0.0 : (double) totalTimeMs / transactions;
+        }
+
+        public long getMaxTimeMs()
+        {
+            return maxTimeMs;
+        }
+
+        /**
+         * @return <tt>true</tt> if the call site was hot when the snapshot was taken
+         */
+        public boolean isHot()
+        {
+            return hot;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder(128);
+            sb.append("CallSiteStatistics [callSite=").append(callSite)
+                    .append(", transactions=").append(transactions)
+                    .append(", failures=").append(failures)
+                    .append(", retries={");
+            ContentionType[] types = ContentionType.values();
+            for (int i = 0; i < types.length; i++)
+            {
+                sb.append(i == 0 ? "" : ", ").append(types[i]).append("=").append(retries[i]);
+            }
+            sb.append("}, averageTimeMs=").append(String.format("%.1f", getAverageTimeMs()))
+                    .append(", maxTimeMs=").append(maxTimeMs)
+                    .append(", hot=").append(hot)
+                    .append("]");
+            return sb.toString();
+        }
+    }
+}
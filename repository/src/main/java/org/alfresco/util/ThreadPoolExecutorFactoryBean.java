@@ -29,6 +29,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -150,7 +151,7 @@ public class ThreadPoolExecutorFactoryBean implements FactoryBean, InitializingB
      * The maximum number of queued work instances to keep before blocking against further adds.
      * 
      * @param workQueueSize
-     *            the queue size before blocks, or <b>-1</b> default to indicate no upper bound
+     *            the queue size before blocks, <b>0</b> to hand work directly to a thread, starting threads up to the maximum pool size, or <b>-1</b> default to indicate no upper bound
      */
     public void setWorkQueueSize(int workQueueSize)
     {
@@ -192,6 +193,11 @@ public class ThreadPoolExecutorFactoryBean implements FactoryBean, InitializingB
             // We can have an unlimited queue, as we have a sensible thread pool!
             workQueue = new LinkedBlockingQueue<Runnable>();
         }
+        else if (workQueueSize == 0)
+        {
+            // Nothing waits: work goes to an idle or new thread, or to the rejected execution handler
+            workQueue = new SynchronousQueue<Runnable>();
+        }
         else
         {
             // Use an array one for consistent performance on a small queue size
@@ -44,3 +44,16 @@ CREATE TABLE alf_audit_entry
    CONSTRAINT fk_alf_aud_ent_pro FOREIGN KEY (audit_values_id) REFERENCES alf_prop_root (id),
    PRIMARY KEY (id)
 ) ENGINE=InnoDB;
+
+CREATE TABLE alf_audit_bucket
+(
+   id BIGINT NOT NULL AUTO_INCREMENT,
+   audit_app_id BIGINT NOT NULL,
+   bucket_start BIGINT NOT NULL,
+   bucket_end BIGINT NOT NULL,
+   min_entry_id BIGINT NULL,
+   max_entry_id BIGINT NULL,
+   CONSTRAINT fk_alf_aud_bkt_app FOREIGN KEY (audit_app_id) REFERENCES alf_audit_app (id) ON DELETE CASCADE,
+   UNIQUE INDEX idx_alf_aud_bkt_st (audit_app_id, bucket_start),
+   PRIMARY KEY (id)
+) ENGINE=InnoDB;
@@ -307,3 +307,22 @@ CREATE TABLE alf_node_properties
     CONSTRAINT fk_alf_nprop_n FOREIGN KEY (node_id) REFERENCES alf_node (id),
     CONSTRAINT fk_alf_nprop_qn FOREIGN KEY (qname_id) REFERENCES alf_qname (id)
 ) ENGINE=InnoDB;
+
+CREATE TABLE alf_node_prop_lookup
+(
+    node_id BIGINT NOT NULL,
+    qname_id BIGINT NOT NULL,
+    list_index INTEGER NOT NULL,
+    locale_id BIGINT NOT NULL,
+    string_value text,
+    string_lower text,
+    long_value BIGINT,
+    PRIMARY KEY (node_id, qname_id, list_index, locale_id),
+    KEY fk_alf_nplk_n (node_id),
+    KEY fk_alf_nplk_qn (qname_id),
+    KEY idx_alf_nplk_s (qname_id, string_value(42)),
+    KEY idx_alf_nplk_sl (qname_id, string_lower(42)),
+    KEY idx_alf_nplk_l (qname_id, long_value),
+    CONSTRAINT fk_alf_nplk_n FOREIGN KEY (node_id) REFERENCES alf_node (id) ON DELETE CASCADE,
+    CONSTRAINT fk_alf_nplk_qn FOREIGN KEY (qname_id) REFERENCES alf_qname (id)
+) ENGINE=InnoDB;
@@ -52,3 +52,17 @@ CREATE INDEX idx_alf_aud_ent_tm ON alf_audit_entry(audit_time);
 CREATE INDEX fk_alf_aud_ent_app ON alf_audit_entry(audit_app_id);
 CREATE INDEX fk_alf_aud_ent_use ON alf_audit_entry(audit_user_id);
 CREATE INDEX fk_alf_aud_ent_pro ON alf_audit_entry(audit_values_id);
+
+CREATE SEQUENCE alf_audit_bucket_seq START WITH 1 INCREMENT BY 1;
+CREATE TABLE alf_audit_bucket
+(
+   id INT8 NOT NULL,
+   audit_app_id INT8 NOT NULL,
+   bucket_start INT8 NOT NULL,
+   bucket_end INT8 NOT NULL,
+   min_entry_id INT8 NULL,
+   max_entry_id INT8 NULL,
+   CONSTRAINT fk_alf_aud_bkt_app FOREIGN KEY (audit_app_id) REFERENCES alf_audit_app (id) ON DELETE CASCADE,
+   PRIMARY KEY (id)
+);
+CREATE UNIQUE INDEX idx_alf_aud_bkt_st ON alf_audit_bucket(audit_app_id, bucket_start);
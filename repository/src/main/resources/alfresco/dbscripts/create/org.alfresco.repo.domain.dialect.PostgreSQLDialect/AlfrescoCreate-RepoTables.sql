@@ -324,4 +324,22 @@ CREATE INDEX idx_alf_nprop_s ON alf_node_properties (qname_id, string_value, nod
 CREATE INDEX idx_alf_nprop_l ON alf_node_properties (qname_id, long_value, node_id);
 CREATE INDEX idx_alf_nprop_b ON alf_node_properties (qname_id, boolean_value, node_id);
 CREATE INDEX idx_alf_nprop_f ON alf_node_properties (qname_id, float_value, node_id);
-CREATE INDEX idx_alf_nprop_d ON alf_node_properties (qname_id, double_value, node_id);
\ No newline at end of file
+CREATE INDEX idx_alf_nprop_d ON alf_node_properties (qname_id, double_value, node_id);
+CREATE TABLE alf_node_prop_lookup
+(
+    node_id INT8 NOT NULL,
+    qname_id INT8 NOT NULL,
+    list_index INT4 NOT NULL,
+    locale_id INT8 NOT NULL,
+    string_value VARCHAR(1024),
+    string_lower VARCHAR(1024),
+    long_value INT8,
+    PRIMARY KEY (node_id, qname_id, list_index, locale_id),
+    CONSTRAINT fk_alf_nplk_n FOREIGN KEY (node_id) REFERENCES alf_node (id) ON DELETE CASCADE,
+    CONSTRAINT fk_alf_nplk_qn FOREIGN KEY (qname_id) REFERENCES alf_qname (id)
+);
+CREATE INDEX fk_alf_nplk_n ON alf_node_prop_lookup (node_id);
+CREATE INDEX fk_alf_nplk_qn ON alf_node_prop_lookup (qname_id);
+CREATE INDEX idx_alf_nplk_s ON alf_node_prop_lookup (qname_id, string_value, node_id);
+CREATE INDEX idx_alf_nplk_sl ON alf_node_prop_lookup (qname_id, string_lower, node_id);
+CREATE INDEX idx_alf_nplk_l ON alf_node_prop_lookup (qname_id, long_value, node_id);
\ No newline at end of file
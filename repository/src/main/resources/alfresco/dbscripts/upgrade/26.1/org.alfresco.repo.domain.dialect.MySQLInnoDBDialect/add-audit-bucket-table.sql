@@ -0,0 +1,32 @@
+--
+-- Title:      Add alf_audit_bucket table
+-- Database:   MySQL
+-- Since:      V26.1
+--
+-- Please contact support@alfresco.com if you need assistance with the upgrade.
+--
+
+CREATE TABLE alf_audit_bucket
+(
+   id BIGINT NOT NULL AUTO_INCREMENT,
+   audit_app_id BIGINT NOT NULL,
+   bucket_start BIGINT NOT NULL,
+   bucket_end BIGINT NOT NULL,
+   min_entry_id BIGINT NULL,
+   max_entry_id BIGINT NULL,
+   CONSTRAINT fk_alf_aud_bkt_app FOREIGN KEY (audit_app_id) REFERENCES alf_audit_app (id) ON DELETE CASCADE,
+   UNIQUE INDEX idx_alf_aud_bkt_st (audit_app_id, bucket_start),
+   PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+--
+-- Record script finish
+--
+DELETE FROM alf_applied_patch WHERE id = 'patch.db-V26.1-add-audit-bucket-table';
+INSERT INTO alf_applied_patch
+  (id, description, fixes_from_schema, fixes_to_schema, applied_to_schema, target_schema, applied_on_date, applied_to_server, was_executed, succeeded, report)
+  VALUES
+  (
+    'patch.db-V26.1-add-audit-bucket-table', 'Adds the alf_audit_bucket table',
+    0, 21000, -1, 21001, null, 'UNKNOWN', ${TRUE}, ${TRUE}, 'Script completed'
+  );
@@ -0,0 +1,38 @@
+--
+-- Title:      Add alf_node_prop_lookup table
+-- Database:   MySQL
+-- Since:      V26.1
+--
+-- Please contact support@alfresco.com if you need assistance with the upgrade.
+--
+
+CREATE TABLE alf_node_prop_lookup
+(
+    node_id BIGINT NOT NULL,
+    qname_id BIGINT NOT NULL,
+    list_index INTEGER NOT NULL,
+    locale_id BIGINT NOT NULL,
+    string_value text,
+    string_lower text,
+    long_value BIGINT,
+    PRIMARY KEY (node_id, qname_id, list_index, locale_id),
+    KEY fk_alf_nplk_n (node_id),
+    KEY fk_alf_nplk_qn (qname_id),
+    KEY idx_alf_nplk_s (qname_id, string_value(42)),
+    KEY idx_alf_nplk_sl (qname_id, string_lower(42)),
+    KEY idx_alf_nplk_l (qname_id, long_value),
+    CONSTRAINT fk_alf_nplk_n FOREIGN KEY (node_id) REFERENCES alf_node (id) ON DELETE CASCADE,
+    CONSTRAINT fk_alf_nplk_qn FOREIGN KEY (qname_id) REFERENCES alf_qname (id)
+) ENGINE=InnoDB;
+
+--
+-- Record script finish
+--
+DELETE FROM alf_applied_patch WHERE id = 'patch.db-V26.1-add-node-prop-lookup-table';
+INSERT INTO alf_applied_patch
+  (id, description, fixes_from_schema, fixes_to_schema, applied_to_schema, target_schema, applied_on_date, applied_to_server, was_executed, succeeded, report)
+  VALUES
+  (
+    'patch.db-V26.1-add-node-prop-lookup-table', 'Adds the alf_node_prop_lookup table',
+    0, 21001, -1, 21002, null, 'UNKNOWN', ${TRUE}, ${TRUE}, 'Script completed'
+  );
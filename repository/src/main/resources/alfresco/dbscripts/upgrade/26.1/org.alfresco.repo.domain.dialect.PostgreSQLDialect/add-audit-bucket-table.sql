@@ -0,0 +1,33 @@
+--
+-- Title:      Add alf_audit_bucket table
+-- Database:   PostgreSQL
+-- Since:      V26.1
+--
+-- Please contact support@alfresco.com if you need assistance with the upgrade.
+--
+
+CREATE SEQUENCE alf_audit_bucket_seq START WITH 1 INCREMENT BY 1;
+CREATE TABLE alf_audit_bucket
+(
+   id INT8 NOT NULL,
+   audit_app_id INT8 NOT NULL,
+   bucket_start INT8 NOT NULL,
+   bucket_end INT8 NOT NULL,
+   min_entry_id INT8 NULL,
+   max_entry_id INT8 NULL,
+   CONSTRAINT fk_alf_aud_bkt_app FOREIGN KEY (audit_app_id) REFERENCES alf_audit_app (id) ON DELETE CASCADE,
+   PRIMARY KEY (id)
+);
+CREATE UNIQUE INDEX idx_alf_aud_bkt_st ON alf_audit_bucket(audit_app_id, bucket_start);
+
+--
+-- Record script finish
+--
+DELETE FROM alf_applied_patch WHERE id = 'patch.db-V26.1-add-audit-bucket-table';
+INSERT INTO alf_applied_patch
+  (id, description, fixes_from_schema, fixes_to_schema, applied_to_schema, target_schema, applied_on_date, applied_to_server, was_executed, succeeded, report)
+  VALUES
+  (
+    'patch.db-V26.1-add-audit-bucket-table', 'Adds the alf_audit_bucket table',
+    0, 21000, -1, 21001, null, 'UNKNOWN', ${TRUE}, ${TRUE}, 'Script completed'
+  );
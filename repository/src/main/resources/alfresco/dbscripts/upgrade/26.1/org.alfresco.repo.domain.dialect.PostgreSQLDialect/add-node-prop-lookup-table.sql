@@ -0,0 +1,38 @@
+--
+-- Title:      Add alf_node_prop_lookup table
+-- Database:   PostgreSQL
+-- Since:      V26.1
+--
+-- Please contact support@alfresco.com if you need assistance with the upgrade.
+--
+
+CREATE TABLE alf_node_prop_lookup
+(
+    node_id INT8 NOT NULL,
+    qname_id INT8 NOT NULL,
+    list_index INT4 NOT NULL,
+    locale_id INT8 NOT NULL,
+    string_value VARCHAR(1024),
+    string_lower VARCHAR(1024),
+    long_value INT8,
+    PRIMARY KEY (node_id, qname_id, list_index, locale_id),
+    CONSTRAINT fk_alf_nplk_n FOREIGN KEY (node_id) REFERENCES alf_node (id) ON DELETE CASCADE,
+    CONSTRAINT fk_alf_nplk_qn FOREIGN KEY (qname_id) REFERENCES alf_qname (id)
+);
+CREATE INDEX fk_alf_nplk_n ON alf_node_prop_lookup (node_id);
+CREATE INDEX fk_alf_nplk_qn ON alf_node_prop_lookup (qname_id);
+CREATE INDEX idx_alf_nplk_s ON alf_node_prop_lookup (qname_id, string_value, node_id);
+CREATE INDEX idx_alf_nplk_sl ON alf_node_prop_lookup (qname_id, string_lower, node_id);
+CREATE INDEX idx_alf_nplk_l ON alf_node_prop_lookup (qname_id, long_value, node_id);
+
+--
+-- Record script finish
+--
+DELETE FROM alf_applied_patch WHERE id = 'patch.db-V26.1-add-node-prop-lookup-table';
+INSERT INTO alf_applied_patch
+  (id, description, fixes_from_schema, fixes_to_schema, applied_to_schema, target_schema, applied_on_date, applied_to_server, was_executed, succeeded, report)
+  VALUES
+  (
+    'patch.db-V26.1-add-node-prop-lookup-table', 'Adds the alf_node_prop_lookup table',
+    0, 21001, -1, 21002, null, 'UNKNOWN', ${TRUE}, ${TRUE}, 'Script completed'
+  );
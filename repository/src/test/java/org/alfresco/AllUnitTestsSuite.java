@@ -58,11 +58,16 @@ import org.alfresco.util.testing.category.NonBuildTests;
         org.alfresco.repo.admin.Log4JHierarchyInitTest.class,
         org.alfresco.repo.attributes.PropTablesCleanupJobTest.class,
         org.alfresco.repo.cache.AbstractCacheFactoryTest.class,
+        org.alfresco.repo.cache.CacheMemoryBudgetTest.class,
         org.alfresco.repo.cache.DefaultCacheFactoryTest.class,
         org.alfresco.repo.cache.DefaultSimpleCacheTest.class,
         org.alfresco.repo.cache.InMemoryCacheStatisticsTest.class,
         org.alfresco.repo.cache.TransactionStatsTest.class,
+        org.alfresco.repo.cache.TransactionalCacheMapTest.class,
+        org.alfresco.repo.cache.invalidation.AbstractCacheInvalidationBusTest.class,
+        org.alfresco.repo.cache.invalidation.InvalidatingCacheTest.class,
         org.alfresco.repo.cache.lookup.EntityLookupCacheTest.class,
+        org.alfresco.repo.cache.lookup.EntityLookupCacheWarmerTest.class,
         org.alfresco.repo.calendar.CalendarHelpersTest.class,
         org.alfresco.repo.copy.CopyServiceImplUnitTest.class,
         org.alfresco.repo.dictionary.RepoDictionaryDAOTest.class,
@@ -91,6 +96,7 @@ import org.alfresco.util.testing.category.NonBuildTests;
         org.alfresco.repo.template.UnsafeMethodsTest.class,
         org.alfresco.repo.tenant.MultiTAdminServiceImplTest.class,
         org.alfresco.repo.thumbnail.ThumbnailServiceImplParameterTest.class,
+        org.alfresco.repo.transaction.TransactionContentionMonitorTest.class,
         org.alfresco.repo.transfer.ContentChunkerImplTest.class,
         org.alfresco.repo.transfer.HttpClientTransmitterImplTest.class,
         org.alfresco.repo.transfer.manifest.TransferManifestTest.class,
@@ -136,6 +142,8 @@ import org.alfresco.util.testing.category.NonBuildTests;
         org.alfresco.repo.search.impl.solr.SpellCheckDecisionManagerTest.class,
         org.alfresco.repo.search.impl.solr.SolrStoreMappingWrapperTest.class,
         org.alfresco.repo.search.impl.querymodel.impl.db.DBQueryEngineTest.class,
+        org.alfresco.repo.search.impl.querymodel.impl.db.DBQueryIndexAdvisorTest.class,
+        org.alfresco.repo.search.impl.querymodel.impl.db.DBQueryPropertyLookupTest.class,
         org.alfresco.repo.search.impl.querymodel.impl.db.NodePermissionAssessorLimitsTest.class,
         org.alfresco.repo.search.impl.querymodel.impl.db.NodePermissionAssessorPermissionsTest.class,
         org.alfresco.repo.search.impl.solr.DbOrIndexSwitchingQueryLanguageTest.class,
@@ -143,11 +151,13 @@ import org.alfresco.util.testing.category.NonBuildTests;
         org.alfresco.repo.search.impl.solr.SolrSQLHttpClientTest.class,
         org.alfresco.repo.search.impl.solr.SolrStatsResultTest.class,
         org.alfresco.repo.search.impl.solr.SolrJSONResultTest.class,
+        org.alfresco.repo.search.impl.solr.SolrShardResponseMergerTest.class,
         org.alfresco.repo.search.impl.solr.SolrSQLJSONResultMetadataSetTest.class,
         org.alfresco.repo.search.impl.solr.facet.SolrFacetComparatorTest.class,
         org.alfresco.repo.search.impl.solr.facet.FacetQNameUtilsTest.class,
         org.alfresco.util.BeanExtenderUnitTest.class,
         org.alfresco.repo.solr.SOLRTrackingComponentUnitTest.class,
+        org.alfresco.repo.solr.TransactionCommitNotifierTest.class,
         IdentityServiceFacadeFactoryBeanTest.class,
         LazyInstantiatingIdentityServiceFacadeUnitTest.class,
         SpringBasedIdentityServiceFacadeUnitTest.class,
@@ -161,6 +171,7 @@ import org.alfresco.util.testing.category.NonBuildTests;
         ClientRegistrationProviderUnitTest.class,
         org.alfresco.repo.security.authentication.CompositePasswordEncoderTest.class,
         org.alfresco.repo.security.authentication.PasswordHashingTest.class,
+        org.alfresco.repo.security.authority.AuthorityBridgeChangeTest.class,
         org.alfresco.repo.security.authority.script.ScriptAuthorityService_RegExTest.class,
         org.alfresco.repo.security.permissions.PermissionCheckCollectionTest.class,
         org.alfresco.repo.security.sync.LDAPUserRegistryTest.class,
@@ -205,9 +216,15 @@ import org.alfresco.util.testing.category.NonBuildTests;
         org.alfresco.repo.action.CompositeActionConditionImplTest.class,
         org.alfresco.repo.action.executer.TransformActionExecuterTest.class,
         org.alfresco.repo.action.executer.ImporterActionExecutorUnitTest.class,
+        org.alfresco.repo.activities.ActivityServiceImplUnitTest.class,
+        org.alfresco.repo.activities.post.lookup.PostLookupTest.class,
         org.alfresco.repo.audit.AuditableAnnotationTest.class,
+        org.alfresco.repo.audit.AuditBucketManagerTest.class,
+        org.alfresco.repo.audit.AuditEntryWriterTest.class,
         org.alfresco.repo.audit.PropertyAuditFilterTest.class,
         org.alfresco.repo.audit.access.NodeChangeTest.class,
+        org.alfresco.repo.domain.audit.CompactAuditValuesTest.class,
+        org.alfresco.repo.domain.node.NodePropertyLookupManagerTest.class,
         org.alfresco.repo.content.ContentServiceImplUnitTest.class,
         org.alfresco.repo.content.directurl.SystemWideDirectUrlConfigUnitTest.class,
         org.alfresco.repo.content.directurl.ContentStoreDirectUrlConfigUnitTest.class,
@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.activities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.alfresco.query.PagingRequest;
+import org.alfresco.query.PagingResults;
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.repo.domain.activities.ActivitiesDAO;
+import org.alfresco.repo.domain.activities.ActivityFeedDAO;
+import org.alfresco.repo.domain.activities.ActivityFeedEntity;
+import org.alfresco.repo.domain.activities.FeedControlDAO;
+import org.alfresco.repo.domain.activities.FeedControlEntity;
+import org.alfresco.repo.tenant.TenantService;
+import org.alfresco.service.cmr.activities.FeedControl;
+import org.alfresco.service.cmr.security.AuthorityService;
+import org.alfresco.service.cmr.site.SiteInfo;
+import org.alfresco.service.cmr.site.SiteService;
+
+/**
+ * Tests the reads of the feed entries that are shared by site members, with the DAOs and services mocked.
+ */
+public class ActivityServiceImplUnitTest
+{
+    private static final String USER = "bob";
+
+    private ActivityFeedDAO feedDAO;
+    private FeedControlDAO feedControlDAO;
+    private SiteService siteService;
+    private ActivityServiceImpl activityService;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() throws Exception
+    {
+        feedDAO = mock(ActivityFeedDAO.class);
+        PagingResults<ActivityFeedEntity> emptyPage = mock(PagingResults.class);
+        when(emptyPage.getPage()).thenReturn(new ArrayList<ActivityFeedEntity>());
+        when(feedDAO.selectPagedUserFeedEntries(anyString(), any(), any(), anyString(), any(), anyBoolean(), anyBoolean(), anyLong(), any(PagingRequest.class)))
+                .thenReturn(emptyPage);
+
+        feedControlDAO = mock(FeedControlDAO.class);
+        List<FeedControlEntity> feedControls = new ArrayList<FeedControlEntity>();
+        feedControls.add(new FeedControlEntity(USER, new FeedControl("site3", null)));
+        feedControls.add(new FeedControlEntity(USER, new FeedControl(null, "blog")));
+        feedControls.add(new FeedControlEntity(USER, new FeedControl("site2", "doclib")));
+        when(feedControlDAO.selectFeedControls(USER)).thenReturn(feedControls);
+
+        siteService = mock(SiteService.class);
+        List<SiteInfo> sites = new ArrayList<SiteInfo>();
+        for (String shortName : List.of("site1", "site2", "site3"))
+        {
+            SiteInfo site = mock(SiteInfo.class);
+            when(site.getShortName()).thenReturn(shortName);
+            sites.add(site);
+        }
+        when(siteService.listSites(USER)).thenReturn(sites);
+
+        TenantService tenantService = mock(TenantService.class);
+        when(tenantService.getName(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(tenantService.getBaseName(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(tenantService.getCurrentUserDomain()).thenReturn(TenantService.DEFAULT_DOMAIN);
+
+        activityService = new ActivityServiceImpl();
+        activityService.setFeedDAO(feedDAO);
+        activityService.setFeedControlDAO(feedControlDAO);
+        activityService.setSiteService(siteService);
+        activityService.setTenantService(tenantService);
+        activityService.setAuthorityService(mock(AuthorityService.class));
+        activityService.setFanOutOnReadThreshold(100);
+        activityService.setMemberSitesCache(new DefaultSimpleCache<String, ArrayList<String>>());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testPagedFeedLeavesAppToolOptOutsToTheQuery() throws Exception
+    {
+        List<ActivityFeedEntity> entries = new ArrayList<ActivityFeedEntity>();
+        entries.add(feedEntry(USER, "site1", "blog"));
+        entries.add(feedEntry(ActivitiesDAO.KEY_ACTIVITY_SITE_MEMBERS_VALUE, "site1", "doclib"));
+        entries.add(feedEntry(ActivitiesDAO.KEY_ACTIVITY_SITE_MEMBERS_VALUE, "site2", "wiki"));
+        PagingResults<ActivityFeedEntity> page = mock(PagingResults.class);
+        when(page.getPage()).thenReturn(entries);
+        when(feedDAO.selectPagedUserFeedEntries(anyString(), any(), any(), anyString(), any(), anyBoolean(), anyBoolean(), anyLong(), any(PagingRequest.class)))
+                .thenReturn(page);
+
+        PagingResults<ActivityFeedEntity> result = activityService.getPagedUserFeedEntries(USER, null, false, false, -1L, new PagingRequest(3));
+
+        // the page is returned as selected, with the shared entries presented as the user's own
+        assertSame(page, result);
+        assertEquals(3, result.getPage().size());
+        for (ActivityFeedEntity entry : result.getPage())
+        {
+            assertEquals(USER, entry.getFeedUserId());
+        }
+
+        // the site opt-out is applied to the sites and the app tool opt-outs by the feed query
+        ArgumentCaptor<List<FeedControlEntity>> excludedAppTools = ArgumentCaptor.forClass(List.class);
+        verify(feedDAO).selectPagedUserFeedEntries(eq(USER), eq(List.of("site1", "site2")), excludedAppTools.capture(), eq(TenantService.DEFAULT_DOMAIN), isNull(), eq(false), eq(false), eq(-1L), any(PagingRequest.class));
+        List<FeedControlEntity> excluded = excludedAppTools.getValue();
+        assertEquals(2, excluded.size());
+        assertEquals("blog", excluded.get(0).getAppTool());
+        assertEquals(ActivitiesDAO.KEY_ACTIVITY_NULL_VALUE, excluded.get(0).getSiteNetwork());
+        assertEquals("doclib", excluded.get(1).getAppTool());
+        assertEquals("site2", excluded.get(1).getSiteNetwork());
+    }
+
+    @Test
+    public void testNoSharedEntriesBelowTheThreshold() throws Exception
+    {
+        activityService.setFanOutOnReadThreshold(0);
+
+        activityService.getPagedUserFeedEntries(USER, null, false, false, -1L, new PagingRequest(3));
+
+        verify(feedDAO).selectPagedUserFeedEntries(eq(USER), isNull(), isNull(), eq(TenantService.DEFAULT_DOMAIN), isNull(), eq(false), eq(false), eq(-1L), any(PagingRequest.class));
+        verify(siteService, never()).listSites(anyString());
+        verify(feedControlDAO, never()).selectFeedControls(anyString());
+    }
+
+    @Test
+    public void testGroupMembershipChangesRemoveCachedSites() throws Exception
+    {
+        readFeed();
+        readFeed();
+        verify(siteService, times(1)).listSites(USER);
+
+        // the user joined a site
+        activityService.onAuthorityAddedToGroup("GROUP_site_site4_SiteConsumer", "Bob");
+        readFeed();
+        verify(siteService, times(2)).listSites(USER);
+
+        // another user left a site
+        activityService.onAuthorityRemovedFromGroup("GROUP_site_site4_SiteConsumer", "alice");
+        readFeed();
+        verify(siteService, times(2)).listSites(USER);
+
+        // the members of a group joined a site
+        activityService.onAuthorityAddedToGroup("GROUP_site_site4_SiteConsumer", "GROUP_engineering");
+        readFeed();
+        verify(siteService, times(3)).listSites(USER);
+
+        activityService.onGroupDeleted("GROUP_engineering", false);
+        readFeed();
+        verify(siteService, times(4)).listSites(USER);
+    }
+
+    private void readFeed()
+    {
+        activityService.getPagedUserFeedEntries(USER, null, false, false, -1L, new PagingRequest(3));
+    }
+
+    private static ActivityFeedEntity feedEntry(String feedUserId, String siteNetwork, String appTool)
+    {
+        ActivityFeedEntity entry = new ActivityFeedEntity();
+        entry.setFeedUserId(feedUserId);
+        entry.setSiteNetwork(siteNetwork);
+        entry.setAppTool(appTool);
+        return entry;
+    }
+}
@@ -29,7 +29,9 @@ import static org.junit.Assert.*;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -39,12 +41,17 @@ import org.quartz.Scheduler;
 import org.springframework.context.ApplicationContext;
 
 import org.alfresco.model.ContentModel;
+import org.alfresco.query.PagingRequest;
+import org.alfresco.query.PagingResults;
+import org.alfresco.repo.domain.activities.ActivitiesDAO;
 import org.alfresco.repo.domain.activities.ActivityFeedDAO;
 import org.alfresco.repo.domain.activities.ActivityFeedEntity;
+import org.alfresco.repo.domain.activities.FeedControlEntity;
 import org.alfresco.repo.lock.JobLockService;
 import org.alfresco.repo.node.archive.NodeArchiveService;
 import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.service.cmr.repository.NodeService;
 import org.alfresco.service.cmr.security.PersonService;
@@ -176,6 +183,105 @@ public abstract class AbstractFeedCleanerTest
         assertEquals(5, feedDAO.selectSiteFeedEntries(TEST_SITE_4, -1).size());
     }
 
+    @Test
+    public void testInsertFeedEntries() throws Exception
+    {
+        // More than fit in one multi-row insert, leaving a single row for the last insert
+        int count = 201;
+        List<ActivityFeedEntity> feedEntries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            ActivityFeedEntity feedEntry = new ActivityFeedEntity();
+
+            feedEntry.setPostDate(new Date(System.currentTimeMillis() - (i * 60 * 1000L)));
+            feedEntry.setSiteNetwork(TEST_SITE_2);
+            feedEntry.setActivityType("testActivityType");
+            feedEntry.setActivitySummary("summary" + i);
+            feedEntry.setPostUserId(TEST_USER_B);
+            feedEntry.setFeedUserId("");
+            feedEntry.setFeedDate(new Date());
+
+            feedEntries.add(feedEntry);
+        }
+
+        assertEquals(count, feedDAO.insertFeedEntries(feedEntries));
+
+        // Check every row was written, newest first
+        List<ActivityFeedEntity> readBack = feedDAO.selectSiteFeedEntries(TEST_SITE_2, -1);
+        assertEquals(count, readBack.size());
+        for (int i = 0; i < count; i++)
+        {
+            ActivityFeedEntity feedEntry = readBack.get(i);
+            assertEquals("summary" + i, feedEntry.getActivitySummary());
+            assertEquals("testActivityType", feedEntry.getActivityType());
+            assertEquals(TEST_USER_B, feedEntry.getPostUserId());
+            assertNotNull(feedEntry.getId());
+        }
+    }
+
+    @Test
+    public void testSharedMemberFeedEntries() throws Exception
+    {
+        // the user's own entries, posted by the user
+        for (int i = 0; i < 4; i++)
+        {
+            insertFeedEntry(TEST_USER_A, TEST_USER_A, TEST_SITE_3, "blog", i);
+        }
+        // entries shared by the members of the user's sites, some of them opted out of
+        for (int i = 0; i < 6; i++)
+        {
+            insertFeedEntry(ActivitiesDAO.KEY_ACTIVITY_SITE_MEMBERS_VALUE, TEST_USER_B, TEST_SITE_3, "doclib", 10 + i);
+            insertFeedEntry(ActivitiesDAO.KEY_ACTIVITY_SITE_MEMBERS_VALUE, TEST_USER_B, TEST_SITE_3, "wiki", 20 + i);
+            insertFeedEntry(ActivitiesDAO.KEY_ACTIVITY_SITE_MEMBERS_VALUE, TEST_USER_B, TEST_SITE_5, "doclib", 30 + i);
+        }
+        List<String> memberSiteIds = List.of(TEST_SITE_3, TEST_SITE_5);
+        List<FeedControlEntity> excludedAppTools = new ArrayList<>();
+        FeedControlEntity allSites = new FeedControlEntity(TEST_USER_A);
+        allSites.setAppTool("wiki");
+        excludedAppTools.add(allSites);
+        FeedControlEntity oneSite = new FeedControlEntity(TEST_USER_A);
+        oneSite.setAppTool("doclib");
+        oneSite.setSiteNetwork(TEST_SITE_5);
+        excludedAppTools.add(oneSite);
+
+        // the opted out entries are left out by the query, so that every page is full
+        PagingResults<ActivityFeedEntity> firstPage = feedDAO.selectPagedUserFeedEntries(TEST_USER_A, memberSiteIds, excludedAppTools, TenantService.DEFAULT_DOMAIN, null, false, false, -1, new PagingRequest(0, 5));
+        assertEquals(5, firstPage.getPage().size());
+        assertTrue(firstPage.hasMoreItems());
+        PagingResults<ActivityFeedEntity> secondPage = feedDAO.selectPagedUserFeedEntries(TEST_USER_A, memberSiteIds, excludedAppTools, TenantService.DEFAULT_DOMAIN, null, false, false, -1, new PagingRequest(5, 5));
+        assertEquals(5, secondPage.getPage().size());
+        assertFalse(secondPage.hasMoreItems());
+        List<ActivityFeedEntity> feedEntries = new ArrayList<>(firstPage.getPage());
+        feedEntries.addAll(secondPage.getPage());
+        for (ActivityFeedEntity feedEntry : feedEntries)
+        {
+            assertEquals(TEST_SITE_3, feedEntry.getSiteNetwork());
+            assertNotEquals("wiki", feedEntry.getAppTool());
+        }
+
+        assertEquals(10, feedDAO.selectUserFeedEntries(TEST_USER_A, memberSiteIds, excludedAppTools, null, false, false, -1, -1).size());
+        assertEquals(Long.valueOf(10), feedDAO.countUserFeedEntries(TEST_USER_A, memberSiteIds, excludedAppTools, null, false, false, -1, -1));
+        assertEquals(Long.valueOf(6), feedDAO.countUserFeedEntries(TEST_USER_A, memberSiteIds, excludedAppTools, null, true, false, -1, -1));
+        assertEquals(Long.valueOf(6), feedDAO.countUserFeedEntries(TEST_USER_A, memberSiteIds, excludedAppTools, TEST_SITE_3, true, false, -1, -1));
+        // without opt-outs every shared entry counts
+        assertEquals(Long.valueOf(22), feedDAO.countUserFeedEntries(TEST_USER_A, memberSiteIds, null, null, false, false, -1, -1));
+    }
+
+    private void insertFeedEntry(String feedUserId, String postUserId, String siteNetwork, String appTool, int minutesAgo) throws Exception
+    {
+        ActivityFeedEntity feedEntry = new ActivityFeedEntity();
+
+        feedEntry.setPostDate(new Date(System.currentTimeMillis() - (minutesAgo * 60 * 1000L)));
+        feedEntry.setSiteNetwork(siteNetwork);
+        feedEntry.setAppTool(appTool);
+        feedEntry.setActivityType("testActivityType");
+        feedEntry.setPostUserId(postUserId);
+        feedEntry.setFeedUserId(feedUserId);
+        feedEntry.setFeedDate(new Date());
+
+        feedDAO.insertFeedEntry(feedEntry);
+    }
+
     @Test
     public void testMaxAge() throws Exception
     {
@@ -0,0 +1,137 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.activities.post.lookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.alfresco.repo.activities.ActivityType;
+import org.alfresco.repo.domain.activities.ActivityPostDAO;
+import org.alfresco.repo.domain.activities.ActivityPostEntity;
+import org.alfresco.repo.tenant.TenantService;
+import org.alfresco.repo.tenant.TenantUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.security.PermissionService;
+import org.alfresco.service.cmr.security.PersonService;
+import org.alfresco.service.transaction.TransactionService;
+
+public class PostLookupTest
+{
+    private static final String TENANT = "acme.com";
+
+    private ActivityPostDAO postDAO;
+    private PostLookup postLookup;
+    /** The tenant each status was updated in, by status */
+    private final Map<ActivityPostEntity.STATUS, String> statusTenants = new ConcurrentHashMap<>();
+    private final Map<ActivityPostEntity.STATUS, List<Long>> statusIds = new ConcurrentHashMap<>();
+    private final List<String> insertTenants = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        postDAO = mock(ActivityPostDAO.class);
+        doAnswer(invocation -> {
+            ActivityPostEntity.STATUS status = invocation.getArgument(1);
+            statusTenants.put(status, TenantUtil.getCurrentDomain());
+            statusIds.put(status, new ArrayList<>(invocation.<List<Long>> getArgument(0)));
+            return statusIds.get(status).size();
+        }).when(postDAO).updatePostsStatus(anyList(), any(ActivityPostEntity.STATUS.class));
+        doAnswer(invocation -> {
+            insertTenants.add(TenantUtil.getCurrentDomain());
+            return 1L;
+        }).when(postDAO).insertPost(any(ActivityPostEntity.class));
+
+        TransactionService transactionService = mock(TransactionService.class);
+        RetryingTransactionHelper txnHelper = mock(RetryingTransactionHelper.class);
+        when(transactionService.getAllowWrite()).thenReturn(true);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class), anyBoolean()))
+                .thenAnswer(invocation -> ((RetryingTransactionCallback<?>) invocation.getArgument(0)).execute());
+
+        postLookup = new PostLookup();
+        postLookup.setPostDAO(postDAO);
+        postLookup.setNodeService(mock(NodeService.class));
+        postLookup.setPermissionService(mock(PermissionService.class));
+        postLookup.setTransactionService(transactionService);
+        postLookup.setPersonService(mock(PersonService.class));
+        postLookup.setTenantService(mock(TenantService.class));
+        postLookup.setRollupCount(5);
+    }
+
+    @Test
+    public void testStatusUpdatesRunInTheTenantOfThePosts() throws Exception
+    {
+        List<ActivityPostEntity> posts = new ArrayList<>();
+        for (long id = 1; id <= 5; id++)
+        {
+            // Rolled up, so only their status changes
+            posts.add(post(id, ActivityType.FILE_ADDED,
+                    "{\"tenantDomain\":\"" + TENANT + "\",\"firstName\":\"Bob\",\"lastName\":\"Smith\",\"parentNodeRef\":\"workspace://SpacesStore/parent\"}"));
+        }
+        // Unreadable, so in error and of no known tenant
+        posts.add(post(6L, ActivityType.FILE_ADDED, "not json"));
+        when(postDAO.selectPosts(any(ActivityPostEntity.class), anyInt())).thenReturn(posts);
+
+        postLookup.execute();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), statusIds.get(ActivityPostEntity.STATUS.PROCESSED));
+        assertEquals(TENANT, statusTenants.get(ActivityPostEntity.STATUS.PROCESSED));
+        assertEquals(List.of(6L), statusIds.get(ActivityPostEntity.STATUS.ERROR));
+        assertEquals(TenantService.DEFAULT_DOMAIN, statusTenants.get(ActivityPostEntity.STATUS.ERROR));
+        // The rolled-up post is inserted in the same tenant
+        assertEquals(List.of(TENANT), insertTenants);
+    }
+
+    private static ActivityPostEntity post(Long id, String activityType, String activityData)
+    {
+        ActivityPostEntity post = new ActivityPostEntity();
+        post.setId(id);
+        post.setUserId("bob");
+        post.setActivityType(activityType);
+        post.setActivityData(activityData);
+        post.setSiteNetwork("site1");
+        post.setPostDate(new Date());
+        post.setStatus(ActivityPostEntity.STATUS.PENDING.toString());
+        return post;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import org.alfresco.repo.audit.model.AuditApplication;
+import org.alfresco.repo.audit.model.AuditModelRegistry;
+import org.alfresco.repo.domain.audit.AuditBucketEntity;
+import org.alfresco.repo.domain.audit.AuditDAO;
+import org.alfresco.repo.lock.JobLockService;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.Pair;
+
+public class AuditBucketManagerTest
+{
+    private static final long DAY = 24L * 3600L * 1000L;
+    private static final Long APP_ID = 7L;
+
+    private AuditDAO auditDAO;
+    private AuditModelRegistry auditModelRegistry;
+    private AuditBucketManager manager;
+
+    @Before
+    public void setUp()
+    {
+        auditDAO = mock(AuditDAO.class);
+        auditModelRegistry = mock(AuditModelRegistry.class);
+        TransactionService transactionService = mock(TransactionService.class);
+        RetryingTransactionHelper txnHelper = mock(RetryingTransactionHelper.class);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class), anyBoolean(), anyBoolean()))
+                .thenAnswer(invocation -> ((RetryingTransactionCallback<?>) invocation.getArgument(0)).execute());
+
+        manager = new AuditBucketManager();
+        manager.setAuditDAO(auditDAO);
+        manager.setAuditModelRegistry(auditModelRegistry);
+        manager.setTransactionService(transactionService);
+        manager.setJobLockService(mock(JobLockService.class));
+        manager.setBucketSizeMs(DAY);
+        manager.setDeleteBatchSize(10);
+    }
+
+    @Test
+    public void testSealsExistingEntriesFromTheOldest()
+    {
+        when(auditDAO.getAuditBucketsEnd(APP_ID)).thenReturn(null);
+        when(auditDAO.getOldestAuditEntryTime(APP_ID)).thenReturn(5 * DAY + 1000L);
+
+        int sealed = manager.sealBuckets(APP_ID, 8 * DAY + 1000L, 100);
+
+        assertEquals(3, sealed);
+        InOrder inOrder = inOrder(auditDAO);
+        inOrder.verify(auditDAO).createAuditBucket(APP_ID, 5 * DAY, 6 * DAY);
+        inOrder.verify(auditDAO).createAuditBucket(APP_ID, 6 * DAY, 7 * DAY);
+        inOrder.verify(auditDAO).createAuditBucket(APP_ID, 7 * DAY, 8 * DAY);
+        verify(auditDAO, never()).createAuditBucket(APP_ID, 8 * DAY, 9 * DAY);
+    }
+
+    @Test
+    public void testSealsFromTheLatestBucket()
+    {
+        when(auditDAO.getAuditBucketsEnd(APP_ID)).thenReturn(7 * DAY);
+
+        int sealed = manager.sealBuckets(APP_ID, 9 * DAY, 1);
+
+        assertEquals(1, sealed);
+        verify(auditDAO).createAuditBucket(APP_ID, 7 * DAY, 8 * DAY);
+        verify(auditDAO, never()).getOldestAuditEntryTime(APP_ID);
+    }
+
+    @Test
+    public void testNothingToSealWithoutEntries()
+    {
+        int sealed = manager.sealBuckets(APP_ID, 9 * DAY, 100);
+
+        assertEquals(0, sealed);
+        verify(auditDAO, never()).createAuditBucket(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testPurgeDeletesSealedBucketsInBatches()
+    {
+        mockApplication();
+        long toTime = 7 * DAY + 1000L;
+        AuditBucketEntity full = bucket(1L, 5 * DAY, 1L, 25L);
+        AuditBucketEntity empty = bucket(2L, 6 * DAY, null, null);
+        AuditBucketEntity recent = bucket(3L, 7 * DAY, 26L, 40L);
+        when(auditDAO.getAuditBuckets(APP_ID, null, toTime)).thenReturn(List.of(full, empty, recent));
+        when(auditDAO.deleteAuditBucketEntries(eq(full), anyLong(), anyLong())).thenReturn(10, 10, 5);
+        // What is left: the start of the recent bucket and entries written after their bucket was sealed
+        when(auditDAO.getAuditEntryIdRange(APP_ID, null, toTime)).thenReturn(new Pair<>(26L, 45L));
+        when(auditDAO.deleteAuditEntries(eq(APP_ID), eq(null), eq(toTime), anyLong(), anyLong())).thenReturn(2, 1);
+
+        int deleted = manager.purgeAuditEntries("test", null, toTime);
+
+        assertEquals(28, deleted);
+        InOrder inOrder = inOrder(auditDAO);
+        inOrder.verify(auditDAO).deleteAuditBucketEntries(full, 1L, 11L);
+        inOrder.verify(auditDAO).deleteAuditBucketEntries(full, 11L, 21L);
+        inOrder.verify(auditDAO).deleteAuditBucketEntries(full, 21L, 26L);
+        inOrder.verify(auditDAO).deleteAuditBucket(1L);
+        inOrder.verify(auditDAO).deleteAuditBucket(2L);
+        inOrder.verify(auditDAO).deleteAuditEntries(APP_ID, null, toTime, 26L, 36L);
+        inOrder.verify(auditDAO).deleteAuditEntries(APP_ID, null, toTime, 36L, 46L);
+        verify(auditDAO, never()).deleteAuditBucketEntries(eq(recent), anyLong(), anyLong());
+        verify(auditDAO, never()).deleteAuditBucket(3L);
+        verify(auditDAO, never()).deleteAuditEntries(any(Long.class), any(), any());
+    }
+
+    @Test
+    public void testPurgeKeepsBucketsPartlyOutsideTheTimeRange()
+    {
+        mockApplication();
+        long fromTime = 5 * DAY + 1000L;
+        long toTime = 7 * DAY;
+        AuditBucketEntity partial = bucket(1L, 5 * DAY, 1L, 25L);
+        AuditBucketEntity full = bucket(2L, 6 * DAY, 26L, 30L);
+        when(auditDAO.getAuditBuckets(APP_ID, fromTime, toTime)).thenReturn(List.of(partial, full));
+        when(auditDAO.deleteAuditBucketEntries(eq(full), anyLong(), anyLong())).thenReturn(5);
+        when(auditDAO.getAuditEntryIdRange(APP_ID, fromTime, toTime)).thenReturn(new Pair<>(20L, 25L));
+        when(auditDAO.deleteAuditEntries(eq(APP_ID), eq(fromTime), eq(toTime), anyLong(), anyLong())).thenReturn(6);
+
+        int deleted = manager.purgeAuditEntries("test", fromTime, toTime);
+
+        assertEquals(11, deleted);
+        verify(auditDAO).deleteAuditBucketEntries(full, 26L, 31L);
+        verify(auditDAO).deleteAuditBucket(2L);
+        verify(auditDAO).deleteAuditEntries(APP_ID, fromTime, toTime, 20L, 26L);
+        verify(auditDAO, never()).deleteAuditBucketEntries(eq(partial), anyLong(), anyLong());
+        verify(auditDAO, never()).deleteAuditBucket(1L);
+    }
+
+    @Test
+    public void testPurgeWithNothingLeftAfterTheBuckets()
+    {
+        mockApplication();
+        AuditBucketEntity full = bucket(1L, 5 * DAY, 1L, 5L);
+        when(auditDAO.getAuditBuckets(APP_ID, null, 6 * DAY)).thenReturn(List.of(full));
+        when(auditDAO.deleteAuditBucketEntries(eq(full), anyLong(), anyLong())).thenReturn(5);
+
+        int deleted = manager.purgeAuditEntries("test", null, 6 * DAY);
+
+        assertEquals(5, deleted);
+        verify(auditDAO).deleteAuditBucket(1L);
+        verify(auditDAO, never()).deleteAuditEntries(any(Long.class), any(), any(), anyLong(), anyLong());
+    }
+
+    private void mockApplication()
+    {
+        AuditApplication application = mock(AuditApplication.class);
+        when(application.getApplicationId()).thenReturn(APP_ID);
+        when(auditModelRegistry.getAuditApplicationByName("test")).thenReturn(application);
+    }
+
+    private static AuditBucketEntity bucket(Long id, long start, Long minEntryId, Long maxEntryId)
+    {
+        AuditBucketEntity bucket = new AuditBucketEntity();
+        bucket.setId(id);
+        bucket.setAuditApplicationId(APP_ID);
+        bucket.setBucketStart(start);
+        bucket.setBucketEnd(start + DAY);
+        bucket.setMinEntryId(minEntryId);
+        bucket.setMaxEntryId(maxEntryId);
+        return bucket;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import org.alfresco.repo.domain.audit.AuditDAO;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.transaction.TransactionService;
+
+public class AuditEntryWriterTest
+{
+    private static final Long APP_ID = 7L;
+    private static final long MAX_ENQUEUE_WAIT_MS = 1000L;
+
+    private final AtomicLong nextEntryId = new AtomicLong();
+    /** The thread that wrote each entry, by entry ID */
+    private final Map<Long, Thread> writers = new ConcurrentHashMap<>();
+    /** The number of transactions started by each thread */
+    private final Map<Thread, Integer> transactions = new ConcurrentHashMap<>();
+    private volatile CountDownLatch backgroundReleased;
+    private AuditEntryWriter writer;
+
+    @Before
+    public void setUp()
+    {
+        AuditDAO auditDAO = mock(AuditDAO.class);
+        when(auditDAO.createAuditEntry(any(), anyLong(), any(), any())).thenAnswer(invocation -> {
+            Long entryId = nextEntryId.incrementAndGet();
+            writers.put(entryId, Thread.currentThread());
+            return entryId;
+        });
+        TransactionService transactionService = mock(TransactionService.class);
+        RetryingTransactionHelper txnHelper = mock(RetryingTransactionHelper.class);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+            transactions.merge(Thread.currentThread(), 1, Integer::sum);
+            CountDownLatch released = backgroundReleased;
+            if (released != null && Thread.currentThread().getName().startsWith("AuditEntryWriter"))
+            {
+                released.await();
+            }
+            return ((RetryingTransactionCallback<?>) invocation.getArgument(0)).execute();
+        });
+
+        writer = new AuditEntryWriter();
+        writer.setAuditDAO(auditDAO);
+        writer.setTransactionService(transactionService);
+        writer.setAsynchronous(true);
+        writer.setQueueCapacity(2);
+        writer.setMaxEnqueueWaitMs(MAX_ENQUEUE_WAIT_MS);
+        writer.onBootstrap(null);
+    }
+
+    @After
+    public void tearDown()
+    {
+        CountDownLatch released = backgroundReleased;
+        if (released != null)
+        {
+            released.countDown();
+        }
+        writer.onShutdown(null);
+    }
+
+    @Test
+    public void testEntriesAreWrittenInTheBackground() throws Exception
+    {
+        CountDownLatch written = new CountDownLatch(3);
+        commit(() -> {
+            for (int i = 0; i < 3; i++)
+            {
+                write(written);
+            }
+        });
+
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+        for (Thread thread : writers.values())
+        {
+            assertTrue(thread.getName().startsWith("AuditEntryWriter"));
+        }
+    }
+
+    @Test
+    public void testOverflowIsWrittenByTheCommittingThread() throws Exception
+    {
+        CountDownLatch written = new CountDownLatch(6);
+        blockBackgroundWrites(written);
+
+        // Two entries fill the queue and the other three overflow
+        long start = System.currentTimeMillis();
+        commit(() -> {
+            for (int i = 0; i < 5; i++)
+            {
+                write(written);
+            }
+        });
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(2, writer.getQueuedCount());
+        assertEquals(3, written.getCount());
+        assertTrue("Only the first overflowing entry waits for the queue", elapsed < 2 * MAX_ENQUEUE_WAIT_MS);
+        assertEquals("The overflow is written in one transaction", Integer.valueOf(1), transactions.get(Thread.currentThread()));
+        assertEquals(3, writers.values().stream().filter(thread -> thread == Thread.currentThread()).count());
+
+        backgroundReleased.countDown();
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+        assertEquals(6, writers.size());
+    }
+
+    @Test
+    public void testShutdownWritesQueuedEntries() throws Exception
+    {
+        CountDownLatch written = new CountDownLatch(3);
+        blockBackgroundWrites(written);
+        write(written);
+        write(written);
+        assertEquals(2, writer.getQueuedCount());
+
+        Thread releaser = new Thread(() -> {
+            try
+            {
+                Thread.sleep(100);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            backgroundReleased.countDown();
+        });
+        releaser.start();
+        writer.onShutdown(null);
+
+        assertEquals(0, writer.getQueuedCount());
+        assertEquals(0, written.getCount());
+
+        // Once shut down, entries are written straight away
+        CountDownLatch writtenAfterShutdown = new CountDownLatch(1);
+        write(writtenAfterShutdown);
+        assertEquals(0, writtenAfterShutdown.getCount());
+        assertEquals(Thread.currentThread(), writers.get(nextEntryId.get()));
+    }
+
+    /**
+     * Write one entry and keep the background thread busy writing it until {@link #backgroundReleased} is released
+     */
+    private void blockBackgroundWrites(CountDownLatch written) throws InterruptedException
+    {
+        backgroundReleased = new CountDownLatch(1);
+        write(written);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (writer.getQueuedCount() > 0 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(0, writer.getQueuedCount());
+    }
+
+    private void write(CountDownLatch written)
+    {
+        Map<String, Serializable> values = Map.of("/test/value", "v");
+        writer.write(APP_ID, System.currentTimeMillis(), "user", values, entryId -> written.countDown());
+    }
+
+    /**
+     * Run some work in a simulated transaction and commit it
+     */
+    private void commit(Runnable work)
+    {
+        TransactionSynchronizationManager.initSynchronization();
+        try
+        {
+            work.run();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations())
+            {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
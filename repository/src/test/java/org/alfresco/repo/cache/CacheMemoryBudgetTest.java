@@ -0,0 +1,120 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link CacheMemoryBudget} class.
+ */
+public class CacheMemoryBudgetTest
+{
+    private static final long BUDGET = 4000000L;
+
+    private InMemoryCacheStatistics cacheStatistics;
+    private CacheMemoryBudget memoryBudget;
+    private DefaultSimpleCache<Integer, String> busyCache;
+    private DefaultSimpleCache<Integer, String> idleCache;
+
+    @Before
+    public void setUp()
+    {
+        cacheStatistics = new InMemoryCacheStatistics();
+        memoryBudget = new CacheMemoryBudget();
+        memoryBudget.setCacheStatistics(cacheStatistics);
+        memoryBudget.setBudgetBytes(BUDGET);
+
+        busyCache = new DefaultSimpleCache<Integer, String>(0, false, 3000000L, false, 0, 0, "cache.busy");
+        idleCache = new DefaultSimpleCache<Integer, String>(0, false, 1000000L, false, 0, 0, "cache.idle");
+        memoryBudget.register(busyCache);
+        memoryBudget.register(idleCache);
+    }
+
+    @Test
+    public void budgetIsSharedInProportionToConfiguredLimits()
+    {
+        memoryBudget.setBudgetBytes(2000000L);
+        memoryBudget.distributeInitialBudget();
+
+        assertEquals(1500000L, busyCache.getMaxWeight());
+        assertEquals(500000L, idleCache.getMaxWeight());
+        assertEquals(1500000L, cacheStatistics.budgetBytes("cache.busy"));
+        assertEquals(0L, cacheStatistics.estimatedBytes("cache.idle"));
+    }
+
+    @Test
+    public void budgetMovesToCachesServingHits()
+    {
+        memoryBudget.distributeInitialBudget();
+        long busyLimit = busyCache.getMaxWeight();
+        long idleLimit = idleCache.getMaxWeight();
+
+        String value = new String(new char[1000]);
+        for (int i = 0; i < 5000; i++)
+        {
+            busyCache.put(i, value);
+            busyCache.get(i);
+        }
+        assertTrue(busyCache.getEvictionCount() > 0);
+        memoryBudget.rebalance();
+
+        assertTrue(busyCache.getMaxWeight() > busyLimit);
+        assertTrue(idleCache.getMaxWeight() < idleLimit);
+        assertTrue(busyCache.getMaxWeight() + idleCache.getMaxWeight() <= BUDGET);
+        assertEquals(busyCache.getMaxWeight(), cacheStatistics.budgetBytes("cache.busy"));
+        assertEquals(busyCache.getWeight(), cacheStatistics.estimatedBytes("cache.busy"));
+    }
+
+    @Test
+    public void idleCacheKeepsMinimumShare()
+    {
+        memoryBudget.setMinimumShare(0.5);
+        memoryBudget.distributeInitialBudget();
+        long idleLimit = idleCache.getMaxWeight();
+
+        String value = new String(new char[1000]);
+        for (int round = 0; round < 10; round++)
+        {
+            for (int i = 0; i < 5000; i++)
+            {
+                busyCache.put(i, value);
+                busyCache.get(i);
+            }
+            memoryBudget.rebalance();
+        }
+        assertTrue(idleCache.getMaxWeight() >= idleLimit / 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cachesMustBeWeightLimited()
+    {
+        memoryBudget.register(new DefaultSimpleCache<Integer, String>(100, "cache.sized"));
+    }
+}
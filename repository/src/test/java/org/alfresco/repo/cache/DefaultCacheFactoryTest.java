@@ -26,12 +26,20 @@
 package org.alfresco.repo.cache;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.Properties;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import org.alfresco.repo.cache.invalidation.CacheInvalidationBus;
+import org.alfresco.repo.cache.invalidation.InvalidatingCache;
+
 /**
  * Tests for the {@link DefaultCacheFactory} class.
  * 
@@ -63,6 +71,15 @@ public class DefaultCacheFactoryTest
         properties.setProperty("cache.withMaxIdle.eviction-policy", "NONE");
         properties.setProperty("cache.withMaxIdle.maxIdleSeconds", "7");
 
+        // cache.weighted
+        properties.setProperty("cache.weighted.maxItems", "100");
+        properties.setProperty("cache.weighted.eviction-policy", "LRU");
+        properties.setProperty("cache.weighted.maxWeightBytes", "1048576");
+        properties.setProperty("cache.weighted.admission", "TINYLFU");
+
+        // cache.localOnly
+        properties.setProperty("cache.localOnly.cluster.type", "local");
+
         cacheFactory.setProperties(properties);
     }
 
@@ -92,6 +109,52 @@ public class DefaultCacheFactoryTest
         assertEquals(6, cache.getTTLSecs());
     }
 
+    @Test
+    public void canCreateWeightLimitedCache()
+    {
+        InMemoryCacheStatistics cacheStatistics = new InMemoryCacheStatistics();
+        CacheMemoryBudget memoryBudget = new CacheMemoryBudget();
+        memoryBudget.setCacheStatistics(cacheStatistics);
+        cacheFactory.setMemoryBudget(memoryBudget);
+
+        cache = (DefaultSimpleCache<String, String>) cacheFactory.createCache("cache.weighted");
+        assertEquals(1048576L, cache.getMaxWeight());
+        assertTrue(cache.isAdmissionFilter());
+        // The weight limit replaces the size limit
+        assertFalse(cache.isUseMaxItems());
+
+        // The cache was registered with the memory budget
+        memoryBudget.rebalance();
+        assertEquals(1048576L, cacheStatistics.budgetBytes("cache.weighted"));
+    }
+
+    @Test
+    public void cachesHaveNoWeightLimitByDefault()
+    {
+        cache = (DefaultSimpleCache<String, String>) cacheFactory.createCache("cache.someCache");
+        assertEquals(0L, cache.getMaxWeight());
+        assertFalse(cache.isAdmissionFilter());
+    }
+
+    @Test
+    public void clusterAwareCachesAreInvalidatedOnOtherInstances()
+    {
+        CacheInvalidationBus invalidationBus = mock(CacheInvalidationBus.class);
+        when(invalidationBus.isEnabled()).thenReturn(true);
+        cacheFactory.setInvalidationBus(invalidationBus);
+
+        SimpleCache<String, String> clusterAwareCache = cacheFactory.createCache("cache.someCache");
+        assertTrue(clusterAwareCache instanceof InvalidatingCache);
+        assertEquals(4, ((DefaultSimpleCache<?, ?>) ((InvalidatingCache<?, ?>) clusterAwareCache).getCache()).getMaxItems());
+        verify(invalidationBus).subscribe(eq("cache.someCache"), any());
+
+        assertTrue(cacheFactory.createCache("cache.localOnly") instanceof DefaultSimpleCache);
+
+        // Nothing is wrapped while the bus is disabled
+        when(invalidationBus.isEnabled()).thenReturn(false);
+        assertTrue(cacheFactory.createCache("cache.someCache") instanceof DefaultSimpleCache);
+    }
+
     @Test
     public void canCreateCacheWithMaxIdle()
     {
@@ -132,6 +132,136 @@ public class DefaultSimpleCacheTest extends SimpleCacheTestBase<DefaultSimpleCac
         assertEquals(true, cache.putAndCheckUpdate(104, null));
     }
 
+    @Test
+    public void weightLimitedCache()
+    {
+        cache = new DefaultSimpleCache<Integer, String>(0, true, 1000000L, false, 0, 0, getClass().getName());
+        assertFalse(cache.isUseMaxItems());
+        assertEquals(1000000L, cache.getMaxWeight());
+
+        String value = new String(new char[200]);
+        for (int i = 0; i < 5000; i++)
+        {
+            cache.put(i, value);
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+        assertTrue(cache.getWeight() <= cache.getMaxWeight());
+        // The most recent entry is kept
+        assertEquals(value, cache.get(4999));
+    }
+
+    @Test
+    public void weightIsTracked()
+    {
+        cache = new DefaultSimpleCache<Integer, String>(0, true, 1000000L, false, 0, 0, getClass().getName());
+        cache.put(1, "1");
+        long weight = cache.getWeight();
+        assertTrue(weight > 0);
+
+        // A larger value weighs more
+        cache.put(1, "1234567890");
+        assertTrue(cache.getWeight() > weight);
+
+        cache.put(2, "2");
+        cache.remove(1);
+        assertEquals(weight, cache.getWeight());
+        cache.clear();
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void admissionFilterRejectsKeysNotReadRecently()
+    {
+        cache = new DefaultSimpleCache<Integer, String>(3, true, 0, true, 0, 0, getClass().getName());
+        assertTrue(cache.isAdmissionFilter());
+
+        // Admitted while the cache is not full
+        cache.put(1, "1");
+        cache.put(2, "2");
+        cache.put(3, "3");
+
+        // The cache is full and the key has never been read
+        cache.put(4, "4");
+        assertFalse(cache.contains(4));
+        assertEquals(1, cache.getRejectionCount());
+
+        // Existing keys can still be updated
+        cache.put(1, "one");
+        assertEquals("one", cache.get(1));
+
+        // Keys read often enough are admitted
+        for (int i = 0; i < DefaultSimpleCache.ADMISSION_FREQUENCY; i++)
+        {
+            assertNull(cache.get(4));
+        }
+        cache.put(4, "4");
+        assertEquals("4", cache.get(4));
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void admissionFilterGuardsWeightLimitedCache()
+    {
+        cache = new DefaultSimpleCache<Integer, String>(0, true, 100000L, true, 0, 0, getClass().getName());
+        assertTrue(cache.isAdmissionFilter());
+
+        // Fill the cache until it starts evicting
+        String value = new String(new char[200]);
+        int key = 0;
+        while (cache.getEvictionCount() == 0)
+        {
+            for (int i = 0; i < DefaultSimpleCache.ADMISSION_FREQUENCY; i++)
+            {
+                cache.get(key);
+            }
+            cache.put(key++, value);
+        }
+        assertTrue(cache.getWeight() < cache.getMaxWeight());
+
+        // The cache is full and the key has never been read
+        cache.put(-1, value);
+        assertFalse(cache.contains(-1));
+        assertEquals(1, cache.getRejectionCount());
+
+        // Keys read often enough are admitted
+        for (int i = 0; i < DefaultSimpleCache.ADMISSION_FREQUENCY; i++)
+        {
+            assertNull(cache.get(-2));
+        }
+        cache.put(-2, value);
+        assertEquals(value, cache.get(-2));
+    }
+
+    @Test
+    public void weightLimitCanBeChanged()
+    {
+        cache = new DefaultSimpleCache<Integer, String>(0, true, 1000000L, false, 0, 0, getClass().getName());
+        for (int i = 0; i < 100; i++)
+        {
+            cache.put(i, Integer.toString(i));
+        }
+        long weight = cache.getWeight();
+
+        cache.setMaxWeight(2000000L);
+        assertEquals(2000000L, cache.getMaxWeight());
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(Integer.toString(i), cache.get(i));
+        }
+        assertEquals(weight, cache.getWeight());
+
+        // Entries that no longer fit are evicted
+        cache.setMaxWeight(1000L);
+        assertTrue(cache.getWeight() <= 1000L);
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void weightLimitCannotBeSetOnSizeLimitedCache()
+    {
+        cache.setMaxWeight(1000L);
+    }
+
     // TODO: Timer-based tests are not ideal. An alternative approach is to factor out the CacheBuilder.newBuilder()
     // call to a protected method, override that in this test class to return a mock and use the mock to check
     // that the Cache is being configured correctly, e.g. assert that expireAfterWrite(int, TimeUnit) is called.
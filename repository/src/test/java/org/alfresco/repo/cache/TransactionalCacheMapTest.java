@@ -0,0 +1,163 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link TransactionalCacheMap} class.
+ */
+public class TransactionalCacheMapTest
+{
+    @Test
+    public void canPutGetAndRemove()
+    {
+        TransactionalCacheMap<String, Integer> map = new TransactionalCacheMap<>(Integer.MAX_VALUE);
+        assertTrue(map.isEmpty());
+
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put(null, 3);
+        map.put("a", 4);
+
+        assertEquals(3, map.size());
+        assertEquals(Integer.valueOf(4), map.get("a"));
+        assertEquals(Integer.valueOf(2), map.get("b"));
+        assertEquals(Integer.valueOf(3), map.get(null));
+        assertTrue(map.containsKey(null));
+        assertNull(map.get("c"));
+
+        assertTrue(map.remove("b"));
+        assertFalse(map.remove("b"));
+        assertFalse(map.containsKey("b"));
+        assertEquals(2, map.size());
+        assertEquals(Arrays.asList("a", null), keys(map));
+    }
+
+    @Test
+    public void keepsInsertionOrderWhenUpdating()
+    {
+        TransactionalCacheMap<String, Integer> map = new TransactionalCacheMap<>(Integer.MAX_VALUE);
+        map.put("c", 1);
+        map.put("a", 2);
+        map.put("b", 3);
+        map.put("c", 4);
+
+        assertEquals(Arrays.asList("c", "a", "b"), keys(map));
+    }
+
+    @Test
+    public void evictsEldestEntryWhenFull()
+    {
+        TransactionalCacheMap<Integer, Integer> map = new TransactionalCacheMap<>(100);
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(i >= 100, map.hasHitSize());
+            map.put(i, i);
+        }
+
+        assertEquals(100, map.size());
+        assertNull(map.get(899));
+        assertEquals(Integer.valueOf(900), map.get(900));
+        assertEquals(Integer.valueOf(999), map.get(999));
+        assertEquals(Integer.valueOf(900), map.keyAt(map.first()));
+    }
+
+    @Test
+    public void behavesLikeLinkedHashMapUnderRandomOperations()
+    {
+        Random random = new Random(42L);
+        TransactionalCacheMap<Integer, Integer> map = new TransactionalCacheMap<>(Integer.MAX_VALUE);
+        Map<Integer, Integer> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 100000; i++)
+        {
+            Integer key = random.nextInt(500);
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            }
+            else
+            {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), keys(map));
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet())
+        {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void reusesReleasedMaps()
+    {
+        TransactionalCacheMap<String, String> map = TransactionalCacheMap.acquire(10);
+        map.put("a", "b");
+        TransactionalCacheMap.release(map);
+
+        TransactionalCacheMap<String, String> reused = TransactionalCacheMap.acquire(20);
+        assertSame(map, reused);
+        assertTrue(reused.isEmpty());
+        assertNull(reused.get("a"));
+        assertEquals(-1, reused.first());
+    }
+
+    @Test
+    public void doesNotPoolLargeMaps()
+    {
+        TransactionalCacheMap<Integer, Integer> map = TransactionalCacheMap.acquire(Integer.MAX_VALUE);
+        for (int i = 0; i <= TransactionalCacheMap.MAX_POOLED_CAPACITY; i++)
+        {
+            map.put(i, i);
+        }
+        TransactionalCacheMap.release(map);
+
+        assertNotSame(map, TransactionalCacheMap.acquire(10));
+    }
+
+    private static <K> List<K> keys(TransactionalCacheMap<K, ?> map)
+    {
+        List<K> keys = new ArrayList<>();
+        map.addKeysTo(keys);
+        return keys;
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.invalidation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.alfresco.repo.cache.DefaultSimpleCache;
+
+/**
+ * Tests for the {@link AbstractCacheInvalidationBus} class, with two buses connected in memory.
+ */
+public class AbstractCacheInvalidationBusTest
+{
+    private InMemoryBus bus;
+    private InMemoryBus peerBus;
+    private DefaultSimpleCache<Serializable, String> peerCache;
+    private DefaultSimpleCache<Serializable, String> otherPeerCache;
+
+    @Before
+    public void setUp()
+    {
+        bus = new InMemoryBus();
+        peerBus = new InMemoryBus();
+        bus.peer = peerBus;
+        peerBus.peer = bus;
+
+        peerCache = new DefaultSimpleCache<>();
+        peerBus.subscribe("cache.test", new InvalidatingCache<>(peerCache, "cache.test", peerBus, 100));
+        otherPeerCache = new DefaultSimpleCache<>();
+        peerBus.subscribe("cache.other", new InvalidatingCache<>(otherPeerCache, "cache.other", peerBus, 100));
+        for (int i = 0; i < 10; i++)
+        {
+            peerCache.put(i, "value" + i);
+            otherPeerCache.put(i, "value" + i);
+        }
+    }
+
+    @Test
+    public void messagesAreCoalesced()
+    {
+        bus.publish(message("cache.test", 1, 2));
+        bus.publish(message("cache.test", 2, 3));
+        bus.publish(message("cache.other", 1));
+        bus.flush();
+
+        assertEquals(1, bus.sent.size());
+        assertFalse(peerCache.contains(1));
+        assertFalse(peerCache.contains(2));
+        assertFalse(peerCache.contains(3));
+        assertTrue(peerCache.contains(4));
+        assertFalse(otherPeerCache.contains(1));
+        assertTrue(otherPeerCache.contains(2));
+    }
+
+    @Test
+    public void clearsAreDelivered()
+    {
+        CacheInvalidationMessage message = message("cache.test", 1);
+        message.addClear("cache.test");
+        bus.publish(message);
+        bus.flush();
+
+        assertTrue(peerCache.getKeys().isEmpty());
+    }
+
+    @Test
+    public void ownMessagesAreIgnored()
+    {
+        peerBus.publish(message("cache.test", 1));
+        peerBus.flush();
+        // Deliver the message back to its sender
+        peerBus.receive(peerBus.sent.get(0));
+
+        assertTrue(peerCache.contains(1));
+    }
+
+    @Test
+    public void largeMessagesClearTheCache()
+    {
+        bus.setMaxMessageBytes(200);
+        bus.publish(message("cache.test", 1, 2, 3, 4, 5, 6, 7, 8));
+        bus.flush();
+
+        assertTrue(peerCache.getKeys().isEmpty());
+    }
+
+    @Test
+    public void overflowingQueueClearsTheCache()
+    {
+        bus.setMaxQueuedMessages(1);
+        bus.publish(message("cache.test", 1));
+        bus.publish(message("cache.test", 2));
+        bus.flush();
+
+        assertTrue(peerCache.getKeys().isEmpty());
+    }
+
+    @Test
+    public void unexpectedKeyClassesClearTheirCache() throws Exception
+    {
+        CacheInvalidationMessage message = message("cache.test", 1);
+        message.addKey("cache.test", new URI("http://example.com"));
+        message.addKey("cache.other", 1);
+        bus.publish(message);
+        bus.flush();
+
+        assertEquals(1, bus.sent.size());
+        assertTrue(peerCache.getKeys().isEmpty());
+        // The keys of the other cache are still sent
+        assertFalse(otherPeerCache.contains(1));
+        assertTrue(otherPeerCache.contains(2));
+    }
+
+    @Test
+    public void unreadableMessagesClearAllCaches() throws Exception
+    {
+        // Only the sender accepts the class
+        bus.setAdditionalKeyClasses("java.net.URI");
+        CacheInvalidationMessage message = message("cache.test", 1);
+        message.addKey("cache.test", new URI("http://example.com"));
+        bus.publish(message);
+        bus.flush();
+
+        assertEquals(1, bus.sent.size());
+        assertTrue(peerCache.getKeys().isEmpty());
+        assertTrue(otherPeerCache.getKeys().isEmpty());
+    }
+
+    @Test
+    public void additionalKeyClassesAreAccepted() throws Exception
+    {
+        bus.setAdditionalKeyClasses("java.net.URI");
+        peerBus.setAdditionalKeyClasses(" java.net.URI ");
+        CacheInvalidationMessage message = message("cache.test", 1);
+        message.addKey("cache.test", new URI("http://example.com"));
+        bus.publish(message);
+        bus.flush();
+
+        assertFalse(peerCache.contains(1));
+        assertTrue(peerCache.contains(2));
+        assertTrue(otherPeerCache.contains(1));
+    }
+
+    @Test
+    public void lostMessagesClearAllCaches()
+    {
+        bus.publish(message("cache.test", 1));
+        bus.flush();
+        assertTrue(peerCache.contains(2));
+
+        // Dropped on the way
+        bus.peer = null;
+        bus.publish(message("cache.test", 2));
+        bus.flush();
+        bus.peer = peerBus;
+        assertTrue(peerCache.contains(2));
+
+        bus.publish(message("cache.test", 3));
+        bus.flush();
+        assertTrue(peerCache.getKeys().isEmpty());
+        assertTrue(otherPeerCache.getKeys().isEmpty());
+
+        // The lost message arriving late is applied, and the next one is in sequence
+        peerCache.put(2, "value2");
+        peerCache.put(4, "value4");
+        peerBus.receive(bus.sent.get(1));
+        assertFalse(peerCache.contains(2));
+        bus.publish(message("cache.test", 5));
+        bus.flush();
+        assertTrue(peerCache.contains(4));
+    }
+
+    @Test
+    public void splitMessagesAreNumberedInSequence()
+    {
+        bus.setMaxMessageBytes(700);
+        CacheInvalidationMessage message = message("cache.test", 1, 2);
+        for (int i = 0; i < 50; i++)
+        {
+            message.addKey("cache.other", "key" + i);
+        }
+        bus.publish(message);
+        bus.flush();
+
+        assertEquals(2, bus.sent.size());
+        assertFalse(peerCache.contains(1));
+        assertTrue(peerCache.contains(3));
+        assertTrue(otherPeerCache.getKeys().isEmpty());
+    }
+
+    @Test
+    public void messagesSignedWithAnotherSecretAreIgnored()
+    {
+        bus.setSharedSecret("other");
+        bus.publish(message("cache.test", 1));
+        bus.flush();
+
+        assertEquals(1, bus.sent.size());
+        assertTrue(peerCache.contains(1));
+    }
+
+    @Test
+    public void tamperedMessagesAreIgnored()
+    {
+        bus.peer = null;
+        bus.publish(message("cache.test", 1));
+        bus.flush();
+        byte[] bytes = bus.sent.get(0);
+        bytes[bytes.length - 1] ^= 1;
+        peerBus.receive(bytes);
+        peerBus.receive(new byte[AbstractCacheInvalidationBus.MAC_LENGTH - 1]);
+
+        assertTrue(peerCache.contains(1));
+    }
+
+    @Test
+    public void failedSendClearsTheCacheWithTheNextMessage()
+    {
+        bus.failSends = true;
+        bus.publish(message("cache.test", 1));
+        bus.flush();
+        assertTrue(peerCache.contains(2));
+
+        bus.failSends = false;
+        bus.flush();
+        assertTrue(peerCache.getKeys().isEmpty());
+    }
+
+    @Test
+    public void disabledBusSendsNothing()
+    {
+        bus.setEnabled(false);
+        bus.publish(message("cache.test", 1));
+        bus.flush();
+
+        assertTrue(bus.sent.isEmpty());
+    }
+
+    private static CacheInvalidationMessage message(String cacheName, Serializable... keys)
+    {
+        CacheInvalidationMessage message = new CacheInvalidationMessage();
+        for (Serializable key : keys)
+        {
+            message.addKey(cacheName, key);
+        }
+        return message;
+    }
+
+    /**
+     * Delivers the messages it sends straight to its peer
+     */
+    private static class InMemoryBus extends AbstractCacheInvalidationBus
+    {
+        private final List<byte[]> sent = new ArrayList<>();
+        private InMemoryBus peer;
+        private boolean failSends;
+
+        private InMemoryBus()
+        {
+            setEnabled(true);
+            setSharedSecret("secret");
+        }
+
+        @Override
+        protected void startReceiving()
+        {}
+
+        @Override
+        protected void stopReceiving()
+        {}
+
+        @Override
+        protected void send(byte[] bytes) throws IOException
+        {
+            if (failSends)
+            {
+                throw new IOException("Network unreachable");
+            }
+            sent.add(bytes);
+            if (peer != null)
+            {
+                peer.receive(bytes);
+            }
+        }
+    }
+}
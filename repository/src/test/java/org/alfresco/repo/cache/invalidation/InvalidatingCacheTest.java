@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.invalidation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.alfresco.repo.cache.DefaultSimpleCache;
+
+/**
+ * Tests for the {@link InvalidatingCache} class, outside of transactions.
+ */
+public class InvalidatingCacheTest
+{
+    private RecordingBus bus;
+    private DefaultSimpleCache<Integer, String> localCache;
+    private InvalidatingCache<Integer, String> cache;
+
+    @Before
+    public void setUp()
+    {
+        bus = new RecordingBus();
+        localCache = new DefaultSimpleCache<>();
+        cache = new InvalidatingCache<>(localCache, "cache.test", bus, 100);
+    }
+
+    @Test
+    public void subscribesToTheBus()
+    {
+        assertEquals(cache, bus.listener);
+    }
+
+    @Test
+    public void newKeysAreNotPublished()
+    {
+        cache.put(1, "1");
+        assertEquals("1", cache.get(1));
+        // Putting the same value again is not an update either
+        cache.put(1, "1");
+        assertTrue(bus.published.isEmpty());
+    }
+
+    @Test
+    public void updatesArePublished()
+    {
+        cache.put(1, "1");
+        cache.put(1, "one");
+
+        assertEquals(1, bus.published.size());
+        assertEquals(1, bus.published.get(0).getKeys("cache.test").size());
+        assertTrue(bus.published.get(0).getKeys("cache.test").contains(1));
+    }
+
+    @Test
+    public void removalsAndClearsArePublished()
+    {
+        cache.put(1, "1");
+        cache.remove(1);
+        cache.clear();
+
+        assertNull(cache.get(1));
+        assertEquals(2, bus.published.size());
+        assertTrue(bus.published.get(0).getKeys("cache.test").contains(1));
+        assertTrue(bus.published.get(1).isCleared("cache.test"));
+    }
+
+    @Test
+    public void receivedInvalidationsAreNotPublished()
+    {
+        cache.put(1, "1");
+        cache.put(2, "2");
+        cache.put(3, "3");
+
+        cache.invalidate(Arrays.asList((Serializable) 1, 2));
+        assertFalse(localCache.contains(1));
+        assertFalse(localCache.contains(2));
+        assertTrue(localCache.contains(3));
+
+        cache.invalidateAll();
+        assertFalse(localCache.contains(3));
+        assertTrue(bus.published.isEmpty());
+    }
+
+    private static class RecordingBus implements CacheInvalidationBus
+    {
+        private final List<CacheInvalidationMessage> published = new ArrayList<>();
+        private CacheInvalidationListener listener;
+
+        @Override
+        public boolean isEnabled()
+        {
+            return true;
+        }
+
+        @Override
+        public void publish(CacheInvalidationMessage message)
+        {
+            published.add(message);
+        }
+
+        @Override
+        public void subscribe(String cacheName, CacheInvalidationListener listener)
+        {
+            this.listener = listener;
+        }
+    }
+}
@@ -28,6 +28,7 @@ package org.alfresco.repo.cache.lookup;
 import static org.junit.Assert.*;
 
 import java.sql.Savepoint;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -294,6 +295,27 @@ public class EntityLookupCacheTest implements EntityLookupCallbackDAO<Long, Obje
         assertNull(entityPairCacheCheck);
     }
 
+    @Test
+    public void testGetCachedKeys() throws Exception
+    {
+        createValue(new TestValue("AAA"));
+        createValue(new TestValue("BBB"));
+        createValue(new TestValue("CCC"));
+        entityLookupCacheA.getByKey(Long.valueOf(1));
+        entityLookupCacheA.getByKey(Long.valueOf(2));
+        entityLookupCacheB.getByKey(Long.valueOf(3));
+
+        // Only the keys of the cache region, and not the value lookups
+        List<Long> keys = entityLookupCacheA.getCachedKeys(10);
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains(Long.valueOf(1)));
+        assertTrue(keys.contains(Long.valueOf(2)));
+        assertEquals(List.of(Long.valueOf(3)), entityLookupCacheB.getCachedKeys(10));
+
+        // Limited number of keys
+        assertEquals(1, entityLookupCacheA.getCachedKeys(1).size());
+    }
+
     /**
      * Helper class to represent business object
      */
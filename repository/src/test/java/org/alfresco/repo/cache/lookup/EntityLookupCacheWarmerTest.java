@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache.lookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.alfresco.repo.cache.MemoryCache;
+import org.alfresco.repo.cache.lookup.EntityLookupCache.EntityLookupCallbackDAOAdaptor;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.Pair;
+
+/**
+ * Tests for {@link EntityLookupCacheWarmer}.
+ */
+public class EntityLookupCacheWarmerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private EntityLookupCacheWarmer warmer;
+    private MemoryCache<Serializable, Object> cache;
+    private EntityLookupCache<Long, String, String> entityCache;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        TransactionService transactionService = mock(TransactionService.class);
+        RetryingTransactionHelper txnHelper = mock(RetryingTransactionHelper.class);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class), anyBoolean(), anyBoolean()))
+                .thenAnswer(invocation -> ((RetryingTransactionCallback<?>) invocation.getArgument(0)).execute());
+
+        cache = new MemoryCache<>();
+        entityCache = new EntityLookupCache<>(cache, "TEST", new EntityLookupCallbackDAOAdaptor<Long, String, String>() {
+            @Override
+            public Pair<Long, String> findByKey(Long key)
+            {
+                return new Pair<>(key, "value-" + key);
+            }
+
+            @Override
+            public Pair<Long, String> createValue(String value)
+            {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        warmer = new EntityLookupCacheWarmer();
+        warmer.setTransactionService(transactionService);
+        warmer.setSnapshotDirectory(folder.getRoot().getAbsolutePath());
+        warmer.setMaxLoadsPerSecond(0);
+        warmer.register("testCache", () -> entityCache);
+    }
+
+    @Test
+    public void testWriteAndReadKeys() throws Exception
+    {
+        File file = new File(folder.getRoot(), "keys" + EntityLookupCacheWarmer.SNAPSHOT_FILE_SUFFIX);
+        EntityLookupCacheWarmer.writeKeys(file, Arrays.asList(1L, "two", 3L, "multi\nline", Integer.valueOf(5)));
+
+        assertEquals(Arrays.asList(1L, "two", 3L), EntityLookupCacheWarmer.readKeys(file, 10));
+        assertEquals(Arrays.asList(1L, "two"), EntityLookupCacheWarmer.readKeys(file, 2));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testReadKeysIgnoresBadLines() throws Exception
+    {
+        File file = folder.newFile("bad" + EntityLookupCacheWarmer.SNAPSHOT_FILE_SUFFIX);
+        Files.write(file.toPath(), Arrays.asList("L:1", "L:not-a-number", "garbage", "S:x"), StandardCharsets.UTF_8);
+
+        assertEquals(Arrays.asList(1L, "x"), EntityLookupCacheWarmer.readKeys(file, 10));
+    }
+
+    @Test
+    public void testSnapshotAndWarm() throws Exception
+    {
+        entityCache.getByKey(1L);
+        entityCache.getByKey(2L);
+        warmer.snapshot();
+
+        File file = warmer.getSnapshotFile("testCache");
+        assertTrue(file.exists());
+        List<Serializable> keys = EntityLookupCacheWarmer.readKeys(file, 10);
+        assertEquals(2, keys.size());
+
+        // Restart with empty caches
+        cache.clear();
+        assertTrue(entityCache.getCachedKeys(10).isEmpty());
+
+        warmer.warm("testCache", entityCache, keys);
+        List<Long> warmed = entityCache.getCachedKeys(10);
+        assertEquals(2, warmed.size());
+        assertTrue(warmed.containsAll(Arrays.asList(1L, 2L)));
+        assertEquals("value-1", entityCache.getValue(1L));
+    }
+}
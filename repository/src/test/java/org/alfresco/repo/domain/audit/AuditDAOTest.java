@@ -168,6 +168,109 @@ public class AuditDAOTest extends TestCase
         assertNotNull(minMax.get(expectedExtremes[1]));
     }
 
+    /**
+     * Queries by time are narrowed to the IDs of the sealed buckets, without missing the entries written after their period was sealed or those of the unsealed periods.
+     */
+    public void testAuditBucketsNarrowQueriesByTime() throws Exception
+    {
+        final long day = 24L * 3600L * 1000L;
+        final long start = 10 * day;
+        final AuditApplicationInfo appInfo = txnHelper.doInTransaction(this::createAuditApp);
+        final String appName = appInfo.getName();
+        final Long appId = appInfo.getId();
+        final AbstractAuditDAOImpl bucketsDAO = (AbstractAuditDAOImpl) auditDAO;
+        final List<Long> entryIds = txnHelper.doInTransaction(() -> {
+            List<Long> ids = new ArrayList<>();
+            ids.add(createItem(appId, start + 1000L, 0));
+            ids.add(createItem(appId, start + 2000L, 1));
+            ids.add(createItem(appId, start + day + 1000L, 2));
+            auditDAO.createAuditBucket(appId, start, start + day);
+            auditDAO.createAuditBucket(appId, start + day, start + 2 * day);
+            // Written after its period was sealed
+            ids.add(createItem(appId, start + 3000L, 3));
+            // In a period not sealed yet
+            ids.add(createItem(appId, start + 2 * day + 1000L, 4));
+            return ids;
+        });
+
+        bucketsDAO.setBucketsEnabled(true);
+        try
+        {
+            // The lowest ID of the buckets overlapping the time range bounds the query
+            org.alfresco.repo.domain.audit.AuditQueryParameters dbParameters = new org.alfresco.repo.domain.audit.AuditQueryParameters();
+            dbParameters.setAuditFromTime(start + day);
+            txnHelper.doInTransaction(() -> {
+                bucketsDAO.narrowToAuditBuckets(appName, dbParameters);
+                return null;
+            }, true);
+            assertEquals(entryIds.get(2), dbParameters.getAuditFromId());
+            assertNull("The highest sealed ID must not bound the query", dbParameters.getAuditToId());
+
+            assertEquals(List.of(entryIds.get(0), entryIds.get(1), entryIds.get(3)), findEntryIds(appName, start, start + day));
+            assertEquals(List.of(entryIds.get(2), entryIds.get(4)), findEntryIds(appName, start + day, null));
+            assertEquals(List.of(entryIds.get(1), entryIds.get(2), entryIds.get(3)), findEntryIds(appName, start + 1500L, start + 2 * day));
+
+            // The search for the extremes starts from the sealed IDs
+            List<String> extremes = List.of("min", "max");
+            Map<String, Long> minMax = txnHelper.doInTransaction(() -> auditDAO.getAuditMinMaxByApp(appId, extremes), true);
+            assertEquals(entryIds.get(0), minMax.get("min"));
+            assertEquals(entryIds.get(4), minMax.get("max"));
+
+            txnHelper.doInTransaction(() -> auditDAO.deleteAuditEntries(List.of(entryIds.get(4))));
+            minMax = txnHelper.doInTransaction(() -> auditDAO.getAuditMinMaxByApp(appId, extremes), true);
+            assertEquals("The entry written after its period was sealed is the newest", entryIds.get(3), minMax.get("max"));
+
+            txnHelper.doInTransaction(() -> auditDAO.deleteAuditEntries(List.of(entryIds.get(2), entryIds.get(3))));
+            minMax = txnHelper.doInTransaction(() -> auditDAO.getAuditMinMaxByApp(appId, extremes), true);
+            assertEquals("No entry is left from the highest sealed ID on", entryIds.get(1), minMax.get("max"));
+        }
+        finally
+        {
+            bucketsDAO.setBucketsEnabled(false);
+            txnHelper.doInTransaction(() -> auditDAO.deleteAuditEntries(appId, null, null));
+        }
+    }
+
+    private Long createItem(Long appId, long time, int value)
+    {
+        Map<String, Serializable> values = Collections.singletonMap("/a/b/c", (Serializable) value);
+        return auditDAO.createAuditEntry(appId, time, "alexi", values);
+    }
+
+    /**
+     * @return Returns the IDs of the entries of an application within a time range, in order
+     */
+    private List<Long> findEntryIds(String appName, Long fromTime, Long toTime)
+    {
+        AuditQueryParameters params = new AuditQueryParameters();
+        params.setApplicationName(appName);
+        params.setFromTime(fromTime);
+        params.setToTime(toTime);
+        List<Long> entryIds = new ArrayList<>();
+        AuditQueryCallback callback = new AuditQueryCallback() {
+            public boolean valuesRequired()
+            {
+                return false;
+            }
+
+            public boolean handleAuditEntry(Long entryId, String applicationName, String user, long time, Map<String, Serializable> values)
+            {
+                entryIds.add(entryId);
+                return true;
+            }
+
+            public boolean handleAuditEntryError(Long entryId, String errorMsg, Throwable error)
+            {
+                throw new AlfrescoRuntimeException(errorMsg, error);
+            }
+        };
+        txnHelper.doInTransaction(() -> {
+            auditDAO.findAuditEntries(callback, params, Integer.MAX_VALUE);
+            return null;
+        }, true);
+        return entryIds;
+    }
+
     /**
      * @return Returns the name of the application
      */
@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompactAuditValuesTest
+{
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        Map<String, Serializable> values = new HashMap<>();
+        values.put("/alfresco-access/transaction/path", "/app:company_home");
+        values.put("/alfresco-access/transaction/user", "admin");
+        values.put("/alfresco-access/transaction/action", null);
+        values.put("/alfresco-access/transaction/size", 1234L);
+        values.put("/alfresco-access/transaction/count", 7);
+        values.put("/alfresco-access/transaction/copy", Boolean.TRUE);
+        values.put("/alfresco-access/transaction/date", new Date(1000000L));
+        values.put("/alfresco-access/transaction/locale", Locale.FRENCH);
+        ArrayList<String> aspects = new ArrayList<>(List.of("cm:titled", "cm:versionable"));
+        values.put("/alfresco-access/transaction/aspects", aspects);
+
+        CompactAuditValues read = roundTrip(new CompactAuditValues(values));
+
+        assertEquals(values, read.toMap());
+        assertEquals(new CompactAuditValues(values), read);
+        assertNull(read.toMap().get("/alfresco-access/transaction/action"));
+        assertTrue(read.toMap().containsKey("/alfresco-access/transaction/action"));
+    }
+
+    @Test
+    public void testLongStrings() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 70000; i++)
+        {
+            sb.append((char) ('a' + i % 26));
+        }
+        String longString = sb.toString();
+        Map<String, Serializable> values = new HashMap<>();
+        values.put("/app/" + longString, longString);
+
+        CompactAuditValues read = roundTrip(new CompactAuditValues(values));
+
+        assertEquals(values, read.toMap());
+    }
+
+    @Test
+    public void testSharedPrefixesAreWrittenOnce() throws Exception
+    {
+        String prefix = "/alfresco-access/transaction/properties/add/";
+        Map<String, Serializable> values = new HashMap<>();
+        for (int i = 0; i < 100; i++)
+        {
+            values.put(prefix + i, "x");
+        }
+
+        byte[] bytes = serialize(new CompactAuditValues(values));
+
+        assertTrue("Paths should be front coded: " + bytes.length, bytes.length < 100 * prefix.length());
+        assertEquals(values, deserialize(bytes).toMap());
+    }
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        CompactAuditValues read = roundTrip(new CompactAuditValues(new HashMap<>()));
+
+        assertEquals(0, read.size());
+        assertTrue(read.toMap().isEmpty());
+    }
+
+    private static CompactAuditValues roundTrip(CompactAuditValues values) throws Exception
+    {
+        return deserialize(serialize(values));
+    }
+
+    private static byte[] serialize(CompactAuditValues values) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(values);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static CompactAuditValues deserialize(byte[] bytes) throws Exception
+    {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)))
+        {
+            return (CompactAuditValues) in.readObject();
+        }
+    }
+}
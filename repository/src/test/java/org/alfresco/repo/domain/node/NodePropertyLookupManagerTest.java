@@ -0,0 +1,153 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.domain.qname.QNameDAO;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.namespace.NamespacePrefixResolver;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.Pair;
+
+public class NodePropertyLookupManagerTest
+{
+    private static final Long NAME_ID = 1L;
+    private static final Long TITLE_ID = 2L;
+    private static final Long DESCRIPTION_ID = 3L;
+    private static final Long NODE_ID = 10L;
+
+    private NodePropertyLookupDAO nodePropertyLookupDAO;
+    private QNameDAO qnameDAO;
+    private NodePropertyLookupManager manager;
+
+    @Before
+    public void setUp()
+    {
+        nodePropertyLookupDAO = mock(NodePropertyLookupDAO.class);
+        qnameDAO = mock(QNameDAO.class);
+        when(qnameDAO.getQName(ContentModel.PROP_NAME)).thenReturn(new Pair<>(NAME_ID, ContentModel.PROP_NAME));
+        when(qnameDAO.getQName(NAME_ID)).thenReturn(new Pair<>(NAME_ID, ContentModel.PROP_NAME));
+        when(qnameDAO.getQName(DESCRIPTION_ID)).thenReturn(new Pair<>(DESCRIPTION_ID, ContentModel.PROP_DESCRIPTION));
+        NamespacePrefixResolver namespacePrefixResolver = mock(NamespacePrefixResolver.class);
+        when(namespacePrefixResolver.getNamespaceURI(NamespaceService.CONTENT_MODEL_PREFIX)).thenReturn(NamespaceService.CONTENT_MODEL_1_0_URI);
+        TransactionService transactionService = mock(TransactionService.class);
+        RetryingTransactionHelper txnHelper = mock(RetryingTransactionHelper.class);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class), anyBoolean(), anyBoolean()))
+                .thenAnswer(invocation -> ((RetryingTransactionCallback<?>) invocation.getArgument(0)).execute());
+
+        manager = new NodePropertyLookupManager();
+        manager.setNodePropertyLookupDAO(nodePropertyLookupDAO);
+        manager.setQnameDAO(qnameDAO);
+        manager.setNamespacePrefixResolver(namespacePrefixResolver);
+        manager.setTransactionService(transactionService);
+        manager.setProperties("cm:name, cm:title");
+    }
+
+    @Test
+    public void testCopiesOnlyTheDeclaredProperties()
+    {
+        manager.onNodePropertiesWritten(NODE_ID, Arrays.asList(NAME_ID, DESCRIPTION_ID));
+
+        verify(nodePropertyLookupDAO).deleteNodePropertyLookups(NODE_ID, Collections.singleton(NAME_ID));
+        verify(nodePropertyLookupDAO).insertNodePropertyLookups(NODE_ID, Collections.singleton(NAME_ID));
+        assertTrue("Not used before being checked", manager.getQueryableQNameIds().isEmpty());
+    }
+
+    @Test
+    public void testIgnoresUndeclaredProperties()
+    {
+        manager.onNodePropertiesWritten(NODE_ID, Collections.singleton(DESCRIPTION_ID));
+        manager.onNodePropertiesDeleted(NODE_ID, Collections.singleton(DESCRIPTION_ID));
+
+        verify(nodePropertyLookupDAO, never()).insertNodePropertyLookups(any(), anySet());
+        verify(nodePropertyLookupDAO, never()).deleteNodePropertyLookups(any(), anySet());
+    }
+
+    @Test
+    public void testSynchronizeRebuildsIncompletePropertiesAndDropsUndeclaredOnes()
+    {
+        Long droppedId = 5L;
+        when(nodePropertyLookupDAO.selectNodePropertyLookupQNameIds()).thenReturn(Arrays.asList(NAME_ID, droppedId));
+        when(nodePropertyLookupDAO.countNodeProperties(NAME_ID)).thenReturn(4L);
+        when(nodePropertyLookupDAO.countNodePropertyLookups(NAME_ID)).thenReturn(3L);
+
+        manager.synchronize();
+
+        verify(nodePropertyLookupDAO).deleteNodePropertyLookups(null, Collections.singleton(droppedId));
+        verify(nodePropertyLookupDAO).deleteNodePropertyLookups(null, Collections.singleton(NAME_ID));
+        verify(nodePropertyLookupDAO).insertNodePropertyLookups(null, Collections.singleton(NAME_ID));
+        assertEquals(Collections.singleton(NAME_ID), manager.getQueryableQNameIds());
+    }
+
+    @Test
+    public void testSynchronizeKeepsCompleteProperties()
+    {
+        when(nodePropertyLookupDAO.selectNodePropertyLookupQNameIds()).thenReturn(Collections.singletonList(NAME_ID));
+        when(nodePropertyLookupDAO.countNodeProperties(anyLong())).thenReturn(4L);
+        when(nodePropertyLookupDAO.countNodePropertyLookups(anyLong())).thenReturn(4L);
+
+        manager.synchronize();
+
+        verify(nodePropertyLookupDAO, never()).insertNodePropertyLookups(any(), anySet());
+        assertEquals(Collections.singleton(NAME_ID), manager.getQueryableQNameIds());
+    }
+
+    @Test
+    public void testPropertyCreatedAfterSynchronizingIsUsedStraightAway()
+    {
+        when(nodePropertyLookupDAO.selectNodePropertyLookupQNameIds()).thenReturn(Collections.emptyList());
+        manager.synchronize();
+        when(qnameDAO.getQName(TITLE_ID)).thenReturn(new Pair<>(TITLE_ID, ContentModel.PROP_TITLE));
+
+        manager.onNodePropertiesWritten(NODE_ID, Collections.singleton(TITLE_ID));
+
+        verify(nodePropertyLookupDAO).insertNodePropertyLookups(NODE_ID, Collections.singleton(TITLE_ID));
+        Set<Long> queryable = manager.getQueryableQNameIds();
+        assertEquals(2, queryable.size());
+        assertTrue(queryable.contains(TITLE_ID));
+    }
+}
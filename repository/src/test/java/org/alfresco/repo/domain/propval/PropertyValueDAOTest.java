@@ -648,6 +648,47 @@ public class PropertyValueDAOTest
         runPropertyTest(list);
     }
 
+    @Test
+    public void testProperty_GetManyById() throws Exception
+    {
+        final List<Serializable> values = new ArrayList<Serializable>(3);
+        values.add("STRING-" + GUID.generate());
+        values.add(new ArrayList<String>(Arrays.asList("COLL-VALUE-1", "COLL-VALUE-2")));
+        HashMap<String, Serializable> map = new HashMap<String, Serializable>(5);
+        map.put("MAP-KEY-1", Long.valueOf(1L));
+        map.put("MAP-KEY-2", new Date());
+        values.add(map);
+        final List<Long> ids = new ArrayList<Long>(3);
+        for (Serializable value : values)
+        {
+            ids.add(runPropertyTest(value));
+        }
+
+        RetryingTransactionCallback<Map<Long, Serializable>> getManyCallback = new RetryingTransactionCallback<Map<Long, Serializable>>() {
+            public Map<Long, Serializable> execute() throws Throwable
+            {
+                // Include a duplicate and an ID that does not exist
+                List<Long> lookupIds = new ArrayList<Long>(ids);
+                lookupIds.add(ids.get(0));
+                lookupIds.add(Long.MAX_VALUE);
+                return propertyValueDAO.getPropertiesByIds(lookupIds);
+            }
+        };
+        Map<Long, Serializable> valuesById = txnHelper.doInTransaction(getManyCallback, true);
+        assertEquals("Incorrect number of properties found", 3, valuesById.size());
+        for (int i = 0; i < ids.size(); i++)
+        {
+            assertEquals("Value was not retrieved correctly", values.get(i), valuesById.get(ids.get(i)));
+        }
+        // A second time, when the values are cached
+        valuesById = txnHelper.doInTransaction(getManyCallback, true);
+        assertEquals("Incorrect number of properties found", 3, valuesById.size());
+        for (int i = 0; i < ids.size(); i++)
+        {
+            assertEquals("Value was not retrieved correctly", values.get(i), valuesById.get(ids.get(i)));
+        }
+    }
+
     @Test
     public void testProperty_UpdateCollection() throws Exception
     {
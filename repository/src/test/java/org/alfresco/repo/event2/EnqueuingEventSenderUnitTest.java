@@ -28,6 +28,7 @@ package org.alfresco.repo.event2;
 import static java.lang.Thread.sleep;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -39,15 +40,19 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -64,6 +69,9 @@ public class EnqueuingEventSenderUnitTest
     private List<RepoEvent<?>> recordedEvents;
     private Map<String, RepoEvent<?>> events;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void setup()
     {
@@ -223,6 +231,136 @@ public class EnqueuingEventSenderUnitTest
         assertEquals("C", recordedEvents.get(1).getId());
     }
 
+    @Test
+    public void shouldCollectMetricsForSentEvents() throws Exception
+    {
+        eventSender.accept(messageWithDelay("A", 0l));
+        eventSender.accept(messageWithDelay("B", 0l));
+
+        sleep(150l);
+
+        assertEquals(2, eventSender.getSentCount());
+        assertEquals(0, eventSender.getFailedCount());
+        assertEquals(0, eventSender.getQueueDepth());
+        assertEquals(0, eventSender.getQueueLagMs());
+    }
+
+    @Test
+    public void shouldDropEventsWhenQueueIsFullAndPolicyIsDrop() throws Exception
+    {
+        CountDownLatch brokerBlocked = blockBrokerOn("A");
+        EnqueuingEventSender dropSender = new EnqueuingEventSender(bus, enqueuePool, dequeuePool, 1, EnqueuingEventSender.OverflowPolicy.DROP, 1, null);
+        dropSender.initialize();
+
+        dropSender.accept(messageWithDelay("A", 0l));
+        sleep(100l);
+        dropSender.accept(messageWithDelay("B", 0l));
+        dropSender.accept(messageWithDelay("C", 0l));
+        brokerBlocked.countDown();
+
+        sleep(150l);
+
+        assertEquals(2, recordedEvents.size());
+        assertEquals("A", recordedEvents.get(0).getId());
+        assertEquals("B", recordedEvents.get(1).getId());
+        assertEquals(1, dropSender.getDroppedCount());
+    }
+
+    @Test
+    public void shouldSpillEventsWhenQueueIsFullAndSendThemInOrder() throws Exception
+    {
+        List<String> sentIds = new CopyOnWriteArrayList<>();
+        when(bus.serialize(any())).thenAnswer(invocation -> ((RepoEvent<?>) invocation.getArgument(0)).getId());
+        CountDownLatch brokerBlocked = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            Object event = invocation.getArgument(0);
+            String id = (event instanceof String) ? (String) event : ((RepoEvent<?>) event).getId();
+            if ("A".equals(id))
+            {
+                brokerBlocked.await();
+            }
+            sentIds.add(id);
+            return null;
+        }).when(bus).send(any());
+
+        EventSpillJournal journal = new EventSpillJournal(temporaryFolder.newFolder());
+        EnqueuingEventSender spillSender = new EnqueuingEventSender(bus, enqueuePool, dequeuePool, 1, EnqueuingEventSender.OverflowPolicy.SPILL, 10, journal);
+        spillSender.initialize();
+
+        spillSender.accept(messageWithDelay("A", 0l));
+        sleep(100l);
+        spillSender.accept(messageWithDelay("B", 0l));
+        spillSender.accept(messageWithDelay("C", 0l));
+        spillSender.accept(messageWithDelay("D", 0l));
+        assertEquals(2, spillSender.getSpilledCount());
+        assertEquals(2, spillSender.getSpillDepth());
+        brokerBlocked.countDown();
+
+        sleep(1500l);
+
+        assertEquals(List.of("A", "B", "C", "D"), sentIds);
+        assertEquals(0, spillSender.getSpillDepth());
+        assertTrue(journal.isEmpty());
+        spillSender.destroy();
+    }
+
+    @Test
+    public void shouldKeepSpilledEventInJournalUntilItIsSent() throws Exception
+    {
+        List<String> sentIds = new CopyOnWriteArrayList<>();
+        AtomicBoolean failNextSendOfC = new AtomicBoolean(true);
+        when(bus.serialize(any())).thenAnswer(invocation -> ((RepoEvent<?>) invocation.getArgument(0)).getId());
+        CountDownLatch brokerBlocked = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            Object event = invocation.getArgument(0);
+            String id = (event instanceof String) ? (String) event : ((RepoEvent<?>) event).getId();
+            if ("A".equals(id))
+            {
+                brokerBlocked.await();
+            }
+            if ("C".equals(id) && failNextSendOfC.getAndSet(false))
+            {
+                throw new RuntimeException("Broker unavailable");
+            }
+            sentIds.add(id);
+            return null;
+        }).when(bus).send(any());
+
+        EventSpillJournal journal = new EventSpillJournal(temporaryFolder.newFolder());
+        EnqueuingEventSender spillSender = new EnqueuingEventSender(bus, enqueuePool, dequeuePool, 1, EnqueuingEventSender.OverflowPolicy.SPILL, 10, journal);
+        spillSender.initialize();
+
+        spillSender.accept(messageWithDelay("A", 0l));
+        sleep(100l);
+        spillSender.accept(messageWithDelay("B", 0l));
+        spillSender.accept(messageWithDelay("C", 0l));
+        spillSender.accept(messageWithDelay("D", 0l));
+        brokerBlocked.countDown();
+
+        sleep(2500l);
+
+        // C failed once and was sent again from the journal, without losing or reordering anything
+        assertEquals(List.of("A", "B", "C", "D"), sentIds);
+        assertEquals(1, spillSender.getFailedCount());
+        assertTrue(journal.isEmpty());
+        spillSender.destroy();
+    }
+
+    private CountDownLatch blockBrokerOn(String id)
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            RepoEvent<?> event = invocation.getArgument(0, RepoEvent.class);
+            if (id.equals(event.getId()))
+            {
+                latch.await();
+            }
+            recordedEvents.add(event);
+            return null;
+        }).when(bus).send(any());
+        return latch;
+    }
+
     private Callable<Optional<RepoEvent<?>>> messageWithDelay(String id, long delay)
     {
         return new Callable<Optional<RepoEvent<?>>>() {
@@ -26,16 +26,22 @@
 package org.alfresco.repo.event2;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
+import java.io.Serializable;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Before;
@@ -43,8 +49,10 @@ import org.junit.Test;
 
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.event.v1.model.EventType;
+import org.alfresco.repo.event.v1.model.NodeResource;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
 
 public class EventConsolidatorUnitTest
 {
@@ -370,4 +378,101 @@ public class EventConsolidatorUnitTest
         assertTrue("Node event consolidator should contain event type: NODE_UPDATED", eventConsolidator.getEventTypes().contains(EventType.NODE_UPDATED));
         assertEquals(secondaryParentsMock, eventConsolidator.getSecondaryParentsBefore());
     }
+
+    @Test
+    public void testOnCreateNodeDoesNotBuildResource()
+    {
+        ChildAssociationRef associationMock = mock(ChildAssociationRef.class);
+        NodeRef nodeRefMock = mock(NodeRef.class);
+        given(associationMock.getChildRef()).willReturn(nodeRefMock);
+
+        eventConsolidator.onCreateNode(associationMock);
+
+        then(nodeResourceHelper).should().getNodeType(nodeRefMock);
+        then(nodeResourceHelper).should(never()).getProperties(any(NodeRef.class));
+        then(nodeResourceHelper).should(never()).createNodeResourceBuilder(any(NodeRef.class));
+        assertNull(eventConsolidator.getChangedPropertiesBefore());
+    }
+
+    @Test
+    public void testOnUpdatePropertiesRecordsChangedPropertiesOnly()
+    {
+        NodeRef nodeRefMock = mock(NodeRef.class);
+        Map<QName, Serializable> before = new HashMap<>();
+        before.put(ContentModel.PROP_NAME, "name");
+        before.put(ContentModel.PROP_TITLE, "title");
+        Map<QName, Serializable> after = new HashMap<>(before);
+        after.put(ContentModel.PROP_TITLE, "new title");
+        after.put(ContentModel.PROP_DESCRIPTION, "description");
+
+        eventConsolidator.onUpdateProperties(nodeRefMock, before, after);
+
+        then(nodeResourceHelper).should(never()).createNodeResourceBuilder(any(NodeRef.class));
+        Map<QName, Serializable> changed = eventConsolidator.getChangedPropertiesBefore();
+        assertEquals(2, changed.size());
+        assertEquals("title", changed.get(ContentModel.PROP_TITLE));
+        assertTrue(changed.containsKey(ContentModel.PROP_DESCRIPTION));
+        assertNull(changed.get(ContentModel.PROP_DESCRIPTION));
+    }
+
+    @Test
+    public void testOnUpdatePropertiesKeepsOriginalValue()
+    {
+        NodeRef nodeRefMock = mock(NodeRef.class);
+        Map<QName, Serializable> first = Map.of(ContentModel.PROP_TITLE, "title");
+        Map<QName, Serializable> second = Map.of(ContentModel.PROP_TITLE, "title 2");
+        Map<QName, Serializable> third = Map.of(ContentModel.PROP_TITLE, "title 3");
+
+        eventConsolidator.onUpdateProperties(nodeRefMock, first, second);
+        eventConsolidator.onUpdateProperties(nodeRefMock, second, third);
+
+        assertEquals("title", eventConsolidator.getChangedPropertiesBefore().get(ContentModel.PROP_TITLE));
+    }
+
+    @Test
+    public void testRevertedPropertyIsNotInResourceBefore()
+    {
+        NodeRef nodeRefMock = mock(NodeRef.class);
+        Map<QName, Serializable> original = Map.of(ContentModel.PROP_TITLE, "title");
+        Map<QName, Serializable> changed = Map.of(ContentModel.PROP_TITLE, "new title");
+
+        eventConsolidator.onUpdateProperties(nodeRefMock, original, changed);
+        eventConsolidator.onUpdateProperties(nodeRefMock, changed, original);
+        eventConsolidator.buildNodeResourceBeforeDelta(NodeResource.builder().build());
+
+        then(nodeResourceHelper).should(never()).mapToNodeProperties(any());
+        assertTrue("Reverted property should not be in the resource before", eventConsolidator.isResourceBeforeAllFieldsNull());
+    }
+
+    @Test
+    public void testBeforeDeleteNodeCapturesResource()
+    {
+        NodeRef nodeRefMock = mock(NodeRef.class);
+        given(nodeResourceHelper.createNodeResourceBuilder(nodeRefMock)).willReturn(NodeResource.builder().setId("node-id"));
+
+        eventConsolidator.onUpdateProperties(nodeRefMock, Map.of(), Map.of());
+        then(nodeResourceHelper).should(never()).createNodeResourceBuilder(any(NodeRef.class));
+
+        eventConsolidator.beforeDeleteNode(nodeRefMock);
+        then(nodeResourceHelper).should().createNodeResourceBuilder(nodeRefMock);
+
+        NodeResource resource = eventConsolidator.getRepoEvent(new EventInfo().setId("event-id")).getData().getResource();
+        assertEquals("node-id", resource.getId());
+        then(nodeResourceHelper).should(never()).nodeExists(any(NodeRef.class));
+    }
+
+    @Test
+    public void testTemporaryNodeDoesNotBuildResource()
+    {
+        ChildAssociationRef associationMock = mock(ChildAssociationRef.class);
+        NodeRef nodeRefMock = mock(NodeRef.class);
+        given(associationMock.getChildRef()).willReturn(nodeRefMock);
+
+        eventConsolidator.onCreateNode(associationMock);
+        eventConsolidator.beforeDeleteNode(nodeRefMock);
+
+        assertTrue(eventConsolidator.isTemporaryEntity());
+        assertFalse(eventConsolidator.getEventTypes().isEmpty());
+        then(nodeResourceHelper).should(never()).createNodeResourceBuilder(any(NodeRef.class));
+    }
 }
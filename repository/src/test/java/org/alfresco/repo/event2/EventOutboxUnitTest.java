@@ -0,0 +1,224 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.event2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.alfresco.repo.event2.EventOutbox.OutboxEvent;
+
+public class EventOutboxUnitTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void setup() throws Exception
+    {
+        directory = temporaryFolder.newFolder();
+    }
+
+    @Test
+    public void shouldAssignSequenceNumbersInCommitOrder()
+    {
+        EventOutbox outbox = new EventOutbox(directory, 1024 * 1024, 100, 100);
+        outbox.prepare(1, "A1");
+        outbox.prepare(2, "B1");
+        outbox.prepare(1, "A2");
+        outbox.prepare(3, "C1");
+
+        assertEquals(1, outbox.commit(2));
+        outbox.rollback(3);
+        assertEquals(2, outbox.commit(1));
+
+        List<OutboxEvent> events = outbox.nextToDispatch(10);
+        assertEquals(List.of("B1", "A1", "A2"), payloads(events));
+        assertEquals(List.of(1L, 2L, 3L), events.stream().map(OutboxEvent::getSequence).collect(Collectors.toList()));
+        assertEquals(3, outbox.getLastSequence());
+        outbox.close();
+    }
+
+    @Test
+    public void shouldReplayFromAnyOffsetWithoutSideEffects()
+    {
+        EventOutbox outbox = new EventOutbox(directory, 1024 * 1024, 100, 100);
+        for (int i = 1; i <= 5; i++)
+        {
+            outbox.prepare(i, "E" + i);
+            outbox.commit(i);
+        }
+        outbox.markDispatched(5);
+
+        assertEquals(List.of("E3", "E4"), payloads(outbox.read(3, 2)));
+        assertEquals(List.of("E3", "E4"), payloads(outbox.read(3, 2)));
+        assertEquals(List.of("E5"), payloads(outbox.read(5, 10)));
+        assertTrue(outbox.read(6, 10).isEmpty());
+        assertTrue(outbox.nextToDispatch(10).isEmpty());
+        outbox.close();
+    }
+
+    @Test
+    public void shouldRecoverUndispatchedEventsAndResolvePreparedTransactions() throws Exception
+    {
+        EventOutbox outbox = new EventOutbox(directory, 1024 * 1024, 100, 100);
+        outbox.prepare(1, "A");
+        outbox.commit(1);
+        outbox.prepare(2, "B");
+        outbox.commit(2);
+        outbox.markDispatched(1);
+        // Transactions 3 and 4 crash after forcing their events but before recording the outcome
+        outbox.prepare(3, "C");
+        outbox.prepare(4, "D");
+        outbox.force();
+        outbox.close();
+
+        EventOutbox reopened = new EventOutbox(directory, 1024 * 1024, 100, 100);
+        assertEquals(1, reopened.getDispatchedSequence());
+        assertEquals(List.of("B"), payloads(reopened.nextToDispatch(10)));
+
+        assertEquals(2, reopened.resolveRecovered(txnId -> txnId == 4));
+        assertEquals(List.of("B", "D"), payloads(reopened.nextToDispatch(10)));
+        assertEquals(3, reopened.getLastSequence());
+        reopened.close();
+    }
+
+    @Test
+    public void shouldDiscardTornRecordOnRecovery() throws Exception
+    {
+        EventOutbox outbox = new EventOutbox(directory, 1024 * 1024, 100, 100);
+        outbox.prepare(1, "A");
+        outbox.commit(1);
+        outbox.close();
+
+        File segment = directory.listFiles((dir, name) -> name.startsWith(EventOutbox.SEGMENT_PREFIX))[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw"))
+        {
+            file.seek(file.length());
+            file.writeInt(64);
+            file.writeInt(0);
+            file.write(new byte[]{1, 2, 3});
+        }
+
+        EventOutbox reopened = new EventOutbox(directory, 1024 * 1024, 100, 100);
+        reopened.prepare(2, "B");
+        reopened.commit(2);
+        assertEquals(List.of("A", "B"), payloads(reopened.read(1, 10)));
+        reopened.close();
+    }
+
+    @Test
+    public void shouldDeleteSegmentsOnceDispatchedAndOutsideRetention()
+    {
+        EventOutbox outbox = new EventOutbox(directory, 64, 2, 100);
+        for (int i = 1; i <= 10; i++)
+        {
+            outbox.prepare(i, "Event" + i);
+            outbox.commit(i);
+        }
+        int segments = outbox.getSegmentCount();
+        assertTrue(segments > 2);
+
+        outbox.markDispatched(10);
+
+        assertTrue(outbox.getSegmentCount() < segments);
+        assertTrue(outbox.getFirstRetainedSequence() <= 9);
+        assertEquals(List.of("Event9", "Event10"), payloads(outbox.read(9, 10)));
+        outbox.close();
+    }
+
+    @Test
+    public void shouldReadBackFromDiskWhenBufferOverflows()
+    {
+        EventOutbox outbox = new EventOutbox(directory, 1024 * 1024, 100, 2);
+        for (int i = 1; i <= 5; i++)
+        {
+            outbox.prepare(i, "E" + i);
+            outbox.commit(i);
+        }
+
+        List<OutboxEvent> first = outbox.nextToDispatch(10);
+        assertEquals(List.of("E1", "E2"), payloads(first));
+        outbox.markDispatched(2);
+        assertEquals(List.of("E3", "E4", "E5"), payloads(outbox.nextToDispatch(10)));
+        outbox.markDispatched(5);
+
+        outbox.prepare(6, "E6");
+        outbox.commit(6);
+        assertEquals(List.of("E6"), payloads(outbox.nextToDispatch(10)));
+        outbox.close();
+    }
+
+    @Test
+    public void shouldCarryOnReadingBackFromWhereThePreviousBatchStopped()
+    {
+        EventOutbox outbox = new EventOutbox(directory, 64, 0, 2);
+        // Prepared before the overflow, committed while the events are read back from disk
+        outbox.prepare(100, "Late");
+        for (int i = 1; i <= 6; i++)
+        {
+            outbox.prepare(i, "E" + i);
+            outbox.commit(i);
+        }
+        assertTrue(outbox.getSegmentCount() > 2);
+
+        assertEquals(List.of("E1", "E2"), payloads(outbox.nextToDispatch(2)));
+        outbox.markDispatched(2);
+        assertEquals(List.of("E3", "E4"), payloads(outbox.nextToDispatch(2)));
+        assertEquals(List.of("E3", "E4"), payloads(outbox.nextToDispatch(2)));
+        outbox.markDispatched(4);
+
+        outbox.commit(100);
+        outbox.prepare(7, "E7");
+        outbox.commit(7);
+        assertEquals(List.of("E5", "E6"), payloads(outbox.nextToDispatch(2)));
+        outbox.markDispatched(6);
+        assertEquals(List.of("Late", "E7"), payloads(outbox.nextToDispatch(10)));
+        outbox.markDispatched(8);
+        assertTrue(outbox.nextToDispatch(10).isEmpty());
+
+        outbox.prepare(8, "E8");
+        outbox.commit(8);
+        assertEquals(List.of("E8"), payloads(outbox.nextToDispatch(10)));
+        outbox.close();
+    }
+
+    private static List<String> payloads(List<OutboxEvent> events)
+    {
+        return events.stream().map(OutboxEvent::getPayload).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.event2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventSpillJournalUnitTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadEntriesInAppendOrder() throws Exception
+    {
+        EventSpillJournal journal = new EventSpillJournal(temporaryFolder.newFolder());
+        journal.append("{\"id\":\"A\"}");
+        journal.append("{\"id\":\"B\",\"name\":\"\u00e9t\u00e9\"}");
+        journal.append("{\"id\":\"C\"}");
+        assertEquals(3, journal.size());
+
+        assertEquals(List.of("{\"id\":\"A\"}", "{\"id\":\"B\",\"name\":\"\u00e9t\u00e9\"}"), journal.peek(2));
+        journal.commit(2);
+        assertEquals(1, journal.size());
+
+        journal.append("{\"id\":\"D\"}");
+        assertEquals(List.of("{\"id\":\"C\"}", "{\"id\":\"D\"}"), journal.peek(10));
+        journal.commit(2);
+        assertTrue(journal.isEmpty());
+        assertTrue(journal.peek(10).isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void shouldOnlyConsumeCommittedEntries() throws Exception
+    {
+        EventSpillJournal journal = new EventSpillJournal(temporaryFolder.newFolder());
+        journal.append("A");
+        journal.append("B");
+        journal.append("C");
+
+        // Peeking again without a commit returns the same entries, as after a failed send
+        assertEquals(List.of("A", "B"), journal.peek(2));
+        assertEquals(List.of("A", "B"), journal.peek(2));
+        assertEquals(3, journal.size());
+
+        // Only the entry that was sent is consumed
+        journal.commit(1);
+        assertEquals(List.of("B", "C"), journal.peek(10));
+        journal.close();
+    }
+
+    @Test
+    public void shouldTruncateFileOnceDrained() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        EventSpillJournal journal = new EventSpillJournal(directory);
+        journal.append("A");
+        journal.append("B");
+        journal.commit(2);
+
+        assertEquals(EventSpillJournal.HEADER_SIZE, new File(directory, EventSpillJournal.JOURNAL_FILE_NAME).length());
+        journal.close();
+    }
+
+    @Test
+    public void shouldResumeFromCommittedReadPositionAfterRestart() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        EventSpillJournal journal = new EventSpillJournal(directory);
+        journal.append("A");
+        journal.append("B");
+        journal.append("C");
+        journal.commit(1);
+        // Peeked but not committed when the process stops
+        journal.peek(1);
+        journal.close();
+
+        EventSpillJournal reopened = new EventSpillJournal(directory);
+        assertEquals(2, reopened.size());
+        assertEquals(List.of("B", "C"), reopened.peek(10));
+        reopened.close();
+    }
+
+    @Test
+    public void shouldCompactConsumedEntriesWhileBacklogPersists() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        File file = new File(directory, EventSpillJournal.JOURNAL_FILE_NAME);
+        EventSpillJournal journal = new EventSpillJournal(directory, 100);
+        for (int i = 0; i < 20; i++)
+        {
+            journal.append("event-" + i);
+        }
+        long fullLength = file.length();
+
+        // Consume enough to go past the threshold while always leaving a backlog
+        journal.commit(15);
+        assertTrue("The consumed head should have been compacted away", journal.length() < fullLength);
+        assertEquals(journal.length(), file.length());
+        assertFalse(new File(directory, EventSpillJournal.COMPACT_FILE_NAME).exists());
+        assertEquals(5, journal.size());
+
+        journal.append("event-20");
+        assertEquals(List.of("event-15", "event-16", "event-17", "event-18", "event-19", "event-20"), journal.peek(10));
+        journal.close();
+
+        // The compacted journal is read back from its own start after a restart
+        EventSpillJournal reopened = new EventSpillJournal(directory, 100);
+        assertEquals(6, reopened.size());
+        assertEquals(List.of("event-15", "event-16"), reopened.peek(2));
+        reopened.close();
+    }
+
+    @Test
+    public void shouldRecoverEntriesAndDiscardIncompleteTrailingRecord() throws Exception
+    {
+        File directory = temporaryFolder.newFolder();
+        EventSpillJournal journal = new EventSpillJournal(directory);
+        journal.append("A");
+        journal.append("B");
+        journal.close();
+
+        // Simulate a crash while writing a third record
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, EventSpillJournal.JOURNAL_FILE_NAME), "rw"))
+        {
+            file.seek(file.length());
+            file.writeInt(100);
+            file.write(new byte[]{'C'});
+        }
+
+        EventSpillJournal reopened = new EventSpillJournal(directory);
+        assertEquals(2, reopened.size());
+        reopened.append("D");
+        assertEquals(List.of("A", "B", "D"), reopened.peek(10));
+        reopened.close();
+    }
+}
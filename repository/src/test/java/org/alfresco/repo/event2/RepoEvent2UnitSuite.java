@@ -34,6 +34,8 @@ import org.junit.runners.Suite.SuiteClasses;
         EventConsolidatorUnitTest.class,
         EventJSONSchemaUnitTest.class,
         EnqueuingEventSenderUnitTest.class,
+        EventSpillJournalUnitTest.class,
+        EventOutboxUnitTest.class,
         NodeResourceHelperUnitTest.class,
         PropertyMapperUnitTest.class,
         QNameMatcherUnitTest.class,
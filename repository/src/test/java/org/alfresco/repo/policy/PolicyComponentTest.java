@@ -27,7 +27,9 @@ package org.alfresco.repo.policy;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import junit.framework.TestCase;
@@ -38,6 +40,8 @@ import org.alfresco.repo.dictionary.DictionaryComponent;
 import org.alfresco.repo.dictionary.DictionaryDAOImpl;
 import org.alfresco.repo.tenant.SingleTServiceImpl;
 import org.alfresco.repo.tenant.TenantService;
+import org.alfresco.repo.tenant.TenantUtil;
+import org.alfresco.repo.tenant.TenantUtil.TenantRunAsWork;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.ThreadPoolExecutorFactoryBean;
 import org.alfresco.util.cache.DefaultAsynchronouslyRefreshedCacheRegistry;
@@ -357,6 +361,90 @@ public class PolicyComponentTest extends TestCase
         assertEquals("Folder: folder", folderResult4);
     }
 
+    @SuppressWarnings("unchecked")
+    public void testClassSetDispatchTable()
+    {
+        // Register Policy
+        ClassPolicyDelegate<TestClassPolicy> delegate = policyComponent.registerClassPolicy(TestClassPolicy.class);
+
+        // Bind Behaviour
+        QName policyName = QName.createQName(TEST_NAMESPACE, "test");
+        Behaviour fileBehaviour = new JavaBehaviour(this, "fileTest");
+        policyComponent.bindClassBehaviour(policyName, FILE_TYPE, fileBehaviour);
+
+        // Dispatch against a type plus aspect signature
+        Set<QName> classQNames = new HashSet<QName>();
+        classQNames.add(FILE_TYPE);
+        classQNames.add(TEST_ASPECT);
+        TestClassPolicy policy = delegate.get(classQNames);
+        assertEquals("File: file", policy.test("file"));
+        assertEquals(1, delegate.getDispatchTableSize(TenantService.DEFAULT_DOMAIN));
+
+        // An equal signature must resolve to the same precompiled policy
+        Set<QName> sameClassQNames = new HashSet<QName>(classQNames);
+        assertTrue(policy == delegate.get(sameClassQNames));
+
+        // Mutating the caller's set must not corrupt the table
+        classQNames.remove(TEST_ASPECT);
+        assertTrue(policy == delegate.get(sameClassQNames));
+        assertEquals(1, delegate.getList(sameClassQNames).size());
+
+        // Bind new behaviour (forcing dispatch table reset)
+        Behaviour aspectBehaviour = new JavaBehaviour(this, "aspectTest");
+        policyComponent.bindClassBehaviour(policyName, TEST_ASPECT, aspectBehaviour);
+        assertEquals(0, delegate.getDispatchTableSize(TenantService.DEFAULT_DOMAIN));
+        TestClassPolicy policy2 = delegate.get(sameClassQNames);
+        assertTrue(policy2 != policy);
+        assertEquals(2, ((PolicyList<TestClassPolicy>) policy2).getPolicies().size());
+
+        // Explicit invalidation (as on dictionary reload)
+        delegate.invalidateDispatchTable();
+        assertEquals(0, delegate.getDispatchTableSize(TenantService.DEFAULT_DOMAIN));
+        assertTrue(policy2 != delegate.get(sameClassQNames));
+    }
+
+    public void testClassSetDispatchTablePerTenant()
+    {
+        final ClassPolicyDelegate<TestClassPolicy> delegate = policyComponent.registerClassPolicy(TestClassPolicy.class);
+        QName policyName = QName.createQName(TEST_NAMESPACE, "test");
+        policyComponent.bindClassBehaviour(policyName, FILE_TYPE, new JavaBehaviour(this, "fileTest"));
+
+        final Set<QName> classQNames = new HashSet<QName>();
+        classQNames.add(FILE_TYPE);
+        classQNames.add(TEST_ASPECT);
+        TestClassPolicy defaultPolicy = delegate.get(classQNames);
+
+        // Each tenant dispatches through its own table, as each tenant has its own dictionary
+        TestClassPolicy tenantPolicy = TenantUtil.runAsTenant(new TenantRunAsWork<TestClassPolicy>() {
+            public TestClassPolicy doWork() throws Exception
+            {
+                return delegate.get(classQNames);
+            }
+        }, "acme.com");
+        assertTrue(tenantPolicy != defaultPolicy);
+        assertEquals("File: file", tenantPolicy.test("file"));
+        assertEquals(1, delegate.getDispatchTableSize(TenantService.DEFAULT_DOMAIN));
+        assertEquals(1, delegate.getDispatchTableSize("acme.com"));
+
+        // A tenant's dictionary change only discards that tenant's table
+        PolicyComponentImpl policyComponentImpl = (PolicyComponentImpl) policyComponent;
+        policyComponentImpl.invalidateDispatchTables("acme.com");
+        assertEquals(1, delegate.getDispatchTableSize(TenantService.DEFAULT_DOMAIN));
+        assertEquals(0, delegate.getDispatchTableSize("acme.com"));
+        assertTrue(defaultPolicy == delegate.get(classQNames));
+
+        // A core dictionary change is inherited by every tenant
+        TenantUtil.runAsTenant(new TenantRunAsWork<TestClassPolicy>() {
+            public TestClassPolicy doWork() throws Exception
+            {
+                return delegate.get(classQNames);
+            }
+        }, "acme.com");
+        policyComponentImpl.invalidateDispatchTables(TenantService.DEFAULT_DOMAIN);
+        assertEquals(0, delegate.getDispatchTableSize(TenantService.DEFAULT_DOMAIN));
+        assertEquals(0, delegate.getDispatchTableSize("acme.com"));
+    }
+
     public void testPropertyDelegate()
     {
         // Register Policy
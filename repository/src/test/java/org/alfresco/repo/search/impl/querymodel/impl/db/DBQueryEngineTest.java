@@ -32,12 +32,14 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.ibatis.executor.result.DefaultResultContext;
@@ -51,11 +53,17 @@ import org.alfresco.repo.cache.lookup.EntityLookupCache;
 import org.alfresco.repo.domain.node.Node;
 import org.alfresco.repo.domain.node.NodeDAO;
 import org.alfresco.repo.domain.node.StoreEntity;
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.search.impl.querymodel.QueryModelException;
 import org.alfresco.repo.search.impl.querymodel.QueryOptions;
 import org.alfresco.repo.security.permissions.impl.acegi.FilteringResultSet;
+import org.alfresco.service.cmr.dictionary.DataTypeDefinition;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.alfresco.service.cmr.dictionary.PropertyDefinition;
 import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.cmr.search.ResultSet;
 import org.alfresco.service.cmr.search.SearchParameters;
+import org.alfresco.service.cmr.search.SearchParameters.FieldFacet;
 import org.alfresco.util.Pair;
 
 public class DBQueryEngineTest
@@ -212,6 +220,51 @@ public class DBQueryEngineTest
         verify(resultContext).stop();
     }
 
+    @Test
+    public void shouldComputeFieldFacetsOverAllPermittedNodes()
+    {
+        withMaxItems(5);
+        withCreatorFacet();
+        List<Node> nodes = createNodes(20);
+        when(assessor.isIncluded(any(Node.class))).thenReturn(true);
+        when(assessor.isIncluded(nodes.get(0))).thenReturn(false);
+        when(assessor.isIncluded(nodes.get(1))).thenReturn(false);
+        when(assessor.isIncluded(nodes.get(3))).thenReturn(false);
+        when(nodeDAO.getNodeProperty(any(Long.class), eq(ContentModel.PROP_CREATOR)))
+                .thenAnswer(invocation -> ((Long) invocation.getArgument(0)) % 2 == 0 ? "admin" : "abeecher");
+        prepareTemplate(dbQuery, nodes);
+
+        FilteringResultSet result = engine.acceleratedNodeSelection(options, dbQuery, assessor);
+
+        verify(resultContext, never()).stop();
+        assertEquals(Arrays.asList(new Pair<>("admin", 9), new Pair<>("abeecher", 8)),
+                result.getFieldFacet(ContentModel.PROP_CREATOR.toString()));
+    }
+
+    @Test(expected = QueryModelException.class)
+    public void shouldFailWhenTooManyPermittedNodesToComputeFieldFacets()
+    {
+        withMaxItems(5);
+        withCreatorFacet();
+        prepareTemplate(dbQuery, createNodes(20));
+        when(assessor.isIncluded(any(Node.class))).thenReturn(true);
+
+        engine.setMaxFacetedResults(10);
+        engine.acceleratedNodeSelection(options, dbQuery, assessor);
+    }
+
+    @Test(expected = QueryModelException.class)
+    public void shouldFailWhenPermissionChecksStopBeforeFieldFacetsAreComplete()
+    {
+        withMaxItems(5);
+        withCreatorFacet();
+        prepareTemplate(dbQuery, createNodes(20));
+        when(assessor.isIncluded(any(Node.class))).thenReturn(true);
+        when(assessor.shouldQuitChecks()).thenReturn(false, false, true);
+
+        engine.acceleratedNodeSelection(options, dbQuery, assessor);
+    }
+
     private void prepareTemplate(DBQuery dbQuery, List<Node> nodes)
     {
         doAnswer(invocation -> {
@@ -255,6 +308,19 @@ public class DBQueryEngineTest
         when(options.getMaxItems()).thenReturn(maxItems);
     }
 
+    private void withCreatorFacet()
+    {
+        PropertyDefinition propertyDef = mock(PropertyDefinition.class);
+        DataTypeDefinition dataTypeDef = mock(DataTypeDefinition.class);
+        when(dataTypeDef.getName()).thenReturn(DataTypeDefinition.TEXT);
+        when(propertyDef.getDataType()).thenReturn(dataTypeDef);
+        DictionaryService dictionaryService = mock(DictionaryService.class);
+        when(dictionaryService.getProperty(ContentModel.PROP_CREATOR)).thenReturn(propertyDef);
+        engine.setDictionaryService(dictionaryService);
+
+        when(options.getFieldFacets()).thenReturn(Collections.singletonList(new FieldFacet(ContentModel.PROP_CREATOR.toString())));
+    }
+
     private void withSkipCount(int skipCount)
     {
         when(options.getSkipCount()).thenReturn(skipCount);
@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.querymodel.impl.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.search.adaptor.LuceneFunction;
+import org.alfresco.repo.search.impl.querymodel.impl.db.DBQueryIndexAdvisor.IndexAdvice;
+import org.alfresco.repo.search.impl.querymodel.impl.db.DBQueryIndexAdvisor.Reason;
+import org.alfresco.service.namespace.QName;
+
+public class DBQueryIndexAdvisorTest
+{
+    private DBQueryIndexAdvisor advisor;
+
+    @Before
+    public void setup()
+    {
+        advisor = new DBQueryIndexAdvisor();
+        advisor.setEnabled(true);
+    }
+
+    @Test
+    public void shouldIgnorePredicatesServedByTheIndexes()
+    {
+        advisor.recordQuery(query(
+                predicate(ContentModel.PROP_NAME, DBQueryBuilderPredicatePartCommandType.EQUALS, "readme.txt", null),
+                predicate(ContentModel.PROP_TITLE, DBQueryBuilderPredicatePartCommandType.LIKE, "read%", null)), 10);
+
+        assertTrue(advisor.getAdvice().isEmpty());
+    }
+
+    @Test
+    public void shouldSuggestExpressionIndexForFunctions()
+    {
+        advisor.recordQuery(query(predicate(ContentModel.PROP_NAME, DBQueryBuilderPredicatePartCommandType.EQUALS, "readme.txt", LuceneFunction.LOWER)), 10);
+        advisor.recordQuery(query(predicate(ContentModel.PROP_NAME, DBQueryBuilderPredicatePartCommandType.EQUALS, "other.txt", LuceneFunction.LOWER)), 5);
+
+        List<IndexAdvice> advice = advisor.getAdvice();
+        assertEquals(1, advice.size());
+        assertEquals(Reason.FUNCTION, advice.get(0).getReason());
+        assertEquals(2, advice.get(0).getQueryCount());
+        assertEquals(15, advice.get(0).getTotalTimeMs());
+        assertEquals("CREATE INDEX idx_alf_nprop_sl ON alf_node_properties (qname_id, LOWER(string_value), node_id)", advice.get(0).getSuggestedIndex());
+    }
+
+    @Test
+    public void shouldReportScansMostExpensiveFirst()
+    {
+        advisor.recordQuery(query(predicate(ContentModel.PROP_NAME, DBQueryBuilderPredicatePartCommandType.LIKE, "%.txt", null)), 10);
+        advisor.recordQuery(query(predicate(ContentModel.PROP_TITLE, DBQueryBuilderPredicatePartCommandType.NOTEQUALS, "x", null)), 50);
+
+        List<IndexAdvice> advice = advisor.getAdvice();
+        assertEquals(2, advice.size());
+        assertEquals(Reason.NEGATION, advice.get(0).getReason());
+        assertEquals(ContentModel.PROP_TITLE, advice.get(0).getPropertyQName());
+        assertEquals(Reason.LEADING_WILDCARD, advice.get(1).getReason());
+        assertNull(advice.get(1).getSuggestedIndex());
+    }
+
+    @Test
+    public void shouldNotRecordWhenDisabled()
+    {
+        advisor.setEnabled(false);
+        advisor.recordQuery(query(predicate(ContentModel.PROP_NAME, DBQueryBuilderPredicatePartCommandType.ORDER, "ASC", null)), 10);
+
+        assertTrue(advisor.getAdvice().isEmpty());
+    }
+
+    private DBQuery query(DBQueryBuilderPredicatePartCommand... commands)
+    {
+        DBQuery dbQuery = mock(DBQuery.class);
+        when(dbQuery.getPredicateParts()).thenReturn(Arrays.asList(commands));
+        return dbQuery;
+    }
+
+    private DBQueryBuilderPredicatePartCommand predicate(QName propertyQName, DBQueryBuilderPredicatePartCommandType type, String value, LuceneFunction function)
+    {
+        DBQueryBuilderPredicatePartCommand command = new DBQueryBuilderPredicatePartCommand();
+        command.setJoinCommandType(DBQueryBuilderJoinCommandType.PROPERTY);
+        command.setType(type);
+        command.setQName(propertyQName);
+        command.setFieldName("string_value");
+        command.setAlias("PROP");
+        command.setValue(value);
+        command.setFunction(function);
+        return command;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.querymodel.impl.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.alfresco.repo.search.adaptor.LuceneFunction;
+import org.alfresco.repo.search.impl.querymodel.Constraint;
+
+public class DBQueryPropertyLookupTest
+{
+    private static final Long NAME_ID = 1L;
+    private static final Long TITLE_ID = 2L;
+
+    @Test
+    public void shouldLookUpPredicatesOnDeclaredProperties()
+    {
+        DBQueryBuilderPredicatePartCommand name = predicate(NAME_ID, DBQueryBuilderPredicatePartCommandType.EQUALS, "string_value");
+        DBQueryBuilderPredicatePartCommand title = predicate(TITLE_ID, DBQueryBuilderPredicatePartCommandType.EQUALS, "string_value");
+        DBQueryBuilderPredicatePartCommand size = predicate(NAME_ID, DBQueryBuilderPredicatePartCommandType.GT, "double_value");
+        DBQueryBuilderPredicatePartCommand order = predicate(NAME_ID, DBQueryBuilderPredicatePartCommandType.ORDER, "string_value");
+        DBQuery dbQuery = query(name, title, size, order);
+        dbQuery.setLookupQNameIds(new HashSet<>(Collections.singleton(NAME_ID)));
+
+        List<DBQueryBuilderPredicatePartCommand> predicateParts = dbQuery.getPredicateParts();
+
+        assertEquals(4, predicateParts.size());
+        assertEquals("PROPERTY_LOOKUP", name.getJoinCommandType());
+        assertEquals("PROPERTY", title.getJoinCommandType());
+        assertEquals("PROPERTY", size.getJoinCommandType());
+        assertEquals("PROPERTY", order.getJoinCommandType());
+    }
+
+    @Test
+    public void shouldNotLookUpWithoutDeclaredProperties()
+    {
+        DBQueryBuilderPredicatePartCommand name = predicate(NAME_ID, DBQueryBuilderPredicatePartCommandType.EQUALS, "string_value");
+
+        query(name).getPredicateParts();
+
+        assertEquals("PROPERTY", name.getJoinCommandType());
+    }
+
+    @Test
+    public void shouldMatchLowerCaseOnTheLowerCaseColumn()
+    {
+        DBQueryBuilderPredicatePartCommand name = predicate(NAME_ID, DBQueryBuilderPredicatePartCommandType.LIKE, "string_value");
+        name.setFunction(LuceneFunction.LOWER);
+        assertEquals("LOWER( PROP.string_value) ", name.getFieldAndFunction());
+
+        name.setJoinCommandType(DBQueryBuilderJoinCommandType.PROPERTY_LOOKUP);
+        assertEquals("PROP.string_lower", name.getFieldAndFunction());
+
+        name.setFunction(LuceneFunction.UPPER);
+        assertEquals("UPPER( PROP.string_value) ", name.getFieldAndFunction());
+    }
+
+    @SuppressWarnings("unchecked")
+    private DBQuery query(DBQueryBuilderPredicatePartCommand... commands)
+    {
+        Constraint constraint = mock(Constraint.class, withSettings().extraInterfaces(DBQueryBuilderComponent.class));
+        doAnswer(invocation -> ((List<DBQueryBuilderPredicatePartCommand>) invocation.getArgument(0)).addAll(Arrays.asList(commands)))
+                .when((DBQueryBuilderComponent) constraint).buildPredicateCommands(anyList());
+        return new DBQuery(null, null, constraint, null);
+    }
+
+    private DBQueryBuilderPredicatePartCommand predicate(Long qnameId, DBQueryBuilderPredicatePartCommandType type, String fieldName)
+    {
+        DBQueryBuilderPredicatePartCommand command = new DBQueryBuilderPredicatePartCommand();
+        command.setJoinCommandType(DBQueryBuilderJoinCommandType.PROPERTY);
+        command.setType(type);
+        command.setQnameId(qnameId);
+        command.setFieldName(fieldName);
+        command.setAlias("PROP");
+        return command;
+    }
+}
@@ -44,6 +44,7 @@ import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.URI;
 import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
@@ -153,6 +154,20 @@ public class AbstractSolrQueryHTTPClientTest
         assertEquals("Unexpected JSON response received.", "{}", response.toString());
     }
 
+    @Test
+    public void testPostQuery_socketTimeout() throws Exception
+    {
+        HttpMethodParams params = new HttpMethodParams();
+        when(postMethod.getParams()).thenReturn(params);
+        when(body.toString()).thenReturn("Example body");
+        when(postMethod.getStatusCode()).thenReturn(HttpServletResponse.SC_OK);
+        when(postMethod.getResponseBodyAsStream()).thenReturn(convertStringToInputStream("{}"));
+
+        abstractSolrQueryHTTPClient.postQuery(httpClient, URL, body, 1500);
+
+        assertEquals(1500, params.getSoTimeout());
+    }
+
     @Test
     public void testPostQuery_handlesIOException() throws Exception
     {
@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.solr;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.alfresco.util.testing.category.LuceneTests;
+
+/**
+ * Tests merging the responses of the shards of a sharded index.
+ */
+@Category(LuceneTests.class)
+public class SolrShardResponseMergerTest
+{
+    private static final String SHARD_1 = "{\"responseHeader\":{\"status\":0,\"QTime\":5},"
+            + "\"response\":{\"numFound\":3,\"start\":0,\"maxScore\":3.0,\"docs\":[{\"DBID\":1,\"score\":3.0},{\"DBID\":2,\"score\":1.5},{\"DBID\":3,\"score\":0.5}]},"
+            + "\"facet_counts\":{\"facet_queries\":{\"{!afts}TYPE:cm:content\":2},\"facet_fields\":{\"creator\":[\"admin\",2,\"abeecher\",1]}},"
+            + "\"lastIndexedTx\":20,\"processedDenies\":true}";
+
+    private static final String SHARD_2 = "{\"responseHeader\":{\"status\":0,\"QTime\":9},"
+            + "\"response\":{\"numFound\":2,\"start\":0,\"maxScore\":2.0,\"docs\":[{\"DBID\":10,\"score\":2.0},{\"DBID\":11,\"score\":1.5}]},"
+            + "\"facet_counts\":{\"facet_queries\":{\"{!afts}TYPE:cm:content\":1},\"facet_fields\":{\"creator\":[\"mjackson\",2,\"abeecher\",1]}},"
+            + "\"lastIndexedTx\":17,\"processedDenies\":true}";
+
+    @Test
+    public void testDocsMergedByScore() throws JSONException
+    {
+        JSONObject merged = new SolrShardResponseMerger(0, 10).merge(asList(new JSONObject(SHARD_1), new JSONObject(SHARD_2)), 0);
+
+        JSONObject response = merged.getJSONObject("response");
+        assertEquals(5, response.getLong("numFound"));
+        assertEquals(3.0, response.getDouble("maxScore"), 0);
+        // Equal scores keep the shard order
+        assertEquals(asList(1L, 10L, 2L, 11L, 3L), dbids(response.getJSONArray("docs")));
+    }
+
+    @Test
+    public void testSkipCountAndRows() throws JSONException
+    {
+        JSONObject merged = new SolrShardResponseMerger(1, 2).merge(asList(new JSONObject(SHARD_1), new JSONObject(SHARD_2)), 0);
+
+        JSONObject response = merged.getJSONObject("response");
+        assertEquals(5, response.getLong("numFound"));
+        assertEquals(1, response.getInt("start"));
+        assertEquals(asList(10L, 2L), dbids(response.getJSONArray("docs")));
+    }
+
+    @Test
+    public void testFacetsSummedAndTrimmed() throws JSONException
+    {
+        JSONObject merged = new SolrShardResponseMerger(0, 10).merge(asList(new JSONObject(SHARD_1), new JSONObject(SHARD_2)), 0);
+
+        JSONObject facetCounts = merged.getJSONObject("facet_counts");
+        assertEquals(3, facetCounts.getJSONObject("facet_queries").getLong("{!afts}TYPE:cm:content"));
+
+        // Each shard returned two values so the merged list is cut to two as well
+        JSONArray creator = facetCounts.getJSONObject("facet_fields").getJSONArray("creator");
+        assertEquals(4, creator.length());
+        assertEquals("admin", creator.getString(0));
+        assertEquals(2, creator.getLong(1));
+        assertEquals("abeecher", creator.getString(2));
+        assertEquals(2, creator.getLong(3));
+    }
+
+    @Test
+    public void testHeaderAndTracking() throws JSONException
+    {
+        JSONObject merged = new SolrShardResponseMerger(0, 10).merge(asList(new JSONObject(SHARD_1), new JSONObject(SHARD_2)), 0);
+
+        JSONObject responseHeader = merged.getJSONObject("responseHeader");
+        assertEquals(9, responseHeader.getLong("QTime"));
+        assertFalse(responseHeader.getBoolean(SolrShardResponseMerger.PARTIAL_RESULTS));
+        assertEquals(2, responseHeader.getInt(SolrShardResponseMerger.SHARDS_TOTAL));
+        assertEquals(17, merged.getLong("lastIndexedTx"));
+        assertTrue(merged.getBoolean("processedDenies"));
+    }
+
+    @Test
+    public void testPartialResults() throws JSONException
+    {
+        JSONObject merged = new SolrShardResponseMerger(0, 10).merge(Collections.singletonList(new JSONObject(SHARD_1)), 1);
+
+        JSONObject responseHeader = merged.getJSONObject("responseHeader");
+        assertTrue(responseHeader.getBoolean(SolrShardResponseMerger.PARTIAL_RESULTS));
+        assertEquals(2, responseHeader.getInt(SolrShardResponseMerger.SHARDS_TOTAL));
+        assertEquals(1, responseHeader.getInt(SolrShardResponseMerger.SHARDS_FAILED));
+        assertEquals(3, merged.getJSONObject("response").getLong("numFound"));
+    }
+
+    private static List<Long> dbids(JSONArray docs) throws JSONException
+    {
+        List<Long> dbids = new ArrayList<>();
+        for (int i = 0; i < docs.length(); i++)
+        {
+            dbids.add(docs.getJSONObject(i).getLong("DBID"));
+        }
+        return dbids;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.authority;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.alfresco.util.BridgeTable;
+
+public class AuthorityBridgeChangeTest
+{
+    private BridgeTable<String> bridgeTable;
+
+    @Before
+    public void setUp()
+    {
+        bridgeTable = new BridgeTable<String>();
+        bridgeTable.addLink("GROUP_A", "GROUP_B");
+        bridgeTable.addLink("GROUP_B", "GROUP_C");
+    }
+
+    @Test
+    public void addsAndRemovesLinks()
+    {
+        assertTrue(AuthorityBridgeChange.addLink("GROUP_C", "GROUP_D").applyTo(bridgeTable));
+        assertEquals(3, bridgeTable.getDescendants("GROUP_A").size());
+
+        assertTrue(AuthorityBridgeChange.removeLink("GROUP_A", "GROUP_B").applyTo(bridgeTable));
+        assertEquals(0, bridgeTable.getDescendants("GROUP_A").size());
+        assertEquals(2, bridgeTable.getDescendants("GROUP_B").size());
+    }
+
+    @Test
+    public void deletingAnAuthorityRemovesItsLinks()
+    {
+        assertTrue(AuthorityBridgeChange.deleteAuthority("GROUP_B").applyTo(bridgeTable));
+        assertEquals(0, bridgeTable.getDescendants("GROUP_A").size());
+        assertEquals(0, bridgeTable.getAncestors("GROUP_C").size());
+    }
+
+    @Test
+    public void changesThatDoNotFitAreRejected()
+    {
+        // Already linked
+        assertFalse(AuthorityBridgeChange.addLink("GROUP_A", "GROUP_B").applyTo(bridgeTable));
+        // Cycles
+        assertFalse(AuthorityBridgeChange.addLink("GROUP_C", "GROUP_A").applyTo(bridgeTable));
+        assertFalse(AuthorityBridgeChange.addLink("GROUP_A", "GROUP_A").applyTo(bridgeTable));
+        // Not linked
+        assertFalse(AuthorityBridgeChange.removeLink("GROUP_A", "GROUP_C").applyTo(bridgeTable));
+
+        assertEquals(2, bridgeTable.getDescendants("GROUP_A").size());
+    }
+
+    @Test
+    public void changesToTheSameLinksConflict()
+    {
+        AuthorityBridgeChange add = AuthorityBridgeChange.addLink("GROUP_A", "GROUP_D");
+        assertTrue(add.conflictsWith(AuthorityBridgeChange.removeLink("GROUP_A", "GROUP_D")));
+        assertTrue(add.conflictsWith(AuthorityBridgeChange.deleteAuthority("GROUP_D")));
+        assertTrue(AuthorityBridgeChange.deleteAuthority("GROUP_A").conflictsWith(add));
+
+        assertFalse(add.conflictsWith(AuthorityBridgeChange.addLink("GROUP_A", "GROUP_E")));
+        assertFalse(add.conflictsWith(AuthorityBridgeChange.removeLink("GROUP_B", "GROUP_D")));
+        assertFalse(add.conflictsWith(AuthorityBridgeChange.deleteAuthority("GROUP_B")));
+    }
+}
@@ -54,6 +54,7 @@ import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.model.ContentModel;
 import org.alfresco.query.PagingRequest;
 import org.alfresco.query.PagingResults;
+import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.domain.permissions.AclDAO;
 import org.alfresco.repo.node.NodeServicePolicies;
 import org.alfresco.repo.node.archive.NodeArchiveService;
@@ -1057,6 +1058,69 @@ public class AuthorityServiceTest extends TestCase
         assertTrue(pubAuthorityService.getContainedAuthorities(null, auth1, false).contains("andy"));
     }
 
+    public void testBridgeTableExpansionMatchesRecursiveExpansion()
+    {
+        String top = pubAuthorityService.createAuthority(AuthorityType.GROUP, "expandTop");
+        String middle = pubAuthorityService.createAuthority(AuthorityType.GROUP, "expandMiddle");
+        String left = pubAuthorityService.createAuthority(AuthorityType.GROUP, "expandLeft");
+        String right = pubAuthorityService.createAuthority(AuthorityType.GROUP, "expandRight");
+        String other = pubAuthorityService.createAuthority(AuthorityType.GROUP, "expandOther");
+        pubAuthorityService.addAuthority(top, middle);
+        pubAuthorityService.addAuthority(middle, left);
+        pubAuthorityService.addAuthority(middle, right);
+        pubAuthorityService.addAuthority(left, "andy");
+        pubAuthorityService.addAuthority(right, "andy");
+        authorityBridgeTableCache.forceInChangesForThisUncommittedTransaction();
+
+        Set<String> expanded = authorityDAO.getContainingAuthorities(null, "andy", false);
+        assertEquals(new HashSet<String>(Arrays.asList(top, middle, left, right)), expanded);
+        assertEquals(getContainingAuthoritiesRecursively("andy"), expanded);
+        // The expanded set is reused while the bridge table and the user's groups are unchanged
+        assertSame(expanded, authorityDAO.getContainingAuthorities(null, "andy", false));
+
+        // A group linked above the user's groups
+        pubAuthorityService.addAuthority(other, top);
+        authorityBridgeTableCache.forceInChangesForThisUncommittedTransaction();
+        expanded = authorityDAO.getContainingAuthorities(null, "andy", false);
+        assertEquals(new HashSet<String>(Arrays.asList(other, top, middle, left, right)), expanded);
+        assertEquals(getContainingAuthoritiesRecursively("andy"), expanded);
+
+        // A group unlinked between the user's groups and the top
+        pubAuthorityService.removeAuthority(top, middle);
+        authorityBridgeTableCache.forceInChangesForThisUncommittedTransaction();
+        expanded = authorityDAO.getContainingAuthorities(null, "andy", false);
+        assertEquals(new HashSet<String>(Arrays.asList(middle, left, right)), expanded);
+        assertEquals(getContainingAuthoritiesRecursively("andy"), expanded);
+
+        // The user leaving one of the groups does not change the bridge table
+        pubAuthorityService.removeAuthority(left, "andy");
+        expanded = authorityDAO.getContainingAuthorities(null, "andy", false);
+        assertEquals(new HashSet<String>(Arrays.asList(middle, right)), expanded);
+        assertEquals(getContainingAuthoritiesRecursively("andy"), expanded);
+    }
+
+    /**
+     * Get a user's authorities by walking the group hierarchy, as when the bridge table is not used
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> getContainingAuthoritiesRecursively(String userName)
+    {
+        AuthorityDAOImpl authorityDAOImpl = (AuthorityDAOImpl) authorityDAO;
+        SimpleCache<String, Set<String>> userAuthorityCache = (SimpleCache<String, Set<String>>) ctx.getBean("userToAuthorityCache");
+        // The cached authorities are only the direct ones when the bridge table is used
+        userAuthorityCache.clear();
+        authorityDAOImpl.setUseBridgeTable(false);
+        try
+        {
+            return authorityDAO.getContainingAuthorities(null, userName, false);
+        }
+        finally
+        {
+            userAuthorityCache.clear();
+            authorityDAOImpl.setUseBridgeTable(true);
+        }
+    }
+
     public void testGetAuthorityNodeRef()
     {
         String ADMIN_GROUP = "GROUP_ALFRESCO_ADMINISTRATORS";
@@ -31,7 +31,11 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.BasicAttribute;
@@ -685,6 +689,77 @@ public class ChainingUserRegistrySynchronizerTest extends TestCase
         tearDownTestUsersAndGroups();
     }
 
+    /**
+     * Tests that a forced synchronization of existing groups reads the current children of each group once per zone, however many groups of the zone it is related to.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    public void testForcedUpdateReadsGroupChildrenOnce() throws Exception
+    {
+        setUpTestUsersAndGroups();
+        ChainingUserRegistrySynchronizer chainingSynchronizer = (ChainingUserRegistrySynchronizer) this.synchronizer;
+        final Map<String, AtomicInteger> reads = new ConcurrentHashMap<String, AtomicInteger>();
+        AuthorityService countingAuthorityService = (AuthorityService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{AuthorityService.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getContainedAuthorities"))
+                    {
+                        reads.computeIfAbsent((String) args[1], key -> new AtomicInteger()).incrementAndGet();
+                    }
+                    try
+                    {
+                        return method.invoke(this.authorityService, args);
+                    }
+                    catch (InvocationTargetException e)
+                    {
+                        throw e.getCause();
+                    }
+                });
+        chainingSynchronizer.setAuthorityService(countingAuthorityService);
+        // A single worker, as a group that one worker reads ahead may be cached by another in the meantime
+        chainingSynchronizer.setWorkerThreads(1);
+        try
+        {
+            // The groups of each zone do not overlap, so each group is read by one zone's analysis
+            this.synchronizer.synchronize(true, true);
+        }
+        finally
+        {
+            chainingSynchronizer.setAuthorityService(this.authorityService);
+            chainingSynchronizer.setWorkerThreads(2);
+        }
+        assertTrue(reads.containsKey(longName("G3")));
+        assertTrue(reads.containsKey(longName("G7")));
+        for (Map.Entry<String, AtomicInteger> read : reads.entrySet())
+        {
+            assertEquals("Children of " + read.getKey() + " read more than once", 1, read.getValue().get());
+        }
+        tearDownTestUsersAndGroups();
+    }
+
+    /**
+     * Tests the number of worker threads of each synchronization phase.
+     */
+    public void testWorkerThreadsPerPhase()
+    {
+        ChainingUserRegistrySynchronizer chainingSynchronizer = new ChainingUserRegistrySynchronizer();
+        chainingSynchronizer.setWorkerThreads(2);
+        for (ChainingUserRegistrySynchronizer.SyncProcess process : ChainingUserRegistrySynchronizer.SyncProcess.values())
+        {
+            assertEquals(2, chainingSynchronizer.getWorkerThreads(process));
+        }
+
+        chainingSynchronizer.setAssociationWorkerThreads(8);
+        chainingSynchronizer.setUserWorkerThreads(4);
+        assertEquals(2, chainingSynchronizer.getWorkerThreads(ChainingUserRegistrySynchronizer.SyncProcess.GROUP_ANALYSIS));
+        assertEquals(2, chainingSynchronizer.getWorkerThreads(ChainingUserRegistrySynchronizer.SyncProcess.MISSING_AUTHORITY));
+        assertEquals(8, chainingSynchronizer.getWorkerThreads(ChainingUserRegistrySynchronizer.SyncProcess.GROUP_CREATION_AND_ASSOCIATION_DELETION));
+        assertEquals(8, chainingSynchronizer.getWorkerThreads(ChainingUserRegistrySynchronizer.SyncProcess.GROUP_ASSOCIATION_CREATION));
+        assertEquals(8, chainingSynchronizer.getWorkerThreads(ChainingUserRegistrySynchronizer.SyncProcess.PERSON_ASSOCIATION));
+        assertEquals(4, chainingSynchronizer.getWorkerThreads(ChainingUserRegistrySynchronizer.SyncProcess.USER_CREATION));
+        assertEquals(2, chainingSynchronizer.getWorkerThreads(ChainingUserRegistrySynchronizer.SyncProcess.AUTHORITY_DELETION));
+    }
+
     /**
      * 
      */
@@ -30,8 +30,12 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
@@ -41,6 +45,8 @@ import javax.naming.NamingException;
 import javax.naming.ServiceUnavailableException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
 import javax.naming.directory.InitialDirContext;
 import javax.naming.directory.SearchResult;
 
@@ -154,6 +160,29 @@ public class LDAPUserRegistryTest
         }
     }
 
+    /**
+     * Tests that a member DN that has to be resolved by a directory lookup is looked up once, however many groups it belongs to.
+     */
+    @Test
+    public void testMemberLookedUpOncePerSync() throws Exception
+    {
+        LDAPUserRegistry userRegistry = createRegistry();
+
+        // The group is returned twice, so its member is resolved twice
+        when(searchResults.hasMore()).thenReturn(true, true, false);
+        BasicAttributes memberAttributes = new BasicAttributes(true);
+        memberAttributes.put(new BasicAttribute("objectclass", "inetOrgPerson"));
+        memberAttributes.put(new BasicAttribute(USER_ID_ATTRIBUTE_NAME, "foouser10"));
+        when(initialDirContext.getAttributes(eq(LDAPUserRegistry.jndiName(MEMBER_ATTRIBUTE_VALUE)), any()))
+                .thenReturn(memberAttributes);
+
+        Collection<NodeDescription> groups = userRegistry.getGroups(new Date());
+
+        assertEquals(1, groups.size());
+        assertEquals(Collections.singleton("foouser10"), groups.iterator().next().getChildAssociations());
+        verify(initialDirContext, times(1)).getAttributes(eq(LDAPUserRegistry.jndiName(MEMBER_ATTRIBUTE_VALUE)), any());
+    }
+
     /**
      * Test for MNT-21614: Check & fail if communication breaks due to javax.naming.ServiceUnavailableException
      */
@@ -2199,6 +2199,35 @@ public class SiteServiceImplTest extends BaseAlfrescoSpringTest
         assertEquals(roles.get(0).getMemberRole(), SiteModel.SITE_COLLABORATOR);
     }
 
+    /**
+     * Changes made to a site's role groups outside of the site service are seen by the member listings
+     */
+    @Test
+    public void testMembershipChangedThroughRoleGroups()
+    {
+        String siteShortName = "testMembership3" + UUID.randomUUID();
+        this.siteService.createSite(TEST_SITE_PRESET, siteShortName, TEST_TITLE, TEST_DESCRIPTION, SiteVisibility.PUBLIC);
+        this.siteService.setMembership(siteShortName, USER_TWO, SiteModel.SITE_CONSUMER);
+
+        Map<String, String> members = this.siteService.listMembers(siteShortName, null, null, 0);
+        assertEquals(2, members.size());
+        assertEquals(SiteModel.SITE_CONSUMER, members.get(USER_TWO));
+
+        // Add and remove members through the role groups directly
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+        String collaboratorGroup = this.siteService.getSiteRoleGroup(siteShortName, SiteModel.SITE_COLLABORATOR);
+        this.authorityService.addAuthority(collaboratorGroup, USER_THREE);
+        String consumerGroup = this.siteService.getSiteRoleGroup(siteShortName, SiteModel.SITE_CONSUMER);
+        this.authorityService.removeAuthority(consumerGroup, USER_TWO);
+        AuthenticationUtil.setFullyAuthenticatedUser(USER_ONE);
+
+        members = this.siteService.listMembers(siteShortName, null, null, 0);
+        assertEquals(2, members.size());
+        assertFalse(members.containsKey(USER_TWO));
+        assertEquals(SiteModel.SITE_COLLABORATOR, members.get(USER_THREE));
+        assertEquals(SiteModel.SITE_COLLABORATOR, this.siteService.getMembersRoleInfo(siteShortName, USER_THREE).getMemberRole());
+    }
+
     /**
      * Tests the visibility of a site
      * 
@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.solr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TransactionCommitNotifierTest
+{
+    @Test
+    public void shouldTimeOutWithoutCommit() throws InterruptedException
+    {
+        TransactionCommitNotifier notifier = new TransactionCommitNotifier();
+
+        assertFalse(notifier.awaitCommit(notifier.getCommitCount(), 10));
+        assertEquals(0, notifier.getCommitCount());
+    }
+
+    @Test
+    public void shouldNotWaitForCommitAlreadySeen() throws InterruptedException
+    {
+        TransactionCommitNotifier notifier = new TransactionCommitNotifier();
+        long commitCount = notifier.getCommitCount();
+        notifier.transactionCommitted();
+
+        assertTrue(notifier.awaitCommit(commitCount, 0));
+        assertEquals(commitCount + 1, notifier.getCommitCount());
+    }
+
+    @Test
+    public void shouldWakeUpWaiterOnCommit() throws InterruptedException
+    {
+        TransactionCommitNotifier notifier = new TransactionCommitNotifier();
+        long commitCount = notifier.getCommitCount();
+        CountDownLatch woken = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try
+            {
+                if (notifier.awaitCommit(commitCount, 60000))
+                {
+                    woken.countDown();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+
+        notifier.transactionCommitted();
+
+        assertTrue(woken.await(10, TimeUnit.SECONDS));
+        waiter.join();
+    }
+}
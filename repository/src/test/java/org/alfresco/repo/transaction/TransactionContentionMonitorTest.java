@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2025 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.repo.transaction.TransactionContentionMonitor.CallSite;
+import org.alfresco.repo.transaction.TransactionContentionMonitor.CallSiteStatistics;
+import org.alfresco.util.LockHelper.LockTryException;
+
+public class TransactionContentionMonitorTest
+{
+    private TransactionContentionMonitor monitor;
+
+    @Before
+    public void setUp()
+    {
+        monitor = new TransactionContentionMonitor();
+        monitor.setMaxConcurrentHotTransactions(1);
+        monitor.setHotThreshold(2);
+        monitor.setHotPeriodMs(60000L);
+    }
+
+    @Test
+    public void classifiesContention()
+    {
+        assertEquals(ContentionType.DEADLOCK, ContentionType.classify(new DeadlockLoserDataAccessException("deadlock", null)));
+        assertEquals(ContentionType.DEADLOCK, ContentionType.classify(
+                new AlfrescoRuntimeException("wrapped", new SQLException("deadlock detected", "40P01"))));
+        assertEquals(ContentionType.UNIQUE_CONSTRAINT, ContentionType.classify(new DataIntegrityViolationException("duplicate")));
+        assertEquals(ContentionType.UNIQUE_CONSTRAINT, ContentionType.classify(new SQLException("duplicate key", "23505")));
+        assertEquals(ContentionType.OPTIMISTIC_LOCK, ContentionType.classify(new ConcurrencyFailureException("node version")));
+        assertEquals(ContentionType.LOCK, ContentionType.classify(new LockTryException("busy")));
+        assertEquals(ContentionType.OTHER, ContentionType.classify(new SQLException("connection reset", "08006")));
+    }
+
+    @Test
+    public void recordsStatisticsPerCallSite()
+    {
+        CallSite callSite = monitor.getCallSite("site", true);
+        callSite.recordRetry(ContentionType.DEADLOCK);
+        callSite.recordRetry(ContentionType.OPTIMISTIC_LOCK);
+        callSite.recordTransaction(30L, false);
+        callSite.recordTransaction(10L, true);
+        monitor.getCallSite("quiet", true).recordTransaction(5L, false);
+
+        CallSiteStatistics statistics = monitor.getStatistics("site");
+        assertEquals(2, statistics.getTransactions());
+        assertEquals(1, statistics.getFailures());
+        assertEquals(2, statistics.getRetries());
+        assertEquals(1, statistics.getRetries(ContentionType.DEADLOCK));
+        assertEquals(20.0, statistics.getAverageTimeMs(), 0.001);
+        assertEquals(30L, statistics.getMaxTimeMs());
+        assertNull(monitor.getStatistics("unknown"));
+
+        assertEquals(1, monitor.getMostContended(10).size());
+        assertEquals("site", monitor.getMostContended(10).get(0).getCallSite());
+    }
+
+    @Test
+    public void callSitesBeyondTheLimitAreCountedTogether()
+    {
+        monitor.setMaxCallSites(1);
+        monitor.getCallSite("first", true).recordTransaction(1L, false);
+        monitor.getCallSite("second", true).recordTransaction(1L, false);
+        monitor.getCallSite("third", true).recordTransaction(1L, false);
+
+        assertEquals(2, monitor.getStatistics(TransactionContentionMonitor.OTHER_CALL_SITES).getTransactions());
+    }
+
+    @Test
+    public void hotCallSitesAreLimited()
+    {
+        CallSite callSite = monitor.getCallSite("site", true);
+        assertFalse("Quiet call sites are not limited", callSite.admit(0L));
+
+        callSite.recordRetry(ContentionType.OPTIMISTIC_LOCK);
+        callSite.recordRetry(ContentionType.OPTIMISTIC_LOCK);
+        assertTrue(monitor.getStatistics("site").isHot());
+
+        assertTrue(callSite.admit(0L));
+        assertFalse("Only one transaction at a time", callSite.admit(10L));
+        callSite.release();
+        assertTrue(callSite.admit(0L));
+        callSite.release();
+    }
+
+    @Test
+    public void limitSetAfterCallSiteIsUsed() throws Exception
+    {
+        monitor = new TransactionContentionMonitor();
+        monitor.setHotThreshold(1);
+        monitor.setHotPeriodMs(60000L);
+        CallSite callSite = monitor.getCallSite("site", true);
+        callSite.recordRetry(ContentionType.DEADLOCK);
+        assertFalse("Not limited yet", callSite.admit(0L));
+
+        monitor.setMaxConcurrentHotTransactions(2);
+        assertTrue(callSite.admit(0L));
+        assertTrue(callSite.admit(0L));
+        assertFalse("Two transactions at a time", callSite.admit(10L));
+
+        // Raising the limit lets a waiting transaction in
+        Thread raiser = new Thread(() -> {
+            try
+            {
+                Thread.sleep(100L);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            monitor.setMaxConcurrentHotTransactions(3);
+        });
+        raiser.start();
+        assertTrue(callSite.admit(10000L));
+        raiser.join();
+
+        // Lowering it holds transactions back until enough turns are given back
+        monitor.setMaxConcurrentHotTransactions(1);
+        callSite.release();
+        callSite.release();
+        assertFalse(callSite.admit(10L));
+        callSite.release();
+        assertTrue(callSite.admit(0L));
+        callSite.release();
+    }
+
+    @Test
+    public void genericCallSitesAreNeverLimited()
+    {
+        CallSite callSite = monitor.getCallSite("webscript", false);
+        callSite.recordRetry(ContentionType.OPTIMISTIC_LOCK);
+        callSite.recordRetry(ContentionType.OPTIMISTIC_LOCK);
+        assertTrue(monitor.getStatistics("webscript").isHot());
+
+        assertFalse(callSite.admit(0L));
+        assertFalse(callSite.admit(0L));
+    }
+
+    @Test
+    public void hotCallSitesAreNotLimitedByDefault()
+    {
+        monitor = new TransactionContentionMonitor();
+        monitor.setHotThreshold(1);
+        CallSite callSite = monitor.getCallSite("site", true);
+        callSite.recordRetry(ContentionType.DEADLOCK);
+        assertTrue(monitor.getStatistics("site").isHot());
+
+        assertFalse(callSite.admit(0L));
+    }
+
+    @Test
+    public void retryWaitsStayWithinBounds()
+    {
+        RetryingTransactionHelper helper = new RetryingTransactionHelper();
+        helper.setMinRetryWaitMs(10);
+        helper.setMaxRetryWaitMs(500);
+        int[] lastRetryWaits = new int[ContentionType.values().length];
+        for (int count = 0; count < 50; count++)
+        {
+            int deadlockWait = helper.getRetryWaitMs(ContentionType.DEADLOCK, count, lastRetryWaits);
+            assertTrue(deadlockWait >= 10 && deadlockWait <= 500);
+            int uniqueWait = helper.getRetryWaitMs(ContentionType.UNIQUE_CONSTRAINT, count, lastRetryWaits);
+            assertTrue(uniqueWait >= 10 && uniqueWait <= 40);
+            int otherWait = helper.getRetryWaitMs(ContentionType.OTHER, count, lastRetryWaits);
+            assertTrue(otherWait >= 10 && otherWait <= 500);
+        }
+    }
+}